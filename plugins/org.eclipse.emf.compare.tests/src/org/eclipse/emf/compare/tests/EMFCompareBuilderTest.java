@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.emf.common.util.BasicMonitor;
+import org.eclipse.emf.common.util.Monitor;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.ComparisonCanceledException;
+import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.compare.diff.DiffBuffer;
+import org.eclipse.emf.compare.diff.FeatureFilter;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.compare.scope.IComparisonScope;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the comparisons of the instances of {@link EMFCompare} configured through its builder.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class EMFCompareBuilderTest {
+	private static final int CLASS_COUNT = 50;
+
+	private ExecutorService executor;
+
+	private IComparisonScope scope;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+
+		final XMIResource left = createModel();
+		final XMIResource right = createModel();
+		final EPackage rightRoot = (EPackage)right.getContents().get(0);
+		for (int i = 0; i < CLASS_COUNT; i += 10) {
+			rightRoot.getEClassifiers().get(i).setName("renamed" + i);
+		}
+		scope = new DefaultComparisonScope(left, right, null);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void reuseAcrossComparisons() {
+		final Comparison reference = EMFCompare.builder().build().compare(scope, new BasicMonitor());
+		final int expected = reference.getDifferences().size();
+		assertTrue(expected > 0);
+
+		final EMFCompare compare = EMFCompare.builder().setExecutor(executor)
+				.setFeatureFilter(new FeatureFilter()).build();
+		for (int i = 0; i < 100; i++) {
+			final Comparison comparison = compare.compare(scope, new BasicMonitor());
+			assertEquals(expected, comparison.getDifferences().size());
+		}
+	}
+
+	@Test
+	public void customDiffProcessor() {
+		final DiffBuffer buffer = new DiffBuffer();
+		final Comparison comparison = EMFCompare.builder().setDiffProcessor(buffer).build().compare(scope,
+				new BasicMonitor());
+
+		assertTrue(comparison.getDifferences().isEmpty());
+		assertEquals(CLASS_COUNT / 10, buffer.size());
+	}
+
+	@Test
+	public void cancellation() {
+		final Monitor monitor = new BasicMonitor();
+		monitor.setCanceled(true);
+		try {
+			EMFCompare.builder().build().compare(scope, monitor);
+			fail("Canceled comparison should have been interrupted");
+		} catch (ComparisonCanceledException e) {
+			// expected
+		}
+	}
+
+	private static XMIResource createModel() {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("model.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			final EClass clazz = EcoreFactory.eINSTANCE.createEClass();
+			clazz.setName("Class" + i);
+			root.getEClassifiers().add(clazz);
+			resource.setID(clazz, "class" + i);
+		}
+		return resource;
+	}
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.conflict;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import org.eclipse.emf.common.util.BasicMonitor;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Conflict;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.compare.conflict.DefaultConflictDetector;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks the conflicts detected by the {@link DefaultConflictDetector}.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class ConflictDetectionTest {
+	private static final int CLASS_COUNT = 10;
+
+	@Test
+	public void threeWayConflicts() {
+		final XMIResource origin = createModel();
+		final XMIResource left = createModel();
+		final XMIResource right = createModel();
+
+		// Distinct values for the same feature
+		getClass(left, 1).setName("left1");
+		getClass(right, 1).setName("right1");
+		// Same change on both sides
+		getClass(left, 2).setName("same2");
+		getClass(right, 2).setName("same2");
+		// Change within a deleted element
+		EcoreUtil.remove(getClass(left, 3));
+		getClass(right, 3).setName("right3");
+		// Reference towards a deleted element
+		EcoreUtil.remove(getClass(left, 4));
+		getClass(right, 5).getESuperTypes().add(getClass(right, 4));
+		// Not conflicting
+		getClass(right, 6).setName("right6");
+
+		final Comparison comparison = EMFCompare.builder().setConflictDetector(new DefaultConflictDetector())
+				.build().compare(new DefaultComparisonScope(left, right, origin), new BasicMonitor());
+
+		assertEquals(3, comparison.getConflicts().size());
+		for (Conflict conflict : comparison.getConflicts()) {
+			assertEquals(1, conflict.getLeftDifferences().size());
+			assertEquals(1, conflict.getRightDifferences().size());
+		}
+		int conflicting = 0;
+		for (Diff diff : comparison.getDifferences()) {
+			if (diff.getConflict() != null) {
+				conflicting++;
+			} else {
+				assertTrue(diff instanceof AttributeChange);
+				assertEquals("right6", ((AttributeChange)diff).getValue());
+			}
+		}
+		assertEquals(6, conflicting);
+	}
+
+	@Test
+	public void twoWayComparison() {
+		final XMIResource left = createModel();
+		final XMIResource right = createModel();
+		getClass(left, 1).setName("left1");
+		getClass(right, 2).setName("right2");
+		EcoreUtil.remove(getClass(left, 3));
+
+		final Comparison comparison = EMFCompare.builder().setConflictDetector(new DefaultConflictDetector())
+				.build().compare(new DefaultComparisonScope(left, right, null), new BasicMonitor());
+
+		assertEquals(3, comparison.getDifferences().size());
+		assertTrue(comparison.getConflicts().isEmpty());
+	}
+
+	@Test
+	public void notDetectedByDefault() {
+		final XMIResource origin = createModel();
+		final XMIResource left = createModel();
+		final XMIResource right = createModel();
+		getClass(left, 1).setName("left1");
+		getClass(right, 1).setName("right1");
+
+		final Comparison comparison = EMFCompare.compare(left, right, origin);
+
+		assertEquals(2, comparison.getDifferences().size());
+		assertTrue(comparison.getConflicts().isEmpty());
+	}
+
+	@Test
+	public void moveAndDelete() {
+		final Comparison comparison = CompareFactory.eINSTANCE.createComparison();
+		final Match root = createMatch(comparison, null);
+		final Match movedTo = createMatch(comparison, root);
+		final Match moved = createMatch(comparison, root);
+		final Match movedOnBothSides = createMatch(comparison, root);
+
+		final ReferenceChange move = createReferenceChange(movedTo, moved, DifferenceKind.MOVE,
+				DifferenceSource.LEFT);
+		final ReferenceChange delete = createReferenceChange(root, moved, DifferenceKind.DELETE,
+				DifferenceSource.RIGHT);
+		final ReferenceChange leftMove = createReferenceChange(movedTo, movedOnBothSides,
+				DifferenceKind.MOVE, DifferenceSource.LEFT);
+		final ReferenceChange rightMove = createReferenceChange(movedTo, movedOnBothSides,
+				DifferenceKind.MOVE, DifferenceSource.RIGHT);
+
+		new DefaultConflictDetector().detect(comparison);
+
+		assertEquals(1, comparison.getConflicts().size());
+		assertSame(move.getConflict(), delete.getConflict());
+		assertNull(leftMove.getConflict());
+		assertNull(rightMove.getConflict());
+	}
+
+	@Test
+	public void largeComparison() {
+		final int matchCount = 50000;
+		final Comparison comparison = CompareFactory.eINSTANCE.createComparison();
+		final Match root = createMatch(comparison, null);
+		for (int i = 0; i < matchCount; i++) {
+			final Match match = createMatch(comparison, root);
+			createNameChange(match, "left" + i, DifferenceSource.LEFT);
+			// Every other match is changed the same way on both sides
+			if (i % 2 == 0) {
+				createNameChange(match, "right" + i, DifferenceSource.RIGHT);
+			} else {
+				createNameChange(match, "left" + i, DifferenceSource.RIGHT);
+			}
+		}
+		assertEquals(matchCount * 2, comparison.getDifferences().size());
+
+		new DefaultConflictDetector().detect(comparison);
+
+		assertEquals(matchCount / 2, comparison.getConflicts().size());
+		for (Conflict conflict : comparison.getConflicts()) {
+			assertEquals(2, conflict.getDifferences().size());
+			final Diff first = conflict.getDifferences().get(0);
+			assertSame(first.getMatch(), conflict.getDifferences().get(1).getMatch());
+		}
+	}
+
+	private static Match createMatch(Comparison comparison, Match parent) {
+		final Match match = CompareFactory.eINSTANCE.createMatch();
+		match.setLeft(EcoreFactory.eINSTANCE.createEClass());
+		match.setRight(EcoreFactory.eINSTANCE.createEClass());
+		match.setOrigin(EcoreFactory.eINSTANCE.createEClass());
+		if (parent == null) {
+			comparison.getMatches().add(match);
+		} else {
+			parent.getSubmatches().add(match);
+		}
+		return match;
+	}
+
+	private static ReferenceChange createReferenceChange(Match match, Match value, DifferenceKind kind,
+			DifferenceSource source) {
+		final ReferenceChange change = CompareFactory.eINSTANCE.createReferenceChange();
+		change.setReference(EcorePackage.Literals.EPACKAGE__ECLASSIFIERS);
+		if (source == DifferenceSource.LEFT) {
+			change.setValue(value.getLeft());
+		} else {
+			change.setValue(value.getRight());
+		}
+		change.setKind(kind);
+		change.setSource(source);
+		change.setMatch(match);
+		return change;
+	}
+
+	private static AttributeChange createNameChange(Match match, String value, DifferenceSource source) {
+		final AttributeChange change = CompareFactory.eINSTANCE.createAttributeChange();
+		change.setAttribute(EcorePackage.Literals.ENAMED_ELEMENT__NAME);
+		change.setValue(value);
+		change.setKind(DifferenceKind.CHANGE);
+		change.setSource(source);
+		change.setMatch(match);
+		return change;
+	}
+
+	private static EClass getClass(XMIResource resource, int index) {
+		return (EClass)resource.getEObject("class" + index);
+	}
+
+	private static XMIResource createModel() {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("model.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			final EClass clazz = EcoreFactory.eINSTANCE.createEClass();
+			clazz.setName("Class" + i);
+			root.getEClassifiers().add(clazz);
+			resource.setID(clazz, "class" + i);
+		}
+		return resource;
+	}
+}
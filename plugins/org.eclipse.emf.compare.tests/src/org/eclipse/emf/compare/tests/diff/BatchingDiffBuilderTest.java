@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.diff;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.diff.BatchingDiffBuilder;
+import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.compare.diff.DiffBuilder;
+import org.eclipse.emf.compare.diff.IBatchingDiffProcessor;
+import org.eclipse.emf.compare.match.DefaultMatchEngine;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link BatchingDiffBuilder} attaches the same differences, in the same order, as the
+ * {@link DiffBuilder}.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class BatchingDiffBuilderTest {
+	private static final int CLASS_COUNT = 500;
+
+	@Test
+	public void sameDifferences() {
+		final Resource left = createModel("left");
+		final Resource right = createModel("right");
+		final DefaultComparisonScope scope = new DefaultComparisonScope(left, right, null);
+
+		final Comparison expected = new DefaultMatchEngine().match(scope);
+		new DefaultDiffEngine(new DiffBuilder(), null, null).diff(expected);
+		final Comparison actual = new DefaultMatchEngine().match(scope);
+		// Cache the (empty) list of differences, it should be invalidated by the batches
+		assertTrue(actual.getDifferences().isEmpty());
+		new DefaultDiffEngine(new BatchingDiffBuilder(), null, null).diff(actual);
+
+		final List<Diff> expectedDiffs = expected.getDifferences();
+		final List<Diff> actualDiffs = actual.getDifferences();
+		assertEquals(CLASS_COUNT, expectedDiffs.size());
+		assertEquals(expectedDiffs.size(), actualDiffs.size());
+		for (int i = 0; i < expectedDiffs.size(); i++) {
+			final AttributeChange expectedDiff = (AttributeChange)expectedDiffs.get(i);
+			final AttributeChange actualDiff = (AttributeChange)actualDiffs.get(i);
+			assertSame(expectedDiff.getMatch().getLeft(), actualDiff.getMatch().getLeft());
+			assertSame(expectedDiff.getAttribute(), actualDiff.getAttribute());
+			assertEquals(expectedDiff.getValue(), actualDiff.getValue());
+		}
+	}
+
+	@Test
+	public void flush() {
+		final Match first = createMatch();
+		final Match second = createMatch();
+		final BatchingDiffBuilder builder = new BatchingDiffBuilder();
+
+		for (int i = 0; i < 20; i++) {
+			builder.attributeChange(first, EcorePackage.Literals.ENAMED_ELEMENT__NAME, "name" + i,
+					DifferenceKind.CHANGE, DifferenceSource.LEFT);
+		}
+		assertTrue(first.getDifferences().isEmpty());
+		builder.attributeChange(second, EcorePackage.Literals.ENAMED_ELEMENT__NAME, "other",
+				DifferenceKind.CHANGE, DifferenceSource.LEFT);
+		assertEquals(20, first.getDifferences().size());
+		assertTrue(second.getDifferences().isEmpty());
+		builder.flush();
+		assertEquals(1, second.getDifferences().size());
+
+		for (int i = 0; i < 20; i++) {
+			final AttributeChange diff = (AttributeChange)first.getDifferences().get(i);
+			assertSame(first, diff.getMatch());
+			assertEquals("name" + i, diff.getValue());
+		}
+	}
+
+	@Test
+	public void flushedByEngine() {
+		final Resource left = createModel("left");
+		final Resource right = createModel("right");
+		final Comparison comparison = new DefaultMatchEngine().match(new DefaultComparisonScope(left, right,
+				null));
+
+		final FlushCountingBuilder builder = new FlushCountingBuilder();
+		new DefaultDiffEngine(builder, null, null).diff(comparison);
+		assertEquals(1, builder.flushCount);
+		assertEquals(CLASS_COUNT, comparison.getDifferences().size());
+	}
+
+	private static Match createMatch() {
+		final Match match = CompareFactory.eINSTANCE.createMatch();
+		match.setLeft(EcoreFactory.eINSTANCE.createEClass());
+		match.setRight(EcoreFactory.eINSTANCE.createEClass());
+		return match;
+	}
+
+	private static XMIResource createModel(String prefix) {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("model.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			final EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+			eClass.setName(prefix + i);
+			root.getEClassifiers().add(eClass);
+			resource.setID(eClass, "class" + i);
+		}
+		return resource;
+	}
+
+	/**
+	 * Counts the number of times it has been flushed.
+	 */
+	private static class FlushCountingBuilder extends DiffBuilder implements IBatchingDiffProcessor {
+		int flushCount;
+
+		public void flush() {
+			flushCount++;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.diff;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.emf.common.util.BasicMonitor;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.compare.diff.DiffSummary;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.compare.scope.IComparisonScope;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link DiffSummary} counts the same differences as those of a full comparison.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class DiffSummaryTest {
+	private static final int CLASS_COUNT = 50;
+
+	@Test
+	public void sameCounts() {
+		final IComparisonScope scope = createScope();
+
+		final Comparison comparison = EMFCompare.builder().build().compare(scope, new BasicMonitor());
+		final DiffSummary summary = EMFCompare.builder().build().summarize(scope, false);
+
+		assertFalse(summary.isStopped());
+		assertTrue(summary.hasDifferences());
+		assertEquals(comparison.getDifferences().size(), summary.getDifferenceCount());
+		for (DifferenceKind kind : DifferenceKind.values()) {
+			int expected = 0;
+			for (Diff diff : comparison.getDifferences()) {
+				if (diff.getKind() == kind) {
+					expected++;
+				}
+			}
+			assertEquals(expected, summary.getCount(kind));
+		}
+		assertEquals(summary.getDifferenceCount(), summary.getCount(DifferenceSource.LEFT)
+				+ summary.getCount(DifferenceSource.RIGHT));
+
+		final Map<EStructuralFeature, Integer> byFeature = summary.getCountsByFeature();
+		for (Map.Entry<EStructuralFeature, Integer> entry : byFeature.entrySet()) {
+			int expected = 0;
+			for (Diff diff : comparison.getDifferences()) {
+				if (getFeature(diff) == entry.getKey()) {
+					expected++;
+				}
+			}
+			assertEquals(expected, entry.getValue().intValue());
+		}
+		assertEquals(Integer.valueOf(CLASS_COUNT / 2), byFeature
+				.get(EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+		assertEquals(Integer.valueOf(CLASS_COUNT / 2), summary.getCountsByEClass().get(
+				EcorePackage.Literals.ECLASS));
+	}
+
+	@Test
+	public void stopOnFirstDifference() {
+		final DiffSummary summary = EMFCompare.builder().build().summarize(createScope(), true);
+
+		assertTrue(summary.isStopped());
+		assertEquals(1, summary.getDifferenceCount());
+	}
+
+	@Test
+	public void stopOnFirstDifferenceConcurrently() {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final DiffSummary summary = EMFCompare.builder().setExecutor(executor).build().summarize(
+					createScope(), true);
+
+			assertTrue(summary.isStopped());
+			assertEquals(1, summary.getDifferenceCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void ignoreDifferencesOnceStopped() {
+		final DiffSummary summary = new DiffSummary(true);
+		final Comparison comparison = EMFCompare.builder().build().compare(createScope(), new BasicMonitor());
+		for (Diff diff : comparison.getDifferences()) {
+			summary.attributeChange(diff.getMatch(), EcorePackage.Literals.ENAMED_ELEMENT__NAME, "name",
+					DifferenceKind.CHANGE, DifferenceSource.LEFT);
+		}
+
+		assertTrue(summary.isStopped());
+		assertEquals(1, summary.getDifferenceCount());
+		assertEquals(1, summary.getCount(DifferenceKind.CHANGE));
+	}
+
+	@Test
+	public void noDifference() {
+		final IComparisonScope scope = new DefaultComparisonScope(createModel(0), createModel(0), null);
+		final DiffSummary summary = EMFCompare.builder().build().summarize(scope, true);
+
+		assertFalse(summary.isStopped());
+		assertFalse(summary.hasDifferences());
+		assertTrue(summary.getCountsByEClass().isEmpty());
+	}
+
+	private static EStructuralFeature getFeature(Diff diff) {
+		EStructuralFeature feature = null;
+		if (diff instanceof ReferenceChange) {
+			feature = ((ReferenceChange)diff).getReference();
+		} else if (diff instanceof AttributeChange) {
+			feature = ((AttributeChange)diff).getAttribute();
+		}
+		return feature;
+	}
+
+	private static IComparisonScope createScope() {
+		final XMIResource left = createModel(CLASS_COUNT / 2);
+		final XMIResource right = createModel(0);
+		final EPackage root = (EPackage)left.getContents().get(0);
+		final EClass added = EcoreFactory.eINSTANCE.createEClass();
+		root.getEClassifiers().add(added);
+		left.setID(added, "added");
+		return new DefaultComparisonScope(left, right, null);
+	}
+
+	private static XMIResource createModel(int renamed) {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("model.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			final EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+			if (i < renamed) {
+				eClass.setName("renamed" + i);
+			} else {
+				eClass.setName("Class" + i);
+			}
+			root.getEClassifiers().add(eClass);
+			resource.setID(eClass, "class" + i);
+		}
+		return resource;
+	}
+}
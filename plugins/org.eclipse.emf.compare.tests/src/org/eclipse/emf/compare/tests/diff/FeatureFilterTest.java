@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.diff;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+
+import com.google.common.collect.Iterators;
+
+import java.util.Iterator;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.compare.diff.FeatureFilter;
+import org.eclipse.emf.compare.match.DefaultMatchEngine;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link FeatureFilter} only caches its plans per EClass when its features do not depend on
+ * the Match itself.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class FeatureFilterTest {
+	@Test
+	public void plansCachedPerEClass() {
+		final Comparison comparison = compare(new FeatureFilter());
+		final Match first = getMatch(comparison, "First");
+		final Match second = getMatch(comparison, "Second");
+
+		final FeatureFilter filter = new FeatureFilter();
+		assertSame(filter.getFeaturePlan(first), filter.getFeaturePlan(second));
+	}
+
+	@Test
+	public void perMatchOverride() {
+		final FeatureFilter filter = new FeatureFilter() {
+			@Override
+			protected boolean isFeatureSelectionCacheable() {
+				return false;
+			}
+
+			@Override
+			public Iterator<EAttribute> getAttributesToCheck(Match match) {
+				if ("First".equals(((ENamedElement)match.getLeft()).getName())) {
+					return Iterators.emptyIterator();
+				}
+				return super.getAttributesToCheck(match);
+			}
+		};
+		final Comparison comparison = compare(filter);
+		final Match first = getMatch(comparison, "First");
+		final Match second = getMatch(comparison, "Second");
+
+		assertNotSame(filter.getFeaturePlan(first), filter.getFeaturePlan(second));
+		assertEquals(0, first.getDifferences().size());
+		assertEquals(1, second.getDifferences().size());
+		final Diff diff = second.getDifferences().get(0);
+		assertSame(EcorePackage.Literals.ECLASS__ABSTRACT, ((AttributeChange)diff).getAttribute());
+	}
+
+	private static Comparison compare(FeatureFilter filter) {
+		final XMIResource left = createModel(false);
+		final XMIResource right = createModel(true);
+		final Comparison comparison = new DefaultMatchEngine().match(new DefaultComparisonScope(left, right,
+				null));
+		new DefaultDiffEngine(null, filter, null).diff(comparison);
+		return comparison;
+	}
+
+	private static Match getMatch(Comparison comparison, String name) {
+		for (Iterator<Match> it = Iterators.filter(comparison.eAllContents(), Match.class); it.hasNext();) {
+			final Match match = it.next();
+			if (match.getLeft() instanceof EClass && name.equals(((EClass)match.getLeft()).getName())) {
+				return match;
+			}
+		}
+		return null;
+	}
+
+	private static XMIResource createModel(boolean isAbstract) {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("filter.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+		for (String name : new String[] {"First", "Second", }) {
+			final EClass clazz = EcoreFactory.eINSTANCE.createEClass();
+			clazz.setName(name);
+			clazz.setAbstract(isAbstract);
+			root.getEClassifiers().add(clazz);
+			resource.setID(clazz, name);
+		}
+		return resource;
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.diff;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.compare.match.DefaultMatchEngine;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EEnum;
+import org.eclipse.emf.ecore.EEnumLiteral;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.ETypedElement;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the differences detected on multi-valued attributes of data types and enums.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class MultiValuedAttributeDiffTest {
+	private static final int SIZE = 5000;
+
+	private EClass holderClass;
+
+	private EAttribute namesAttribute;
+
+	private EAttribute colorsAttribute;
+
+	private EEnum colorEnum;
+
+	@Before
+	public void setUp() {
+		final EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+		ePackage.setName("test");
+		ePackage.setNsURI("http://test");
+
+		colorEnum = EcoreFactory.eINSTANCE.createEEnum();
+		colorEnum.setName("Color");
+		for (String literal : Arrays.asList("RED", "GREEN", "BLUE")) {
+			final EEnumLiteral enumLiteral = EcoreFactory.eINSTANCE.createEEnumLiteral();
+			enumLiteral.setName(literal);
+			enumLiteral.setValue(colorEnum.getELiterals().size());
+			colorEnum.getELiterals().add(enumLiteral);
+		}
+		ePackage.getEClassifiers().add(colorEnum);
+
+		holderClass = EcoreFactory.eINSTANCE.createEClass();
+		holderClass.setName("Holder");
+		namesAttribute = EcoreFactory.eINSTANCE.createEAttribute();
+		namesAttribute.setName("names");
+		namesAttribute.setEType(EcorePackage.Literals.ESTRING);
+		namesAttribute.setUpperBound(ETypedElement.UNBOUNDED_MULTIPLICITY);
+		holderClass.getEStructuralFeatures().add(namesAttribute);
+		colorsAttribute = EcoreFactory.eINSTANCE.createEAttribute();
+		colorsAttribute.setName("colors");
+		colorsAttribute.setEType(colorEnum);
+		colorsAttribute.setUpperBound(ETypedElement.UNBOUNDED_MULTIPLICITY);
+		holderClass.getEStructuralFeatures().add(colorsAttribute);
+		ePackage.getEClassifiers().add(holderClass);
+	}
+
+	@Test
+	public void twoWayLargeLists() {
+		final EObject left = createHolder();
+		final EObject right = createHolder();
+		for (int i = 0; i < SIZE; i++) {
+			names(left).add("name" + i);
+			names(right).add("name" + (i + SIZE / 2));
+		}
+		colors(left).add(colorEnum.getEEnumLiteral("RED"));
+		colors(left).add(colorEnum.getEEnumLiteral("GREEN"));
+		colors(right).add(colorEnum.getEEnumLiteral("GREEN"));
+		colors(right).add(colorEnum.getEEnumLiteral("BLUE"));
+
+		final Comparison comparison = compare(left, right, null);
+
+		final List<Diff> nameDiffs = getDiffs(comparison, namesAttribute);
+		assertEquals(SIZE, nameDiffs.size());
+		for (int i = 0; i < SIZE / 2; i++) {
+			assertDiff(nameDiffs.get(i), "name" + i, DifferenceKind.ADD, DifferenceSource.LEFT);
+			assertDiff(nameDiffs.get(i + SIZE / 2), "name" + (i + SIZE), DifferenceKind.DELETE,
+					DifferenceSource.LEFT);
+		}
+
+		final List<Diff> colorDiffs = getDiffs(comparison, colorsAttribute);
+		assertEquals(2, colorDiffs.size());
+		assertDiff(colorDiffs.get(0), colorEnum.getEEnumLiteral("RED"), DifferenceKind.ADD,
+				DifferenceSource.LEFT);
+		assertDiff(colorDiffs.get(1), colorEnum.getEEnumLiteral("BLUE"), DifferenceKind.DELETE,
+				DifferenceSource.LEFT);
+	}
+
+	@Test
+	public void threeWay() {
+		final EObject origin = createHolder();
+		final EObject left = createHolder();
+		final EObject right = createHolder();
+		names(origin).addAll(Arrays.asList("x", "y", "z"));
+		names(left).addAll(Arrays.asList("x", "y", "w"));
+		names(right).addAll(Arrays.asList("x", "z"));
+
+		final List<Diff> nameDiffs = getDiffs(compare(left, right, origin), namesAttribute);
+		assertEquals(3, nameDiffs.size());
+		assertDiff(nameDiffs.get(0), "y", DifferenceKind.DELETE, DifferenceSource.RIGHT);
+		assertDiff(nameDiffs.get(1), "w", DifferenceKind.ADD, DifferenceSource.LEFT);
+		assertDiff(nameDiffs.get(2), "z", DifferenceKind.DELETE, DifferenceSource.LEFT);
+	}
+
+	private EObject createHolder() {
+		final EObject holder = EcoreUtil.create(holderClass);
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("holder.xmi"));
+		resource.getContents().add(holder);
+		resource.setID(holder, "holder");
+		return holder;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object> names(EObject holder) {
+		return (List<Object>)holder.eGet(namesAttribute);
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object> colors(EObject holder) {
+		return (List<Object>)holder.eGet(colorsAttribute);
+	}
+
+	private static Comparison compare(EObject left, EObject right, EObject origin) {
+		final DefaultComparisonScope scope;
+		if (origin != null) {
+			scope = new DefaultComparisonScope(left.eResource(), right.eResource(), origin.eResource());
+		} else {
+			scope = new DefaultComparisonScope(left.eResource(), right.eResource(), null);
+		}
+		final Comparison comparison = new DefaultMatchEngine().match(scope);
+		new DefaultDiffEngine().diff(comparison);
+		return comparison;
+	}
+
+	private static List<Diff> getDiffs(Comparison comparison, EAttribute attribute) {
+		final List<Diff> diffs = Lists.newArrayList();
+		for (Diff diff : comparison.getDifferences()) {
+			if (diff instanceof AttributeChange && ((AttributeChange)diff).getAttribute() == attribute) {
+				diffs.add(diff);
+			}
+		}
+		return diffs;
+	}
+
+	private static void assertDiff(Diff diff, Object value, DifferenceKind kind, DifferenceSource source) {
+		assertEquals(value, ((AttributeChange)diff).getValue());
+		assertSame(kind, diff.getKind());
+		assertSame(source, diff.getSource());
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.diff;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.compare.match.DefaultMatchEngine;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.ETypedElement;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the detection of ordering changes within long containment lists.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class OrderingDiffTest {
+	private static final int SIZE = 50000;
+
+	private static final int STEP = 1000;
+
+	private EClass nodeClass;
+
+	private EReference childrenReference;
+
+	@Before
+	public void setUp() {
+		nodeClass = EcoreFactory.eINSTANCE.createEClass();
+		nodeClass.setName("Node");
+		childrenReference = EcoreFactory.eINSTANCE.createEReference();
+		childrenReference.setName("children");
+		childrenReference.setContainment(true);
+		childrenReference.setEType(nodeClass);
+		childrenReference.setUpperBound(ETypedElement.UNBOUNDED_MULTIPLICITY);
+		nodeClass.getEStructuralFeatures().add(childrenReference);
+		EcoreFactory.eINSTANCE.createEPackage().getEClassifiers().add(nodeClass);
+	}
+
+	@Test
+	public void twoWayReorderedContainmentList() {
+		final EObject left = createTree(false);
+		final EObject right = createTree(true);
+
+		final List<Diff> moves = getMoves(compare(left, right, null));
+
+		assertEquals(SIZE / STEP, moves.size());
+		for (int i = 0; i < moves.size(); i++) {
+			final ReferenceChange move = (ReferenceChange)moves.get(i);
+			assertSame(childrenReference, move.getReference());
+			assertSame(children(left).get(i * STEP), move.getValue());
+			assertSame(DifferenceSource.LEFT, move.getSource());
+		}
+	}
+
+	@Test
+	public void threeWayReorderedContainmentList() {
+		final EObject origin = createTree(false);
+		final EObject left = createTree(true);
+		final EObject right = createTree(false);
+
+		final List<Diff> moves = getMoves(compare(left, right, origin));
+
+		assertEquals(SIZE / STEP, moves.size());
+		for (int i = 0; i < moves.size(); i++) {
+			final ReferenceChange move = (ReferenceChange)moves.get(i);
+			assertSame(childrenReference, move.getReference());
+			assertSame(children(left).get(SIZE - SIZE / STEP + i), move.getValue());
+			assertSame(DifferenceSource.LEFT, move.getSource());
+		}
+	}
+
+	/**
+	 * Creates a root node with {@link #SIZE} children. If <code>reordered</code>, every {@link #STEP}th child
+	 * is moved to the end of the list.
+	 */
+	private EObject createTree(boolean reordered) {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("tree.xmi"));
+		final EObject root = EcoreUtil.create(nodeClass);
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+
+		final List<EObject> moved = Lists.newArrayList();
+		for (int i = 0; i < SIZE; i++) {
+			final EObject child = EcoreUtil.create(nodeClass);
+			if (reordered && i % STEP == 0) {
+				moved.add(child);
+			} else {
+				children(root).add(child);
+			}
+			resource.setID(child, "child" + i);
+		}
+		children(root).addAll(moved);
+		return root;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<EObject> children(EObject node) {
+		return (List<EObject>)node.eGet(childrenReference);
+	}
+
+	private static Comparison compare(EObject left, EObject right, EObject origin) {
+		final DefaultComparisonScope scope;
+		if (origin != null) {
+			scope = new DefaultComparisonScope(left.eResource(), right.eResource(), origin.eResource());
+		} else {
+			scope = new DefaultComparisonScope(left.eResource(), right.eResource(), null);
+		}
+		final Comparison comparison = new DefaultMatchEngine().match(scope);
+		new DefaultDiffEngine().diff(comparison);
+		return comparison;
+	}
+
+	private static List<Diff> getMoves(Comparison comparison) {
+		final List<Diff> moves = Lists.newArrayList();
+		for (Diff diff : comparison.getDifferences()) {
+			if (diff.getKind() == DifferenceKind.MOVE) {
+				moves.add(diff);
+			}
+		}
+		return moves;
+	}
+}
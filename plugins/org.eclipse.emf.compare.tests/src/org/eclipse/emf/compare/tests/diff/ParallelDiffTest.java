@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.diff;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.compare.match.DefaultMatchEngine;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.compare.scope.IComparisonScope;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that computing the differences of randomly generated models concurrently yields the same
+ * differences, in the same order, as computing them sequentially.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class ParallelDiffTest {
+	private static final long SEED = 20121015L;
+
+	private static final int RUNS = 10;
+
+	private static final int PACKAGE_COUNT = 5;
+
+	private static final int CLASSES_PER_PACKAGE = 20;
+
+	private static final int MUTATION_COUNT = 60;
+
+	private ExecutorService executor;
+
+	private int idCount;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void twoWayRandomModels() {
+		final Random random = new Random(SEED);
+		for (int i = 0; i < RUNS; i++) {
+			final XMIResource origin = createRandomModel(random);
+			final XMIResource left = mutatedCopy(origin, random);
+			final XMIResource right = mutatedCopy(origin, random);
+			checkEquivalence(new DefaultComparisonScope(left, right, null), SEED);
+		}
+	}
+
+	@Test
+	public void threeWayRandomModels() {
+		final Random random = new Random(SEED);
+		for (int i = 0; i < RUNS; i++) {
+			final XMIResource origin = createRandomModel(random);
+			final XMIResource left = mutatedCopy(origin, random);
+			final XMIResource right = mutatedCopy(origin, random);
+			checkEquivalence(new DefaultComparisonScope(left, right, origin), SEED);
+		}
+	}
+
+	@Test
+	public void overriddenCheckForDifferences() {
+		final Random random = new Random(SEED);
+		final XMIResource origin = createRandomModel(random);
+		final XMIResource left = mutatedCopy(origin, random);
+		final XMIResource right = mutatedCopy(origin, random);
+		final Comparison comparison = new DefaultMatchEngine().match(new DefaultComparisonScope(left, right,
+				origin));
+
+		final List<Match> checked = Lists.newArrayList();
+		new DefaultDiffEngine(executor) {
+			@Override
+			protected boolean supportsConcurrentDiff() {
+				return false;
+			}
+
+			@Override
+			protected void checkForDifferences(Match match) {
+				checked.add(match);
+				super.checkForDifferences(match);
+			}
+		}.diff(comparison);
+
+		final List<Match> all = Lists.newArrayList(Iterators.filter(comparison.eAllContents(), Match.class));
+		assertEquals(all, checked);
+		assertTrue(!comparison.getDifferences().isEmpty());
+	}
+
+	private void checkEquivalence(IComparisonScope scope, long seed) {
+		final Comparison sequential = new DefaultMatchEngine().match(scope);
+		new DefaultDiffEngine().diff(sequential);
+		final Comparison parallel = new DefaultMatchEngine().match(scope);
+		new DefaultDiffEngine(executor).diff(parallel);
+
+		assertTrue("No difference detected with seed " + seed, !sequential.getDifferences().isEmpty());
+		assertSameMatches(sequential.getMatches(), parallel.getMatches(), seed);
+	}
+
+	private static void assertSameMatches(List<Match> expected, List<Match> actual, long seed) {
+		assertEquals("Seed " + seed, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			final Match expectedMatch = expected.get(i);
+			final Match actualMatch = actual.get(i);
+			assertSame("Seed " + seed, expectedMatch.getLeft(), actualMatch.getLeft());
+			assertSame("Seed " + seed, expectedMatch.getRight(), actualMatch.getRight());
+			assertSame("Seed " + seed, expectedMatch.getOrigin(), actualMatch.getOrigin());
+			assertSameDiffs(expectedMatch.getDifferences(), actualMatch.getDifferences(), seed);
+			assertSameMatches(expectedMatch.getSubmatches(), actualMatch.getSubmatches(), seed);
+		}
+	}
+
+	private static void assertSameDiffs(List<Diff> expected, List<Diff> actual, long seed) {
+		assertEquals("Seed " + seed, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			final Diff expectedDiff = expected.get(i);
+			final Diff actualDiff = actual.get(i);
+			assertSame("Seed " + seed, expectedDiff.eClass(), actualDiff.eClass());
+			assertSame("Seed " + seed, expectedDiff.getKind(), actualDiff.getKind());
+			assertSame("Seed " + seed, expectedDiff.getSource(), actualDiff.getSource());
+			if (expectedDiff instanceof ReferenceChange) {
+				final ReferenceChange expectedChange = (ReferenceChange)expectedDiff;
+				final ReferenceChange actualChange = (ReferenceChange)actualDiff;
+				assertSame("Seed " + seed, expectedChange.getReference(), actualChange.getReference());
+				assertSame("Seed " + seed, expectedChange.getValue(), actualChange.getValue());
+			} else {
+				final AttributeChange expectedChange = (AttributeChange)expectedDiff;
+				final AttributeChange actualChange = (AttributeChange)actualDiff;
+				assertSame("Seed " + seed, expectedChange.getAttribute(), actualChange.getAttribute());
+				assertEquals("Seed " + seed, expectedChange.getValue(), actualChange.getValue());
+			}
+		}
+	}
+
+	private XMIResource createRandomModel(Random random) {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("random.ecore"));
+		final EPackage root = createPackage(resource);
+		resource.getContents().add(root);
+
+		final List<EClass> classes = Lists.newArrayList();
+		for (int i = 0; i < PACKAGE_COUNT; i++) {
+			final EPackage pack = createPackage(resource);
+			root.getESubpackages().add(pack);
+			for (int j = 0; j < CLASSES_PER_PACKAGE; j++) {
+				final EClass clazz = createClass(resource, random);
+				pack.getEClassifiers().add(clazz);
+				classes.add(clazz);
+			}
+		}
+		for (EClass clazz : classes) {
+			if (random.nextBoolean()) {
+				clazz.getESuperTypes().add(classes.get(random.nextInt(classes.size())));
+			}
+		}
+		return resource;
+	}
+
+	private XMIResource mutatedCopy(XMIResource original, Random random) {
+		final XMIResource copy = new XMIResourceImpl(original.getURI());
+		final EcoreUtil.Copier copier = new EcoreUtil.Copier();
+		copy.getContents().addAll(copier.copyAll(original.getContents()));
+		copier.copyReferences();
+		for (Map.Entry<EObject, EObject> entry : copier.entrySet()) {
+			copy.setID(entry.getValue(), original.getID(entry.getKey()));
+		}
+
+		for (int i = 0; i < MUTATION_COUNT; i++) {
+			mutate(copy, random);
+		}
+		return copy;
+	}
+
+	private void mutate(XMIResource resource, Random random) {
+		final EPackage root = (EPackage)resource.getContents().get(0);
+		final List<EPackage> packages = root.getESubpackages();
+		final List<EClass> classes = Lists.newArrayList(Iterators.filter(root.eAllContents(), EClass.class));
+		if (classes.isEmpty()) {
+			return;
+		}
+		final EClass clazz = classes.get(random.nextInt(classes.size()));
+		switch (random.nextInt(7)) {
+			case 0:
+				clazz.setName("renamed" + random.nextInt(1000));
+				break;
+			case 1:
+				clazz.setAbstract(!clazz.isAbstract());
+				break;
+			case 2:
+				packages.get(random.nextInt(packages.size())).getEClassifiers().add(
+						createClass(resource, random));
+				break;
+			case 3:
+				EcoreUtil.remove(clazz);
+				break;
+			case 4:
+				packages.get(random.nextInt(packages.size())).getEClassifiers().add(clazz);
+				break;
+			case 5:
+				if (clazz.getESuperTypes().isEmpty()) {
+					clazz.getESuperTypes().add(classes.get(random.nextInt(classes.size())));
+				} else {
+					clazz.getESuperTypes().clear();
+				}
+				break;
+			default:
+				if (!clazz.getEStructuralFeatures().isEmpty()) {
+					final ENamedElement feature = clazz.getEStructuralFeatures().get(
+							random.nextInt(clazz.getEStructuralFeatures().size()));
+					feature.setName("renamed" + random.nextInt(1000));
+				}
+		}
+	}
+
+	private EPackage createPackage(XMIResource resource) {
+		final EPackage pack = EcoreFactory.eINSTANCE.createEPackage();
+		pack.setName("package" + idCount);
+		pack.setNsURI("http://package" + idCount);
+		resource.setID(pack, "id" + idCount++);
+		return pack;
+	}
+
+	private EClass createClass(XMIResource resource, Random random) {
+		final EClass clazz = EcoreFactory.eINSTANCE.createEClass();
+		clazz.setName("Class" + idCount);
+		clazz.setAbstract(random.nextBoolean());
+		resource.setID(clazz, "id" + idCount++);
+
+		final int attributeCount = random.nextInt(4);
+		for (int i = 0; i < attributeCount; i++) {
+			final EAttribute attribute = EcoreFactory.eINSTANCE.createEAttribute();
+			attribute.setName("attribute" + idCount);
+			attribute.setEType(EcorePackage.Literals.ESTRING);
+			attribute.setUpperBound(random.nextInt(2) * 2 - 1);
+			resource.setID(attribute, "id" + idCount++);
+			clazz.getEStructuralFeatures().add(attribute);
+		}
+		return clazz;
+	}
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.diff;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link DefaultDiffEngine} compares unresolved proxies through their URIs, without
+ * resolving them.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class ProxyDiffTest {
+	private static final String LIBRARY = "platform:/resource/project/library.ecore#";
+
+	@Test
+	public void equalProxies() {
+		final Resource left = createModel("Base", "Other");
+		final Resource right = createModel("Base", "Other");
+
+		final Comparison comparison = EMFCompare.compare(left, right);
+
+		assertTrue(getReferenceChanges(comparison).isEmpty());
+		assertTrue(getSubClass(left).getESuperTypes().get(0).eIsProxy());
+		assertTrue(getSubClass(right).getESuperTypes().get(0).eIsProxy());
+	}
+
+	@Test
+	public void addedAndDeletedProxies() {
+		final Resource left = createModel("Base", "Added");
+		final Resource right = createModel("Base", "Deleted");
+		final Resource origin = createModel("Base", "Deleted");
+
+		final Comparison comparison = EMFCompare.compare(left, right, origin);
+
+		final List<ReferenceChange> changes = getReferenceChanges(comparison);
+		assertEquals(2, changes.size());
+		checkChange(changes.get(0), DifferenceKind.ADD, DifferenceSource.LEFT, "Added");
+		assertSame(getSubClass(left).getESuperTypes().get(1), changes.get(0).getValue());
+		checkChange(changes.get(1), DifferenceKind.DELETE, DifferenceSource.LEFT, "Deleted");
+		assertSame(getSubClass(right).getESuperTypes().get(1), changes.get(1).getValue());
+		assertTrue(changes.get(0).getValue().eIsProxy());
+		assertTrue(changes.get(1).getValue().eIsProxy());
+	}
+
+	@Test
+	public void normalizedProxies() {
+		final Resource left = createModel("Base");
+		final Resource right = createModel("Base");
+		final EClass proxy = getSubClass(right).getESuperTypes().get(0);
+		((InternalEObject)proxy).eSetProxyURI(URI.createURI("mapped:/library.ecore#Base"));
+		final ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet.getURIConverter().getURIMap().put(URI.createURI("mapped:/"),
+				URI.createURI("platform:/resource/project/"));
+		resourceSet.getResources().add(right);
+
+		final Comparison comparison = EMFCompare.compare(left, right);
+
+		assertTrue(getReferenceChanges(comparison).isEmpty());
+		assertTrue(proxy.eIsProxy());
+	}
+
+	private static void checkChange(ReferenceChange change, DifferenceKind kind, DifferenceSource source,
+			String fragment) {
+		assertEquals(kind, change.getKind());
+		assertEquals(source, change.getSource());
+		assertEquals(fragment, ((InternalEObject)change.getValue()).eProxyURI().fragment());
+	}
+
+	private static List<ReferenceChange> getReferenceChanges(Comparison comparison) {
+		return Lists.newArrayList(Iterables.filter(comparison.getDifferences(), ReferenceChange.class));
+	}
+
+	private static EClass getSubClass(Resource resource) {
+		return (EClass)resource.getEObject("Sub");
+	}
+
+	private static XMIResource createModel(String... superTypes) {
+		final XMIResource resource = new XMIResourceImpl(URI
+				.createURI("platform:/resource/project/model.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+		final EClass subClass = EcoreFactory.eINSTANCE.createEClass();
+		subClass.setName("Sub");
+		root.getEClassifiers().add(subClass);
+		resource.setID(subClass, "Sub");
+		for (String superType : superTypes) {
+			final EClass proxy = EcoreFactory.eINSTANCE.createEClass();
+			((InternalEObject)proxy).eSetProxyURI(URI.createURI(LIBRARY + superType));
+			subClass.getESuperTypes().add(proxy);
+		}
+		return resource;
+	}
+}
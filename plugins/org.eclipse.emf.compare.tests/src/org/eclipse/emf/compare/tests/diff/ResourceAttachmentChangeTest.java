@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.diff;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+import org.eclipse.emf.common.util.BasicMonitor;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.MatchResource;
+import org.eclipse.emf.compare.ResourceAttachmentChange;
+import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks the detection of {@link ResourceAttachmentChange}s by the {@link DefaultDiffEngine}.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class ResourceAttachmentChangeTest {
+	private static final int FRAGMENT_COUNT = 1000;
+
+	@Test
+	public void twoWayFragments() {
+		final ResourceSet left = createFragments();
+		final ResourceSet right = createFragments();
+		addRoot(getFragment(left, 3), "added");
+		addRoot(getFragment(right, 5), "deleted");
+
+		final Comparison comparison = EMFCompare.compare(left, right);
+
+		assertEquals(FRAGMENT_COUNT, comparison.getMatchedResources().size());
+		final List<ResourceAttachmentChange> changes = getResourceAttachmentChanges(comparison);
+		assertEquals(2, changes.size());
+		assertEquals(comparison.getDifferences().size(), changes.size());
+		checkChange(changes.get(0), DifferenceKind.ADD, DifferenceSource.LEFT, "fragment3.ecore");
+		assertSame(getFragment(left, 3).getEObject("added"), changes.get(0).getMatch().getLeft());
+		checkChange(changes.get(1), DifferenceKind.DELETE, DifferenceSource.LEFT, "fragment5.ecore");
+		assertSame(getFragment(right, 5).getEObject("deleted"), changes.get(1).getMatch().getRight());
+	}
+
+	@Test
+	public void threeWayFragments() {
+		final ResourceSet left = createFragments();
+		final ResourceSet right = createFragments();
+		final ResourceSet origin = createFragments();
+		addRoot(getFragment(left, 1), "leftAdded");
+		addRoot(getFragment(origin, 2), "rightDeleted");
+		addRoot(getFragment(left, 2), "rightDeleted");
+
+		final Comparison comparison = EMFCompare.builder().build().compare(
+				new DefaultComparisonScope(left, right, origin), new BasicMonitor());
+
+		final List<ResourceAttachmentChange> changes = getResourceAttachmentChanges(comparison);
+		assertEquals(2, changes.size());
+		checkChange(changes.get(0), DifferenceKind.ADD, DifferenceSource.LEFT, "fragment1.ecore");
+		checkChange(changes.get(1), DifferenceKind.DELETE, DifferenceSource.RIGHT, "fragment2.ecore");
+		assertNull(changes.get(1).getMatch().getRight());
+	}
+
+	@Test
+	public void movedBetweenResources() {
+		final XMIResource leftA = createResource("a.ecore");
+		final XMIResource leftB = createResource("b.ecore");
+		final XMIResource rightA = createResource("a.ecore");
+		final XMIResource rightB = createResource("b.ecore");
+		final EObject moved = addRoot(leftB, "moved");
+		final EObject notMoved = addRoot(leftA, "notMoved");
+
+		final Comparison comparison = CompareFactory.eINSTANCE.createComparison();
+		comparison.getMatchedResources().add(createMatchResource(leftA, rightA));
+		comparison.getMatchedResources().add(createMatchResource(leftB, rightB));
+		comparison.getMatches().add(createMatch(moved, addRoot(rightA, "moved")));
+		comparison.getMatches().add(createMatch(notMoved, addRoot(rightA, "notMoved")));
+		// Attached to a resource on the right side only
+		final EPackage container = EcoreFactory.eINSTANCE.createEPackage();
+		final EPackage detached = EcoreFactory.eINSTANCE.createEPackage();
+		container.getESubpackages().add(detached);
+		comparison.getMatches().add(createMatch(detached, addRoot(rightB, "detached")));
+
+		new DefaultDiffEngine().diff(comparison);
+
+		final List<ResourceAttachmentChange> changes = getResourceAttachmentChanges(comparison);
+		assertEquals(2, changes.size());
+		checkChange(changes.get(0), DifferenceKind.CHANGE, DifferenceSource.LEFT, "b.ecore");
+		assertSame(moved, changes.get(0).getMatch().getLeft());
+		checkChange(changes.get(1), DifferenceKind.DELETE, DifferenceSource.LEFT, "b.ecore");
+		assertSame(detached, changes.get(1).getMatch().getLeft());
+	}
+
+	@Test
+	public void eObjectComparison() {
+		final XMIResource left = createResource("a.ecore");
+		final XMIResource right = createResource("b.ecore");
+		final Comparison comparison = EMFCompare.compare(addRoot(left, "root"), addRoot(right, "root"));
+		assertTrue(comparison.getMatchedResources().isEmpty());
+		assertTrue(getResourceAttachmentChanges(comparison).isEmpty());
+	}
+
+	private static void checkChange(ResourceAttachmentChange change, DifferenceKind kind,
+			DifferenceSource source, String resourceName) {
+		assertEquals(kind, change.getKind());
+		assertEquals(source, change.getSource());
+		assertEquals(resourceName, URI.createURI(change.getResourceURI()).lastSegment());
+	}
+
+	private static List<ResourceAttachmentChange> getResourceAttachmentChanges(Comparison comparison) {
+		return Lists.newArrayList(Iterables.filter(comparison.getDifferences(),
+				ResourceAttachmentChange.class));
+	}
+
+	private static MatchResource createMatchResource(Resource left, Resource right) {
+		final MatchResource matchResource = CompareFactory.eINSTANCE.createMatchResource();
+		matchResource.setLeftURI(left.getURI().toString());
+		matchResource.setRightURI(right.getURI().toString());
+		return matchResource;
+	}
+
+	private static Match createMatch(EObject left, EObject right) {
+		final Match match = CompareFactory.eINSTANCE.createMatch();
+		match.setLeft(left);
+		match.setRight(right);
+		return match;
+	}
+
+	private static XMIResource getFragment(ResourceSet resourceSet, int index) {
+		return (XMIResource)resourceSet.getResources().get(index);
+	}
+
+	private static EObject addRoot(XMIResource resource, String id) {
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName(id);
+		resource.getContents().add(root);
+		resource.setID(root, id);
+		return root;
+	}
+
+	private static XMIResource createResource(String name) {
+		return new XMIResourceImpl(URI.createURI("platform:/resource/project/" + name));
+	}
+
+	private static ResourceSet createFragments() {
+		final ResourceSet resourceSet = new ResourceSetImpl();
+		for (int i = 0; i < FRAGMENT_COUNT; i++) {
+			final XMIResource fragment = createResource("fragment" + i + ".ecore");
+			resourceSet.getResources().add(fragment);
+			addRoot(fragment, "root" + i);
+		}
+		return resourceSet;
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.match;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.emf.common.util.ECollections;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.match.eobject.IdentifierEObjectMatcher;
+import org.eclipse.emf.compare.match.eobject.SimilarityEObjectMatcher;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks that the identifier matcher does not depend on the iteration order of its input, and that it can
+ * fall back to similarity for the EObjects that have no identifier.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class IdentifierFallbackMatchTest {
+	private static final int CLASS_COUNT = 20;
+
+	private static final int ATTRIBUTE_COUNT = 5;
+
+	@Test
+	public void identifiersOnly() {
+		final XMIResource left = createModel();
+		final XMIResource right = createModel();
+		final List<Match> roots = match(new IdentifierEObjectMatcher(), left, right, false);
+
+		assertEquals(1, roots.size());
+		final Match root = roots.get(0);
+		assertSame(left.getContents().get(0), root.getLeft());
+		assertSame(right.getContents().get(0), root.getRight());
+		for (Match classMatch : root.getSubmatches()) {
+			assertEquals(left.getID(classMatch.getLeft()), right.getID(classMatch.getRight()));
+			// Attributes have no identifier, the left and right ones are not matched
+			assertEquals(ATTRIBUTE_COUNT * 2, classMatch.getSubmatches().size());
+		}
+	}
+
+	@Test
+	public void reverseIterationOrder() {
+		final XMIResource left = createModel();
+		final XMIResource right = createModel();
+		final List<Match> roots = match(new IdentifierEObjectMatcher(new SimilarityEObjectMatcher()), left,
+				right, true);
+
+		assertEquals(1, roots.size());
+		checkFallback(roots.get(0));
+	}
+
+	@Test
+	public void similarityFallback() {
+		final XMIResource left = createModel();
+		final XMIResource right = createModel();
+		final EPackage rightRoot = (EPackage)right.getContents().get(0);
+		// Reorder the classes and change the type of some attributes
+		ECollections.reverse(rightRoot.getEClassifiers());
+		for (Object classifier : rightRoot.getEClassifiers()) {
+			((EClass)classifier).getEAttributes().get(0).setEType(EcorePackage.Literals.EINT);
+		}
+		// Add an attribute that should not match anything
+		final EAttribute added = EcoreFactory.eINSTANCE.createEAttribute();
+		added.setName("added");
+		((EClass)rightRoot.getEClassifiers().get(0)).getEStructuralFeatures().add(added);
+
+		final List<Match> roots = match(new IdentifierEObjectMatcher(new SimilarityEObjectMatcher()), left,
+				right, false);
+
+		assertEquals(1, roots.size());
+		checkFallback(roots.get(0));
+	}
+
+	@Test
+	public void duplicateIdentifierThreeWay() {
+		final XMIResource left = createModel();
+		final XMIResource right = createModel();
+		final XMIResource origin = createModel();
+		final EPackage rightRoot = (EPackage)right.getContents().get(0);
+		final EClass duplicate = (EClass)rightRoot.getEClassifiers().get(1);
+		right.setID(duplicate, "class0");
+
+		final Iterable<Match> matches = new IdentifierEObjectMatcher().createMatches(left.getAllContents(),
+				right.getAllContents(), origin.getAllContents());
+		final List<Match> roots = Lists.newArrayList(matches);
+
+		assertEquals(1, roots.size());
+		final List<Match> classMatches = Lists.newArrayList();
+		for (Match match : roots.get(0).getSubmatches()) {
+			if (match.getLeft() instanceof EClass || match.getRight() instanceof EClass) {
+				classMatches.add(match);
+			}
+		}
+		assertEquals(CLASS_COUNT + 1, classMatches.size());
+		for (Match classMatch : classMatches) {
+			if (classMatch.getRight() == duplicate) {
+				assertNull(classMatch.getLeft());
+				assertNull(classMatch.getOrigin());
+			} else if (classMatch.getRight() == null) {
+				assertEquals("class1", left.getID(classMatch.getLeft()));
+				assertEquals("class1", origin.getID(classMatch.getOrigin()));
+			} else {
+				final String identifier = right.getID(classMatch.getRight());
+				assertEquals(identifier, left.getID(classMatch.getLeft()));
+				assertEquals(identifier, origin.getID(classMatch.getOrigin()));
+			}
+		}
+	}
+
+	private static void checkFallback(Match root) {
+		assertEquals(CLASS_COUNT, root.getSubmatches().size());
+		for (Match classMatch : root.getSubmatches()) {
+			for (Match attributeMatch : classMatch.getSubmatches()) {
+				final EAttribute right = (EAttribute)attributeMatch.getRight();
+				final EAttribute left = (EAttribute)attributeMatch.getLeft();
+				if ("added".equals(right.getName())) {
+					assertNull(left);
+				} else {
+					assertEquals(left.getName(), right.getName());
+					assertSame(classMatch.getLeft(), left.getEContainingClass());
+					assertSame(classMatch.getRight(), right.getEContainingClass());
+				}
+			}
+		}
+	}
+
+	private static List<Match> match(IdentifierEObjectMatcher matcher, XMIResource left, XMIResource right,
+			boolean reverse) {
+		final List<EObject> leftEObjects = Lists.newArrayList(left.getAllContents());
+		final List<EObject> rightEObjects = Lists.newArrayList(right.getAllContents());
+		if (reverse) {
+			Collections.reverse(leftEObjects);
+			Collections.reverse(rightEObjects);
+		}
+		final Iterable<Match> matches = matcher.createMatches(leftEObjects.iterator(), rightEObjects
+				.iterator(), Iterators.<EObject> emptyIterator());
+		return Lists.newArrayList(matches);
+	}
+
+	private static XMIResource createModel() {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("model.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			final EClass clazz = EcoreFactory.eINSTANCE.createEClass();
+			clazz.setName("Class" + i);
+			root.getEClassifiers().add(clazz);
+			resource.setID(clazz, "class" + i);
+			for (int j = 0; j < ATTRIBUTE_COUNT; j++) {
+				final EAttribute attribute = EcoreFactory.eINSTANCE.createEAttribute();
+				attribute.setName("attribute" + j);
+				attribute.setEType(EcorePackage.Literals.ESTRING);
+				clazz.getEStructuralFeatures().add(attribute);
+			}
+		}
+		return resource;
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.match;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.MatchResource;
+import org.eclipse.emf.compare.match.DefaultMatchEngine;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.compare.scope.IComparisonScope;
+import org.eclipse.emf.compare.tests.match.data.identifier.IdentifierMatchInputData;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that matching the resource mappings of a ResourceSet concurrently yields the same comparison as
+ * matching them sequentially.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class ParallelMatchTest {
+	private static final int RESOURCE_COUNT = 8;
+
+	private IdentifierMatchInputData inputData = new IdentifierMatchInputData();
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void twoWayParallelMatch() throws IOException {
+		final ResourceSet left = createResourceSet("left");
+		final ResourceSet right = createResourceSet("right");
+		final IComparisonScope scope = new DefaultComparisonScope(left, right, null);
+
+		final Comparison sequential = new DefaultMatchEngine().match(scope);
+		final Comparison parallel = new DefaultMatchEngine(executor).match(scope);
+
+		assertEquals(RESOURCE_COUNT, sequential.getMatchedResources().size());
+		assertSameComparison(sequential, parallel);
+	}
+
+	@Test
+	public void threeWayParallelMatch() throws IOException {
+		final ResourceSet left = createResourceSet("left");
+		final ResourceSet right = createResourceSet("right");
+		final ResourceSet origin = createResourceSet("origin");
+		final IComparisonScope scope = new DefaultComparisonScope(left, right, origin);
+
+		final Comparison sequential = new DefaultMatchEngine().match(scope);
+		final Comparison parallel = new DefaultMatchEngine(executor).match(scope);
+
+		assertEquals(RESOURCE_COUNT, sequential.getMatchedResources().size());
+		assertSameComparison(sequential, parallel);
+	}
+
+	@Test
+	public void createMatchesOverride() throws IOException {
+		final ResourceSet left = createResourceSet("left");
+		final ResourceSet right = createResourceSet("right");
+		final IComparisonScope scope = new DefaultComparisonScope(left, right, null);
+
+		final AtomicInteger sequentialCalls = new AtomicInteger();
+		new CountingMatchEngine(null, sequentialCalls).match(scope);
+		final AtomicInteger parallelCalls = new AtomicInteger();
+		new CountingMatchEngine(executor, parallelCalls).match(scope);
+
+		assertEquals(RESOURCE_COUNT, sequentialCalls.get());
+		assertEquals(RESOURCE_COUNT, parallelCalls.get());
+	}
+
+	private ResourceSet createResourceSet(String side) throws IOException {
+		final ResourceSet resourceSet = new ResourceSetImpl();
+		for (int i = 0; i < RESOURCE_COUNT; i++) {
+			final Resource resource;
+			if ("left".equals(side)) {
+				resource = inputData.getExtlibraryLeft();
+			} else if ("right".equals(side)) {
+				resource = inputData.getExtlibraryRight();
+			} else {
+				resource = inputData.getExtlibraryOrigin();
+			}
+			resource.setURI(URI.createURI("platform:/resource/" + side + "/extlibrary" + i + ".ecore"));
+			resourceSet.getResources().add(resource);
+		}
+		return resourceSet;
+	}
+
+	private static void assertSameComparison(Comparison expected, Comparison actual) {
+		final List<MatchResource> expectedResources = expected.getMatchedResources();
+		final List<MatchResource> actualResources = actual.getMatchedResources();
+		assertEquals(expectedResources.size(), actualResources.size());
+		for (int i = 0; i < expectedResources.size(); i++) {
+			assertEquals(expectedResources.get(i).getLeftURI(), actualResources.get(i).getLeftURI());
+			assertEquals(expectedResources.get(i).getRightURI(), actualResources.get(i).getRightURI());
+			assertEquals(expectedResources.get(i).getOriginURI(), actualResources.get(i).getOriginURI());
+		}
+		assertSameMatches(expected.getMatches(), actual.getMatches());
+	}
+
+	private static void assertSameMatches(List<Match> expected, List<Match> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			final Match expectedMatch = expected.get(i);
+			final Match actualMatch = actual.get(i);
+			assertSame(expectedMatch.getLeft(), actualMatch.getLeft());
+			assertSame(expectedMatch.getRight(), actualMatch.getRight());
+			assertSame(expectedMatch.getOrigin(), actualMatch.getOrigin());
+			assertSameMatches(expectedMatch.getSubmatches(), actualMatch.getSubmatches());
+		}
+	}
+
+	/**
+	 * Counts the resource mappings matched through {@link #createMatches(Resource, Resource, Resource)}.
+	 */
+	private static class CountingMatchEngine extends DefaultMatchEngine {
+		private final AtomicInteger calls;
+
+		public CountingMatchEngine(ExecutorService executor, AtomicInteger calls) {
+			super(executor);
+			this.calls = calls;
+		}
+
+		@Override
+		protected Iterable<Match> createMatches(Resource left, Resource right, Resource origin) {
+			calls.incrementAndGet();
+			return super.createMatches(left, right, origin);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.match;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.match.resource.NameMatchingStrategy;
+import org.eclipse.emf.compare.match.resource.NameSimilarityMatchingStrategy;
+import org.eclipse.emf.compare.match.resource.ResourceMapping;
+import org.eclipse.emf.compare.match.resource.StrategyResourceMatcher;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks the mappings created by the resource matching strategies.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class ResourceMatchingTest {
+	private static final int RESOURCE_COUNT = 2000;
+
+	@Test
+	public void nameAndRootIDMatching() {
+		final List<Resource> left = Lists.newArrayList();
+		final List<Resource> right = Lists.newArrayList();
+		final List<Resource> origin = Lists.newArrayList();
+		for (int i = 0; i < RESOURCE_COUNT; i++) {
+			left.add(createResource("left/model" + i + ".ecore", "root" + i));
+			// One in ten resources has been renamed on the right, they can only be matched through their root
+			if (i % 10 == 0) {
+				right.add(createResource("right/renamed" + i + ".ecore", "root" + i));
+			} else {
+				right.add(createResource("right/model" + i + ".ecore", "root" + i));
+			}
+			if (hasOrigin(i)) {
+				origin.add(createResource("origin/model" + i + ".ecore", "root" + i));
+			}
+		}
+		// Resources that only exist on one side
+		left.add(createResource("left/leftOnly.ecore", "leftOnly"));
+		right.add(createResource("right/rightOnly.ecore", "rightOnly"));
+		Collections.shuffle(right, new Random(RESOURCE_COUNT));
+
+		final List<ResourceMapping> mappings = Lists.newArrayList(new StrategyResourceMatcher()
+				.createMappings(left.iterator(), right.iterator(), origin.iterator()));
+
+		assertEquals(RESOURCE_COUNT + 2, mappings.size());
+		for (ResourceMapping mapping : mappings) {
+			final String leftID = getRootID(mapping.getLeft());
+			final String rightID = getRootID(mapping.getRight());
+			if ("leftOnly".equals(leftID)) {
+				assertNull(mapping.getRight());
+			} else if ("rightOnly".equals(rightID)) {
+				assertNull(mapping.getLeft());
+			} else {
+				assertEquals(leftID, rightID);
+				final int index = Integer.parseInt(leftID.substring("root".length()));
+				if (hasOrigin(index)) {
+					assertEquals(leftID, getRootID(mapping.getOrigin()));
+				} else {
+					assertNull(mapping.getOrigin());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void nameSimilarity() {
+		final Resource left1 = createResource("left/extlibrary.ecore", "left1");
+		final Resource left2 = createResource("left/extlibrary2.ecore", "left2");
+		final Resource left3 = createResource("left/unrelated.ecore", "left3");
+		final Resource right1 = createResource("right/ExtLibrary2.ecore", "right1");
+		final Resource right2 = createResource("right/extlibraries.ecore", "right2");
+		final Resource right3 = createResource("right/book.ecore", "right3");
+		final Resource origin1 = createResource("origin/extlibrary.ecore", "origin1");
+		final Resource origin3 = createResource("origin/books.ecore", "origin3");
+
+		final List<ResourceMapping> mappings = new NameSimilarityMatchingStrategy().matchResources(Arrays
+				.asList(left1, left2, left3), Arrays.asList(right1, right2, right3), Arrays.asList(origin1,
+				origin3));
+
+		assertEquals(3, mappings.size());
+		// The most similar couples are mapped first, whatever their order
+		assertMapping(mappings.get(0), left1, right2, origin1);
+		assertMapping(mappings.get(1), left2, right1, null);
+		// Right and origin resources can be mapped without a left counterpart
+		assertMapping(mappings.get(2), null, right3, origin3);
+	}
+
+	@Test
+	public void nullURIs() {
+		final Resource left = new XMIResourceImpl();
+		final Resource right = new XMIResourceImpl();
+		final Resource named = createResource("right/model.ecore", "root");
+
+		final List<ResourceMapping> mappings = new NameMatchingStrategy().matchResources(Arrays
+				.asList(left), Arrays.asList(named, right), Collections.<Resource> emptyList());
+
+		assertEquals(1, mappings.size());
+		assertMapping(mappings.get(0), left, right, null);
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void findMatchOverride() {
+		final Resource left = createResource("left/model.ecore", "left");
+		final Resource right = createResource("right/renamed.ecore", "right");
+		final Resource origin = createResource("origin/other.ecore", "origin");
+		final NameMatchingStrategy strategy = new NameMatchingStrategy() {
+			@Override
+			protected boolean useKeyIndex() {
+				return false;
+			}
+
+			@Override
+			protected Resource findMatch(Resource reference, Iterable<Resource> candidates) {
+				// Matches whatever comes first
+				if (candidates.iterator().hasNext()) {
+					return candidates.iterator().next();
+				}
+				return null;
+			}
+		};
+
+		final List<ResourceMapping> mappings = strategy.matchResources(Arrays.asList(left), Arrays
+				.asList(right), Arrays.asList(origin));
+
+		assertEquals(1, mappings.size());
+		assertMapping(mappings.get(0), left, right, origin);
+	}
+
+	private static void assertMapping(ResourceMapping mapping, Resource left, Resource right,
+			Resource origin) {
+		assertSame(left, mapping.getLeft());
+		assertSame(right, mapping.getRight());
+		assertSame(origin, mapping.getOrigin());
+	}
+
+	private static boolean hasOrigin(int index) {
+		// One in seven resources has been added on both sides. Renamed resources have no origin, it would
+		// be matched with the left resource by name, leaving the right one alone.
+		return index % 7 != 0 && index % 10 != 0;
+	}
+
+	private static String getRootID(Resource resource) {
+		if (resource == null) {
+			return null;
+		}
+		return ((XMIResource)resource).getID(resource.getContents().get(0));
+	}
+
+	private static Resource createResource(String path, String rootID) {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("platform:/resource/" + path));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName(rootID);
+		resource.getContents().add(root);
+		resource.setID(root, rootID);
+		return resource;
+	}
+}
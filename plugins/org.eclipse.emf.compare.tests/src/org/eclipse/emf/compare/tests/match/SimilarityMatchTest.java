@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.match;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import com.google.common.collect.Lists;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.match.DefaultMatchEngine;
+import org.eclipse.emf.compare.match.eobject.IEObjectMatcher;
+import org.eclipse.emf.compare.match.eobject.SimilarityEObjectMatcher;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EGenericType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.Test;
+
+/**
+ * Checks that the similarity matcher is able to match models without identifiers, even large ones.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class SimilarityMatchTest {
+	private static final int PACKAGE_COUNT = 100;
+
+	private static final int CLASSES_PER_PACKAGE = 50;
+
+	private static final int ATTRIBUTES_PER_CLASS = 9;
+
+	@Test
+	public void twoWayLargeModel() {
+		final Resource left = createModel();
+		final EcoreUtil.Copier copier = new EcoreUtil.Copier();
+		final Resource right = copy(left, copier);
+		final List<EClass> classes = getClasses(right);
+		final EPackage target = ((EPackage)right.getContents().get(0)).getESubpackages().get(0);
+		for (int i = 0; i < classes.size(); i++) {
+			if (i % 13 == 0) {
+				EcoreUtil.remove(classes.get(i));
+			} else if (i % 7 == 0) {
+				target.getEClassifiers().add(classes.get(i));
+			}
+		}
+		target.getEClassifiers().add(createClass("AddedClass"));
+
+		final Comparison comparison = createMatchEngine().match(
+				new DefaultComparisonScope(left, right, null));
+
+		final int[] counts = new int[2];
+		checkMatches(comparison.getMatches(), copier, counts);
+		// The added class and its attributes
+		assertEquals(1 + ATTRIBUTES_PER_CLASS, counts[1]);
+		assertEquals(getContentSize(right) - counts[1], counts[0]);
+	}
+
+	@Test
+	public void threeWayLargeModel() {
+		final Resource origin = createModel();
+		final EcoreUtil.Copier leftCopier = new EcoreUtil.Copier();
+		final Resource left = copy(origin, leftCopier);
+		final EcoreUtil.Copier rightCopier = new EcoreUtil.Copier();
+		final Resource right = copy(origin, rightCopier);
+
+		final List<EClass> leftClasses = getClasses(left);
+		final List<EClass> rightClasses = getClasses(right);
+		final EPackage target = ((EPackage)left.getContents().get(0)).getESubpackages().get(1);
+		for (int i = 0; i < leftClasses.size(); i++) {
+			if (i % 11 == 0) {
+				target.getEClassifiers().add(leftClasses.get(i));
+			}
+			if (i % 13 == 0) {
+				EcoreUtil.remove(rightClasses.get(i));
+			}
+		}
+
+		final Comparison comparison = createMatchEngine().match(
+				new DefaultComparisonScope(left, right, origin));
+
+		final List<Match> all = Lists.newArrayList();
+		collect(comparison.getMatches(), all);
+		int matchedRight = 0;
+		for (Match match : all) {
+			final EObject originObject = match.getOrigin();
+			assertSame(leftCopier.get(originObject), match.getLeft());
+			if (match.getRight() != null) {
+				assertSame(rightCopier.get(originObject), match.getRight());
+				matchedRight++;
+			}
+		}
+		assertEquals(getContentSize(origin), all.size());
+		assertEquals(getContentSize(right), matchedRight);
+	}
+
+	@Test
+	public void addedClassPairedWithSimilarDeletedSibling() {
+		final Resource left = new ResourceImpl(URI.createURI("model.ecore"));
+		final EPackage leftRoot = EcoreFactory.eINSTANCE.createEPackage();
+		leftRoot.setName("library");
+		left.getContents().add(leftRoot);
+		final EClass leftWriter = createClass("Writer");
+		final EClass leftBook = createClass("Book");
+		leftRoot.getEClassifiers().add(leftWriter);
+		leftRoot.getEClassifiers().add(leftBook);
+
+		final Resource right = new ResourceImpl(URI.createURI("model.ecore"));
+		final EPackage rightRoot = EcoreFactory.eINSTANCE.createEPackage();
+		rightRoot.setName("library");
+		right.getContents().add(rightRoot);
+		final EClass rightWriter = createClass("Writer");
+		final EClass rightBooks = createClass("Books");
+		final EClass rightPeriodical = createClass("Periodical");
+		rightRoot.getEClassifiers().add(rightWriter);
+		rightRoot.getEClassifiers().add(rightPeriodical);
+		rightRoot.getEClassifiers().add(rightBooks);
+
+		final Comparison comparison = createMatchEngine().match(
+				new DefaultComparisonScope(left, right, null));
+
+		assertEquals(1, comparison.getMatches().size());
+		final Match root = comparison.getMatches().get(0);
+		assertSame(rightRoot, root.getRight());
+		assertSame(rightWriter, getMatch(root, leftWriter).getRight());
+		// "Book" has been renamed to "Books", whereas "Periodical" is a new class with the same attributes
+		assertSame(rightBooks, getMatch(root, leftBook).getRight());
+		for (Match match : root.getSubmatches()) {
+			if (match.getRight() == rightPeriodical) {
+				assertNull(match.getLeft());
+			}
+		}
+	}
+
+	private static Match getMatch(Match parent, EObject left) {
+		for (Match match : parent.getSubmatches()) {
+			if (match.getLeft() == left) {
+				return match;
+			}
+		}
+		return null;
+	}
+
+	private static DefaultMatchEngine createMatchEngine() {
+		return new DefaultMatchEngine() {
+			@Override
+			protected IEObjectMatcher createEObjectMatcher() {
+				return new SimilarityEObjectMatcher();
+			}
+		};
+	}
+
+	private static void checkMatches(List<Match> matches, Map<EObject, EObject> copies, int[] counts) {
+		for (Match match : matches) {
+			if (match.getLeft() == null) {
+				counts[1]++;
+			} else {
+				final EObject copy = copies.get(match.getLeft());
+				if (copy.eResource() == null) {
+					assertNull(match.getRight());
+				} else {
+					assertSame(copy, match.getRight());
+					counts[0]++;
+				}
+			}
+			checkMatches(match.getSubmatches(), copies, counts);
+		}
+	}
+
+	private static void collect(List<Match> matches, List<Match> all) {
+		for (Match match : matches) {
+			all.add(match);
+			collect(match.getSubmatches(), all);
+		}
+	}
+
+	private static int getContentSize(Resource resource) {
+		int size = 0;
+		for (Iterator<EObject> it = resource.getAllContents(); it.hasNext();) {
+			if (!(it.next() instanceof EGenericType)) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	private static List<EClass> getClasses(Resource resource) {
+		final List<EClass> classes = Lists.newArrayList();
+		for (EPackage pack : ((EPackage)resource.getContents().get(0)).getESubpackages()) {
+			for (Object classifier : pack.getEClassifiers()) {
+				classes.add((EClass)classifier);
+			}
+		}
+		return classes;
+	}
+
+	private static Resource copy(Resource original, EcoreUtil.Copier copier) {
+		final Resource copy = new ResourceImpl(original.getURI());
+		copy.getContents().addAll(copier.copyAll(original.getContents()));
+		copier.copyReferences();
+		return copy;
+	}
+
+	private static Resource createModel() {
+		final Resource resource = new ResourceImpl(URI.createURI("model.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		int classCount = 0;
+		for (int i = 0; i < PACKAGE_COUNT; i++) {
+			final EPackage pack = EcoreFactory.eINSTANCE.createEPackage();
+			pack.setName("package" + i);
+			pack.setNsURI("http://package" + i);
+			root.getESubpackages().add(pack);
+			for (int j = 0; j < CLASSES_PER_PACKAGE; j++) {
+				pack.getEClassifiers().add(createClass("Class" + classCount++));
+			}
+		}
+		return resource;
+	}
+
+	private static EClass createClass(String name) {
+		final EClass clazz = EcoreFactory.eINSTANCE.createEClass();
+		clazz.setName(name);
+		for (int i = 0; i < ATTRIBUTES_PER_CLASS; i++) {
+			final EAttribute attribute = EcoreFactory.eINSTANCE.createEAttribute();
+			attribute.setName("attribute" + i);
+			attribute.setEType(EcorePackage.Literals.ESTRING);
+			clazz.getEStructuralFeatures().add(attribute);
+		}
+		return clazz;
+	}
+}
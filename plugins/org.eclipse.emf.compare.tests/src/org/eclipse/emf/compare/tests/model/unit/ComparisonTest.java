@@ -10,11 +10,23 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.tests.model.unit;
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
 
 import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.CompareFactory;
 import org.eclipse.emf.compare.Comparison;
 import org.eclipse.emf.compare.Diff;
 import org.eclipse.emf.compare.DifferenceKind;
@@ -23,8 +35,10 @@ import org.eclipse.emf.compare.Match;
 import org.eclipse.emf.compare.MatchResource;
 import org.eclipse.emf.compare.ReferenceChange;
 import org.eclipse.emf.compare.tests.model.mock.MockCompareModel;
+import org.eclipse.emf.compare.utils.DifferencesIterator;
 import org.eclipse.emf.ecore.ENamedElement;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EcoreFactory;
 import org.junit.Test;
 
 /**
@@ -72,6 +86,95 @@ public class ComparisonTest {
 		}
 	}
 
+	@Test
+	public void getMatch() throws IOException {
+		MockCompareModel mock = new MockCompareModel();
+		Comparison comparison = mock.createComparisonModel();
+
+		final Iterator<EObject> matches = comparison.eAllContents();
+		while (matches.hasNext()) {
+			final EObject next = matches.next();
+			if (next instanceof Match) {
+				final Match match = (Match)next;
+				if (match.getLeft() != null) {
+					assertSame(match, comparison.getMatch(match.getLeft()));
+				}
+				if (match.getRight() != null) {
+					assertSame(match, comparison.getMatch(match.getRight()));
+				}
+				if (match.getOrigin() != null) {
+					assertSame(match, comparison.getMatch(match.getOrigin()));
+				}
+			}
+		}
+		assertNull(comparison.getMatch(null));
+		assertNull(comparison.getMatch(EcoreFactory.eINSTANCE.createEClass()));
+	}
+
+	@Test
+	public void getMatchAfterUpdate() {
+		final Comparison comparison = CompareFactory.eINSTANCE.createComparison();
+		final Match root = CompareFactory.eINSTANCE.createMatch();
+		final Match child = CompareFactory.eINSTANCE.createMatch();
+		final EObject left = EcoreFactory.eINSTANCE.createEPackage();
+		final EObject right = EcoreFactory.eINSTANCE.createEPackage();
+		final EObject childLeft = EcoreFactory.eINSTANCE.createEClass();
+		root.setLeft(left);
+		child.setLeft(childLeft);
+		root.getSubmatches().add(child);
+
+		// Matches built before being added to the comparison
+		comparison.getMatches().add(root);
+		assertSame(root, comparison.getMatch(left));
+		assertSame(child, comparison.getMatch(childLeft));
+		assertNull(comparison.getMatch(right));
+
+		// Sides set on matches that are already part of the comparison
+		root.setRight(right);
+		assertSame(root, comparison.getMatch(right));
+		root.setLeft(null);
+		assertNull(comparison.getMatch(left));
+
+		// Removed matches are no longer indexed
+		comparison.getMatches().remove(root);
+		assertNull(comparison.getMatch(right));
+		assertNull(comparison.getMatch(childLeft));
+	}
+
+	@Test
+	public void getDifferences() throws IOException {
+		MockCompareModel mock = new MockCompareModel();
+		Comparison comparison = mock.createComparisonModel();
+
+		final List<Diff> expected = Lists.newArrayList();
+		final Iterator<EObject> contents = comparison.eAllContents();
+		while (contents.hasNext()) {
+			final EObject next = contents.next();
+			if (next instanceof Diff) {
+				expected.add((Diff)next);
+			}
+		}
+		// A Match's own differences come before those of its submatches, eAllContents() does the reverse
+		final List<Diff> differences = comparison.getDifferences();
+		assertEquals(expected.size(), differences.size());
+		assertEquals(Sets.newHashSet(expected), Sets.newHashSet(differences));
+		assertEquals(differences, Lists.newArrayList(new DifferencesIterator(comparison)));
+		// Callers get their own copy and may modify it in place
+		assertNotSame(differences, comparison.getDifferences());
+		differences.clear();
+		assertEquals(expected.size(), comparison.getDifferences().size());
+
+		final Match root = comparison.getMatches().get(0);
+		final Diff newDiff = CompareFactory.eINSTANCE.createAttributeChange();
+		newDiff.setMatch(root);
+		assertTrue(comparison.getDifferences().contains(newDiff));
+		assertEquals(expected.size() + 1, comparison.getDifferences().size());
+
+		newDiff.setMatch(null);
+		assertFalse(comparison.getDifferences().contains(newDiff));
+		assertEquals(expected.size(), comparison.getDifferences().size());
+	}
+
 	private static void printDiff(Diff diff) {
 		if (diff instanceof ReferenceChange) {
 			final ReferenceChange refChange = (ReferenceChange)diff;
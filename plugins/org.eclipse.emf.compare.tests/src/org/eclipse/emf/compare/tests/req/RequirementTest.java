@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.req;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.emf.common.util.BasicMonitor;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.compare.req.DefaultRequirementEngine;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.compare.utils.DiffUtil;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.Test;
+
+/**
+ * Checks the requirements and equivalences computed by the {@link DefaultRequirementEngine}, and the merge
+ * order computed from them.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class RequirementTest {
+	@Test
+	public void additions() {
+		final Resource left = createModel();
+		final Resource right = createModel();
+		final EPackage leftRoot = (EPackage)left.getContents().get(0);
+		final EPackage added = createPackage(leftRoot, "added");
+		final EClass newClass = createClass(added, "NewClass");
+		((EClass)leftRoot.getEClassifier("Class0")).getESuperTypes().add(newClass);
+
+		final Comparison comparison = compare(left, right, null);
+
+		final Diff packageAddition = getReferenceChange(comparison,
+				EcorePackage.Literals.EPACKAGE__ESUBPACKAGES, added);
+		final Diff classAddition = getReferenceChange(comparison,
+				EcorePackage.Literals.EPACKAGE__ECLASSIFIERS, newClass);
+		final Diff superTypeAddition = getReferenceChange(comparison,
+				EcorePackage.Literals.ECLASS__ESUPER_TYPES, newClass);
+		assertEquals(DifferenceKind.ADD, packageAddition.getKind());
+		assertTrue(packageAddition.getRequires().isEmpty());
+		assertEquals(Arrays.asList(packageAddition), classAddition.getRequires());
+		assertEquals(Arrays.asList(classAddition), superTypeAddition.getRequires());
+		assertEquals(Arrays.asList(superTypeAddition), classAddition.getRequiredBy());
+
+		final List<Diff> order = DiffUtil.getMergeOrder(Arrays.asList(superTypeAddition, classAddition,
+				packageAddition));
+		assertEquals(Arrays.asList(packageAddition, classAddition, superTypeAddition), order);
+	}
+
+	@Test
+	public void deletions() {
+		final Resource left = createModel();
+		final Resource right = createModel();
+		final Resource origin = createModel();
+		final EPackage originRoot = (EPackage)origin.getContents().get(0);
+		final EPackage deleted = createPackage(originRoot, "deleted");
+		final EClass deletedClass = createClass(deleted, "DeletedClass");
+		((EClass)originRoot.getEClassifier("Class0")).getESuperTypes().add(deletedClass);
+		final EPackage rightRoot = (EPackage)right.getContents().get(0);
+		((EClass)rightRoot.getEClassifier("Class0")).getESuperTypes().add(
+				createClass(createPackage(rightRoot, "deleted"), "DeletedClass"));
+
+		// Deleted from the left side
+		final Comparison comparison = compare(left, right, origin);
+
+		final Diff packageDeletion = getReferenceChange(comparison,
+				EcorePackage.Literals.EPACKAGE__ESUBPACKAGES, right.getEObject("deleted"));
+		final Diff classDeletion = getReferenceChange(comparison,
+				EcorePackage.Literals.EPACKAGE__ECLASSIFIERS, right.getEObject("DeletedClass"));
+		final Diff superTypeDeletion = getReferenceChange(comparison,
+				EcorePackage.Literals.ECLASS__ESUPER_TYPES, right.getEObject("DeletedClass"));
+		assertEquals(DifferenceKind.DELETE, superTypeDeletion.getKind());
+		assertEquals(Arrays.asList(classDeletion), packageDeletion.getRequires());
+		assertEquals(Arrays.asList(superTypeDeletion), classDeletion.getRequires());
+		assertTrue(superTypeDeletion.getRequires().isEmpty());
+
+		final List<Diff> order = DiffUtil.getMergeOrder(comparison.getDifferences());
+		assertEquals(comparison.getDifferences().size(), order.size());
+		assertTrue(order.indexOf(superTypeDeletion) < order.indexOf(classDeletion));
+		assertTrue(order.indexOf(classDeletion) < order.indexOf(packageDeletion));
+	}
+
+	@Test
+	public void equivalences() {
+		final Comparison comparison = CompareFactory.eINSTANCE.createComparison();
+		final Match parent = createMatch(comparison, null);
+		final Match child = createMatch(comparison, parent);
+		final Match other = createMatch(comparison, parent);
+
+		final ReferenceChange subPackage = createReferenceChange(parent, child,
+				EcorePackage.Literals.EPACKAGE__ESUBPACKAGES, DifferenceSource.LEFT);
+		final ReferenceChange superPackage = createReferenceChange(child, parent,
+				EcorePackage.Literals.EPACKAGE__ESUPER_PACKAGE, DifferenceSource.LEFT);
+		final ReferenceChange rightSuperPackage = createReferenceChange(child, parent,
+				EcorePackage.Literals.EPACKAGE__ESUPER_PACKAGE, DifferenceSource.RIGHT);
+		final ReferenceChange otherSuperPackage = createReferenceChange(other, parent,
+				EcorePackage.Literals.EPACKAGE__ESUPER_PACKAGE, DifferenceSource.LEFT);
+
+		new DefaultRequirementEngine().computeRequirements(comparison);
+
+		assertNotNull(subPackage.getEquivalentDiffs());
+		assertSame(subPackage.getEquivalentDiffs(), superPackage.getEquivalentDiffs());
+		assertEquals(2, subPackage.getEquivalentDiffs().getDifferences().size());
+		assertNull(rightSuperPackage.getEquivalentDiffs());
+		assertNull(otherSuperPackage.getEquivalentDiffs());
+	}
+
+	@Test
+	public void mergeOrderCycle() {
+		final Diff first = CompareFactory.eINSTANCE.createAttributeChange();
+		final Diff second = CompareFactory.eINSTANCE.createAttributeChange();
+		final Diff third = CompareFactory.eINSTANCE.createAttributeChange();
+		final Diff fourth = CompareFactory.eINSTANCE.createAttributeChange();
+		// first and second require each other, third requires second, fourth is independent
+		first.getRequires().add(second);
+		second.getRequires().add(first);
+		third.getRequires().add(second);
+
+		final List<Diff> order = DiffUtil.getMergeOrder(Arrays.asList(third, first, second, fourth));
+		assertEquals(Arrays.asList(fourth, first, second, third), order);
+	}
+
+	@Test
+	public void mergeOrderDuplicates() {
+		final Diff first = CompareFactory.eINSTANCE.createAttributeChange();
+		final Diff second = CompareFactory.eINSTANCE.createAttributeChange();
+		first.getRequires().add(second);
+
+		final List<Diff> order = DiffUtil.getMergeOrder(Arrays.asList(first, first, second));
+		assertEquals(Arrays.asList(second, first), order);
+	}
+
+	private static Comparison compare(Resource left, Resource right, Resource origin) {
+		final EMFCompare compare = EMFCompare.builder().setRequirementEngine(new DefaultRequirementEngine())
+				.build();
+		return compare.compare(new DefaultComparisonScope(left, right, origin), new BasicMonitor());
+	}
+
+	private static Diff getReferenceChange(Comparison comparison, EReference reference, EObject value) {
+		Diff found = null;
+		for (Diff diff : comparison.getDifferences()) {
+			if (diff instanceof ReferenceChange && ((ReferenceChange)diff).getReference() == reference
+					&& ((ReferenceChange)diff).getValue() == value) {
+				assertNull(found);
+				found = diff;
+			}
+		}
+		assertNotNull(found);
+		return found;
+	}
+
+	private static Match createMatch(Comparison comparison, Match parent) {
+		final Match match = CompareFactory.eINSTANCE.createMatch();
+		match.setLeft(EcoreFactory.eINSTANCE.createEPackage());
+		match.setRight(EcoreFactory.eINSTANCE.createEPackage());
+		if (parent == null) {
+			comparison.getMatches().add(match);
+		} else {
+			parent.getSubmatches().add(match);
+		}
+		return match;
+	}
+
+	private static ReferenceChange createReferenceChange(Match match, Match value, EReference reference,
+			DifferenceSource source) {
+		final ReferenceChange change = CompareFactory.eINSTANCE.createReferenceChange();
+		change.setReference(reference);
+		EObject side = value.getRight();
+		if (source == DifferenceSource.LEFT) {
+			side = value.getLeft();
+		}
+		change.setValue(side);
+		change.setKind(DifferenceKind.ADD);
+		change.setSource(source);
+		change.setMatch(match);
+		return change;
+	}
+
+	private static EPackage createPackage(EPackage parent, String name) {
+		final EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+		ePackage.setName(name);
+		parent.getESubpackages().add(ePackage);
+		((XMIResource)parent.eResource()).setID(ePackage, name);
+		return ePackage;
+	}
+
+	private static EClass createClass(EPackage parent, String name) {
+		final EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+		eClass.setName(name);
+		parent.getEClassifiers().add(eClass);
+		((XMIResource)parent.eResource()).setID(eClass, name);
+		return eClass;
+	}
+
+	private static XMIResource createModel() {
+		final XMIResource resource = new XMIResourceImpl(URI.createURI("model.ecore"));
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		resource.getContents().add(root);
+		resource.setID(root, "root");
+		for (int i = 0; i < 3; i++) {
+			createClass(root, "Class" + i);
+		}
+		return resource;
+	}
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.scope;
+
+import static com.google.common.base.Predicates.instanceOf;
+import static com.google.common.base.Predicates.not;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.compare.scope.IEstimatedSizeIterator;
+import org.eclipse.emf.compare.scope.PruningComparisonScope;
+import org.eclipse.emf.compare.tests.model.mock.MockCompareModel;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EGenericType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.Test;
+
+/**
+ * This class will allow us to test the behavior of the {@link PruningComparisonScope}.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class PruningComparisonScopeTest {
+	@Test
+	public void sameContentAsFilterScope() throws IOException {
+		final Resource resource = new MockCompareModel().getLeftModel();
+		final DefaultComparisonScope defaultScope = new DefaultComparisonScope(resource, resource, null);
+		final PruningComparisonScope pruningScope = createScope(resource,
+				not(instanceOf(EGenericType.class)));
+
+		// EGenericTypes only contain other EGenericTypes : pruning them changes nothing
+		final List<EObject> expected = Lists.newArrayList(defaultScope.getCoveredEObjects(resource));
+		assertEquals(expected, Lists.newArrayList(pruningScope.getCoveredEObjects(resource)));
+
+		final EObject root = resource.getContents().get(0);
+		final List<EObject> expectedChildren = Lists.newArrayList(defaultScope.getChildren(root));
+		assertEquals(expectedChildren, Lists.newArrayList(pruningScope.getChildren(root)));
+	}
+
+	@Test
+	public void prunedSubtree() {
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName("root");
+		final EPackage kept = createPackage(root, "kept");
+		final EPackage pruned = createPackage(root, "pruned");
+		final Resource resource = new ResourceImpl();
+		resource.getContents().add(root);
+
+		final List<EObject> visited = Lists.newArrayList();
+		final Predicate<EObject> notPruned = new Predicate<EObject>() {
+			public boolean apply(EObject input) {
+				visited.add(input);
+				return input != pruned;
+			}
+		};
+		final PruningComparisonScope scope = createScope(resource, notPruned);
+
+		final List<EObject> covered = Lists.newArrayList(scope.getCoveredEObjects(resource));
+		assertTrue(covered.contains(root));
+		assertTrue(covered.containsAll(kept.eContents()));
+		assertFalse(covered.contains(pruned));
+		for (EObject child : pruned.eContents()) {
+			assertFalse(covered.contains(child));
+			// The content of a pruned EObject is never visited
+			assertFalse(visited.contains(child));
+		}
+		assertEquals(2 + kept.getEClassifiers().size(), covered.size());
+		assertFalse(scope.getChildren(null).hasNext());
+	}
+
+	@Test
+	public void crossResourceContainment() {
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		final EPackage controlled = createPackage(root, "controlled");
+		final Resource resource = new ResourceImpl();
+		resource.getContents().add(root);
+		final Resource controlledResource = new ResourceImpl();
+		controlledResource.getContents().add(controlled);
+
+		final PruningComparisonScope scope = createScope(resource, not(instanceOf(EGenericType.class)));
+		final List<EObject> covered = Lists.newArrayList(scope.getCoveredEObjects(resource));
+		assertEquals(Lists.newArrayList(EcoreUtil.getAllProperContents(resource, false)), covered);
+		assertFalse(covered.contains(controlled));
+	}
+
+	@Test
+	public void estimatedSize() throws IOException {
+		final Resource resource = new MockCompareModel().getLeftModel();
+		final PruningComparisonScope scope = createScope(resource, not(instanceOf(EGenericType.class)));
+		final EObject root = resource.getContents().get(0);
+
+		// Nothing is known before the content has been walked through
+		assertEquals(-1, scope.getEstimatedSize(resource));
+		final Iterator<? extends EObject> partial = scope.getCoveredEObjects(resource);
+		assertEquals(-1, ((IEstimatedSizeIterator<?>)partial).getEstimatedSize());
+		partial.next();
+		assertEquals(-1, scope.getEstimatedSize(resource));
+
+		final int size = Lists.newArrayList(scope.getCoveredEObjects(resource)).size();
+		assertEquals(size, scope.getEstimatedSize(resource));
+		final Iterator<? extends EObject> next = scope.getCoveredEObjects(resource);
+		assertEquals(size, ((IEstimatedSizeIterator<?>)next).getEstimatedSize());
+
+		// Children of an EObject are counted separately from the content of its resource
+		assertEquals(-1, scope.getEstimatedSize(root));
+		final int childrenSize = Lists.newArrayList(scope.getChildren(root)).size();
+		assertEquals(size - 1, childrenSize);
+		assertEquals(childrenSize, scope.getEstimatedSize(root));
+	}
+
+	private static PruningComparisonScope createScope(Resource resource, Predicate<? super EObject> filter) {
+		final PruningComparisonScope scope = new PruningComparisonScope(resource, resource, null);
+		scope.setResourceContentFilter(filter);
+		scope.setEObjectContentFilter(filter);
+		return scope;
+	}
+
+	private static EPackage createPackage(EPackage parent, String name) {
+		final EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+		ePackage.setName(name);
+		parent.getESubpackages().add(ePackage);
+		for (int i = 0; i < 5; i++) {
+			final EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+			eClass.setName(name + i);
+			ePackage.getEClassifiers().add(eClass);
+		}
+		return ePackage;
+	}
+}
@@ -14,9 +14,27 @@ import junit.framework.JUnit4TestAdapter;
 import junit.framework.Test;
 import junit.textui.TestRunner;
 
+import org.eclipse.emf.compare.tests.EMFCompareBuilderTest;
+import org.eclipse.emf.compare.tests.conflict.ConflictDetectionTest;
+import org.eclipse.emf.compare.tests.diff.BatchingDiffBuilderTest;
+import org.eclipse.emf.compare.tests.diff.DiffSummaryTest;
+import org.eclipse.emf.compare.tests.diff.FeatureFilterTest;
+import org.eclipse.emf.compare.tests.diff.MultiValuedAttributeDiffTest;
+import org.eclipse.emf.compare.tests.diff.OrderingDiffTest;
+import org.eclipse.emf.compare.tests.diff.ParallelDiffTest;
+import org.eclipse.emf.compare.tests.diff.ProxyDiffTest;
+import org.eclipse.emf.compare.tests.diff.ResourceAttachmentChangeTest;
 import org.eclipse.emf.compare.tests.match.IdentifierComparisonTest;
+import org.eclipse.emf.compare.tests.match.IdentifierFallbackMatchTest;
+import org.eclipse.emf.compare.tests.match.ParallelMatchTest;
+import org.eclipse.emf.compare.tests.match.ResourceMatchingTest;
+import org.eclipse.emf.compare.tests.match.SimilarityMatchTest;
 import org.eclipse.emf.compare.tests.model.CompareModelTestSuite;
+import org.eclipse.emf.compare.tests.req.RequirementTest;
 import org.eclipse.emf.compare.tests.scope.DefaultComparisonScopeTest;
+import org.eclipse.emf.compare.tests.scope.PruningComparisonScopeTest;
+import org.eclipse.emf.compare.tests.utils.LongestCommonSubsequenceTest;
+import org.eclipse.emf.compare.tests.utils.SimilarityUtilTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -27,7 +45,13 @@ import org.junit.runners.Suite.SuiteClasses;
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
 @RunWith(Suite.class)
-@SuiteClasses({CompareModelTestSuite.class, DefaultComparisonScopeTest.class, IdentifierComparisonTest.class, })
+@SuiteClasses({CompareModelTestSuite.class, DefaultComparisonScopeTest.class, IdentifierComparisonTest.class,
+		ParallelMatchTest.class, ParallelDiffTest.class, MultiValuedAttributeDiffTest.class,
+		OrderingDiffTest.class, LongestCommonSubsequenceTest.class, EMFCompareBuilderTest.class,
+		SimilarityMatchTest.class, IdentifierFallbackMatchTest.class, ResourceMatchingTest.class,
+		SimilarityUtilTest.class, PruningComparisonScopeTest.class, ConflictDetectionTest.class,
+		RequirementTest.class, ResourceAttachmentChangeTest.class, ProxyDiffTest.class,
+		BatchingDiffBuilderTest.class, DiffSummaryTest.class, FeatureFilterTest.class, })
 public class AllTests {
 	/**
 	 * Standalone launcher for all of compare's tests.
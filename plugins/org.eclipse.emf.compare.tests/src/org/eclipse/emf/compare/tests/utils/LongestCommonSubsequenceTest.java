@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.utils;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.eclipse.emf.compare.utils.LongestCommonSubsequence;
+import org.junit.Test;
+
+/**
+ * Checks the subsequences computed by {@link LongestCommonSubsequence} against a reference implementation.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class LongestCommonSubsequenceTest {
+	private static final long SEED = 20121015L;
+
+	@Test
+	public void emptySequences() {
+		assertEquals(0, LongestCommonSubsequence.compute(new int[0], new int[0]).length);
+		assertFalse(LongestCommonSubsequence.compute(new int[0], new int[] {1, })[0]);
+		assertEquals(0, LongestCommonSubsequence.compute(new int[] {1, }, new int[0]).length);
+	}
+
+	@Test
+	public void randomSequences() {
+		final Random random = new Random(SEED);
+		for (int i = 0; i < 5000; i++) {
+			final int alphabet = 1 + random.nextInt(40);
+			final int[] from = randomSequence(random, random.nextInt(40), alphabet);
+			final int[] to = randomSequence(random, random.nextInt(40), alphabet);
+
+			final boolean[] inSubsequence = LongestCommonSubsequence.compute(from, to);
+
+			assertEquals("Run " + i, to.length, inSubsequence.length);
+			assertTrue("Run " + i, isSubsequence(from, to, inSubsequence));
+			assertEquals("Run " + i, lcsLength(from, to), count(inSubsequence));
+		}
+	}
+
+	@Test
+	public void longReorderedList() {
+		final int size = 50000;
+		final int[] from = new int[size];
+		for (int i = 0; i < size; i++) {
+			from[i] = i;
+		}
+		// Move every thousandth element to the end of the list
+		final int[] to = new int[size];
+		int index = 0;
+		for (int i = 0; i < size; i++) {
+			if (i % 1000 != 0) {
+				to[index++] = i;
+			}
+		}
+		for (int i = 0; i < size; i += 1000) {
+			to[index++] = i;
+		}
+
+		final boolean[] inSubsequence = LongestCommonSubsequence.compute(from, to);
+
+		assertEquals(size - size / 1000, count(inSubsequence));
+		for (int i = size - size / 1000; i < size; i++) {
+			assertFalse(inSubsequence[i]);
+		}
+	}
+
+	@Test
+	public void longListWithDuplicates() {
+		final Random random = new Random(0);
+		final int[] from = randomSequence(random, 50000, 100);
+		final int[] to = randomSequence(random, 50000, 100);
+
+		final boolean[] inSubsequence = LongestCommonSubsequence.compute(from, to);
+
+		// This is well past the budget of the exact algorithm; we only need a common subsequence
+		assertTrue(isSubsequence(from, to, inSubsequence));
+	}
+
+	private static int[] randomSequence(Random random, int length, int alphabet) {
+		final int[] sequence = new int[length];
+		for (int i = 0; i < length; i++) {
+			sequence[i] = random.nextInt(alphabet);
+		}
+		return sequence;
+	}
+
+	private static boolean isSubsequence(int[] from, int[] to, boolean[] inSubsequence) {
+		int position = 0;
+		for (int i = 0; i < to.length; i++) {
+			if (inSubsequence[i]) {
+				while (position < from.length && from[position] != to[i]) {
+					position++;
+				}
+				if (position == from.length) {
+					return false;
+				}
+				position++;
+			}
+		}
+		return true;
+	}
+
+	private static int lcsLength(int[] from, int[] to) {
+		final int[][] lengths = new int[from.length + 1][to.length + 1];
+		for (int i = 1; i <= from.length; i++) {
+			for (int j = 1; j <= to.length; j++) {
+				if (from[i - 1] == to[j - 1]) {
+					lengths[i][j] = lengths[i - 1][j - 1] + 1;
+				} else {
+					lengths[i][j] = Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+				}
+			}
+		}
+		return lengths[from.length][to.length];
+	}
+
+	private static int count(boolean[] values) {
+		int count = 0;
+		for (boolean value : values) {
+			if (value) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ */
+package org.eclipse.emf.compare.tests.utils;
+
+import static junit.framework.Assert.assertEquals;
+
+import com.google.common.collect.Sets;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.emf.compare.utils.SimilarityUtil;
+import org.junit.Test;
+
+/**
+ * Checks the dice coefficients computed by {@link SimilarityUtil}.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class SimilarityUtilTest {
+	private static final double DELTA = 1e-9;
+
+	private static final long SEED = 20121015L;
+
+	@Test
+	public void identicalStrings() {
+		assertEquals(1d, SimilarityUtil.diceCoefficient("attribute", new String("attribute")), DELTA);
+		assertEquals(1d, SimilarityUtil.diceCoefficient("Attribute", "aTTRIBUTE"), DELTA);
+		assertEquals(1d, SimilarityUtil.diceCoefficient("", ""), DELTA);
+	}
+
+	@Test
+	public void fractionalCoefficient() {
+		// {ni, ig, gh, ht} and {na, ac, ch, ht} share a single bigram
+		assertEquals(0.25d, SimilarityUtil.diceCoefficient("night", "nacht"), DELTA);
+		// {cl, la, as, ss, s1} and {cl, la, as, ss, s2}
+		assertEquals(0.8d, SimilarityUtil.diceCoefficient("Class1", "class2"), DELTA);
+		assertEquals(0d, SimilarityUtil.diceCoefficient("abc", "xyz"), DELTA);
+	}
+
+	@Test
+	public void shortStrings() {
+		assertEquals(0.4d, SimilarityUtil.diceCoefficient("ab", "aB1"), DELTA);
+		assertEquals(0d, SimilarityUtil.diceCoefficient("a", "b"), DELTA);
+		assertEquals(0.5d, SimilarityUtil.diceCoefficient("ab", "Ac"), DELTA);
+	}
+
+	@Test
+	public void randomStrings() {
+		final Random random = new Random(SEED);
+		final String[] values = new String[500];
+		final int[][] signatures = new int[values.length][];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = randomString(random, 3 + random.nextInt(30));
+			signatures[i] = SimilarityUtil.bigrams(values[i]);
+		}
+
+		final double[] coefficients = new double[values.length];
+		for (int i = 0; i < values.length; i++) {
+			final String message = values[i] + " / ";
+			SimilarityUtil.diceCoefficients(signatures[i], signatures, coefficients);
+			for (int j = 0; j < values.length; j++) {
+				final double expected = referenceCoefficient(values[i], values[j]);
+				assertEquals(message + values[j], expected, coefficients[j], DELTA);
+				assertEquals(message + values[j], expected, SimilarityUtil.diceCoefficient(signatures[i],
+						signatures[j]), DELTA);
+				if (!values[i].equalsIgnoreCase(values[j])) {
+					assertEquals(message + values[j], expected, SimilarityUtil.diceCoefficient(values[i],
+							values[j]), DELTA);
+				}
+			}
+		}
+	}
+
+	private static String randomString(Random random, int length) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			final char c = (char)('a' + random.nextInt(6));
+			if (random.nextBoolean()) {
+				builder.append(Character.toUpperCase(c));
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+
+	private static double referenceCoefficient(String first, String second) {
+		final Set<String> firstBigrams = referenceBigrams(first.toLowerCase());
+		final Set<String> secondBigrams = referenceBigrams(second.toLowerCase());
+		final int total = firstBigrams.size() + secondBigrams.size();
+		firstBigrams.retainAll(secondBigrams);
+		return (2d * firstBigrams.size()) / total;
+	}
+
+	private static Set<String> referenceBigrams(String value) {
+		final Set<String> bigrams = Sets.newHashSet();
+		for (int i = 0; i < value.length() - 1; i++) {
+			bigrams.add(value.substring(i, i + 2));
+		}
+		return bigrams;
+	}
+}
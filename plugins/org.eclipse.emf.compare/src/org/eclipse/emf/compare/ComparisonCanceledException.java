@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare;
+
+/**
+ * This will be thrown by {@link EMFCompare} when a comparison is canceled through its progress monitor.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class ComparisonCanceledException extends RuntimeException {
+	/** Generated SUID. */
+	private static final long serialVersionUID = -2539018468251736219L;
+
+	/**
+	 * Creates a new exception denoting the cancellation of a comparison.
+	 */
+	public ComparisonCanceledException() {
+		super(EMFCompareMessages.getString("EMFCompare.Canceled")); //$NON-NLS-1$
+	}
+}
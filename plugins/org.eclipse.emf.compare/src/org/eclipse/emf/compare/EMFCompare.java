@@ -10,23 +10,89 @@
  *******************************************************************************/
 package org.eclipse.emf.compare;
 
+import java.util.concurrent.ExecutorService;
+
 import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.BasicMonitor;
+import org.eclipse.emf.common.util.Monitor;
+import org.eclipse.emf.compare.conflict.DefaultConflictDetector;
+import org.eclipse.emf.compare.conflict.IConflictDetector;
 import org.eclipse.emf.compare.diff.DefaultDiffEngine;
+import org.eclipse.emf.compare.diff.DiffSummary;
+import org.eclipse.emf.compare.diff.FeatureFilter;
+import org.eclipse.emf.compare.diff.IDiffEngine;
+import org.eclipse.emf.compare.diff.IDiffProcessor;
 import org.eclipse.emf.compare.match.DefaultMatchEngine;
+import org.eclipse.emf.compare.match.IMatchEngine;
+import org.eclipse.emf.compare.req.DefaultRequirementEngine;
+import org.eclipse.emf.compare.req.IRequirementEngine;
 import org.eclipse.emf.compare.scope.DefaultComparisonScope;
 import org.eclipse.emf.compare.scope.IComparisonScope;
 
 /**
- * This class provides various utility methods that can be used to call EMF Compare on various notifiers.
+ * This class is the main entry point of EMF Compare. It provides various utility methods that can be used to
+ * call EMF Compare on various notifiers with its default configuration, and can be configured through a
+ * {@link Builder} when the default engines are not suitable :
+ * 
+ * <pre>
+ * EMFCompare compare = EMFCompare.builder().setExecutor(executor).build();
+ * Comparison comparison = compare.compare(scope, new BasicMonitor());
+ * </pre>
+ * <p>
+ * Instances of this class are immutable and can be kept and reused for any number of comparisons. When no
+ * engine has been provided, new default engines are instantiated for each comparison. Engines, diff
+ * processor and feature filter given to the {@link Builder} are on the contrary shared by every comparison :
+ * an instance configured with stateful ones, such as a {@link org.eclipse.emf.compare.diff.DiffBuffer}, must
+ * not be used by concurrent comparisons.
+ * </p>
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
 public final class EMFCompare {
+	/** The match engine to use for all comparisons. <code>null</code> to use new default engines. */
+	private final IMatchEngine matchEngine;
+
+	/** The diff engine to use for all comparisons. <code>null</code> to use new default engines. */
+	private final IDiffEngine diffEngine;
+
+	/** The conflict detector to use for all comparisons. <code>null</code> to skip conflict detection. */
+	private final IConflictDetector conflictDetector;
+
+	/** The requirement engine to use for all comparisons. <code>null</code> to skip requirements. */
+	private final IRequirementEngine requirementEngine;
+
+	/** The diff processor given to the default diff engines. <code>null</code> to use their default. */
+	private final IDiffProcessor diffProcessor;
+
+	/** The feature filter given to the default diff engines. <code>null</code> to use their default. */
+	private final FeatureFilter featureFilter;
+
+	/** The executor given to the default engines. <code>null</code> if they should run sequentially. */
+	private final ExecutorService executor;
+
 	/**
-	 * This class does not need to be instantiated.
+	 * Creates an instance of EMF Compare configured by the given builder.
+	 * 
+	 * @param builder
+	 *            The builder holding our configuration.
+	 */
+	private EMFCompare(Builder builder) {
+		this.matchEngine = builder.matchEngine;
+		this.diffEngine = builder.diffEngine;
+		this.conflictDetector = builder.conflictDetector;
+		this.requirementEngine = builder.requirementEngine;
+		this.diffProcessor = builder.diffProcessor;
+		this.featureFilter = builder.featureFilter;
+		this.executor = builder.executor;
+	}
+
+	/**
+	 * Creates a new builder which can be used to configure an instance of EMF Compare.
+	 * 
+	 * @return A new builder with the default configuration.
 	 */
-	private EMFCompare() {
-		// hides default constructor
+	public static Builder builder() {
+		return new Builder();
 	}
 
 	/**
@@ -64,25 +130,277 @@ public final class EMFCompare {
 	public static Comparison compare(Notifier left, Notifier right, Notifier origin) {
 		final IComparisonScope scope = new DefaultComparisonScope(left, right, origin);
 
-		return compare(scope);
+		return builder().build().compare(scope, new BasicMonitor());
 	}
 
 	/**
-	 * Launches the comparison for the given comparison scope.
+	 * Launches the comparison for the given comparison scope with the default configuration of EMF Compare.
+	 * Note that this static method ignores the configuration of the instance it may be called on.
 	 * 
 	 * @param scope
 	 *            The scope on which a comparison is to be performed.
 	 * @return The result of this comparison.
+	 * @deprecated Use {@link #compare(IComparisonScope, Monitor)} on an instance created through
+	 *             {@link #builder()}.
 	 */
+	@Deprecated
 	public static Comparison compare(IComparisonScope scope) {
-		// TODO allow extension of the default match engine
-		final DefaultMatchEngine matchEngine = new DefaultMatchEngine();
-		Comparison comparison = matchEngine.match(scope);
+		return builder().build().compare(scope, new BasicMonitor());
+	}
+
+	/**
+	 * Launches the comparison for the given comparison scope, reporting progress to the given monitor.
+	 * <p>
+	 * The monitor is only checked for cancellation in between each step of the comparison process (match,
+	 * diff, conflict detection and requirements) : the engines are not given this monitor, and a step that
+	 * has started will run to its end before the cancellation is noticed.
+	 * </p>
+	 * 
+	 * @param scope
+	 *            The scope on which a comparison is to be performed.
+	 * @param monitor
+	 *            The monitor to which progress is to be reported, and which can be used to cancel this
+	 *            comparison.
+	 * @return The result of this comparison.
+	 * @throws ComparisonCanceledException
+	 *             If the comparison has been canceled through <code>monitor</code>.
+	 */
+	public Comparison compare(IComparisonScope scope, Monitor monitor) throws ComparisonCanceledException {
+		monitor.beginTask(EMFCompareMessages.getString("EMFCompare.Comparing"), 4); //$NON-NLS-1$
+		try {
+			checkCanceled(monitor);
+			monitor.subTask(EMFCompareMessages.getString("EMFCompare.Matching")); //$NON-NLS-1$
+			final Comparison comparison = getMatchEngine().match(scope);
+			monitor.worked(1);
+
+			checkCanceled(monitor);
+			monitor.subTask(EMFCompareMessages.getString("EMFCompare.Differencing")); //$NON-NLS-1$
+			getDiffEngine().diff(comparison);
+			monitor.worked(1);
+
+			if (conflictDetector != null && scope.getOrigin() != null) {
+				checkCanceled(monitor);
+				monitor.subTask(EMFCompareMessages.getString("EMFCompare.DetectingConflicts")); //$NON-NLS-1$
+				conflictDetector.detect(comparison);
+			}
+			monitor.worked(1);
+
+			if (requirementEngine != null) {
+				checkCanceled(monitor);
+				monitor.subTask(EMFCompareMessages
+						.getString("EMFCompare.ComputingRequirements")); //$NON-NLS-1$
+				requirementEngine.computeRequirements(comparison);
+			}
+			monitor.worked(1);
+
+			return comparison;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Matches the elements of the given comparison scope, then counts their differences without creating
+	 * any {@link Diff}. Neither conflicts nor requirements are computed. The differences are detected by a
+	 * {@link DefaultDiffEngine} using the feature filter and executor of this instance : the diff engine and
+	 * diff processor it may have been configured with are ignored.
+	 * 
+	 * @param scope
+	 *            The scope which differences are to be counted.
+	 * @param stopOnFirstDifference
+	 *            <code>true</code> if we only need to know whether there is a difference. Differencing will
+	 *            then stop as soon as one is detected.
+	 * @return The summary of the differences of this scope.
+	 */
+	public DiffSummary summarize(IComparisonScope scope, boolean stopOnFirstDifference) {
+		final Comparison comparison = getMatchEngine().match(scope);
+		final DiffSummary summary = new DiffSummary(stopOnFirstDifference);
+		new DefaultDiffEngine(summary, featureFilter, executor).diff(comparison);
+		return summary;
+	}
+
+	/**
+	 * Returns the match engine that is to be used for a new comparison.
+	 * 
+	 * @return The configured match engine if any, a new default match engine otherwise.
+	 */
+	private IMatchEngine getMatchEngine() {
+		IMatchEngine engine = matchEngine;
+		if (engine == null) {
+			engine = new DefaultMatchEngine(executor);
+		}
+		return engine;
+	}
+
+	/**
+	 * Returns the diff engine that is to be used for a new comparison.
+	 * 
+	 * @return The configured diff engine if any, a new default diff engine otherwise.
+	 */
+	private IDiffEngine getDiffEngine() {
+		IDiffEngine engine = diffEngine;
+		if (engine == null) {
+			engine = new DefaultDiffEngine(diffProcessor, featureFilter, executor);
+		}
+		return engine;
+	}
+
+	/**
+	 * Throws a {@link ComparisonCanceledException} if the given monitor has been canceled.
+	 * 
+	 * @param monitor
+	 *            The monitor to check.
+	 * @throws ComparisonCanceledException
+	 *             If <code>monitor</code> has been canceled.
+	 */
+	private static void checkCanceled(Monitor monitor) throws ComparisonCanceledException {
+		if (monitor.isCanceled()) {
+			throw new ComparisonCanceledException();
+		}
+	}
+
+	/**
+	 * This can be used to configure an instance of {@link EMFCompare}. All settings are optional.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	public static final class Builder {
+		/** The match engine to use for all comparisons. */
+		private IMatchEngine matchEngine;
+
+		/** The diff engine to use for all comparisons. */
+		private IDiffEngine diffEngine;
+
+		/** The conflict detector to use for all comparisons. */
+		private IConflictDetector conflictDetector;
+
+		/** The requirement engine to use for all comparisons. */
+		private IRequirementEngine requirementEngine;
+
+		/** The diff processor given to the default diff engines. */
+		private IDiffProcessor diffProcessor;
+
+		/** The feature filter given to the default diff engines. */
+		private FeatureFilter featureFilter;
+
+		/** The executor given to the default engines. */
+		private ExecutorService executor;
+
+		/**
+		 * Instances should be created through {@link EMFCompare#builder()}.
+		 */
+		Builder() {
+			// package visibility
+		}
+
+		/**
+		 * Sets the match engine that will be used by all comparisons. Engines that keep state during a
+		 * comparison, as the {@link DefaultMatchEngine} does, should not be used by concurrent comparisons.
+		 * If not set, a new {@link DefaultMatchEngine} will be created for each comparison.
+		 * 
+		 * @param engine
+		 *            The match engine to use.
+		 * @return This builder.
+		 */
+		public Builder setMatchEngine(IMatchEngine engine) {
+			this.matchEngine = engine;
+			return this;
+		}
+
+		/**
+		 * Sets the diff engine that will be used by all comparisons. Engines that keep state during a
+		 * comparison, as the {@link DefaultDiffEngine} does, should not be used by concurrent comparisons. If
+		 * not set, a new {@link DefaultDiffEngine} will be created for each comparison.
+		 * 
+		 * @param engine
+		 *            The diff engine to use.
+		 * @return This builder.
+		 */
+		public Builder setDiffEngine(IDiffEngine engine) {
+			this.diffEngine = engine;
+			return this;
+		}
+
+		/**
+		 * Sets the conflict detector that will be called once the differences of each three-way comparison
+		 * have been computed. Conflicts are not detected by default, nor for comparisons which scope has no
+		 * origin. {@link DefaultConflictDetector} can be used to detect them.
+		 * 
+		 * @param detector
+		 *            The conflict detector to use. <code>null</code> to skip conflict detection.
+		 * @return This builder.
+		 */
+		public Builder setConflictDetector(IConflictDetector detector) {
+			this.conflictDetector = detector;
+			return this;
+		}
+
+		/**
+		 * Sets the requirement engine that will be called once the differences of each comparison have been
+		 * computed, in order to link them with the differences they require. Requirements are not computed
+		 * by default, {@link DefaultRequirementEngine} can be used to compute them.
+		 * 
+		 * @param engine
+		 *            The requirement engine to use. <code>null</code> to leave the requirements empty.
+		 * @return This builder.
+		 */
+		public Builder setRequirementEngine(IRequirementEngine engine) {
+			this.requirementEngine = engine;
+			return this;
+		}
+
+		/**
+		 * Sets the diff processor that the default diff engines will notify of the differences they detect.
+		 * This same processor will be notified by every comparison : processors that keep state, such as
+		 * the {@link org.eclipse.emf.compare.diff.DiffBuffer}, should not be used by concurrent comparisons.
+		 * This is ignored if a {@link #setDiffEngine(IDiffEngine) diff engine} has been set.
+		 * 
+		 * @param processor
+		 *            The diff processor to use.
+		 * @return This builder.
+		 */
+		public Builder setDiffProcessor(IDiffProcessor processor) {
+			this.diffProcessor = processor;
+			return this;
+		}
+
+		/**
+		 * Sets the feature filter that the default diff engines will use. As the default feature filter
+		 * caches its {@link org.eclipse.emf.compare.diff.FeaturePlan plans}, setting one here allows all
+		 * comparisons to share that cache. This is ignored if a {@link #setDiffEngine(IDiffEngine) diff
+		 * engine} has been set.
+		 * 
+		 * @param filter
+		 *            The feature filter to use.
+		 * @return This builder.
+		 */
+		public Builder setFeatureFilter(FeatureFilter filter) {
+			this.featureFilter = filter;
+			return this;
+		}
 
-		// TODO allow extension of the default diff engine
-		final DefaultDiffEngine diffEngine = new DefaultDiffEngine();
-		diffEngine.diff(comparison);
+		/**
+		 * Sets the executor on which the default engines will run their concurrent tasks. The lifecycle of
+		 * this executor remains the responsibility of the caller. This is ignored for the engines that have
+		 * been explicitly set.
+		 * 
+		 * @param executorService
+		 *            The executor to use. <code>null</code> to run sequentially.
+		 * @return This builder.
+		 */
+		public Builder setExecutor(ExecutorService executorService) {
+			this.executor = executorService;
+			return this;
+		}
 
-		return comparison;
+		/**
+		 * Creates an instance of EMF Compare with the current configuration of this builder. Further
+		 * modifications of this builder will not affect the returned instance.
+		 * 
+		 * @return The configured instance of EMF Compare.
+		 */
+		public EMFCompare build() {
+			return new EMFCompare(this);
+		}
 	}
 }
@@ -0,0 +1,596 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.conflict;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Conflict;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+/**
+ * The default implementation of an {@link IConflictDetector}.
+ * <p>
+ * Instead of comparing every left difference with every right difference, the differences are first indexed
+ * by the (Match, feature, value) they concern and by the Match of the EObject they reference. Only the
+ * differences of the left and right sides that share a key are then compared with each other :
+ * <ul>
+ * <li>differences on the same value of a multi-valued feature, or on the same single-valued feature, see
+ * {@link #isFeatureConflict(Diff, Diff)},</li>
+ * <li>differences referencing the same EObject, one of which adds, moves or deletes this EObject, see
+ * {@link #isTargetConflict(ReferenceChange, ReferenceChange)},</li>
+ * <li>differences detected within an EObject that has been deleted on the other side, see
+ * {@link #isDeletionConflict(Diff, Diff)}.</li>
+ * </ul>
+ * Differences that conflict with each other, directly or not, end up in the same {@link Conflict}.
+ * </p>
+ * <p>
+ * This detector keeps no state in between two calls, a single instance can be shared by any number of
+ * comparisons.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class DefaultConflictDetector implements IConflictDetector {
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.conflict.IConflictDetector#detect(org.eclipse.emf.compare.Comparison)
+	 */
+	public void detect(Comparison comparison) {
+		final List<Diff> differences = comparison.getDifferences();
+		final DiffIndex index = new DiffIndex(comparison);
+		for (Diff diff : differences) {
+			index.add(diff);
+		}
+		// Conflicts can only happen in between the left and right sides
+		if (index.leftCount > 0 && index.rightCount > 0) {
+			final DiffPartition partition = new DiffPartition(differences);
+			for (List<Diff> bucket : index.byFeature.values()) {
+				checkFeatureConflicts(bucket, partition);
+			}
+			for (Map.Entry<Match, List<Diff>> entry : index.containmentByTarget.entrySet()) {
+				checkTargetConflicts(entry.getValue(), index.byTarget.get(entry.getKey()), partition);
+			}
+			for (Diff diff : differences) {
+				checkDeletionConflicts(diff, index.getDeletions(opposite(diff.getSource())), partition);
+			}
+			createConflicts(comparison, differences, partition);
+		}
+	}
+
+	/**
+	 * Checks whether the given left and right differences, which concern the same feature of the same Match,
+	 * conflict with each other. For multi-valued features, both differences also concern the same value.
+	 * <p>
+	 * This default implementation considers that differences on a multi-valued feature conflict if they are
+	 * of distinct kinds, and that differences on a single-valued feature conflict unless they are of the
+	 * same kind and have the same value : the same modification on both sides is not a conflict.
+	 * </p>
+	 * 
+	 * @param leftDiff
+	 *            The difference detected on the left side.
+	 * @param rightDiff
+	 *            The difference detected on the right side.
+	 * @return <code>true</code> if these two differences conflict with each other.
+	 */
+	protected boolean isFeatureConflict(Diff leftDiff, Diff rightDiff) {
+		final boolean conflict;
+		if (getFeature(leftDiff).isMany()) {
+			conflict = leftDiff.getKind() != rightDiff.getKind();
+		} else {
+			final Comparison comparison = getComparison(leftDiff);
+			conflict = leftDiff.getKind() != rightDiff.getKind()
+					|| !Objects.equal(getValueKey(comparison, leftDiff), getValueKey(comparison, rightDiff));
+		}
+		return conflict;
+	}
+
+	/**
+	 * Checks whether the two given differences, detected on opposite sides and referencing the same EObject,
+	 * conflict with each other. <code>containmentDiff</code> is known to be a containment change : it adds,
+	 * moves or deletes this EObject.
+	 * <p>
+	 * This default implementation considers that the deletion of an EObject conflicts with any difference
+	 * that is not a deletion itself (a move of this EObject, or the addition of a reference towards it), and
+	 * that adding or moving an EObject on both sides conflicts if its new container differs.
+	 * </p>
+	 * 
+	 * @param containmentDiff
+	 *            The difference that adds, moves or deletes the target EObject.
+	 * @param diff
+	 *            The difference that references the target EObject on the other side.
+	 * @return <code>true</code> if these two differences conflict with each other.
+	 */
+	protected boolean isTargetConflict(ReferenceChange containmentDiff, ReferenceChange diff) {
+		final boolean conflict;
+		if (containmentDiff.getKind() == DifferenceKind.DELETE) {
+			conflict = diff.getKind() != DifferenceKind.DELETE;
+		} else if (diff.getKind() == DifferenceKind.DELETE) {
+			conflict = diff.getReference().isContainment();
+		} else {
+			final boolean sameContainer = containmentDiff.getMatch() == diff.getMatch()
+					&& containmentDiff.getReference() == diff.getReference();
+			conflict = diff.getReference().isContainment() && !sameContainer;
+		}
+		return conflict;
+	}
+
+	/**
+	 * Checks whether the given difference, detected within an EObject that has been deleted on the other
+	 * side, conflicts with that deletion.
+	 * <p>
+	 * This default implementation considers that all differences but deletions conflict with the deletion
+	 * of one of their containers.
+	 * </p>
+	 * 
+	 * @param deletion
+	 *            The deletion of an EObject.
+	 * @param diff
+	 *            A difference detected, on the other side, on that EObject or its content.
+	 * @return <code>true</code> if these two differences conflict with each other.
+	 */
+	protected boolean isDeletionConflict(Diff deletion, Diff diff) {
+		return diff.getKind() != DifferenceKind.DELETE;
+	}
+
+	/**
+	 * Compares the left and right differences of the given bucket with each other.
+	 * 
+	 * @param bucket
+	 *            Differences concerning the same value of the same feature of the same Match.
+	 * @param partition
+	 *            The partition in which to record conflicts.
+	 */
+	private void checkFeatureConflicts(List<Diff> bucket, DiffPartition partition) {
+		if (bucket.size() < 2) {
+			return;
+		}
+		for (Diff leftDiff : bucket) {
+			if (leftDiff.getSource() == DifferenceSource.LEFT) {
+				for (Diff rightDiff : bucket) {
+					if (rightDiff.getSource() == DifferenceSource.RIGHT
+							&& isFeatureConflict(leftDiff, rightDiff)) {
+						partition.union(leftDiff, rightDiff);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares the containment differences of a given EObject with the differences of the other side that
+	 * reference this EObject.
+	 * 
+	 * @param containmentDiffs
+	 *            Differences adding, moving or deleting the EObject.
+	 * @param referencingDiffs
+	 *            All differences referencing the EObject, containment differences included.
+	 * @param partition
+	 *            The partition in which to record conflicts.
+	 */
+	private void checkTargetConflicts(List<Diff> containmentDiffs, List<Diff> referencingDiffs,
+			DiffPartition partition) {
+		for (Diff containmentDiff : containmentDiffs) {
+			for (Diff diff : referencingDiffs) {
+				if (diff.getSource() != containmentDiff.getSource()
+						&& isTargetConflict((ReferenceChange)containmentDiff, (ReferenceChange)diff)) {
+					partition.union(containmentDiff, diff);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares the given difference with the deletions, on the other side, of the EObject it has been
+	 * detected on or of one of its containers.
+	 * 
+	 * @param diff
+	 *            The difference to check.
+	 * @param deletions
+	 *            The containment deletions of the other side, indexed by the Match of the deleted EObject.
+	 * @param partition
+	 *            The partition in which to record conflicts.
+	 */
+	private void checkDeletionConflicts(Diff diff, Map<Match, List<Diff>> deletions,
+			DiffPartition partition) {
+		if (deletions.isEmpty()) {
+			return;
+		}
+		EObject container = diff.getMatch();
+		while (container instanceof Match) {
+			final List<Diff> containerDeletions = deletions.get(container);
+			if (containerDeletions != null) {
+				for (Diff deletion : containerDeletions) {
+					if (isDeletionConflict(deletion, diff)) {
+						partition.union(deletion, diff);
+					}
+				}
+			}
+			container = container.eContainer();
+		}
+	}
+
+	/**
+	 * Creates a Conflict for each group of at least two differences of the given partition, and adds it to
+	 * the given comparison.
+	 * 
+	 * @param comparison
+	 *            The comparison to which the conflicts should be added.
+	 * @param differences
+	 *            All differences of the comparison, in the order in which they should be added to their
+	 *            conflicts.
+	 * @param partition
+	 *            The partition of these differences.
+	 */
+	private static void createConflicts(Comparison comparison, List<Diff> differences,
+			DiffPartition partition) {
+		final Map<Integer, Conflict> conflicts = Maps.newHashMap();
+		for (int i = 0; i < differences.size(); i++) {
+			final int group = partition.find(i);
+			if (partition.size(group) > 1) {
+				final Integer key = Integer.valueOf(group);
+				Conflict conflict = conflicts.get(key);
+				if (conflict == null) {
+					conflict = CompareFactory.eINSTANCE.createConflict();
+					conflicts.put(key, conflict);
+					comparison.getConflicts().add(conflict);
+				}
+				conflict.getDifferences().add(differences.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns the comparison containing the given difference.
+	 * 
+	 * @param diff
+	 *            The difference.
+	 * @return The comparison containing <code>diff</code>, <code>null</code> if none.
+	 */
+	private static Comparison getComparison(Diff diff) {
+		EObject container = diff.eContainer();
+		while (container != null && !(container instanceof Comparison)) {
+			container = container.eContainer();
+		}
+		return (Comparison)container;
+	}
+
+	/**
+	 * Returns the feature on which the given difference has been detected.
+	 * 
+	 * @param diff
+	 *            The difference.
+	 * @return The feature of <code>diff</code>, <code>null</code> for differences that do not concern a
+	 *         feature.
+	 */
+	private static EStructuralFeature getFeature(Diff diff) {
+		EStructuralFeature feature = null;
+		if (diff instanceof ReferenceChange) {
+			feature = ((ReferenceChange)diff).getReference();
+		} else if (diff instanceof AttributeChange) {
+			feature = ((AttributeChange)diff).getAttribute();
+		}
+		return feature;
+	}
+
+	/**
+	 * Returns the key under which the value of the given difference should be indexed : the value itself for
+	 * attribute changes, the Match of the referenced EObject for reference changes so that the left, right
+	 * and origin versions of an EObject share the same key.
+	 * 
+	 * @param comparison
+	 *            The comparison in which to look for the Match of referenced EObjects.
+	 * @param diff
+	 *            The difference.
+	 * @return The key of the value of <code>diff</code>.
+	 */
+	private static Object getValueKey(Comparison comparison, Diff diff) {
+		Object key = null;
+		if (diff instanceof ReferenceChange) {
+			final EObject value = ((ReferenceChange)diff).getValue();
+			key = comparison.getMatch(value);
+			if (key == null) {
+				// Out of the comparison scope
+				key = value;
+			}
+		} else if (diff instanceof AttributeChange) {
+			key = ((AttributeChange)diff).getValue();
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the side opposite to the given one.
+	 * 
+	 * @param source
+	 *            A side of the comparison.
+	 * @return The right side for the left one and vice versa.
+	 */
+	private static DifferenceSource opposite(DifferenceSource source) {
+		DifferenceSource opposite = DifferenceSource.LEFT;
+		if (source == DifferenceSource.LEFT) {
+			opposite = DifferenceSource.RIGHT;
+		}
+		return opposite;
+	}
+
+	/**
+	 * Indexes the differences of a comparison by the keys that could make them conflict.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class DiffIndex {
+		/** Differences by (Match, feature) for single-valued features, (Match, feature, value) otherwise. */
+		final Map<FeatureKey, List<Diff>> byFeature = Maps.newHashMap();
+
+		/** Reference changes by the Match of the EObject they reference. */
+		final Map<Match, List<Diff>> byTarget = new IdentityHashMap<Match, List<Diff>>();
+
+		/** Containment reference changes by the Match of the EObject they add, move or delete. */
+		final Map<Match, List<Diff>> containmentByTarget = new IdentityHashMap<Match, List<Diff>>();
+
+		/** Containment deletions of the left side by the Match of the deleted EObject. */
+		final Map<Match, List<Diff>> leftDeletions = new IdentityHashMap<Match, List<Diff>>();
+
+		/** Containment deletions of the right side by the Match of the deleted EObject. */
+		final Map<Match, List<Diff>> rightDeletions = new IdentityHashMap<Match, List<Diff>>();
+
+		/** Number of differences detected on the left side. */
+		int leftCount;
+
+		/** Number of differences detected on the right side. */
+		int rightCount;
+
+		/** The comparison which differences we are indexing. */
+		private final Comparison comparison;
+
+		/**
+		 * Creates an empty index.
+		 * 
+		 * @param comparison
+		 *            The comparison which differences we are indexing.
+		 */
+		DiffIndex(Comparison comparison) {
+			this.comparison = comparison;
+		}
+
+		/**
+		 * Indexes the given difference.
+		 * 
+		 * @param diff
+		 *            The difference to index.
+		 */
+		void add(Diff diff) {
+			if (diff.getSource() == DifferenceSource.LEFT) {
+				leftCount++;
+			} else {
+				rightCount++;
+			}
+			final EStructuralFeature feature = getFeature(diff);
+			if (feature == null) {
+				return;
+			}
+			final Object valueKey = getValueKey(comparison, diff);
+			if (feature.isMany()) {
+				put(byFeature, new FeatureKey(diff.getMatch(), feature, valueKey), diff);
+			} else {
+				put(byFeature, new FeatureKey(diff.getMatch(), feature, null), diff);
+			}
+			if (valueKey instanceof Match) {
+				final Match target = (Match)valueKey;
+				put(byTarget, target, diff);
+				if (((ReferenceChange)diff).getReference().isContainment()) {
+					put(containmentByTarget, target, diff);
+					if (diff.getKind() == DifferenceKind.DELETE) {
+						put(getDeletions(diff.getSource()), target, diff);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns the containment deletions of the given side.
+		 * 
+		 * @param source
+		 *            The side which deletions we need.
+		 * @return The containment deletions of <code>source</code> by the Match of the deleted EObject.
+		 */
+		Map<Match, List<Diff>> getDeletions(DifferenceSource source) {
+			Map<Match, List<Diff>> deletions = rightDeletions;
+			if (source == DifferenceSource.LEFT) {
+				deletions = leftDeletions;
+			}
+			return deletions;
+		}
+
+		/**
+		 * Adds the given difference to the list associated with the given key.
+		 * 
+		 * @param map
+		 *            The map to which the difference should be added.
+		 * @param key
+		 *            The key under which to add the difference.
+		 * @param diff
+		 *            The difference to add.
+		 * @param <K>
+		 *            Type of the map's keys.
+		 */
+		private static <K> void put(Map<K, List<Diff>> map, K key, Diff diff) {
+			List<Diff> bucket = map.get(key);
+			if (bucket == null) {
+				bucket = Lists.newArrayListWithCapacity(2);
+				map.put(key, bucket);
+			}
+			bucket.add(diff);
+		}
+	}
+
+	/**
+	 * Key of a value of a feature of a Match. Matches and features are compared by identity, values through
+	 * {@link Object#equals(Object)}.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class FeatureKey {
+		/** The Match. */
+		private final Match match;
+
+		/** The feature. */
+		private final EStructuralFeature feature;
+
+		/** The value. May be <code>null</code>. */
+		private final Object value;
+
+		/** Hash code of this key. */
+		private final int hash;
+
+		/**
+		 * Creates a key.
+		 * 
+		 * @param match
+		 *            The Match.
+		 * @param feature
+		 *            The feature.
+		 * @param value
+		 *            The value. May be <code>null</code>.
+		 */
+		FeatureKey(Match match, EStructuralFeature feature, Object value) {
+			this.match = match;
+			this.feature = feature;
+			this.value = value;
+			this.hash = Objects.hashCode(match, feature, value);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FeatureKey)) {
+				return false;
+			}
+			final FeatureKey other = (FeatureKey)obj;
+			return match == other.match && feature == other.feature && Objects.equal(value, other.value);
+		}
+	}
+
+	/**
+	 * Partitions a list of differences in groups of conflicting differences (union-find over the positions
+	 * of the differences in the list).
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class DiffPartition {
+		/** Position of each difference in the partitioned list. */
+		private final Map<Diff, Integer> positions;
+
+		/** Parent of each position in its group's tree. Roots are their own parent. */
+		private final int[] parents;
+
+		/** Size of the group of each root. */
+		private final int[] sizes;
+
+		/**
+		 * Creates a partition in which each of the given differences is alone in its group.
+		 * 
+		 * @param differences
+		 *            The differences to partition.
+		 */
+		DiffPartition(List<Diff> differences) {
+			positions = new IdentityHashMap<Diff, Integer>(differences.size());
+			parents = new int[differences.size()];
+			sizes = new int[differences.size()];
+			for (int i = 0; i < parents.length; i++) {
+				positions.put(differences.get(i), Integer.valueOf(i));
+				parents[i] = i;
+				sizes[i] = 1;
+			}
+		}
+
+		/**
+		 * Merges the groups of the two given differences.
+		 * 
+		 * @param diff1
+		 *            The first difference.
+		 * @param diff2
+		 *            The second difference.
+		 */
+		void union(Diff diff1, Diff diff2) {
+			final int root1 = find(positions.get(diff1).intValue());
+			final int root2 = find(positions.get(diff2).intValue());
+			if (root1 != root2) {
+				// Attach the smaller tree under the bigger one
+				if (sizes[root1] < sizes[root2]) {
+					parents[root1] = root2;
+					sizes[root2] += sizes[root1];
+				} else {
+					parents[root2] = root1;
+					sizes[root1] += sizes[root2];
+				}
+			}
+		}
+
+		/**
+		 * Returns the root of the group of the difference at the given position.
+		 * 
+		 * @param position
+		 *            Position of a difference.
+		 * @return Position of the root of its group.
+		 */
+		int find(int position) {
+			int current = position;
+			while (parents[current] != current) {
+				// Path halving
+				parents[current] = parents[parents[current]];
+				current = parents[current];
+			}
+			return current;
+		}
+
+		/**
+		 * Returns the size of the group which root is at the given position.
+		 * 
+		 * @param root
+		 *            Position of the root of a group.
+		 * @return The number of differences in this group.
+		 */
+		int size(int root) {
+			return sizes[root];
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.conflict;
+
+import org.eclipse.emf.compare.Comparison;
+
+/**
+ * This class defines the general contract of a conflict detector. Conflict detectors are called once the
+ * {@link org.eclipse.emf.compare.diff.IDiffEngine diff engine} has completed the comparison with all of the
+ * differences it could detect.
+ * <p>
+ * Clients can also subclass the {@link DefaultConflictDetector default implementation}.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ * @see DefaultConflictDetector
+ */
+public interface IConflictDetector {
+	/**
+	 * This will be called once the differences of the given comparison have been computed. It is expected to
+	 * add the {@link org.eclipse.emf.compare.Conflict conflicts} it can detect between these differences to
+	 * the comparison.
+	 * <p>
+	 * Conflicts can only happen between differences of the left and right sides of three-way comparisons.
+	 * </p>
+	 * 
+	 * @param comparison
+	 *            The comparison this detector is expected to complete.
+	 */
+	void detect(Comparison comparison);
+}
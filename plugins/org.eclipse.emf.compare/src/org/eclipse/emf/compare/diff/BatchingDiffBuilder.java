@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+import java.util.Arrays;
+
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.ecore.util.InternalEList;
+
+/**
+ * This implementation of a {@link DiffBuilder} will not attach the differences it builds to their
+ * {@link Match} one at a time. Differences are buffered for as long as they are detected on the same Match,
+ * then added to this match's {@link Match#getDifferences() differences} all at once through
+ * {@link InternalEList#addAllUnique(java.util.Collection)} : this spares the uniqueness and containment
+ * checks of each single addition, grows the list once, and sends a single notification for the whole batch.
+ * <p>
+ * The buffered differences are flushed whenever a difference is detected on another Match, and when
+ * {@link #flush()} is called. The diff engine calls it at the end of each differencing process, as it does
+ * for any {@link IBatchingDiffProcessor}; clients that use this builder on their own should do the same.
+ * Instances of this class are not thread-safe.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class BatchingDiffBuilder extends DiffBuilder implements IBatchingDiffProcessor {
+	/** Initial capacity of the buffer allocated for each Match. */
+	private static final int INITIAL_CAPACITY = 8;
+
+	/** The match to which the buffered differences should be attached. */
+	private Match pendingMatch;
+
+	/** Differences that have yet to be attached to {@link #pendingMatch}. <code>null</code> if none. */
+	private Diff[] pendingDiffs;
+
+	/** Number of differences held by {@link #pendingDiffs}. */
+	private int pendingCount;
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.diff.DiffBuilder#attach(org.eclipse.emf.compare.Match,
+	 *      org.eclipse.emf.compare.Diff)
+	 */
+	@Override
+	protected void attach(Match match, Diff diff) {
+		if (match != pendingMatch) {
+			flush();
+			pendingMatch = match;
+		}
+		if (pendingDiffs == null) {
+			pendingDiffs = new Diff[INITIAL_CAPACITY];
+		} else if (pendingCount == pendingDiffs.length) {
+			final Diff[] grown = new Diff[pendingCount << 1];
+			System.arraycopy(pendingDiffs, 0, grown, 0, pendingCount);
+			pendingDiffs = grown;
+		}
+		pendingDiffs[pendingCount++] = diff;
+	}
+
+	/**
+	 * Attaches all buffered differences to their match. This does nothing if no difference is pending.
+	 * 
+	 * @see org.eclipse.emf.compare.diff.IBatchingDiffProcessor#flush()
+	 */
+	public void flush() {
+		if (pendingCount > 0) {
+			// The buffer is handed over to the notification and will not be reused
+			final InternalEList<Diff> differences = (InternalEList<Diff>)pendingMatch.getDifferences();
+			differences.addAllUnique(Arrays.asList(pendingDiffs).subList(0, pendingCount));
+		}
+		pendingMatch = null;
+		pendingDiffs = null;
+		pendingCount = 0;
+	}
+}
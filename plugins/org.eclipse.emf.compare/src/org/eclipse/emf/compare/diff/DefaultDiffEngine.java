@@ -11,26 +11,38 @@
 package org.eclipse.emf.compare.diff;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import java.lang.reflect.Array;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import org.eclipse.emf.common.util.WrappedException;
 import org.eclipse.emf.compare.Comparison;
 import org.eclipse.emf.compare.DifferenceKind;
 import org.eclipse.emf.compare.DifferenceSource;
 import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.utils.LongestCommonSubsequence;
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EEnumLiteral;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.FeatureMap;
 
 // TODO this probably doesn't handle feature maps. Test with an XSD-based metamodel
-// TODO does not handle proxies yet (see fixmes)
-// TODO does not handle ordering yet (fixme placed at every needed location)
+// TODO does not handle proxies in containment references yet (see fixmes)
 /**
  * The diff engine is in charge of actually computing the differences between the objects mapped by a
  * {@link Match} object.
@@ -39,6 +51,13 @@ import org.eclipse.emf.ecore.EStructuralFeature;
  * However, specific differences, refinements of differences or even higher level differences might be
  * necessary.
  * </p>
+ * <p>
+ * When given an {@link ExecutorService}, this engine will check the matches for differences concurrently.
+ * Each task records the differences it detects in its own {@link DiffBuffer}; these buffers are then
+ * replayed on the {@link #getDiffProcessor() diff processor} from the calling thread, in the same order as
+ * that of a sequential run. The diff processor thus never needs to be thread-safe, and the result does not
+ * depend on the scheduling of these tasks.
+ * </p>
  * TODO document available extension possibilities.
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
@@ -50,6 +69,9 @@ public class DefaultDiffEngine implements IDiffEngine {
 	 */
 	protected static final Object UNMATCHED_VALUE = new Object();
 
+	/** Number of matches that will be checked by each task when computing differences concurrently. */
+	private static final int MATCHES_PER_TASK = 100;
+
 	/**
 	 * The comparison for which we are detecting differences. Should only be accessed through
 	 * {@link #getComparison()}.
@@ -62,6 +84,90 @@ public class DefaultDiffEngine implements IDiffEngine {
 	 */
 	private IDiffProcessor diffProcessor;
 
+	/**
+	 * The feature filter that will be used by this engine. Should only be instantiated through
+	 * {@link #createFeatureFilter()} and accessed by {@link #getFeatureFilter()}.
+	 */
+	private FeatureFilter featureFilter;
+
+	/** Indexes the MatchResources of the current comparison. */
+	private ResourceIndex resourceIndex;
+
+	/** Keys of the unmatched EObjects referenced from the left side of the current comparison. */
+	private URIKeyCache leftKeys;
+
+	/** Keys of the unmatched EObjects referenced from the right side of the current comparison. */
+	private URIKeyCache rightKeys;
+
+	/** Keys of the unmatched EObjects referenced from the origin of the current comparison. */
+	private URIKeyCache originKeys;
+
+	/**
+	 * The executor on which matches will be checked for differences concurrently. <code>null</code> if they
+	 * should be checked sequentially.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * The diff processor that should be returned by {@link #createDiffProcessor()}. <code>null</code> if a
+	 * new {@link BatchingDiffBuilder} should be used for each differencing process.
+	 */
+	private final IDiffProcessor defaultDiffProcessor;
+
+	/**
+	 * The feature filter that should be returned by {@link #createFeatureFilter()}. <code>null</code> if a
+	 * new {@link FeatureFilter} should be used for each differencing process.
+	 */
+	private final FeatureFilter defaultFeatureFilter;
+
+	/** Holds the buffer in which the current task should record its differences when running concurrently. */
+	private final ThreadLocal<IDiffProcessor> taskDiffProcessor = new ThreadLocal<IDiffProcessor>();
+
+	/**
+	 * Instantiates a diff engine that will check all matches sequentially.
+	 */
+	public DefaultDiffEngine() {
+		this(null);
+	}
+
+	/**
+	 * Instantiates a diff engine that will check matches for differences concurrently on the given executor.
+	 * This engine will not shut the executor down, its lifecycle is the responsibility of the caller.
+	 * <p>
+	 * Concurrent tasks do not go through {@link #checkForDifferences(Match)}; see
+	 * {@link #supportsConcurrentDiff()} for what subclasses should take care of in this mode.
+	 * </p>
+	 * 
+	 * @param executor
+	 *            The executor on which matches will be checked. If <code>null</code>, matches will be checked
+	 *            sequentially.
+	 */
+	public DefaultDiffEngine(ExecutorService executor) {
+		this(null, null, executor);
+	}
+
+	/**
+	 * Instantiates a diff engine that will notify the given diff processor of its detections, using the given
+	 * feature filter. As the feature filter caches its {@link FeaturePlan}s, sharing a single filter between
+	 * engines allows these plans to be computed only once.
+	 * 
+	 * @param diffProcessor
+	 *            The diff processor to notify of difference detections. If <code>null</code>, a new
+	 *            {@link BatchingDiffBuilder} will be used for each differencing process.
+	 * @param featureFilter
+	 *            The feature filter to use. If <code>null</code>, a new {@link FeatureFilter} will be used
+	 *            for each differencing process.
+	 * @param executor
+	 *            The executor on which matches will be checked. If <code>null</code>, matches will be checked
+	 *            sequentially.
+	 */
+	public DefaultDiffEngine(IDiffProcessor diffProcessor, FeatureFilter featureFilter,
+			ExecutorService executor) {
+		this.defaultDiffProcessor = diffProcessor;
+		this.defaultFeatureFilter = featureFilter;
+		this.executor = executor;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -70,42 +176,246 @@ public class DefaultDiffEngine implements IDiffEngine {
 	public void diff(Comparison comparison) {
 		this.currentComparison = comparison;
 		diffProcessor = createDiffProcessor();
+		featureFilter = createFeatureFilter();
+		resourceIndex = new ResourceIndex(comparison);
+		leftKeys = resourceIndex.createLeftKeyCache();
+		rightKeys = resourceIndex.createRightKeyCache();
+		originKeys = resourceIndex.createOriginKeyCache();
 
-		for (Match rootMatch : comparison.getMatches()) {
-			checkForDifferences(rootMatch);
+		if (executor != null && supportsConcurrentDiff()) {
+			diffConcurrently(comparison);
+		} else {
+			for (Match rootMatch : comparison.getMatches()) {
+				if (!isStopped()) {
+					checkForDifferences(rootMatch);
+				}
+			}
+		}
+
+		if (diffProcessor instanceof IBatchingDiffProcessor) {
+			((IBatchingDiffProcessor)diffProcessor).flush();
 		}
 	}
 
+	/**
+	 * Tells whether this engine can check its matches concurrently when it has been given an executor. When
+	 * this returns <code>true</code>, {@link #diffConcurrently(Comparison)} will call
+	 * {@link #checkResourceAttachment(Match)} and {@link #checkFeatures(Match)} from the executor's threads
+	 * and will never call {@link #checkForDifferences(Match)}.
+	 * <p>
+	 * Subclasses that override {@link #checkForDifferences(Match)}, or that override any other check in a
+	 * way that is not safe to run from multiple threads, should override this to return <code>false</code> :
+	 * their matches will then be checked sequentially whatever the executor.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if matches can be checked concurrently, <code>false</code> if they must be
+	 *         checked sequentially through {@link #checkForDifferences(Match)}.
+	 */
+	protected boolean supportsConcurrentDiff() {
+		return true;
+	}
+
+	/**
+	 * Tells whether the given value can be looked up through a hash index rather than compared through
+	 * {@link #matchingValues(Object, Object)} with every candidate. This is the case for all values which
+	 * "matching" semantics are those of their {@link Object#equals(Object) equals} method, along with enum
+	 * literals and arrays of indexable values. EObjects, and feature map entries that may hold some, are
+	 * matched through the comparison and cannot be indexed.
+	 * <p>
+	 * Clients that override {@link #matchingValues(Object, Object)} should also override this.
+	 * </p>
+	 * 
+	 * @param value
+	 *            The value we need to check.
+	 * @return <code>true</code> if this value can be indexed, <code>false</code> otherwise.
+	 */
+	protected boolean isIndexable(Object value) {
+		boolean indexable = true;
+		if (value instanceof EObject || value instanceof FeatureMap.Entry) {
+			indexable = value instanceof EEnumLiteral;
+		} else if (value != null && value.getClass().isArray()) {
+			final int length = Array.getLength(value);
+			for (int i = 0; i < length && indexable; i++) {
+				indexable = isIndexable(Array.get(value, i));
+			}
+		}
+		return indexable;
+	}
+
 	/**
 	 * Checks the given {@link Match}'s sides for potential differences. Will recursively check for
-	 * differences on submatches.
+	 * differences on submatches, unless the diff processor is an {@link IStoppableDiffProcessor} that has
+	 * stopped.
 	 * 
 	 * @param match
 	 *            The match that is to be checked.
 	 */
 	protected void checkForDifferences(Match match) {
-		final FeatureFilter featureFilter = createFeatureFilter();
-
-		final Iterator<EReference> references = featureFilter.getReferencesToCheck(match);
-		while (references.hasNext()) {
-			final EReference reference = references.next();
-			final boolean considerOrdering = featureFilter.checkForOrderingChanges(reference);
-			if (reference.isContainment()) {
-				computeContainmentDifference(match, reference, considerOrdering);
-			} else {
-				computeDifferences(match, reference, considerOrdering);
+		checkResourceAttachment(match);
+		checkFeatures(match);
+
+		for (Match submatch : match.getSubmatches()) {
+			if (!isStopped()) {
+				checkForDifferences(submatch);
 			}
 		}
+	}
 
-		final Iterator<EAttribute> attributes = featureFilter.getAttributesToCheck(match);
-		while (attributes.hasNext()) {
-			final EAttribute attribute = attributes.next();
-			final boolean considerOrdering = featureFilter.checkForOrderingChanges(attribute);
-			computeDifferences(match, attribute, considerOrdering);
+	/**
+	 * This will be used to check all matches of the given comparison concurrently on this engine's executor.
+	 * The Match tree is split in tasks of contiguous matches (depth-first), each of which will check the
+	 * {@link #checkResourceAttachment(Match) resource attachment} and {@link #checkFeatures(Match) features}
+	 * of its matches and record the detected differences in its own {@link DiffBuffer}. The buffers are then
+	 * replayed on the actual diff processor, in order, from the calling thread. If that diff processor is an
+	 * {@link IStoppableDiffProcessor}, the tasks stop checking their matches as soon as it has stopped, and
+	 * the remaining buffers are not replayed.
+	 * <p>
+	 * Note that {@link #checkForDifferences(Match)} is not called in this mode, which is why this is never
+	 * used when {@link #supportsConcurrentDiff()} returns <code>false</code>. The models and the Match tree
+	 * are only read while the tasks run.
+	 * </p>
+	 * 
+	 * @param comparison
+	 *            The comparison which matches are to be checked for differences.
+	 */
+	protected void diffConcurrently(Comparison comparison) {
+		final List<Match> allMatches = Lists.newArrayList();
+		for (Match rootMatch : comparison.getMatches()) {
+			collectMatches(rootMatch, allMatches);
 		}
 
-		for (Match submatch : match.getSubmatches()) {
-			checkForDifferences(submatch);
+		final List<Future<DiffBuffer>> pending = Lists.newArrayList();
+		for (int start = 0; start < allMatches.size(); start += MATCHES_PER_TASK) {
+			final int end = Math.min(start + MATCHES_PER_TASK, allMatches.size());
+			final List<Match> taskMatches = allMatches.subList(start, end);
+			pending.add(executor.submit(new Callable<DiffBuffer>() {
+				public DiffBuffer call() {
+					final DiffBuffer buffer = new DiffBuffer();
+					taskDiffProcessor.set(buffer);
+					try {
+						final Iterator<Match> matches = taskMatches.iterator();
+						while (matches.hasNext() && !isStopped()) {
+							final Match match = matches.next();
+							checkResourceAttachment(match);
+							checkFeatures(match);
+						}
+					} finally {
+						taskDiffProcessor.remove();
+					}
+					return buffer;
+				}
+			}));
+		}
+
+		try {
+			final Iterator<Future<DiffBuffer>> buffers = pending.iterator();
+			while (buffers.hasNext() && !isStopped()) {
+				buffers.next().get().replay(diffProcessor);
+			}
+			if (isStopped()) {
+				cancel(pending);
+			}
+		} catch (InterruptedException e) {
+			cancel(pending);
+			Thread.currentThread().interrupt();
+			throw new WrappedException(e);
+		} catch (ExecutionException e) {
+			cancel(pending);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error)e.getCause();
+			}
+			throw new WrappedException(e);
+		} catch (RuntimeException e) {
+			// The diff processor interrupted the replay, there is no use in running the remaining tasks
+			cancel(pending);
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks whether the sides of the given {@link Match} have been attached to, detached from, or moved
+	 * between resources. An EObject is attached to a resource if it is directly held by that resource's
+	 * contents, be it a root of the resource or the child of an EObject held by another resource (a
+	 * "controlled" fragment). This does not iterate over the contents of any resource : the direct resource
+	 * of each side is compared with that of the origin (or of the right side for two-way comparisons), and
+	 * distinct resources are looked up in an index of the comparison's MatchResources.
+	 * <p>
+	 * Nothing is checked when the comparison has no MatchResource.
+	 * </p>
+	 * 
+	 * @param match
+	 *            The match that is to be checked.
+	 */
+	protected void checkResourceAttachment(Match match) {
+		if (resourceIndex.isEmpty()) {
+			return;
+		}
+		if (resourceIndex.isThreeWay()) {
+			checkResourceAttachment(match, match.getLeft(), match.getOrigin(), DifferenceSource.LEFT);
+			checkResourceAttachment(match, match.getRight(), match.getOrigin(), DifferenceSource.RIGHT);
+		} else {
+			checkResourceAttachment(match, match.getLeft(), match.getRight(), DifferenceSource.LEFT);
+		}
+	}
+
+	/**
+	 * Compares the resource to which the given side of a match is attached with that of the side it is
+	 * compared with.
+	 * 
+	 * @param match
+	 *            The match that is being checked.
+	 * @param value
+	 *            The left or right side of <code>match</code>. May be <code>null</code>.
+	 * @param reference
+	 *            The origin of <code>match</code> for three-way comparisons, its right side otherwise. May be
+	 *            <code>null</code>.
+	 * @param source
+	 *            The side of <code>value</code>.
+	 */
+	private void checkResourceAttachment(Match match, EObject value, EObject reference,
+			DifferenceSource source) {
+		final Resource resource = getDirectResource(value);
+		final Resource referenceResource = getDirectResource(reference);
+		if (resource != null) {
+			if (referenceResource == null) {
+				getDiffProcessor().resourceAttachmentChange(match, getURI(resource), DifferenceKind.ADD,
+						source);
+			} else if (resource != referenceResource
+					&& !resourceIndex.isMatching(resource, source, referenceResource)) {
+				getDiffProcessor().resourceAttachmentChange(match, getURI(resource), DifferenceKind.CHANGE,
+						source);
+			}
+		} else if (referenceResource != null) {
+			getDiffProcessor().resourceAttachmentChange(match, getURI(referenceResource),
+					DifferenceKind.DELETE, source);
+		}
+	}
+
+	/**
+	 * Checks the sides of the given {@link Match} for potential differences on its own features. This will
+	 * not check the submatches of <code>match</code>.
+	 * 
+	 * @param match
+	 *            The match that is to be checked.
+	 */
+	protected void checkFeatures(Match match) {
+		final FeaturePlan plan = getFeatureFilter().getFeaturePlan(match);
+
+		final int referenceCount = plan.getReferenceCount();
+		for (int i = 0; i < referenceCount; i++) {
+			final EReference reference = plan.getReference(i);
+			if (plan.isContainment(i)) {
+				computeContainmentDifference(match, reference, plan.checkReferenceOrdering(i));
+			} else {
+				computeDifferences(match, reference, plan.checkReferenceOrdering(i));
+			}
+		}
+
+		final int attributeCount = plan.getAttributeCount();
+		for (int i = 0; i < attributeCount; i++) {
+			computeDifferences(match, plan.getAttribute(i), plan.checkAttributeOrdering(i));
 		}
 	}
 
@@ -217,23 +527,22 @@ public class DefaultDiffEngine implements IDiffEngine {
 		final Iterable<Object> leftValues = getValue(match.getLeft(), attribute);
 
 		/*
-		 * We might iterate a lot over these two. Since we'll remove objects from them in order to keep the
-		 * length of iterations as short as possible, we'll use two linked sets.
+		 * We might look up a lot of values in these two. They'll be indexed whenever their values allow it,
+		 * and we'll remove objects from them as we match them so that the remaining values are diffs.
 		 */
-		final Set<Object> rightValues = Sets.newLinkedHashSet(getValue(match.getRight(), attribute));
-		final Set<Object> originValues = Sets.newLinkedHashSet(getValue(match.getOrigin(), attribute));
+		final ValueIndex rightValues = new ValueIndex(this, getValue(match.getRight(), attribute));
+		final ValueIndex originValues = new ValueIndex(this, getValue(match.getOrigin(), attribute));
 
 		for (Object left : leftValues) {
-			final Object rightMatch = findMatch(left, rightValues);
+			final Object rightMatch = rightValues.find(left);
 
 			if (rightMatch == UNMATCHED_VALUE) {
-				final Object originMatch = findMatch(left, originValues);
+				final Object originMatch = originValues.find(left);
 				// no need to check if three way for these
 				if (originMatch != UNMATCHED_VALUE) {
 					// The value is in the left and origin, but not in the right.
 					getDiffProcessor().attributeChange(match, attribute, left, DifferenceKind.DELETE,
 							DifferenceSource.RIGHT);
-					// FIXME There could also be an ordering change between left and origin
 					originValues.remove(originMatch);
 				} else {
 					// Value is in left, but not in either right or origin
@@ -241,34 +550,39 @@ public class DefaultDiffEngine implements IDiffEngine {
 							DifferenceSource.LEFT);
 				}
 			} else {
-				// Value is present in both left and right sides. We can only have a diff on ordering
-				// FIXME check ordering
+				// Value is present in both left and right sides. We can only have a diff on ordering.
+				// Ordering changes are detected by computeOrderingDifferences()
 				rightValues.remove(rightMatch);
-				originValues.remove(findMatch(left, originValues));
+				originValues.remove(originValues.find(left));
 			}
 		}
 
 		// We've updated the right list as we matched objects. The remaining are diffs.
 		for (Object right : rightValues) {
-			final Object originMatch = findMatch(right, originValues);
+			final Object originMatch = originValues.find(right);
 			// Even with no match in the origin, source is the left side if this is not a three way
 			// comparison
 			if (originMatch != UNMATCHED_VALUE || !getComparison().isThreeWay()) {
 				getDiffProcessor().attributeChange(match, attribute, right, DifferenceKind.DELETE,
 						DifferenceSource.LEFT);
-				// FIXME if originMatch != UNMATCHED_VALUE then check ordering between right and origin
 			} else {
 				getDiffProcessor().attributeChange(match, attribute, right, DifferenceKind.ADD,
 						DifferenceSource.RIGHT);
 			}
 		}
+
+		if (checkOrdering) {
+			computeOrderingDifferences(match, attribute);
+		}
 	}
 
 	/**
 	 * Computes the differences between the sides of the given <code>match</code> for the given
 	 * <code>reference</code>.
 	 * <p>
-	 * Note that once here, we know that <code>reference</code> is not a containment reference.
+	 * Note that once here, we know that <code>reference</code> is not a containment reference. Values that
+	 * have no Match (unresolved proxies or EObjects out of the comparison scope) are compared through their
+	 * URIs by {@link #computeUnmatchedDifferences(Match, EReference, List, List, Set)}.
 	 * </p>
 	 * 
 	 * @param match
@@ -294,6 +608,7 @@ public class DefaultDiffEngine implements IDiffEngine {
 		final Set<EObject> originValues = Sets.newHashSet(Iterables.filter(getValue(match.getOrigin(),
 				reference), EObject.class));
 
+		List<EObject> unmatchedLeftValues = null;
 		for (EObject value : leftValues) {
 			final Match valueMatch = getComparison().getMatch(value);
 
@@ -302,62 +617,181 @@ public class DefaultDiffEngine implements IDiffEngine {
 				final EObject rightMatch = valueMatch.getRight();
 
 				if (rightMatch == null || !rightValues.contains(rightMatch)) {
-					final boolean originHasMatch = originValues.contains(valueMatch.getOrigin());
-					final DifferenceKind kind;
-					if (!reference.isMany()) {
-						kind = DifferenceKind.CHANGE;
-					} else if (originHasMatch) {
-						kind = DifferenceKind.DELETE;
-					} else {
-						kind = DifferenceKind.ADD;
-					}
-					// no need to check if three way for these
-					if (originHasMatch) {
-						// Value is in left and origin, though not in right.
-						getDiffProcessor().referenceChange(match, reference, value, kind,
-								DifferenceSource.RIGHT);
-						// FIXME if reference.isMany() then check ordering between left and origin
-					} else {
-						getDiffProcessor().referenceChange(match, reference, value, kind,
-								DifferenceSource.LEFT);
-					}
+					leftReferenceChange(match, reference, value, originValues.contains(valueMatch
+							.getOrigin()));
 				} else {
 					// Value is present in both left and right lists. We can only have a diff on ordering.
 					rightValues.remove(rightMatch);
-					// FIXME if reference.isMany() then check ordering between left and right
+					// Ordering changes are detected by computeOrderingDifferences()
 				}
 			} else {
-				// this value is out of the comparison scope
-				// FIXME or could be a proxy : compare through URI
+				// this value is a proxy or is out of the comparison scope
+				if (unmatchedLeftValues == null) {
+					unmatchedLeftValues = Lists.newArrayList();
+				}
+				unmatchedLeftValues.add(value);
 			}
 		}
 
 		// We've updated the right list as we matched objects. The remaining are diffs.
+		List<EObject> unmatchedRightValues = null;
 		for (EObject value : rightValues) {
 			final Match valueMatch = getComparison().getMatch(value);
 
 			if (valueMatch != null) {
-				final boolean originHasMatch = originValues.contains(valueMatch.getOrigin());
-				final DifferenceKind kind;
-				if (!reference.isMany()) {
-					kind = DifferenceKind.CHANGE;
-				} else if (originHasMatch) {
-					kind = DifferenceKind.DELETE;
-				} else {
-					kind = DifferenceKind.ADD;
+				rightReferenceChange(match, reference, value, originValues.contains(valueMatch.getOrigin()));
+			} else {
+				// this value is a proxy or is out of the comparison scope
+				if (unmatchedRightValues == null) {
+					unmatchedRightValues = Lists.newArrayList();
 				}
-				// Even with no match in the origin, source is left side if not in a three way comparison
-				if (originHasMatch || !getComparison().isThreeWay()) {
-					getDiffProcessor().referenceChange(match, reference, value, kind, DifferenceSource.LEFT);
-					// FIXME if originHasMatch then check ordering between right and origin
-				} else {
-					getDiffProcessor().referenceChange(match, reference, value, kind, DifferenceSource.RIGHT);
+				unmatchedRightValues.add(value);
+			}
+		}
+
+		if (unmatchedLeftValues != null || unmatchedRightValues != null) {
+			computeUnmatchedDifferences(match, reference, unmatchedLeftValues, unmatchedRightValues,
+					originValues);
+		}
+
+		if (checkOrdering) {
+			computeOrderingDifferences(match, reference);
+		}
+	}
+
+	/**
+	 * Computes the differences between the values of the given reference that have no Match : unresolved
+	 * proxies and EObjects that are out of the comparison scope. These are compared through their URIs, which
+	 * are normalized once for each side and cached. Neither the proxies nor the resources they point to are
+	 * loaded. EObjects that are neither proxies nor held by a resource, such as the transient factory of an
+	 * EPackage, have no meaningful URI and are ignored.
+	 * 
+	 * @param match
+	 *            The match which sides we are checking for differences.
+	 * @param reference
+	 *            The reference which values are to be checked. Not a containment reference.
+	 * @param leftValues
+	 *            The values of the left side that have no Match. May be <code>null</code>.
+	 * @param rightValues
+	 *            The values of the right side that have no Match. May be <code>null</code>.
+	 * @param originValues
+	 *            All values of the origin.
+	 */
+	protected void computeUnmatchedDifferences(Match match, EReference reference, List<EObject> leftValues,
+			List<EObject> rightValues, Set<EObject> originValues) {
+		final Map<Object, EObject> rightKeyedValues = Maps.newLinkedHashMap();
+		if (rightValues != null) {
+			for (EObject value : rightValues) {
+				if (hasURI(value)) {
+					final Object key = rightKeys.getKey(match.getRight(), value);
+					if (!rightKeyedValues.containsKey(key)) {
+						rightKeyedValues.put(key, value);
+					}
 				}
-			} else {
-				// this value is out of the comparison scope
-				// FIXME or could be a proxy : compare through URI
 			}
 		}
+		final Set<Object> originKeyedValues = Sets.newHashSet();
+		for (EObject value : originValues) {
+			if (hasURI(value) && getComparison().getMatch(value) == null) {
+				originKeyedValues.add(originKeys.getKey(match.getOrigin(), value));
+			}
+		}
+
+		if (leftValues != null) {
+			for (EObject value : leftValues) {
+				if (hasURI(value)) {
+					final Object key = leftKeys.getKey(match.getLeft(), value);
+					if (rightKeyedValues.remove(key) == null) {
+						leftReferenceChange(match, reference, value, originKeyedValues.contains(key));
+					}
+				}
+			}
+		}
+		for (Map.Entry<Object, EObject> entry : rightKeyedValues.entrySet()) {
+			rightReferenceChange(match, reference, entry.getValue(), originKeyedValues.contains(entry
+					.getKey()));
+		}
+	}
+
+	/**
+	 * Checks whether the given unmatched value can be compared through its URI, that is, whether it is a
+	 * proxy or an EObject held by a resource.
+	 * 
+	 * @param value
+	 *            The value to check.
+	 * @return <code>true</code> if <code>value</code> has a meaningful URI, <code>false</code> otherwise.
+	 */
+	private static boolean hasURI(EObject value) {
+		return value.eIsProxy() || value.eResource() != null;
+	}
+
+	/**
+	 * Notifies the diff processor of a difference on a value of a non-containment reference that is present
+	 * in the left side but not in the right side.
+	 * 
+	 * @param match
+	 *            The match which sides we are checking for differences.
+	 * @param reference
+	 *            The reference on which we detected a difference.
+	 * @param value
+	 *            The value for which we detected a difference.
+	 * @param inOrigin
+	 *            <code>true</code> if <code>value</code> is also present in the origin.
+	 */
+	private void leftReferenceChange(Match match, EReference reference, EObject value, boolean inOrigin) {
+		final DifferenceKind kind = getReferenceChangeKind(reference, inOrigin);
+		// no need to check if three way for these
+		if (inOrigin) {
+			// Value is in left and origin, though not in right.
+			getDiffProcessor().referenceChange(match, reference, value, kind, DifferenceSource.RIGHT);
+		} else {
+			getDiffProcessor().referenceChange(match, reference, value, kind, DifferenceSource.LEFT);
+		}
+	}
+
+	/**
+	 * Notifies the diff processor of a difference on a value of a non-containment reference that is present
+	 * in the right side but not in the left side.
+	 * 
+	 * @param match
+	 *            The match which sides we are checking for differences.
+	 * @param reference
+	 *            The reference on which we detected a difference.
+	 * @param value
+	 *            The value for which we detected a difference.
+	 * @param inOrigin
+	 *            <code>true</code> if <code>value</code> is also present in the origin.
+	 */
+	private void rightReferenceChange(Match match, EReference reference, EObject value, boolean inOrigin) {
+		final DifferenceKind kind = getReferenceChangeKind(reference, inOrigin);
+		// Even with no match in the origin, source is left side if not in a three way comparison
+		if (inOrigin || !getComparison().isThreeWay()) {
+			getDiffProcessor().referenceChange(match, reference, value, kind, DifferenceSource.LEFT);
+		} else {
+			getDiffProcessor().referenceChange(match, reference, value, kind, DifferenceSource.RIGHT);
+		}
+	}
+
+	/**
+	 * Returns the kind of the difference detected on a value of a non-containment reference that is only
+	 * present on one of the left and right sides.
+	 * 
+	 * @param reference
+	 *            The reference on which we detected a difference.
+	 * @param inOrigin
+	 *            <code>true</code> if the value is also present in the origin.
+	 * @return The kind of the detected difference.
+	 */
+	private static DifferenceKind getReferenceChangeKind(EReference reference, boolean inOrigin) {
+		final DifferenceKind kind;
+		if (!reference.isMany()) {
+			kind = DifferenceKind.CHANGE;
+		} else if (inOrigin) {
+			kind = DifferenceKind.DELETE;
+		} else {
+			kind = DifferenceKind.ADD;
+		}
+		return kind;
 	}
 
 	/**
@@ -404,6 +838,10 @@ public class DefaultDiffEngine implements IDiffEngine {
 				computeContainmentDiffForRightValue(match, reference, valueMatch, checkOrdering);
 			}
 		}
+
+		if (checkOrdering) {
+			computeOrderingDifferences(match, reference);
+		}
 	}
 
 	/**
@@ -442,7 +880,6 @@ public class DefaultDiffEngine implements IDiffEngine {
 				// from the right side.
 				getDiffProcessor().referenceChange(parent, reference, leftValue, DifferenceKind.DELETE,
 						DifferenceSource.RIGHT);
-				// FIXME check ordering between left and origin
 			} else {
 				/*
 				 * This value is also in the origin, it has thus been deleted from the right side. But it was
@@ -457,7 +894,7 @@ public class DefaultDiffEngine implements IDiffEngine {
 			if (isContainedBy(parent.getRight(), reference, rightValue)) {
 				// they are in the same container; so there's actually no diff here : the same
 				// modification has been made in both sides
-				// FIXME check ordering between right and left
+				// Ordering changes are detected by computeOrderingDifferences()
 			} else {
 				/*
 				 * This is a conflict if a three way comparison : same object added in two distinct
@@ -474,7 +911,7 @@ public class DefaultDiffEngine implements IDiffEngine {
 				 * Value is in the same container on the right and left side. The container in the origin does
 				 * not matter in this case : the only diff possible is the ordering between left and right.
 				 */
-				// FIXME check ordering between left and right
+				// Ordering changes are detected by computeOrderingDifferences()
 			} else if (!isContainedBy(parent.getOrigin(), reference, originValue)) {
 				/*
 				 * Value has changed container in left _and_ in right. The move on the right side will be
@@ -487,7 +924,7 @@ public class DefaultDiffEngine implements IDiffEngine {
 				 * Value is in the same container on left and origin. It has moved on the right side, but that
 				 * will be detected for another match.
 				 */
-				// FIXME check ordering between left and origin
+				// Ordering changes are detected by computeOrderingDifferences()
 			}
 		}
 	}
@@ -530,7 +967,6 @@ public class DefaultDiffEngine implements IDiffEngine {
 				// container. It has thus been removed from the left side.
 				getDiffProcessor().referenceChange(parent, reference, rightValue, DifferenceKind.DELETE,
 						DifferenceSource.LEFT);
-				// FIXME check ordering between right and origin
 			} else {
 				/*
 				 * This value is also in the origin, it has thus been deleted from the left side. But it was
@@ -560,11 +996,122 @@ public class DefaultDiffEngine implements IDiffEngine {
 						DifferenceSource.RIGHT);
 			} else {
 				// The value has been moved in the left side ... but that's in another Match element
-				// FIXME check ordering between right and origin
+				// Ordering changes are detected by computeOrderingDifferences()
+			}
+		}
+	}
+
+	/**
+	 * Computes the ordering changes between the sides of the given <code>match</code> for the given
+	 * multi-valued <code>feature</code>. Values that are present on two sides of the match are considered
+	 * moved if they are not part of the longest common subsequence of these two sides' values.
+	 * <p>
+	 * For three way comparisons, the left and right values are both compared with the origin. Otherwise, the
+	 * left values are compared with the right ones. Values that are not present in the other side are
+	 * ignored, their addition or deletion has been detected already.
+	 * </p>
+	 * 
+	 * @param match
+	 *            The match which sides we need to check for ordering changes.
+	 * @param feature
+	 *            The feature which values are to be checked.
+	 */
+	protected void computeOrderingDifferences(Match match, EStructuralFeature feature) {
+		final List<Object> leftValues = Lists.newArrayList(getValue(match.getLeft(), feature));
+		final List<Object> rightValues = Lists.newArrayList(getValue(match.getRight(), feature));
+		if (getComparison().isThreeWay()) {
+			final List<Object> originValues = Lists.newArrayList(getValue(match.getOrigin(), feature));
+			computeMoves(match, feature, originValues, leftValues, DifferenceSource.LEFT);
+			computeMoves(match, feature, originValues, rightValues, DifferenceSource.RIGHT);
+		} else {
+			computeMoves(match, feature, rightValues, leftValues, DifferenceSource.LEFT);
+		}
+	}
+
+	/**
+	 * Notifies the diff processor of a {@link DifferenceKind#MOVE move} for each of the
+	 * <code>changedValues</code> which is also present in the <code>referenceValues</code>, but is not part
+	 * of the longest common subsequence of the two.
+	 * 
+	 * @param match
+	 *            The match which sides we are checking for ordering changes.
+	 * @param feature
+	 *            The feature which values are being checked.
+	 * @param referenceValues
+	 *            The values of reference, in their original order.
+	 * @param changedValues
+	 *            The values which position could have changed.
+	 * @param source
+	 *            The side from which <code>changedValues</code> have been taken.
+	 */
+	private void computeMoves(Match match, EStructuralFeature feature, List<Object> referenceValues,
+			List<Object> changedValues, DifferenceSource source) {
+		if (referenceValues.isEmpty() || changedValues.isEmpty()) {
+			return;
+		}
+		final Map<Object, Integer> tokens = Maps.newHashMap();
+		final int[] from = tokenize(referenceValues, tokens);
+		final int[] to = tokenize(changedValues, tokens);
+		final boolean[] inSubsequence = LongestCommonSubsequence.compute(from, to);
+
+		// Number of occurrences of each token in "from" that have not been matched by the subsequence
+		final int[] available = new int[tokens.size()];
+		for (int i = 0; i < from.length; i++) {
+			available[from[i]]++;
+		}
+		for (int i = 0; i < to.length; i++) {
+			if (inSubsequence[i]) {
+				available[to[i]]--;
+			}
+		}
+
+		for (int i = 0; i < to.length; i++) {
+			if (!inSubsequence[i] && available[to[i]] > 0) {
+				available[to[i]]--;
+				final Object value = changedValues.get(i);
+				if (feature instanceof EReference) {
+					getDiffProcessor().referenceChange(match, (EReference)feature, (EObject)value,
+							DifferenceKind.MOVE, source);
+				} else {
+					getDiffProcessor().attributeChange(match, (EAttribute)feature, value,
+							DifferenceKind.MOVE, source);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Converts the given values into a sequence of tokens, matching values sharing the same token. EObjects
+	 * share the token of their Match, other values are keyed in the same way as for
+	 * {@link #isIndexable(Object) indexing}.
+	 * 
+	 * @param values
+	 *            The values to convert.
+	 * @param tokens
+	 *            The tokens that have been assigned so far. New tokens will be added to this map.
+	 * @return The sequence of tokens corresponding to <code>values</code>.
+	 */
+	private int[] tokenize(List<Object> values, Map<Object, Integer> tokens) {
+		final int[] sequence = new int[values.size()];
+		for (int i = 0; i < sequence.length; i++) {
+			final Object value = values.get(i);
+			Object key = null;
+			if (value instanceof EObject && !(value instanceof EEnumLiteral)) {
+				key = getComparison().getMatch((EObject)value);
+			}
+			if (key == null) {
+				key = ValueIndex.createKey(value);
+			}
+			Integer token = tokens.get(key);
+			if (token == null) {
+				token = Integer.valueOf(tokens.size());
+				tokens.put(key, token);
+			}
+			sequence[i] = token.intValue();
+		}
+		return sequence;
+	}
+
 	/**
 	 * Checks whether the given <code>value</code> is contained within the given <code>container</code>,
 	 * through the given <code>containmentReference</code>.
@@ -609,35 +1156,127 @@ public class DefaultDiffEngine implements IDiffEngine {
 	}
 
 	/**
-	 * This will be used in order to create the diff processor that is to be used by this diff engine.
+	 * Returns the resource directly holding the given EObject in its contents.
+	 * 
+	 * @param eObject
+	 *            The EObject. May be <code>null</code>.
+	 * @return The resource which contents hold <code>eObject</code>, <code>null</code> if
+	 *         <code>eObject</code> is <code>null</code> or held by another EObject of the same resource.
+	 */
+	private static Resource getDirectResource(EObject eObject) {
+		Resource resource = null;
+		if (eObject instanceof InternalEObject) {
+			resource = ((InternalEObject)eObject).eDirectResource();
+		}
+		return resource;
+	}
+
+	/**
+	 * Returns the URI of the given resource as a String.
+	 * 
+	 * @param resource
+	 *            The resource.
+	 * @return The URI of <code>resource</code>, <code>null</code> if it has none.
+	 */
+	private static String getURI(Resource resource) {
+		String uri = null;
+		if (resource.getURI() != null) {
+			uri = resource.getURI().toString();
+		}
+		return uri;
+	}
+
+	/**
+	 * Adds the given Match and all of its submatches to <code>matches</code>, depth-first.
+	 * 
+	 * @param match
+	 *            The match to add along with its sub-tree.
+	 * @param matches
+	 *            The list to which matches are to be added.
+	 */
+	private static void collectMatches(Match match, List<Match> matches) {
+		matches.add(match);
+		for (Match submatch : match.getSubmatches()) {
+			collectMatches(submatch, matches);
+		}
+	}
+
+	/**
+	 * Tells whether the diff processor of this differencing process no longer needs any difference.
+	 * 
+	 * @return <code>true</code> if the diff processor is an {@link IStoppableDiffProcessor} that has stopped,
+	 *         <code>false</code> otherwise.
+	 */
+	private boolean isStopped() {
+		return diffProcessor instanceof IStoppableDiffProcessor
+				&& ((IStoppableDiffProcessor)diffProcessor).isStopped();
+	}
+
+	/**
+	 * Cancels all of the given tasks, interrupting them if they are running.
+	 * 
+	 * @param tasks
+	 *            The tasks that are to be cancelled.
+	 */
+	private static void cancel(List<? extends Future<?>> tasks) {
+		for (Future<?> task : tasks) {
+			task.cancel(true);
+		}
+	}
+
+	/**
+	 * This will be used in order to create the diff processor that is to be used by this diff engine. If it
+	 * is an {@link IBatchingDiffProcessor}, it will be flushed once all matches have been checked.
 	 * 
 	 * @return The diff processor of this diff engine. Will only be called once per call to
 	 *         {@link #diff(Comparison)}.
 	 */
 	protected IDiffProcessor createDiffProcessor() {
-		return new DiffBuilder();
+		if (defaultDiffProcessor != null) {
+			return defaultDiffProcessor;
+		}
+		return new BatchingDiffBuilder();
 	}
 
 	/**
 	 * This will return the diff processor that has been created through {@link #createDiffProcessor()} for
-	 * this differencing process.
+	 * this differencing process. When called from one of the tasks of a concurrent run, this will instead
+	 * return the {@link DiffBuffer} of that task.
 	 * 
 	 * @return The diff processor to notify of difference detections.
 	 */
 	protected final IDiffProcessor getDiffProcessor() {
-		return diffProcessor;
+		IDiffProcessor processor = taskDiffProcessor.get();
+		if (processor == null) {
+			processor = diffProcessor;
+		}
+		return processor;
 	}
 
 	/**
 	 * This will be used in order to create the {@link FeatureFilter} that should be used by this engine to
 	 * determine the structural features on which it is to try and detect differences.
 	 * 
-	 * @return The newly created feature filter.
+	 * @return The newly created feature filter. Will only be called once per call to
+	 *         {@link #diff(Comparison)}.
 	 */
 	protected FeatureFilter createFeatureFilter() {
+		if (defaultFeatureFilter != null) {
+			return defaultFeatureFilter;
+		}
 		return new FeatureFilter();
 	}
 
+	/**
+	 * This will return the feature filter that has been created through {@link #createFeatureFilter()} for
+	 * this differencing process.
+	 * 
+	 * @return The feature filter of this differencing process.
+	 */
+	protected final FeatureFilter getFeatureFilter() {
+		return featureFilter;
+	}
+
 	/**
 	 * Returns the comparison for which we are currently detecting differences.
 	 * 
@@ -682,9 +1321,8 @@ public class DefaultDiffEngine implements IDiffEngine {
 		} else if (object1 instanceof EEnumLiteral && object2 instanceof EEnumLiteral) {
 			final EEnumLiteral literal1 = (EEnumLiteral)object1;
 			final EEnumLiteral literal2 = (EEnumLiteral)object2;
-			final String value1 = literal1.getLiteral() + literal1.getValue();
-			final String value2 = literal2.getLiteral() + literal2.getValue();
-			equal = value1.equals(value2);
+			equal = literal1.getValue() == literal2.getValue()
+					&& String.valueOf(literal1.getLiteral()).equals(String.valueOf(literal2.getLiteral()));
 		} else if (object1 instanceof EObject && object2 instanceof EObject) {
 			// [248442] This will handle FeatureMapEntries detection
 			final Match match = getComparison().getMatch((EObject)object1);
@@ -712,7 +1350,7 @@ public class DefaultDiffEngine implements IDiffEngine {
 		boolean equal = true;
 		final int length1 = Array.getLength(object1);
 		if (length1 != Array.getLength(object2)) {
-			equal = true;
+			equal = false;
 		} else {
 			for (int i = 0; i < length1 && equal; i++) {
 				final Object element1 = Array.get(object1, i);
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+/**
+ * This implementation of an {@link IDiffProcessor} will not create any difference : it only records the
+ * detected differences so that they can later be {@link #replay(IDiffProcessor) replayed}, in the same order,
+ * on another diff processor.
+ * <p>
+ * This is mainly meant to be used when differences are detected on another thread than the one allowed to
+ * modify the comparison : no model is modified while recording. Instances of this class are not thread-safe
+ * and should be confined to a single thread while recording.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class DiffBuffer implements IDiffProcessor {
+	/** The differences we've recorded so far, in order of detection. */
+	private final List<RecordedDiff> recordedDiffs = Lists.newArrayList();
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.diff.IDiffProcessor#referenceChange(org.eclipse.emf.compare.Match,
+	 *      org.eclipse.emf.ecore.EReference, org.eclipse.emf.ecore.EObject,
+	 *      org.eclipse.emf.compare.DifferenceKind, org.eclipse.emf.compare.DifferenceSource)
+	 */
+	public void referenceChange(Match match, EReference reference, EObject value, DifferenceKind kind,
+			DifferenceSource source) {
+		recordedDiffs.add(new RecordedDiff(match, reference, value, kind, source));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.diff.IDiffProcessor#attributeChange(org.eclipse.emf.compare.Match,
+	 *      org.eclipse.emf.ecore.EAttribute, java.lang.Object, org.eclipse.emf.compare.DifferenceKind,
+	 *      org.eclipse.emf.compare.DifferenceSource)
+	 */
+	public void attributeChange(Match match, EAttribute attribute, Object value, DifferenceKind kind,
+			DifferenceSource source) {
+		recordedDiffs.add(new RecordedDiff(match, attribute, value, kind, source));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.diff.IDiffProcessor#resourceAttachmentChange(org.eclipse.emf.compare.Match,
+	 *      java.lang.String, org.eclipse.emf.compare.DifferenceKind,
+	 *      org.eclipse.emf.compare.DifferenceSource)
+	 */
+	public void resourceAttachmentChange(Match match, String uri, DifferenceKind kind,
+			DifferenceSource source) {
+		recordedDiffs.add(new RecordedDiff(match, null, uri, kind, source));
+	}
+
+	/**
+	 * Notifies the given diff processor of all differences recorded by this buffer, in the order in which
+	 * they've been recorded.
+	 * 
+	 * @param processor
+	 *            The diff processor that is to be notified of our differences.
+	 */
+	public void replay(IDiffProcessor processor) {
+		for (RecordedDiff diff : recordedDiffs) {
+			if (diff.feature instanceof EReference) {
+				processor.referenceChange(diff.match, (EReference)diff.feature, (EObject)diff.value,
+						diff.kind, diff.source);
+			} else if (diff.feature == null) {
+				processor.resourceAttachmentChange(diff.match, (String)diff.value, diff.kind, diff.source);
+			} else {
+				processor.attributeChange(diff.match, (EAttribute)diff.feature, diff.value, diff.kind,
+						diff.source);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of differences recorded by this buffer.
+	 * 
+	 * @return The number of differences recorded by this buffer.
+	 */
+	public int size() {
+		return recordedDiffs.size();
+	}
+
+	/**
+	 * Discards all differences recorded by this buffer.
+	 */
+	public void clear() {
+		recordedDiffs.clear();
+	}
+
+	/**
+	 * Holds the parameters of a single difference detection.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class RecordedDiff {
+		/** The match to which this difference should be attached. */
+		final Match match;
+
+		/**
+		 * The reference or attribute on which this difference has been detected. <code>null</code> for
+		 * resource attachment changes.
+		 */
+		final EStructuralFeature feature;
+
+		/** The value for which this difference has been detected. */
+		final Object value;
+
+		/** Kind of this difference. */
+		final DifferenceKind kind;
+
+		/** Source of this difference. */
+		final DifferenceSource source;
+
+		/**
+		 * Records the given difference.
+		 * 
+		 * @param match
+		 *            The match to which this difference should be attached.
+		 * @param feature
+		 *            The reference or attribute on which this difference has been detected.
+		 *            <code>null</code> for resource attachment changes.
+		 * @param value
+		 *            The value for which this difference has been detected, or the URI of the resource for
+		 *            resource attachment changes.
+		 * @param kind
+		 *            Kind of this difference.
+		 * @param source
+		 *            Source of this difference.
+		 */
+		RecordedDiff(Match match, EStructuralFeature feature, Object value, DifferenceKind kind,
+				DifferenceSource source) {
+			this.match = match;
+			this.feature = feature;
+			this.value = value;
+			this.kind = kind;
+			this.source = source;
+		}
+	}
+}
@@ -12,10 +12,12 @@ package org.eclipse.emf.compare.diff;
 
 import org.eclipse.emf.compare.AttributeChange;
 import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Diff;
 import org.eclipse.emf.compare.DifferenceKind;
 import org.eclipse.emf.compare.DifferenceSource;
 import org.eclipse.emf.compare.Match;
 import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.compare.ResourceAttachmentChange;
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
@@ -37,11 +39,11 @@ public class DiffBuilder implements IDiffProcessor {
 	public void referenceChange(Match match, EReference reference, EObject value, DifferenceKind kind,
 			DifferenceSource source) {
 		final ReferenceChange referenceChange = CompareFactory.eINSTANCE.createReferenceChange();
-		referenceChange.setMatch(match);
 		referenceChange.setReference(reference);
 		referenceChange.setValue(value);
 		referenceChange.setKind(kind);
 		referenceChange.setSource(source);
+		attach(match, referenceChange);
 	}
 
 	/**
@@ -54,10 +56,39 @@ public class DiffBuilder implements IDiffProcessor {
 	public void attributeChange(Match match, EAttribute attribute, Object value, DifferenceKind kind,
 			DifferenceSource source) {
 		final AttributeChange attributeChange = CompareFactory.eINSTANCE.createAttributeChange();
-		attributeChange.setMatch(match);
 		attributeChange.setAttribute(attribute);
 		attributeChange.setValue(value);
 		attributeChange.setKind(kind);
 		attributeChange.setSource(source);
+		attach(match, attributeChange);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.diff.IDiffProcessor#resourceAttachmentChange(org.eclipse.emf.compare.Match,
+	 *      java.lang.String, org.eclipse.emf.compare.DifferenceKind,
+	 *      org.eclipse.emf.compare.DifferenceSource)
+	 */
+	public void resourceAttachmentChange(Match match, String uri, DifferenceKind kind,
+			DifferenceSource source) {
+		final ResourceAttachmentChange change = CompareFactory.eINSTANCE.createResourceAttachmentChange();
+		change.setResourceURI(uri);
+		change.setKind(kind);
+		change.setSource(source);
+		attach(match, change);
+	}
+
+	/**
+	 * Attaches the given newly built difference to the given match. This will be called once all other
+	 * features of <code>diff</code> have been set.
+	 * 
+	 * @param match
+	 *            The match to which this difference should be attached.
+	 * @param diff
+	 *            The difference we've just built.
+	 */
+	protected void attach(Match match, Diff diff) {
+		diff.setMatch(match);
 	}
 }
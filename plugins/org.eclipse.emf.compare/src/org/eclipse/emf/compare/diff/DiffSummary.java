@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+/**
+ * This implementation of an {@link IDiffProcessor} will not create any difference : it only counts the
+ * detected differences by {@link DifferenceKind kind}, {@link DifferenceSource source}, {@link EClass} of
+ * the matched EObjects and {@link EStructuralFeature feature}. This is meant for clients that only need to
+ * know whether, and by how much, models differ.
+ * <p>
+ * If told to stop on the first difference, this will be {@link #isStopped() stopped} as soon as a
+ * difference is detected : the diff engine then stops detecting differences, and any difference it still
+ * reports is ignored. The summary only accounts for this first difference. Instances of this class are not
+ * thread-safe, though {@link #isStopped()} can be polled from any thread.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class DiffSummary implements IStoppableDiffProcessor {
+	/** Whether we should interrupt the diff engine on the first detected difference. */
+	private final boolean stopOnFirstDifference;
+
+	/** Number of differences counted so far. */
+	private int differenceCount;
+
+	/** Number of differences counted so far, indexed by the ordinal of their kind. */
+	private final int[] kindCounts = new int[DifferenceKind.values().length];
+
+	/** Number of differences counted so far, indexed by the ordinal of their source. */
+	private final int[] sourceCounts = new int[DifferenceSource.values().length];
+
+	/** Number of differences counted so far by EClass of their matched EObjects. */
+	private final Map<EClass, Integer> eClassCounts = Maps.newLinkedHashMap();
+
+	/** Number of differences counted so far by feature. Resource attachment changes have no feature. */
+	private final Map<EStructuralFeature, Integer> featureCounts = Maps.newLinkedHashMap();
+
+	/** <code>true</code> if we no longer need differences. Polled by the diff engine from its tasks. */
+	private volatile boolean stopped;
+
+	/**
+	 * Creates a summary that will count all differences.
+	 */
+	public DiffSummary() {
+		this(false);
+	}
+
+	/**
+	 * Creates a summary.
+	 * 
+	 * @param stopOnFirstDifference
+	 *            <code>true</code> if the diff engine should be interrupted as soon as a difference is
+	 *            detected, <code>false</code> if all differences should be counted.
+	 */
+	public DiffSummary(boolean stopOnFirstDifference) {
+		this.stopOnFirstDifference = stopOnFirstDifference;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.diff.IDiffProcessor#referenceChange(org.eclipse.emf.compare.Match,
+	 *      org.eclipse.emf.ecore.EReference, org.eclipse.emf.ecore.EObject,
+	 *      org.eclipse.emf.compare.DifferenceKind, org.eclipse.emf.compare.DifferenceSource)
+	 */
+	public void referenceChange(Match match, EReference reference, EObject value, DifferenceKind kind,
+			DifferenceSource source) {
+		count(match, reference, kind, source);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.diff.IDiffProcessor#attributeChange(org.eclipse.emf.compare.Match,
+	 *      org.eclipse.emf.ecore.EAttribute, java.lang.Object, org.eclipse.emf.compare.DifferenceKind,
+	 *      org.eclipse.emf.compare.DifferenceSource)
+	 */
+	public void attributeChange(Match match, EAttribute attribute, Object value, DifferenceKind kind,
+			DifferenceSource source) {
+		count(match, attribute, kind, source);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.diff.IDiffProcessor#resourceAttachmentChange(org.eclipse.emf.compare.Match,
+	 *      java.lang.String, org.eclipse.emf.compare.DifferenceKind,
+	 *      org.eclipse.emf.compare.DifferenceSource)
+	 */
+	public void resourceAttachmentChange(Match match, String uri, DifferenceKind kind,
+			DifferenceSource source) {
+		count(match, null, kind, source);
+	}
+
+	/**
+	 * Tells whether at least one difference has been detected.
+	 * 
+	 * @return <code>true</code> if at least one difference has been detected.
+	 */
+	public boolean hasDifferences() {
+		return differenceCount > 0;
+	}
+
+	/**
+	 * Tells whether this summary has stopped on the first detected difference, in which case the counts only
+	 * account for this first difference.
+	 * 
+	 * @return <code>true</code> if this summary has stopped counting differences.
+	 * @see org.eclipse.emf.compare.diff.IStoppableDiffProcessor#isStopped()
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Returns the total number of detected differences.
+	 * 
+	 * @return The total number of detected differences.
+	 */
+	public int getDifferenceCount() {
+		return differenceCount;
+	}
+
+	/**
+	 * Returns the number of detected differences of the given kind.
+	 * 
+	 * @param kind
+	 *            The kind of differences we need to count.
+	 * @return The number of detected differences of the given kind.
+	 */
+	public int getCount(DifferenceKind kind) {
+		return kindCounts[kind.ordinal()];
+	}
+
+	/**
+	 * Returns the number of detected differences from the given source.
+	 * 
+	 * @param source
+	 *            The source of the differences we need to count.
+	 * @return The number of detected differences from the given source.
+	 */
+	public int getCount(DifferenceSource source) {
+		return sourceCounts[source.ordinal()];
+	}
+
+	/**
+	 * Returns the number of detected differences by EClass of the EObjects on which they've been detected.
+	 * 
+	 * @return An unmodifiable view of the number of differences by EClass, in order of detection.
+	 */
+	public Map<EClass, Integer> getCountsByEClass() {
+		return Collections.unmodifiableMap(eClassCounts);
+	}
+
+	/**
+	 * Returns the number of detected differences by feature. Resource attachment changes, which are not
+	 * detected on a feature, are not accounted for.
+	 * 
+	 * @return An unmodifiable view of the number of differences by feature, in order of detection.
+	 */
+	public Map<EStructuralFeature, Integer> getCountsByFeature() {
+		return Collections.unmodifiableMap(featureCounts);
+	}
+
+	/**
+	 * Counts a detected difference, unless this summary has already stopped.
+	 * 
+	 * @param match
+	 *            The match on which this difference has been detected.
+	 * @param feature
+	 *            The feature on which this difference has been detected, <code>null</code> for resource
+	 *            attachment changes.
+	 * @param kind
+	 *            Kind of this difference.
+	 * @param source
+	 *            Source of this difference.
+	 */
+	private void count(Match match, EStructuralFeature feature, DifferenceKind kind,
+			DifferenceSource source) {
+		if (stopped) {
+			return;
+		}
+		differenceCount++;
+		kindCounts[kind.ordinal()]++;
+		sourceCounts[source.ordinal()]++;
+		final EClass eClass = getEClass(match);
+		if (eClass != null) {
+			increment(eClassCounts, eClass);
+		}
+		if (feature != null) {
+			increment(featureCounts, feature);
+		}
+		if (stopOnFirstDifference) {
+			stopped = true;
+		}
+	}
+
+	/**
+	 * Returns the EClass of the EObjects mapped by the given match.
+	 * 
+	 * @param match
+	 *            The match.
+	 * @return The EClass of the first side of <code>match</code> that is not <code>null</code>.
+	 */
+	private static EClass getEClass(Match match) {
+		EObject side = match.getLeft();
+		if (side == null) {
+			side = match.getRight();
+		}
+		if (side == null) {
+			side = match.getOrigin();
+		}
+		if (side != null) {
+			return side.eClass();
+		}
+		return null;
+	}
+
+	/**
+	 * Increments the count of the given key in the given map.
+	 * 
+	 * @param counts
+	 *            The map holding our counts.
+	 * @param key
+	 *            The key which count should be incremented.
+	 * @param <K>
+	 *            Type of the keys.
+	 */
+	private static <K> void increment(Map<K, Integer> counts, K key) {
+		final Integer count = counts.get(key);
+		if (count == null) {
+			counts.put(key, Integer.valueOf(1));
+		} else {
+			counts.put(key, Integer.valueOf(count.intValue() + 1));
+		}
+	}
+}
@@ -12,8 +12,12 @@ package org.eclipse.emf.compare.diff;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.emf.compare.Match;
 import org.eclipse.emf.ecore.EAttribute;
@@ -26,10 +30,96 @@ import org.eclipse.emf.ecore.EcorePackage;
  * {@link FeatureFilter}s will be used by the default implemention of a diff engine in order to determine
  * which features it is to check for differences. Any feature that is not returned by this filter will be
  * ignored by the diff engine.
+ * <p>
+ * The diff engine does not query this filter for every single Match : it asks for a {@link FeaturePlan} which
+ * is, by default, computed once per EClass and reused for all matches of that EClass. Subclasses which
+ * selection of features depends on the Match itself rather than its EClass should override
+ * {@link #isFeatureSelectionCacheable()} so that plans are not cached.
+ * </p>
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
 public class FeatureFilter {
+	/**
+	 * Caches the plans we've computed, keyed on the EClass of the matches they were computed for. A plan
+	 * references the features of its EClass : plans are softly referenced and their EClasses weakly so that a
+	 * long-lived filter does not keep metamodels in memory.
+	 */
+	private final ConcurrentMap<EClass, FeaturePlan> plans = new MapMaker().weakKeys().softValues().makeMap();
+
+	/**
+	 * Returns the plan describing the features that are to be checked for the given Match. This default
+	 * implementation computes a single plan per EClass through {@link #createFeaturePlan(Match)}, then
+	 * returns that cached plan for all subsequent matches of the same EClass. If
+	 * {@link #isFeatureSelectionCacheable()} returns <code>false</code>, a new plan is created for every
+	 * Match instead.
+	 * <p>
+	 * This can be called concurrently from multiple threads.
+	 * </p>
+	 * 
+	 * @param match
+	 *            The match for which we are trying to compute differences.
+	 * @return The plan describing the features of <code>match</code> that are to be checked.
+	 */
+	public FeaturePlan getFeaturePlan(Match match) {
+		if (!isFeatureSelectionCacheable()) {
+			return createFeaturePlan(match);
+		}
+		final EClass clazz = getEClass(match);
+		FeaturePlan plan = plans.get(clazz);
+		if (plan == null) {
+			plan = createFeaturePlan(match);
+			final FeaturePlan previous = plans.putIfAbsent(clazz, plan);
+			if (previous != null) {
+				plan = previous;
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Tells whether the features to check for a Match only depend on its EClass, in which case the plan
+	 * created for the first Match of an EClass can be reused for all others. This default implementation
+	 * returns <code>true</code>.
+	 * <p>
+	 * Subclasses that override {@link #getReferencesToCheck(Match)}, {@link #getAttributesToCheck(Match)} or
+	 * {@link #checkForOrderingChanges(EStructuralFeature)} according to anything else than the EClass of the
+	 * Match (its values, its container, ...) must override this to return <code>false</code>.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if feature plans can be cached per EClass, <code>false</code> if a new plan
+	 *         must be created for every Match.
+	 */
+	protected boolean isFeatureSelectionCacheable() {
+		return true;
+	}
+
+	/**
+	 * Creates the plan describing the features that are to be checked for the given Match, according to
+	 * {@link #getReferencesToCheck(Match)}, {@link #getAttributesToCheck(Match)} and
+	 * {@link #checkForOrderingChanges(EStructuralFeature)}.
+	 * 
+	 * @param match
+	 *            The match for which we are trying to compute differences.
+	 * @return The newly created plan.
+	 */
+	protected FeaturePlan createFeaturePlan(Match match) {
+		final List<EReference> references = Lists.newArrayList(getReferencesToCheck(match));
+		final boolean[] referencesOrdering = new boolean[references.size()];
+		for (int i = 0; i < referencesOrdering.length; i++) {
+			referencesOrdering[i] = checkForOrderingChanges(references.get(i));
+		}
+
+		final List<EAttribute> attributes = Lists.newArrayList(getAttributesToCheck(match));
+		final boolean[] attributesOrdering = new boolean[attributes.size()];
+		for (int i = 0; i < attributesOrdering.length; i++) {
+			attributesOrdering[i] = checkForOrderingChanges(attributes.get(i));
+		}
+
+		return new FeaturePlan(references.toArray(new EReference[references.size()]), referencesOrdering,
+				attributes.toArray(new EAttribute[attributes.size()]), attributesOrdering);
+	}
+
 	/**
 	 * The diff engine expects this to return the set of references that need to be checked for differences
 	 * for the given {@link Match} element.
@@ -45,14 +135,7 @@ public class FeatureFilter {
 	 *         which case no difference will be detected on any of this <code>match</code>'s references.
 	 */
 	public Iterator<EReference> getReferencesToCheck(Match match) {
-		final EClass clazz;
-		if (match.getLeft() != null) {
-			clazz = match.getLeft().eClass();
-		} else if (match.getRight() != null) {
-			clazz = match.getRight().eClass();
-		} else {
-			clazz = match.getOrigin().eClass();
-		}
+		final EClass clazz = getEClass(match);
 		return Iterators.filter(clazz.getEAllReferences().iterator(), new Predicate<EReference>() {
 			public boolean apply(EReference input) {
 				/*
@@ -81,14 +164,7 @@ public class FeatureFilter {
 	 *         which case no difference will be detected on any of this <code>match</code>'s attributes.
 	 */
 	public Iterator<EAttribute> getAttributesToCheck(Match match) {
-		final EClass clazz;
-		if (match.getLeft() != null) {
-			clazz = match.getLeft().eClass();
-		} else if (match.getRight() != null) {
-			clazz = match.getRight().eClass();
-		} else {
-			clazz = match.getOrigin().eClass();
-		}
+		final EClass clazz = getEClass(match);
 		return Iterators.filter(clazz.getEAllAttributes().iterator(), new Predicate<EAttribute>() {
 			public boolean apply(EAttribute input) {
 				return !input.isDerived();
@@ -113,4 +189,24 @@ public class FeatureFilter {
 		}
 		return false;
 	}
+
+	/**
+	 * Returns the EClass of the given Match's sides. This assumes that all three sides of the match are
+	 * conform to the same metamodel.
+	 * 
+	 * @param match
+	 *            The match for which we need an EClass.
+	 * @return The EClass of the first non-null side of <code>match</code>, in order left, right, origin.
+	 */
+	private static EClass getEClass(Match match) {
+		final EClass clazz;
+		if (match.getLeft() != null) {
+			clazz = match.getLeft().eClass();
+		} else if (match.getRight() != null) {
+			clazz = match.getRight().eClass();
+		} else {
+			clazz = match.getOrigin().eClass();
+		}
+		return clazz;
+	}
 }
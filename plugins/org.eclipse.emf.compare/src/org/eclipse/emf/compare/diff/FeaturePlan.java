@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EReference;
+
+/**
+ * A feature plan is an immutable summary of what a {@link FeatureFilter} determined for a given kind of
+ * Match : the references and attributes that are to be checked for differences, along with whether they are
+ * containment references and whether their ordering is to be considered.
+ * <p>
+ * Plans are computed once per EClass by the default {@link FeatureFilter} and shared between all matches of
+ * that EClass, allowing the diff engine to iterate over features without any allocation.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public final class FeaturePlan {
+	/** The references that are to be checked for differences. */
+	private final EReference[] references;
+
+	/** Whether each of our {@link #references} is a containment reference. */
+	private final boolean[] containments;
+
+	/** Whether ordering changes should be considered on each of our {@link #references}. */
+	private final boolean[] referencesOrdering;
+
+	/** The attributes that are to be checked for differences. */
+	private final EAttribute[] attributes;
+
+	/** Whether ordering changes should be considered on each of our {@link #attributes}. */
+	private final boolean[] attributesOrdering;
+
+	/**
+	 * Creates a feature plan for the given features. The given arrays are copied.
+	 * 
+	 * @param references
+	 *            The references that are to be checked for differences.
+	 * @param referencesOrdering
+	 *            Whether ordering changes should be considered on each of the given references. Must be of
+	 *            the same length as <code>references</code>.
+	 * @param attributes
+	 *            The attributes that are to be checked for differences.
+	 * @param attributesOrdering
+	 *            Whether ordering changes should be considered on each of the given attributes. Must be of
+	 *            the same length as <code>attributes</code>.
+	 */
+	public FeaturePlan(EReference[] references, boolean[] referencesOrdering, EAttribute[] attributes,
+			boolean[] attributesOrdering) {
+		if (references.length != referencesOrdering.length
+				|| attributes.length != attributesOrdering.length) {
+			throw new IllegalArgumentException();
+		}
+		this.references = references.clone();
+		this.referencesOrdering = referencesOrdering.clone();
+		this.attributes = attributes.clone();
+		this.attributesOrdering = attributesOrdering.clone();
+		this.containments = new boolean[references.length];
+		for (int i = 0; i < references.length; i++) {
+			containments[i] = references[i].isContainment();
+		}
+	}
+
+	/**
+	 * Returns the number of references that are to be checked for differences.
+	 * 
+	 * @return The number of references that are to be checked for differences.
+	 */
+	public int getReferenceCount() {
+		return references.length;
+	}
+
+	/**
+	 * Returns the reference at the given index of this plan.
+	 * 
+	 * @param index
+	 *            Index of the reference we need, between 0 and {@link #getReferenceCount()} (exclusive).
+	 * @return The reference at the given index of this plan.
+	 */
+	public EReference getReference(int index) {
+		return references[index];
+	}
+
+	/**
+	 * Tells whether the reference at the given index of this plan is a containment reference.
+	 * 
+	 * @param index
+	 *            Index of the reference we are checking.
+	 * @return <code>true</code> if the reference at the given index is a containment reference,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isContainment(int index) {
+		return containments[index];
+	}
+
+	/**
+	 * Tells whether ordering changes should be considered on the reference at the given index of this plan.
+	 * 
+	 * @param index
+	 *            Index of the reference we are checking.
+	 * @return <code>true</code> if the diff engine should consider the ordering of this reference,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean checkReferenceOrdering(int index) {
+		return referencesOrdering[index];
+	}
+
+	/**
+	 * Returns the number of attributes that are to be checked for differences.
+	 * 
+	 * @return The number of attributes that are to be checked for differences.
+	 */
+	public int getAttributeCount() {
+		return attributes.length;
+	}
+
+	/**
+	 * Returns the attribute at the given index of this plan.
+	 * 
+	 * @param index
+	 *            Index of the attribute we need, between 0 and {@link #getAttributeCount()} (exclusive).
+	 * @return The attribute at the given index of this plan.
+	 */
+	public EAttribute getAttribute(int index) {
+		return attributes[index];
+	}
+
+	/**
+	 * Tells whether ordering changes should be considered on the attribute at the given index of this plan.
+	 * 
+	 * @param index
+	 *            Index of the attribute we are checking.
+	 * @return <code>true</code> if the diff engine should consider the ordering of this attribute,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean checkAttributeOrdering(int index) {
+		return attributesOrdering[index];
+	}
+}
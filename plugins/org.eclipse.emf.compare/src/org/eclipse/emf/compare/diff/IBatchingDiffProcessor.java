@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+/**
+ * This can be implemented by the {@link IDiffProcessor}s that do not process each difference as soon as it
+ * is detected, but keep some of them pending. The diff engine will tell them when it is done detecting
+ * differences.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ * @see BatchingDiffBuilder
+ */
+public interface IBatchingDiffProcessor extends IDiffProcessor {
+	/**
+	 * This will be called by the diff engine once it has detected all differences of a comparison. All
+	 * pending differences should be processed before this returns.
+	 */
+	void flush();
+}
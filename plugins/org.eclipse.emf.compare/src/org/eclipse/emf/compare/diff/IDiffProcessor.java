@@ -71,4 +71,23 @@ public interface IDiffProcessor {
 	 */
 	void attributeChange(Match match, EAttribute attribute, Object value, DifferenceKind kind,
 			DifferenceSource source);
+
+	/**
+	 * This will be called whenever the diff engine detected that the EObject(s) of the given match have been
+	 * attached to, detached from, or moved between resources.
+	 * 
+	 * @param match
+	 *            The match to which this difference should be attached.
+	 * @param uri
+	 *            URI of the resource to which the EObject has been attached (for {@link DifferenceKind#ADD}
+	 *            and {@link DifferenceKind#CHANGE}), or from which it has been detached (for
+	 *            {@link DifferenceKind#DELETE}).
+	 * @param kind
+	 *            Kind of the difference.
+	 * @param source
+	 *            Source of the difference. For two way comparisons, this will always be
+	 *            {@link DifferenceSource#LEFT}. Otherwise, this will indicate the side on which this
+	 *            difference has been detected.
+	 */
+	void resourceAttachmentChange(Match match, String uri, DifferenceKind kind, DifferenceSource source);
 }
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+/**
+ * This can be implemented by the {@link IDiffProcessor}s that may not need all differences of a comparison,
+ * such as a {@link DiffSummary} that only needs to know whether there is one. The diff engine polls
+ * {@link #isStopped()} between the matches it checks, and stops detecting differences once it returns
+ * <code>true</code>. Differences detected on the match being checked at that time may still be reported,
+ * and should be ignored.
+ * <p>
+ * This is not a cancellation : the comparison is considered complete as far as this processor is concerned.
+ * As the diff engine may poll this from the threads of its executor, implementations must make the
+ * stopped state visible to all threads.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public interface IStoppableDiffProcessor extends IDiffProcessor {
+	/**
+	 * Tells whether this processor needs no more differences.
+	 * 
+	 * @return <code>true</code> if the diff engine can stop detecting differences, <code>false</code>
+	 *         otherwise.
+	 */
+	boolean isStopped();
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.MatchResource;
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * This will be used by the {@link DefaultDiffEngine} to check whether the resources holding the different
+ * sides of a root EObject have been matched together, without iterating over the
+ * {@link Comparison#getMatchedResources() matched resources} for each Match : the MatchResources of the
+ * comparison are indexed once by the URI of each of their sides.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+final class ResourceIndex {
+	/** MatchResources by the URI of their left resource. */
+	private final Map<String, MatchResource> leftResources = Maps.newHashMap();
+
+	/** MatchResources by the URI of their right resource. */
+	private final Map<String, MatchResource> rightResources = Maps.newHashMap();
+
+	/** MatchResources by the URI of their origin resource. */
+	private final Map<String, MatchResource> originResources = Maps.newHashMap();
+
+	/** <code>true</code> if the indexed comparison has no MatchResource. */
+	private final boolean empty;
+
+	/**
+	 * Indexes the MatchResources of the given comparison.
+	 * 
+	 * @param comparison
+	 *            The comparison which MatchResources are to be indexed.
+	 */
+	ResourceIndex(Comparison comparison) {
+		for (MatchResource matchResource : comparison.getMatchedResources()) {
+			put(leftResources, matchResource.getLeftURI(), matchResource);
+			put(rightResources, matchResource.getRightURI(), matchResource);
+			put(originResources, matchResource.getOriginURI(), matchResource);
+		}
+		empty = comparison.getMatchedResources().isEmpty();
+	}
+
+	/**
+	 * Tells whether the indexed comparison has no MatchResource, in which case its roots are EObjects and
+	 * there is no resource attachment to check.
+	 * 
+	 * @return <code>true</code> if the indexed comparison has no MatchResource.
+	 */
+	boolean isEmpty() {
+		return empty;
+	}
+
+	/**
+	 * Tells whether the indexed comparison is a three-way comparison. This is consistent with
+	 * {@link Comparison#isThreeWay()}.
+	 * 
+	 * @return <code>true</code> if at least one of the indexed MatchResources has an origin.
+	 */
+	boolean isThreeWay() {
+		return !originResources.isEmpty();
+	}
+
+	/**
+	 * Creates a cache of the keys of the unmatched EObjects referenced from the left side.
+	 * 
+	 * @return A new cache for the left side.
+	 */
+	URIKeyCache createLeftKeyCache() {
+		return new URIKeyCache(leftResources);
+	}
+
+	/**
+	 * Creates a cache of the keys of the unmatched EObjects referenced from the right side.
+	 * 
+	 * @return A new cache for the right side.
+	 */
+	URIKeyCache createRightKeyCache() {
+		return new URIKeyCache(rightResources);
+	}
+
+	/**
+	 * Creates a cache of the keys of the unmatched EObjects referenced from the origin.
+	 * 
+	 * @return A new cache for the origin.
+	 */
+	URIKeyCache createOriginKeyCache() {
+		return new URIKeyCache(originResources);
+	}
+
+	/**
+	 * Checks whether the given resource of the given side has been matched with the given resource of the
+	 * side it is compared with : the origin for three-way comparisons, the right side otherwise. Resources
+	 * which URI cannot be found in this index are considered to match, as there is no way to tell them apart.
+	 * 
+	 * @param resource
+	 *            A resource of the left or right side.
+	 * @param source
+	 *            The side of <code>resource</code>.
+	 * @param reference
+	 *            A resource of the side <code>resource</code> is compared with.
+	 * @return <code>true</code> unless these two resources are known to be part of distinct MatchResources.
+	 */
+	boolean isMatching(Resource resource, DifferenceSource source, Resource reference) {
+		final MatchResource matchResource;
+		if (source == DifferenceSource.LEFT) {
+			matchResource = get(leftResources, resource);
+		} else {
+			matchResource = get(rightResources, resource);
+		}
+		final MatchResource referenceMatch;
+		if (isThreeWay()) {
+			referenceMatch = get(originResources, reference);
+		} else {
+			referenceMatch = get(rightResources, reference);
+		}
+		return matchResource == null || referenceMatch == null || matchResource == referenceMatch;
+	}
+
+	/**
+	 * Returns the MatchResource indexed under the URI of the given resource in the given map.
+	 * 
+	 * @param resources
+	 *            The map in which to look up <code>resource</code>.
+	 * @param resource
+	 *            The resource which MatchResource we need.
+	 * @return The MatchResource of <code>resource</code>, <code>null</code> if none.
+	 */
+	private static MatchResource get(Map<String, MatchResource> resources, Resource resource) {
+		final URI uri = resource.getURI();
+		if (uri == null) {
+			return null;
+		}
+		return resources.get(uri.toString());
+	}
+
+	/**
+	 * Indexes the given MatchResource under the given URI if it is not <code>null</code>.
+	 * 
+	 * @param resources
+	 *            The map in which to index <code>matchResource</code>.
+	 * @param uri
+	 *            URI of one of the resources of <code>matchResource</code>.
+	 * @param matchResource
+	 *            The MatchResource to index.
+	 */
+	private static void put(Map<String, MatchResource> resources, String uri, MatchResource matchResource) {
+		if (uri != null && uri.length() > 0) {
+			resources.put(uri, matchResource);
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+import com.google.common.base.Objects;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.MatchResource;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * This will be used by the {@link DefaultDiffEngine} to compare, through their URIs, the referenced EObjects
+ * that have no Match : unresolved proxies and EObjects that are out of the comparison scope. Proxies are
+ * never resolved, and no resource is loaded.
+ * <p>
+ * There is one such cache per side of the comparison. The URI of each value is normalized through the
+ * {@link URIConverter} of the side's resource set, and its resource part is replaced by the
+ * {@link MatchResource} it belongs to if any : EObjects of the different sides that have the same fragment
+ * within matching resources get equal keys. Keys are cached by raw URI, so that each distinct URI is only
+ * normalized once per comparison. This cache can be shared by the concurrent tasks of the diff engine.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+final class URIKeyCache {
+	/** MatchResources by the URI of their resource on the side of this cache. */
+	private final Map<String, MatchResource> matchResources;
+
+	/** Keys of the values we've seen so far by their raw URI. */
+	private final ConcurrentMap<URI, URIKey> keys = new ConcurrentHashMap<URI, URIKey>();
+
+	/**
+	 * Creates a cache for one side of a comparison.
+	 * 
+	 * @param matchResources
+	 *            MatchResources by the URI of their resource on the side of this cache.
+	 */
+	URIKeyCache(Map<String, MatchResource> matchResources) {
+		this.matchResources = matchResources;
+	}
+
+	/**
+	 * Returns the key under which the given unmatched value should be compared with the values of the other
+	 * sides.
+	 * 
+	 * @param context
+	 *            The EObject referencing <code>value</code>. Its resource set will be used to normalize the
+	 *            URI of <code>value</code>.
+	 * @param value
+	 *            A proxy, or an EObject that is out of the comparison scope.
+	 * @return The key of <code>value</code>.
+	 */
+	Object getKey(EObject context, EObject value) {
+		final URI uri;
+		if (value.eIsProxy()) {
+			uri = ((InternalEObject)value).eProxyURI();
+		} else {
+			uri = EcoreUtil.getURI(value);
+		}
+		URIKey key = keys.get(uri);
+		if (key == null) {
+			key = createKey(getURIConverter(context), uri);
+			keys.putIfAbsent(uri, key);
+		}
+		return key;
+	}
+
+	/**
+	 * Normalizes the given URI and creates its key.
+	 * 
+	 * @param converter
+	 *            The converter to use in order to normalize <code>uri</code>.
+	 * @param uri
+	 *            The raw URI of an EObject.
+	 * @return The key of that EObject.
+	 */
+	private URIKey createKey(URIConverter converter, URI uri) {
+		final URI normalized = converter.normalize(uri);
+		final URI resourceURI = normalized.trimFragment();
+		MatchResource matchResource = matchResources.get(uri.trimFragment().toString());
+		if (matchResource == null) {
+			matchResource = matchResources.get(resourceURI.toString());
+		}
+		final URIKey key;
+		if (matchResource != null) {
+			key = new URIKey(matchResource, normalized.fragment());
+		} else {
+			key = new URIKey(resourceURI.toString(), normalized.fragment());
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the URI converter of the resource set holding the given EObject.
+	 * 
+	 * @param context
+	 *            The EObject.
+	 * @return The URI converter of the resource set of <code>context</code>, the default URI converter if it
+	 *         has none.
+	 */
+	private static URIConverter getURIConverter(EObject context) {
+		URIConverter converter = null;
+		final Resource resource = context.eResource();
+		if (resource != null && resource.getResourceSet() != null) {
+			converter = resource.getResourceSet().getURIConverter();
+		}
+		if (converter == null) {
+			converter = URIConverter.INSTANCE;
+		}
+		return converter;
+	}
+
+	/**
+	 * Key of an EObject : the MatchResource or the normalized URI of its resource, along with its fragment.
+	 * MatchResources are compared by identity.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class URIKey {
+		/** The MatchResource of the EObject's resource, or the normalized URI of that resource. */
+		private final Object resource;
+
+		/** The fragment of the EObject within its resource. */
+		private final String fragment;
+
+		/**
+		 * Creates a key.
+		 * 
+		 * @param resource
+		 *            The MatchResource of the EObject's resource, or the normalized URI of that resource.
+		 * @param fragment
+		 *            The fragment of the EObject within its resource.
+		 */
+		URIKey(Object resource, String fragment) {
+			this.resource = resource;
+			this.fragment = fragment;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(resource, fragment);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof URIKey)) {
+				return false;
+			}
+			final URIKey other = (URIKey)obj;
+			return Objects.equal(resource, other.resource) && Objects.equal(fragment, other.fragment);
+		}
+	}
+}
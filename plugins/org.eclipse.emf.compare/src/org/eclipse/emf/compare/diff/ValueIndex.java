@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.diff;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EEnumLiteral;
+
+/**
+ * This will be used by the {@link DefaultDiffEngine} to look up the values of a multi-valued attribute that
+ * match a given value, as per {@link DefaultDiffEngine#matchingValues(Object, Object)}.
+ * <p>
+ * When all of the values are {@link DefaultDiffEngine#isIndexable(Object) indexable}, they are indexed
+ * through a key which equality is consistent with the diff engine's : strings and boxed primitives are
+ * their own key, enum literals are keyed on their literal and value, and arrays on the keys of their
+ * content. Look ups then take constant time. Otherwise, this falls back to a linear scan through
+ * {@link DefaultDiffEngine#findMatch(Object, Iterable)}.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+final class ValueIndex implements Iterable<Object> {
+	/** The diff engine which semantics of value equality we are to respect. */
+	private final DefaultDiffEngine engine;
+
+	/** The values that have not been removed yet, in their original order. */
+	private final Set<Object> values;
+
+	/**
+	 * Maps the key of each value to all values with that key, in their original order. <code>null</code> if
+	 * some of our values could not be indexed.
+	 */
+	private final Map<Object, List<Object>> candidates;
+
+	/**
+	 * Indexes the given values.
+	 * 
+	 * @param engine
+	 *            The diff engine which semantics of value equality we are to respect.
+	 * @param values
+	 *            The values of the attribute, duplicates will be ignored.
+	 */
+	ValueIndex(DefaultDiffEngine engine, Iterable<Object> values) {
+		this.engine = engine;
+		this.values = Sets.newLinkedHashSet(values);
+
+		boolean indexable = true;
+		final Iterator<Object> valueIterator = this.values.iterator();
+		while (indexable && valueIterator.hasNext()) {
+			indexable = engine.isIndexable(valueIterator.next());
+		}
+
+		if (indexable) {
+			candidates = Maps.newHashMap();
+			for (Object value : this.values) {
+				final Object key = createKey(value);
+				List<Object> sameKey = candidates.get(key);
+				if (sameKey == null) {
+					sameKey = Lists.newArrayList();
+					candidates.put(key, sameKey);
+				}
+				sameKey.add(value);
+			}
+		} else {
+			candidates = null;
+		}
+	}
+
+	/**
+	 * Finds the first remaining value that matches the given one.
+	 * 
+	 * @param value
+	 *            The value we need to find a match for.
+	 * @return The first remaining value matching <code>value</code>,
+	 *         {@link DefaultDiffEngine#UNMATCHED_VALUE} if none.
+	 */
+	public Object find(Object value) {
+		Object match = DefaultDiffEngine.UNMATCHED_VALUE;
+		if (candidates != null && engine.isIndexable(value)) {
+			final List<Object> sameKey = candidates.get(createKey(value));
+			if (sameKey != null && !sameKey.isEmpty()) {
+				match = sameKey.get(0);
+			}
+		} else {
+			match = engine.findMatch(value, values);
+		}
+		return match;
+	}
+
+	/**
+	 * Removes the given value from this index. Does nothing if it is not one of our remaining values, or if
+	 * it is {@link DefaultDiffEngine#UNMATCHED_VALUE}.
+	 * 
+	 * @param value
+	 *            The value to remove.
+	 */
+	public void remove(Object value) {
+		if (values.remove(value) && candidates != null) {
+			final List<Object> sameKey = candidates.get(createKey(value));
+			sameKey.remove(value);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Iterable#iterator()
+	 */
+	public Iterator<Object> iterator() {
+		return values.iterator();
+	}
+
+	/**
+	 * Creates the key under which the given indexable value is to be stored.
+	 * 
+	 * @param value
+	 *            The value for which we need a key.
+	 * @return The key of the given value.
+	 */
+	static Object createKey(Object value) {
+		final Object key;
+		if (value instanceof EEnumLiteral) {
+			key = new EnumLiteralKey((EEnumLiteral)value);
+		} else if (value != null && value.getClass().isArray()) {
+			final Object[] elementKeys = new Object[Array.getLength(value)];
+			for (int i = 0; i < elementKeys.length; i++) {
+				elementKeys[i] = createKey(Array.get(value, i));
+			}
+			key = new ArrayKey(elementKeys);
+		} else {
+			key = value;
+		}
+		return key;
+	}
+
+	/**
+	 * Key of an enum literal, equal to the key of any other literal with the same literal and value.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class EnumLiteralKey {
+		/** Literal of the keyed enum literal. */
+		private final String literal;
+
+		/** Value of the keyed enum literal. */
+		private final int value;
+
+		/**
+		 * Creates the key of the given enum literal.
+		 * 
+		 * @param enumLiteral
+		 *            The enum literal for which we need a key.
+		 */
+		EnumLiteralKey(EEnumLiteral enumLiteral) {
+			this.literal = enumLiteral.getLiteral();
+			this.value = enumLiteral.getValue();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return String.valueOf(literal).hashCode() ^ value;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			final boolean equal;
+			if (obj instanceof EnumLiteralKey) {
+				final EnumLiteralKey other = (EnumLiteralKey)obj;
+				equal = value == other.value && String.valueOf(literal).equals(String.valueOf(other.literal));
+			} else {
+				equal = false;
+			}
+			return equal;
+		}
+	}
+
+	/**
+	 * Key of an array, equal to the key of any other array which content has equal keys.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class ArrayKey {
+		/** Keys of the array's content. */
+		private final Object[] elementKeys;
+
+		/**
+		 * Creates the key of an array given the keys of its content.
+		 * 
+		 * @param elementKeys
+		 *            Keys of the array's content.
+		 */
+		ArrayKey(Object[] elementKeys) {
+			this.elementKeys = elementKeys;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(elementKeys);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ArrayKey && Arrays.equals(elementKeys, ((ArrayKey)obj).elementKeys);
+		}
+	}
+}
@@ -10,19 +10,15 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.internal.spec;
 
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
+import java.util.Iterator;
 
-import java.util.List;
-import java.util.ListIterator;
-
-import org.eclipse.emf.common.util.AbstractEList;
 import org.eclipse.emf.common.util.BasicEList;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.compare.Diff;
 import org.eclipse.emf.compare.Match;
 import org.eclipse.emf.compare.MatchResource;
 import org.eclipse.emf.compare.impl.ComparisonImpl;
+import org.eclipse.emf.compare.utils.DifferencesIterator;
 import org.eclipse.emf.ecore.EObject;
 
 /**
@@ -32,26 +28,49 @@ import org.eclipse.emf.ecore.EObject;
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
 public class ComparisonSpec extends ComparisonImpl {
+	/** Keeps track of the Match of every EObject referenced by this comparison's Matches. */
+	private final MatchCrossReferencer matchCrossReferencer;
+
+	/**
+	 * Flat view of all differences of this comparison, copied by {@link #getDifferences()}. Will be
+	 * recomputed whenever a Match or Diff is added to or removed from this comparison.
+	 */
+	private BasicEList<Diff> differencesCache;
+
+	/** Value of the match tree's modification count when {@link #differencesCache} was computed. */
+	private int differencesCacheCount;
+
+	/**
+	 * Instantiates a comparison and installs the adapter that will index its matches.
+	 */
+	public ComparisonSpec() {
+		super();
+		matchCrossReferencer = new MatchCrossReferencer();
+		eAdapters().add(matchCrossReferencer);
+	}
+
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * The returned list is a fresh copy that callers are free to sort or filter in place; only the walk
+	 * over the match tree is cached.
+	 * </p>
 	 * 
 	 * @see org.eclipse.emf.compare.impl.ComparisonImpl#getDifferences()
 	 */
 	@Override
 	public EList<Diff> getDifferences() {
-		Iterable<Diff> diffIterable = Lists.newArrayList();
-
-		final List<Match> mappings = getMatches();
-		for (int i = 0; i < mappings.size(); i++) {
-			diffIterable = Iterables.concat(diffIterable, getDifferences(mappings.get(i)));
-		}
-
-		final EList<Diff> allDifferences = new BasicEList<Diff>();
-		for (Diff diff : diffIterable) {
-			((AbstractEList<Diff>)allDifferences).addUnique(diff);
+		final int modificationCount = matchCrossReferencer.getModificationCount();
+		if (differencesCache == null || differencesCacheCount != modificationCount) {
+			final BasicEList<Diff> allDifferences = new BasicEList<Diff>();
+			final Iterator<Diff> differences = new DifferencesIterator(this);
+			while (differences.hasNext()) {
+				allDifferences.addUnique(differences.next());
+			}
+			differencesCache = allDifferences;
+			differencesCacheCount = modificationCount;
 		}
-
-		return allDifferences;
+		return new BasicEList<Diff>(differencesCache);
 	}
 
 	/**
@@ -86,35 +105,7 @@ public class ComparisonSpec extends ComparisonImpl {
 		if (element == null) {
 			return null;
 		}
-
-		final List<EObject> path = Lists.newArrayList(element);
-
-		EObject container = element.eContainer();
-		while (container != null) {
-			path.add(container);
-			container = container.eContainer();
-		}
-
-		final ListIterator<EObject> pathIterator = path.listIterator(path.size());
-		// We have at least one element in the list
-		EObject currentEObject = pathIterator.previous();
-
-		List<Match> rootMatches = getMatches();
-		Match currentMatch = null;
-		for (int i = 0; i < rootMatches.size() && currentMatch == null; i++) {
-			final Match root = rootMatches.get(i);
-			if (root.getLeft() == currentEObject || root.getRight() == currentEObject
-					|| root.getOrigin() == currentEObject) {
-				currentMatch = root;
-			}
-		}
-
-		while (pathIterator.hasPrevious() && currentMatch != null) {
-			currentEObject = pathIterator.previous();
-			currentMatch = getMatch(currentMatch, currentEObject);
-		}
-
-		return currentMatch;
+		return matchCrossReferencer.getMatch(element);
 	}
 
 	/**
@@ -131,44 +122,4 @@ public class ComparisonSpec extends ComparisonImpl {
 		}
 		return false;
 	}
-
-	/**
-	 * Find the sub-match of <code>parent</code> that correspond to the given <code>element</code>, be it the
-	 * left, right or origin element of that sub-match.
-	 * 
-	 * @param parent
-	 *            The parent for which we need a corresponding sub-match.
-	 * @param element
-	 *            The element of which we need the match.
-	 * @return The sub-match of <code>parent</code> that correspond to the given <code>element</code>,
-	 *         <code>null</code> if we could not find a corresponding submatch.
-	 */
-	private static Match getMatch(Match parent, EObject element) {
-		Match submatch = null;
-		for (int i = 0; i < parent.getSubmatches().size() && submatch == null; i++) {
-			final Match child = parent.getSubmatches().get(i);
-			if (child.getLeft() == element || child.getRight() == element || child.getOrigin() == element) {
-				submatch = child;
-			}
-		}
-		return submatch;
-	}
-
-	/**
-	 * Returns all differences related to the given Match and its sub-matches.
-	 * 
-	 * @param match
-	 *            The match for which we need all differences.
-	 * @return All differences related to the given match and its sub-matches.
-	 */
-	private static Iterable<Diff> getDifferences(Match match) {
-		Iterable<Diff> differences = Lists.newArrayList(match.getDifferences());
-
-		final List<Match> submappings = match.getSubmatches();
-		for (int i = 0; i < submappings.size(); i++) {
-			differences = Iterables.concat(differences, getDifferences(submappings.get(i)));
-		}
-
-		return differences;
-	}
 }
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.internal.spec;
+
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.impl.ConflictImpl;
+
+/**
+ * This specialization of the {@link ConflictImpl} class allows us to define the derived features and
+ * operations implementations.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class ConflictSpec extends ConflictImpl {
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.impl.ConflictImpl#getLeftDifferences()
+	 */
+	@Override
+	public EList<Diff> getLeftDifferences() {
+		return getDifferences(DifferenceSource.LEFT);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.impl.ConflictImpl#getRightDifferences()
+	 */
+	@Override
+	public EList<Diff> getRightDifferences() {
+		return getDifferences(DifferenceSource.RIGHT);
+	}
+
+	/**
+	 * Returns an unmodifiable view of the differences of this conflict that have been detected on the given
+	 * side.
+	 * 
+	 * @param source
+	 *            The side which differences we need.
+	 * @return The differences of this conflict that have been detected on the given side.
+	 */
+	private EList<Diff> getDifferences(DifferenceSource source) {
+		final BasicEList<Diff> differences = new BasicEList<Diff>();
+		for (Diff diff : getDifferences()) {
+			if (diff.getSource() == source) {
+				differences.add(diff);
+			}
+		}
+		return new BasicEList.UnmodifiableEList<Diff>(differences.size(), differences.data());
+	}
+}
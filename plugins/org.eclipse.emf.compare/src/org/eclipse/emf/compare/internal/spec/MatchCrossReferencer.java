@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.internal.spec;
+
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.compare.ComparePackage;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * This adapter will be installed on a {@link ComparisonSpec} and all of its {@link Match}es in order to keep
+ * an identity-keyed index of the left, right and origin sides of every match. This allows the comparison to
+ * retrieve the Match of any given EObject in constant time instead of walking the whole Match tree.
+ * <p>
+ * The index is maintained through notifications : Matches added to (or removed from) the comparison or to
+ * any of its matches' submatches are indexed (or unindexed) along with their whole sub-tree, and changes of
+ * the left, right or origin side of an indexed Match are reflected on the index.
+ * </p>
+ * <p>
+ * This adapter also counts the structural modifications of the Match tree and of the matches' differences,
+ * allowing the comparison to know when its cached views of these have become stale.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class MatchCrossReferencer extends AdapterImpl {
+	/** Maps the left, right and origin sides of all known Matches to said Match. */
+	private final Map<EObject, Match> index = Maps.newIdentityHashMap();
+
+	/** Number of times matches or differences have been added to or removed from the Match tree. */
+	private int modificationCount;
+
+	/**
+	 * Returns the Match which left, right or origin side is the given <code>element</code>.
+	 * 
+	 * @param element
+	 *            The element for which we need a Match.
+	 * @return The Match which left, right or origin side is <code>element</code>, <code>null</code> if
+	 *         none.
+	 */
+	public Match getMatch(EObject element) {
+		return index.get(element);
+	}
+
+	/**
+	 * Returns the number of times Matches or Diffs have been added to or removed from the comparison this
+	 * adapter is installed on. Clients can compare this value with the one they recorded along with a cached
+	 * view of the comparison in order to know whether said view is still valid.
+	 * 
+	 * @return The current modification count of the Match tree.
+	 */
+	public int getModificationCount() {
+		return modificationCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.common.notify.impl.AdapterImpl#notifyChanged(org.eclipse.emf.common.notify.Notification)
+	 */
+	@Override
+	public void notifyChanged(Notification msg) {
+		final Object feature = msg.getFeature();
+		if (feature == ComparePackage.Literals.COMPARISON__MATCHES
+				|| feature == ComparePackage.Literals.MATCH__SUBMATCHES) {
+			handleMatchContainmentChange(msg);
+		} else if (feature == ComparePackage.Literals.MATCH__DIFFERENCES) {
+			handleDifferencesChange(msg);
+		} else if (feature == ComparePackage.Literals.MATCH__LEFT
+				|| feature == ComparePackage.Literals.MATCH__RIGHT
+				|| feature == ComparePackage.Literals.MATCH__ORIGIN) {
+			handleSideChange((Match)msg.getNotifier(), msg);
+		}
+	}
+
+	/**
+	 * Reacts to the addition or removal of Matches in either the Comparison or one of its matches'
+	 * submatches.
+	 * 
+	 * @param msg
+	 *            The notification that was sent to this adapter.
+	 */
+	private void handleMatchContainmentChange(Notification msg) {
+		if (isStructuralChange(msg)) {
+			modificationCount++;
+		}
+		switch (msg.getEventType()) {
+			case Notification.ADD:
+				attach((Match)msg.getNewValue());
+				break;
+			case Notification.ADD_MANY:
+				for (Object newValue : (Collection<?>)msg.getNewValue()) {
+					attach((Match)newValue);
+				}
+				break;
+			case Notification.REMOVE:
+				detach((Match)msg.getOldValue());
+				break;
+			case Notification.REMOVE_MANY:
+				for (Object oldValue : (Collection<?>)msg.getOldValue()) {
+					detach((Match)oldValue);
+				}
+				break;
+			case Notification.SET:
+				detach((Match)msg.getOldValue());
+				attach((Match)msg.getNewValue());
+				break;
+			default:
+				// Moves within the same list do not change the index
+		}
+	}
+
+	/**
+	 * Reacts to the addition or removal of Diffs in one of the comparison's matches.
+	 * 
+	 * @param msg
+	 *            The notification that was sent to this adapter.
+	 */
+	private void handleDifferencesChange(Notification msg) {
+		if (isStructuralChange(msg)) {
+			modificationCount++;
+		}
+	}
+
+	/**
+	 * Reacts to a change of the left, right or origin side of an indexed Match.
+	 * 
+	 * @param match
+	 *            The match which side has changed.
+	 * @param msg
+	 *            The notification that was sent to this adapter.
+	 */
+	private void handleSideChange(Match match, Notification msg) {
+		final int eventType = msg.getEventType();
+		if (eventType == Notification.SET || eventType == Notification.UNSET
+				|| eventType == Notification.RESOLVE) {
+			unindex((EObject)msg.getOldValue(), match);
+			index((EObject)msg.getNewValue(), match);
+		}
+	}
+
+	/**
+	 * Checks whether the given notification denotes an actual change of a list's content.
+	 * 
+	 * @param msg
+	 *            The notification that was sent to this adapter.
+	 * @return <code>true</code> if this notification denotes the addition, removal or replacement of values,
+	 *         <code>false</code> for proxy resolutions and adapter removals.
+	 */
+	private static boolean isStructuralChange(Notification msg) {
+		final int eventType = msg.getEventType();
+		return eventType != Notification.RESOLVE && eventType != Notification.REMOVING_ADAPTER;
+	}
+
+	/**
+	 * Installs this adapter on the given Match and its whole sub-tree, indexing their sides as we go.
+	 * 
+	 * @param match
+	 *            The match that has been added to the comparison.
+	 */
+	private void attach(Match match) {
+		if (match == null) {
+			return;
+		}
+		if (!match.eAdapters().contains(this)) {
+			match.eAdapters().add(this);
+		}
+		index(match.getLeft(), match);
+		index(match.getRight(), match);
+		index(match.getOrigin(), match);
+
+		final List<Match> submatches = match.getSubmatches();
+		for (int i = 0; i < submatches.size(); i++) {
+			attach(submatches.get(i));
+		}
+	}
+
+	/**
+	 * Removes this adapter from the given Match and its whole sub-tree, removing their sides from the index
+	 * as we go.
+	 * 
+	 * @param match
+	 *            The match that has been removed from the comparison.
+	 */
+	private void detach(Match match) {
+		if (match == null) {
+			return;
+		}
+		match.eAdapters().remove(this);
+		unindex(match.getLeft(), match);
+		unindex(match.getRight(), match);
+		unindex(match.getOrigin(), match);
+
+		final List<Match> submatches = match.getSubmatches();
+		for (int i = 0; i < submatches.size(); i++) {
+			detach(submatches.get(i));
+		}
+	}
+
+	/**
+	 * Maps the given side to its Match.
+	 * 
+	 * @param side
+	 *            One of the sides of <code>match</code>. May be <code>null</code>.
+	 * @param match
+	 *            The match of which <code>side</code> is a part.
+	 */
+	private void index(EObject side, Match match) {
+		if (side != null) {
+			index.put(side, match);
+		}
+	}
+
+	/**
+	 * Removes the mapping of the given side if it was pointing to the given Match.
+	 * 
+	 * @param side
+	 *            One of the previous sides of <code>match</code>. May be <code>null</code>.
+	 * @param match
+	 *            The match of which <code>side</code> was a part.
+	 */
+	private void unindex(EObject side, Match match) {
+		if (side != null && index.get(side) == match) {
+			index.remove(side);
+		}
+	}
+}
@@ -12,10 +12,18 @@ package org.eclipse.emf.compare.match;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.WrappedException;
 import org.eclipse.emf.compare.CompareFactory;
 import org.eclipse.emf.compare.Comparison;
 import org.eclipse.emf.compare.Match;
@@ -35,6 +43,11 @@ import org.eclipse.emf.ecore.resource.ResourceSet;
  * iterates over its {@link IComparisonScope#getLeft() left}, {@link IComparisonScope#getRight() right} and
  * {@link IComparisonScope#getOrigin() origin} roots and delegates to {@link IResourceMatcher}s and
  * {@link IEObjectMatcher}s in order to create the result {@link Comparison} model for this scope.
+ * <p>
+ * When given an {@link ExecutorService}, this engine will match the independent resource mappings of a
+ * ResourceSet comparison concurrently. The resulting matches are then added to the comparison in the order
+ * of the resource mappings, so that the result does not depend on the scheduling of these tasks.
+ * </p>
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
@@ -45,6 +58,32 @@ public class DefaultMatchEngine implements IMatchEngine {
 	/** The comparison scope that will be used by this engine. Should be accessed through {@link #getScope()}. */
 	protected IComparisonScope comparisonScope;
 
+	/**
+	 * The executor on which resource mappings will be matched concurrently. <code>null</code> if they should
+	 * be matched sequentially.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Instantiates a match engine that will match all resources sequentially.
+	 */
+	public DefaultMatchEngine() {
+		this(null);
+	}
+
+	/**
+	 * Instantiates a match engine that will match independent resource mappings concurrently on the given
+	 * executor. This engine will not shut the executor down, its lifecycle is the responsibility of the
+	 * caller.
+	 * 
+	 * @param executor
+	 *            The executor on which resource mappings will be matched. If <code>null</code>, resources
+	 *            will be matched sequentially.
+	 */
+	public DefaultMatchEngine(ExecutorService executor) {
+		this.executor = executor;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -100,12 +139,63 @@ public class DefaultMatchEngine implements IMatchEngine {
 		final Iterable<ResourceMapping> mappings = matcher.createMappings(leftChildren, rightChildren,
 				originChildren);
 
-		for (ResourceMapping mapping : mappings) {
+		if (executor != null) {
+			matchConcurrently(mappings);
+		} else {
+			for (ResourceMapping mapping : mappings) {
+				final MatchResource matchResource = createMatchResource(mapping.getLeft(), mapping
+						.getRight(), mapping.getOrigin());
+				getComparison().getMatchedResources().add(matchResource);
+
+				match(mapping.getLeft(), mapping.getRight(), mapping.getOrigin());
+			}
+		}
+	}
+
+	/**
+	 * This will be used to match the given resource mappings concurrently on this engine's executor. Each
+	 * mapping is matched in its own task through {@link #createMatches(Resource, Resource, Resource)}; the
+	 * resulting matches are then added to the comparison on the calling thread, in the iteration order of
+	 * <code>mappings</code>.
+	 * <p>
+	 * Note that {@link #match(Resource, Resource, Resource)} is not called for these mappings : subclasses
+	 * that need to alter the matching of a resource mapping should override
+	 * {@link #createMatches(Resource, Resource, Resource)}, which is used whether an executor is set or not.
+	 * </p>
+	 * 
+	 * @param mappings
+	 *            The resource mappings that are to be matched.
+	 */
+	protected void matchConcurrently(Iterable<ResourceMapping> mappings) {
+		final List<Future<Iterable<Match>>> pending = Lists.newArrayList();
+		for (final ResourceMapping mapping : mappings) {
 			final MatchResource matchResource = createMatchResource(mapping.getLeft(), mapping.getRight(),
 					mapping.getOrigin());
 			getComparison().getMatchedResources().add(matchResource);
 
-			match(mapping.getLeft(), mapping.getRight(), mapping.getOrigin());
+			pending.add(executor.submit(new Callable<Iterable<Match>>() {
+				public Iterable<Match> call() {
+					return createMatches(mapping.getLeft(), mapping.getRight(), mapping.getOrigin());
+				}
+			}));
+		}
+
+		try {
+			for (Future<Iterable<Match>> matches : pending) {
+				Iterables.addAll(getComparison().getMatches(), matches.get());
+			}
+		} catch (InterruptedException e) {
+			cancel(pending);
+			Thread.currentThread().interrupt();
+			throw new WrappedException(e);
+		} catch (ExecutionException e) {
+			cancel(pending);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error)e.getCause();
+			}
+			throw new WrappedException(e);
 		}
 	}
 
@@ -122,15 +212,38 @@ public class DefaultMatchEngine implements IMatchEngine {
 	 *            The right {@link Resource}. Can be <code>null</code>.
 	 * @param origin
 	 *            The common ancestor of <code>left</code> and <code>right</code>. Can be <code>null</code>.
+	 * @deprecated This is not called for the resource mappings matched by
+	 *             {@link #matchConcurrently(Iterable)} when this engine has an executor. Override
+	 *             {@link #createMatches(Resource, Resource, Resource)} instead, which both the sequential and
+	 *             concurrent matching go through.
 	 */
+	@Deprecated
 	protected void match(Resource left, Resource right, Resource origin) {
+		Iterables.addAll(getComparison().getMatches(), createMatches(left, right, origin));
+	}
+
+	/**
+	 * This will query the scope for the given Resources' children, then delegate to an
+	 * {@link IEObjectMatcher} to create the EObject matches. The created matches are not added to the
+	 * comparison : this can thus be called from any thread as long as the scope and the given resources are
+	 * not modified concurrently.
+	 * 
+	 * @param left
+	 *            The left {@link Resource}. Can be <code>null</code>.
+	 * @param right
+	 *            The right {@link Resource}. Can be <code>null</code>.
+	 * @param origin
+	 *            The common ancestor of <code>left</code> and <code>right</code>. Can be <code>null</code>.
+	 * @return The matches determined for the given resources' content.
+	 */
+	protected Iterable<Match> createMatches(Resource left, Resource right, Resource origin) {
 		// We need at least two resources to match them
 		if (atLeastTwo(left == null, right == null, origin == null)) {
 			/*
 			 * TODO But if we have only one resource, which is then unmatched, should we not still do
 			 * something with it?
 			 */
-			return;
+			return Collections.emptyList();
 		}
 
 		final Iterator<? extends EObject> leftEObjects;
@@ -153,9 +266,7 @@ public class DefaultMatchEngine implements IMatchEngine {
 		}
 
 		final IEObjectMatcher matcher = createEObjectMatcher();
-		final Iterable<Match> matches = matcher.createMatches(leftEObjects, rightEObjects, originEObjects);
-
-		Iterables.addAll(getComparison().getMatches(), matches);
+		return matcher.createMatches(leftEObjects, rightEObjects, originEObjects);
 	}
 
 	/**
@@ -257,6 +368,18 @@ public class DefaultMatchEngine implements IMatchEngine {
 		// CHECKSTYLE:ON
 	}
 
+	/**
+	 * Cancels all of the given tasks, interrupting them if they are running.
+	 * 
+	 * @param tasks
+	 *            The tasks that are to be cancelled.
+	 */
+	private static void cancel(List<? extends Future<?>> tasks) {
+		for (Future<?> task : tasks) {
+			task.cancel(true);
+		}
+	}
+
 	/**
 	 * This can be called to create a {@link MatchResource} for the given three resources. <b>Note </b> that
 	 * any of the arguments can be <code>null</code>.
@@ -10,15 +10,17 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.match.eobject;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.eclipse.emf.compare.CompareFactory;
 import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.scope.IEstimatedSizeIterator;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.InternalEObject;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -27,11 +29,49 @@ import org.eclipse.emf.ecore.xmi.XMIResource;
 
 /**
  * This implementation of an {@link IEObjectMatcher} will create {@link Match}es based on the input EObjects
- * identifiers (either XMI:ID or attribute ID) alone.
+ * identifiers (either XMI:ID or attribute ID).
+ * <p>
+ * EObjects that have no identifier can optionally be matched through a {@link SimilarityEObjectMatcher} :
+ * once all identifiers have been matched, each EObject with no identifier will be compared with the
+ * unmatched EObjects with no identifier of the other sides that are contained by the same Match.
+ * </p>
+ * <p>
+ * The Match tree is only built once all EObjects have been matched, mimicking the containment tree of the
+ * input EObjects : this does not depend on the iteration order of the input EObjects, except for the
+ * fallback matching which expects containers to be iterated over before their content. The input iterators
+ * are consumed in a single pass; our tables are pre-sized from their estimated size when they are
+ * {@link IEstimatedSizeIterator}s, and grow as needed otherwise.
+ * </p>
+ * <p>
+ * When an identifier is shared by several EObjects of a same side, the first of these EObjects is matched
+ * through this identifier and the others are left in Matches of their own.
+ * </p>
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
 public class IdentifierEObjectMatcher implements IEObjectMatcher {
+	/** The matcher used to match EObjects that have no identifier. <code>null</code> if they shouldn't be. */
+	private final SimilarityEObjectMatcher fallback;
+
+	/**
+	 * Creates a matcher that will match EObjects through their identifier alone.
+	 */
+	public IdentifierEObjectMatcher() {
+		this(null);
+	}
+
+	/**
+	 * Creates a matcher that will match EObjects through their identifier, then match the EObjects that have
+	 * none through the given similarity matcher.
+	 * 
+	 * @param fallback
+	 *            The matcher used to determine whether EObjects with no identifier are similar enough to be
+	 *            matched together. <code>null</code> if they should not be matched.
+	 */
+	public IdentifierEObjectMatcher(SimilarityEObjectMatcher fallback) {
+		this.fallback = fallback;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -40,104 +80,219 @@ public class IdentifierEObjectMatcher implements IEObjectMatcher {
 	 */
 	public Iterable<Match> createMatches(Iterator<? extends EObject> leftEObjects,
 			Iterator<? extends EObject> rightEObjects, Iterator<? extends EObject> originEObjects) {
-		final Set<Match> matches = Sets.newLinkedHashSet();
-
-		// This lookup map will be used by iterations on right and origin to find the match in which they
-		// should add themselves
-		final Map<String, Match> idToMatch = Maps.newHashMap();
-
-		// We will try and mimic the structure of the input model.
-		// These map do not need to be ordered, we only need fast lookup.
-		final Map<EObject, Match> leftEObjectsToMatch = Maps.newHashMap();
-		final Map<EObject, Match> rightEObjectsToMatch = Maps.newHashMap();
-		final Map<EObject, Match> originEObjectsToMatch = Maps.newHashMap();
+		final int size = estimatedSize(leftEObjects) + estimatedSize(rightEObjects)
+				+ estimatedSize(originEObjects);
 
-		// We'll only iterate once on each of the three sides, building the matches as we go
+		final MatchingContext context = new MatchingContext(size);
 		while (leftEObjects.hasNext()) {
 			final EObject left = leftEObjects.next();
-
-			final Match match = CompareFactory.eINSTANCE.createMatch();
-			match.setLeft(left);
-
-			// Can we find a parent? Assume we're iterating in containment order
-			final EObject parentEObject = left.eContainer();
-			final Match parent = leftEObjectsToMatch.get(parentEObject);
-			if (parent != null) {
-				parent.getSubmatches().add(match);
-			} else {
-				matches.add(match);
-			}
-
 			final String identifier = getID(left);
-			if (identifier != null) {
-				idToMatch.put(identifier, match);
+			final Match match = context.createMatch(identifier == null);
+			context.setLeft(match, left);
+			if (identifier != null && context.identifiers.get(identifier) == null) {
+				context.identifiers.put(identifier, match);
 			}
-			leftEObjectsToMatch.put(left, match);
 		}
+		matchSide(rightEObjects, false, context);
+		matchSide(originEObjects, true, context);
 
-		while (rightEObjects.hasNext()) {
-			final EObject right = rightEObjects.next();
-
-			// Do we have an existing match?
-			final String identifier = getID(right);
-			Match match = idToMatch.get(identifier);
-			if (match != null) {
-				match.setRight(right);
+		return buildTree(context);
+	}
 
-				rightEObjectsToMatch.put(right, match);
+	/**
+	 * Matches the given EObjects of the right or origin side, first through their identifiers, then through
+	 * our fallback matcher if any.
+	 * 
+	 * @param eObjects
+	 *            The EObjects to match.
+	 * @param origin
+	 *            <code>true</code> if these are EObjects of the origin side, <code>false</code> if they are
+	 *            EObjects of the right side.
+	 * @param context
+	 *            The current matching context.
+	 */
+	private void matchSide(Iterator<? extends EObject> eObjects, boolean origin, MatchingContext context) {
+		final List<EObject> unidentified = Lists.newArrayList();
+		while (eObjects.hasNext()) {
+			final EObject eObject = eObjects.next();
+			final String identifier = getID(eObject);
+			if (identifier == null) {
+				unidentified.add(eObject);
 			} else {
-				// Otherwise, create and place it.
-				match = CompareFactory.eINSTANCE.createMatch();
-				match.setRight(right);
-
-				// Can we find a parent?
-				final EObject parentEObject = right.eContainer();
-				final Match parent = rightEObjectsToMatch.get(parentEObject);
-				if (parent != null) {
-					parent.getSubmatches().add(match);
-				} else {
-					matches.add(match);
+				Match match = context.identifiers.get(identifier);
+				if (match == null) {
+					match = context.createMatch(false);
+					context.identifiers.put(identifier, match);
+				} else if (isMatched(match, origin)) {
+					// Duplicate identifier on this side : keep the identifier mapped to the first Match
+					match = context.createMatch(false);
 				}
+				context.setSide(match, eObject, origin);
+			}
+		}
 
-				if (identifier != null) {
-					idToMatch.put(identifier, match);
+		if (fallback != null && !unidentified.isEmpty()) {
+			final Map<Match, List<Match>> candidates = createCandidateIndex(context, origin);
+			for (int i = 0; i < unidentified.size(); i++) {
+				final EObject eObject = unidentified.get(i);
+				final Match containerMatch = context.eObjectToMatch.get(eObject.eContainer());
+				Match match = null;
+				if (containerMatch != null && candidates.containsKey(containerMatch)) {
+					match = findSimilar(eObject, candidates.get(containerMatch), origin);
+				}
+				if (match == null) {
+					match = context.createMatch(true);
 				}
-				rightEObjectsToMatch.put(right, match);
+				context.setSide(match, eObject, origin);
+			}
+		} else {
+			for (int i = 0; i < unidentified.size(); i++) {
+				final EObject eObject = unidentified.get(i);
+				context.setSide(context.createMatch(true), eObject, origin);
 			}
 		}
+	}
 
-		while (originEObjects.hasNext()) {
-			final EObject origin = originEObjects.next();
-
-			// Do we have an existing match?
-			final String identifier = getID(origin);
-			Match match = idToMatch.get(identifier);
-			if (match != null) {
-				match.setOrigin(origin);
-
-				originEObjectsToMatch.put(origin, match);
+	/**
+	 * Finds the candidate most similar to the given EObject according to our fallback matcher. Candidates
+	 * which side has already been matched are removed from the list as we go.
+	 * 
+	 * @param eObject
+	 *            The EObject for which we need a Match.
+	 * @param candidates
+	 *            The matches of the unidentified EObjects that share the container Match of
+	 *            <code>eObject</code>.
+	 * @param origin
+	 *            <code>true</code> if <code>eObject</code> is from the origin side, <code>false</code> if it
+	 *            is from the right side.
+	 * @return The most similar candidate, <code>null</code> if none is similar enough.
+	 */
+	private Match findSimilar(EObject eObject, List<Match> candidates, boolean origin) {
+		Match best = null;
+		double bestScore = fallback.getThreshold();
+		int scored = 0;
+		int i = 0;
+		while (i < candidates.size() && scored < fallback.getMaxCandidates()) {
+			final Match candidate = candidates.get(i);
+			if (isMatched(candidate, origin)) {
+				final int last = candidates.size() - 1;
+				candidates.set(i, candidates.get(last));
+				candidates.remove(last);
 			} else {
-				// Otherwise, create and place it.
-				match = CompareFactory.eINSTANCE.createMatch();
-				match.setOrigin(origin);
-
-				// Can we find a parent?
-				final EObject parentEObject = origin.eContainer();
-				final Match parent = originEObjectsToMatch.get(parentEObject);
-				if (parent != null) {
-					parent.getSubmatches().add(match);
-				} else {
-					matches.add(match);
+				final double score = fallback.similarity(eObject, getReference(candidate), true);
+				if (score >= bestScore && (best == null || score > bestScore)) {
+					best = candidate;
+					bestScore = score;
 				}
+				scored++;
+				i++;
+			}
+		}
+		return best;
+	}
 
-				if (identifier != null) {
-					idToMatch.put(identifier, match);
+	/**
+	 * Indexes the matches of unidentified EObjects that can be candidates for the given side by the Match of
+	 * their container.
+	 * 
+	 * @param context
+	 *            The current matching context.
+	 * @param origin
+	 *            <code>true</code> if we need candidates for the origin side, <code>false</code> for the
+	 *            right side.
+	 * @return The candidate matches, indexed by the Match of their container.
+	 */
+	private static Map<Match, List<Match>> createCandidateIndex(MatchingContext context, boolean origin) {
+		final Map<Match, List<Match>> candidates = Maps.newIdentityHashMap();
+		for (int i = 0; i < context.unidentifiedMatches.size(); i++) {
+			final Match match = context.unidentifiedMatches.get(i);
+			if (!isMatched(match, origin)) {
+				final Match containerMatch = context.eObjectToMatch.get(getReference(match).eContainer());
+				if (containerMatch != null) {
+					List<Match> siblings = candidates.get(containerMatch);
+					if (siblings == null) {
+						siblings = Lists.newArrayList();
+						candidates.put(containerMatch, siblings);
+					}
+					siblings.add(match);
 				}
-				originEObjectsToMatch.put(origin, match);
 			}
 		}
+		return candidates;
+	}
+
+	/**
+	 * Places all matches of the given context within the Match of their EObjects' container.
+	 * 
+	 * @param context
+	 *            The current matching context.
+	 * @return The root matches, that is the matches which EObjects' container has no Match.
+	 */
+	private static List<Match> buildTree(MatchingContext context) {
+		final List<Match> roots = Lists.newArrayList();
+		for (int i = 0; i < context.matches.size(); i++) {
+			final Match match = context.matches.get(i);
+			final Match parent = context.eObjectToMatch.get(getReference(match).eContainer());
+			if (parent != null) {
+				parent.getSubmatches().add(match);
+			} else {
+				roots.add(match);
+			}
+		}
+		return roots;
+	}
 
-		return matches;
+	/**
+	 * Returns the number of EObjects the given iterator is expected to return.
+	 * 
+	 * @param eObjects
+	 *            The iterator which size we need.
+	 * @return The estimated size of <code>eObjects</code> if it is an {@link IEstimatedSizeIterator} that
+	 *         has one, <code>0</code> otherwise.
+	 */
+	private static int estimatedSize(Iterator<? extends EObject> eObjects) {
+		int size = 0;
+		if (eObjects instanceof IEstimatedSizeIterator<?>) {
+			size = Math.max(0, ((IEstimatedSizeIterator<?>)eObjects).getEstimatedSize());
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the EObject against which other EObjects will be compared for the given Match.
+	 * 
+	 * @param match
+	 *            The match.
+	 * @return The first EObject of this Match's left, right and origin sides that is not <code>null</code>.
+	 */
+	private static EObject getReference(Match match) {
+		EObject reference = match.getLeft();
+		if (reference == null) {
+			reference = match.getRight();
+		}
+		if (reference == null) {
+			reference = match.getOrigin();
+		}
+		return reference;
+	}
+
+	/**
+	 * Checks whether the given Match already has an EObject on the given side.
+	 * 
+	 * @param match
+	 *            The match to check.
+	 * @param origin
+	 *            <code>true</code> to check the origin side, <code>false</code> to check the right side.
+	 * @return <code>true</code> if that side of <code>match</code> is already set.
+	 */
+	private static boolean isMatched(Match match, boolean origin) {
+		final EObject side;
+		if (origin) {
+			side = match.getOrigin();
+		} else {
+			side = match.getRight();
+		}
+		return side != null;
 	}
 
 	/**
@@ -167,4 +322,82 @@ public class IdentifierEObjectMatcher implements IEObjectMatcher {
 		}
 		return identifier;
 	}
+
+	/**
+	 * Holds the state of a single call to {@link IdentifierEObjectMatcher#createMatches}.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class MatchingContext {
+		/** Maps identifiers to the Match of the EObjects they identify. */
+		final IdentifierIndex identifiers;
+
+		/** Maps the EObjects of all sides to their Match. */
+		final Map<EObject, Match> eObjectToMatch;
+
+		/** All matches, in creation order. */
+		final List<Match> matches = Lists.newArrayList();
+
+		/** The matches that have been created for EObjects with no identifier, in creation order. */
+		final List<Match> unidentifiedMatches = Lists.newArrayList();
+
+		/**
+		 * Creates a context for the matching of the given number of EObjects.
+		 * 
+		 * @param size
+		 *            The total number of EObjects to match.
+		 */
+		MatchingContext(int size) {
+			identifiers = new IdentifierIndex(size);
+			eObjectToMatch = new IdentityHashMap<EObject, Match>(size);
+		}
+
+		/**
+		 * Creates a new Match. Its sides are left for the caller to set.
+		 * 
+		 * @param unidentified
+		 *            <code>true</code> if this Match is created for an EObject that has no identifier.
+		 * @return The created Match.
+		 */
+		Match createMatch(boolean unidentified) {
+			final Match match = CompareFactory.eINSTANCE.createMatch();
+			matches.add(match);
+			if (unidentified) {
+				unidentifiedMatches.add(match);
+			}
+			return match;
+		}
+
+		/**
+		 * Sets the left side of the given Match.
+		 * 
+		 * @param match
+		 *            The match which side is to be set.
+		 * @param eObject
+		 *            The EObject to set.
+		 */
+		void setLeft(Match match, EObject eObject) {
+			match.setLeft(eObject);
+			eObjectToMatch.put(eObject, match);
+		}
+
+		/**
+		 * Sets the right or origin side of the given Match.
+		 * 
+		 * @param match
+		 *            The match which side is to be set.
+		 * @param eObject
+		 *            The EObject to set.
+		 * @param origin
+		 *            <code>true</code> to set the origin side, <code>false</code> to set the right side.
+		 */
+		void setSide(Match match, EObject eObject, boolean origin) {
+			if (origin) {
+				match.setOrigin(eObject);
+			} else {
+				match.setRight(eObject);
+			}
+			eObjectToMatch.put(eObject, match);
+		}
+	}
 }
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.match.eobject;
+
+import org.eclipse.emf.compare.Match;
+
+/**
+ * Maps identifiers to the {@link Match} of the EObjects they identify. This is an open addressing table with
+ * linear probing : keys and values are held in two parallel arrays, and no entry object is allocated per
+ * identifier. It is meant to be sized from the number of EObjects to match so that it never needs to grow.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+final class IdentifierIndex {
+	/** Minimal capacity of our tables. Must be a power of two. */
+	private static final int MIN_CAPACITY = 16;
+
+	/** Shift applied to the identifiers' hash codes so that their high bits are taken into account. */
+	private static final int HASH_SHIFT = 16;
+
+	/** The identifiers. <code>null</code> marks free slots. */
+	private String[] keys;
+
+	/** Match of the identifier held by the same slot in {@link #keys}. */
+	private Match[] values;
+
+	/** Number of identifiers in this index. */
+	private int size;
+
+	/**
+	 * Creates an index that can hold the given number of identifiers without having to grow.
+	 * 
+	 * @param expectedSize
+	 *            Number of identifiers we expect to put in this index.
+	 */
+	IdentifierIndex(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		// Keep the load factor under 0.5
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		keys = new String[capacity];
+		values = new Match[capacity];
+	}
+
+	/**
+	 * Returns the Match associated with the given identifier.
+	 * 
+	 * @param identifier
+	 *            The identifier to look up.
+	 * @return The Match associated with <code>identifier</code>, <code>null</code> if none.
+	 */
+	Match get(String identifier) {
+		final int slot = slot(keys, identifier);
+		return values[slot];
+	}
+
+	/**
+	 * Associates the given identifier with the given Match, replacing any previous association.
+	 * 
+	 * @param identifier
+	 *            The identifier.
+	 * @param match
+	 *            The Match of the EObject identified by <code>identifier</code>.
+	 */
+	void put(String identifier, Match match) {
+		int slot = slot(keys, identifier);
+		if (keys[slot] == null) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+				slot = slot(keys, identifier);
+			}
+			keys[slot] = identifier;
+			size++;
+		}
+		values[slot] = match;
+	}
+
+	/**
+	 * Doubles the capacity of this index.
+	 */
+	private void grow() {
+		final String[] oldKeys = keys;
+		final Match[] oldValues = values;
+		keys = new String[oldKeys.length * 2];
+		values = new Match[oldValues.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				final int slot = slot(keys, oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot of the given table that holds the given identifier, or the free slot in which it
+	 * should be inserted if it is not in the table.
+	 * 
+	 * @param table
+	 *            The table to look up. Must have at least one free slot.
+	 * @param identifier
+	 *            The identifier to look for.
+	 * @return The slot of <code>identifier</code> within <code>table</code>.
+	 */
+	private static int slot(String[] table, String identifier) {
+		final int mask = table.length - 1;
+		int hash = identifier.hashCode();
+		// Spread the high bits, String hashes of similar identifiers only differ in their low bits
+		hash ^= hash >>> HASH_SHIFT;
+		int slot = hash & mask;
+		while (table[slot] != null && !table[slot].equals(identifier)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+}
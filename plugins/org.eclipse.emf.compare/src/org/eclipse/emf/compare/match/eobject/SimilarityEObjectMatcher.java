@@ -0,0 +1,745 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.match.eobject;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.scope.IEstimatedSizeIterator;
+import org.eclipse.emf.compare.utils.SimilarityUtil;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+/**
+ * This implementation of an {@link IEObjectMatcher} will create {@link Match}es based on the similarity of
+ * the input EObjects' content, and can thus be used on models that have no identifiers.
+ * <p>
+ * The left EObjects are used as candidates for the right ones, then the resulting matches are used as
+ * candidates for the origin EObjects. Instead of comparing each EObject with all EObjects of the other side,
+ * candidates are bucketed by EClass, by the Match of their container and by name. An EObject will first be
+ * compared with the candidates of the same name under the Match of its own container, then with the
+ * candidates of the same name anywhere in the model (moved EObjects), and only then with the other
+ * candidates under the Match of its container (renamed EObjects). Only the EObjects which container has
+ * not been matched will be compared with all candidates of their EClass. Within each bucket, at most
+ * {@link #getMaxCandidates()} candidates will be scored, and the costly comparison of attribute values is
+ * only performed for candidates which name and container could still make them better than the best
+ * candidate found so far.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class SimilarityEObjectMatcher implements IEObjectMatcher {
+	/**
+	 * Default minimal similarity two EObjects must have in order to be matched together. Having matching
+	 * containers and equal attributes only accounts for 0.4 of the similarity of named EObjects : their
+	 * names need a similarity of at least 2/3 for them to be matched.
+	 */
+	public static final double DEFAULT_THRESHOLD = 0.8d;
+
+	/** Default maximal number of candidates that will be scored in each bucket for a single EObject. */
+	public static final int DEFAULT_MAX_CANDIDATES = 64;
+
+	/** Weight of the name similarity within the overall similarity of two EObjects. */
+	private static final double NAME_WEIGHT = 0.6d;
+
+	/** Weight of having matching containers within the overall similarity of two EObjects. */
+	private static final double CONTAINER_WEIGHT = 0.15d;
+
+	/** Name of the attribute that will be considered as the name of the EObjects. */
+	private static final String NAME_FEATURE = "name"; //$NON-NLS-1$
+
+	/** Minimal similarity two EObjects must have in order to be matched together. */
+	private final double threshold;
+
+	/** Maximal number of candidates that will be scored in each bucket for a single EObject. */
+	private final int maxCandidates;
+
+	/** Caches the attributes that will be compared for each EClass. */
+	private final ConcurrentMap<EClass, ClassSignature> signatures =
+			new ConcurrentHashMap<EClass, ClassSignature>();
+
+	/**
+	 * Creates a matcher with the default threshold and candidate limit.
+	 */
+	public SimilarityEObjectMatcher() {
+		this(DEFAULT_THRESHOLD, DEFAULT_MAX_CANDIDATES);
+	}
+
+	/**
+	 * Creates a matcher with the given threshold and candidate limit.
+	 * 
+	 * @param threshold
+	 *            Minimal similarity, between 0 and 1, two EObjects must have in order to be matched
+	 *            together.
+	 * @param maxCandidates
+	 *            Maximal number of candidates that will be scored in each bucket for a single EObject.
+	 */
+	public SimilarityEObjectMatcher(double threshold, int maxCandidates) {
+		if (maxCandidates < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.threshold = threshold;
+		this.maxCandidates = maxCandidates;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.match.eobject.IEObjectMatcher#createMatches(java.util.Iterator,
+	 *      java.util.Iterator, java.util.Iterator)
+	 */
+	public Iterable<Match> createMatches(Iterator<? extends EObject> leftEObjects,
+			Iterator<? extends EObject> rightEObjects, Iterator<? extends EObject> originEObjects) {
+		final List<Match> roots = Lists.newArrayList();
+		final int leftSize = estimatedSize(leftEObjects);
+		// All matches, in creation order. This is what we'll use to fill our candidate indices.
+		final List<Match> matches = Lists.newArrayListWithCapacity(leftSize
+				+ Math.max(estimatedSize(rightEObjects), estimatedSize(originEObjects)));
+
+		final Map<EObject, Match> leftMatches = new IdentityHashMap<EObject, Match>(leftSize);
+		while (leftEObjects.hasNext()) {
+			final EObject left = leftEObjects.next();
+			final Match match = CompareFactory.eINSTANCE.createMatch();
+			match.setLeft(left);
+			attach(match, leftMatches.get(left.eContainer()), roots);
+			matches.add(match);
+			leftMatches.put(left, match);
+		}
+
+		if (rightEObjects.hasNext()) {
+			matchSide(rightEObjects, false, createIndex(matches), matches, roots);
+		}
+		if (originEObjects.hasNext()) {
+			matchSide(originEObjects, true, createIndex(matches), matches, roots);
+		}
+
+		return roots;
+	}
+
+	/**
+	 * Returns the minimal similarity two EObjects must have in order to be matched together.
+	 * 
+	 * @return The minimal similarity two EObjects must have in order to be matched together.
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Returns the maximal number of candidates that will be scored in each bucket for a single EObject.
+	 * 
+	 * @return The maximal number of candidates that will be scored in each bucket for a single EObject.
+	 */
+	public int getMaxCandidates() {
+		return maxCandidates;
+	}
+
+	/**
+	 * Computes the similarity of the two given EObjects, as this matcher would when looking for a match. Two
+	 * EObjects are deemed similar enough to be matched together if this similarity is at least
+	 * {@link #getThreshold()}.
+	 * 
+	 * @param first
+	 *            First of the two EObjects to compare.
+	 * @param second
+	 *            Second of the two EObjects to compare.
+	 * @param sameContainer
+	 *            Whether the containers of these two EObjects are matched together.
+	 * @return The similarity of the two given EObjects, between 0 and 1.
+	 */
+	public double similarity(EObject first, EObject second, boolean sameContainer) {
+		if (first.eClass() != second.eClass()) {
+			return 0d;
+		}
+		return similarity(first, getName(first), sameContainer, second, -1d);
+	}
+
+	/**
+	 * Computes the similarity of the two given EObjects' attributes, excluding their name.
+	 * <p>
+	 * This default implementation returns the average similarity of all attributes that are neither derived
+	 * nor transient : equal values have a similarity of 1, distinct Strings have the similarity of their
+	 * bigrams, and all other distinct values have a similarity of 0.
+	 * </p>
+	 * 
+	 * @param first
+	 *            First of the two EObjects to compare.
+	 * @param second
+	 *            Second of the two EObjects to compare. Is an instance of the same EClass as
+	 *            <code>first</code>.
+	 * @return The similarity of the two given EObjects' attributes, between 0 and 1.
+	 */
+	protected double attributeSimilarity(EObject first, EObject second) {
+		final EAttribute[] attributes = getSignature(first.eClass()).attributes;
+		if (attributes.length == 0) {
+			return 1d;
+		}
+		double total = 0d;
+		for (int i = 0; i < attributes.length; i++) {
+			total += valueSimilarity(first.eGet(attributes[i]), second.eGet(attributes[i]));
+		}
+		return total / attributes.length;
+	}
+
+	/**
+	 * Matches all given EObjects of either the right or origin side with the best candidate from the given
+	 * index, creating new matches for those that have none.
+	 * 
+	 * @param eObjects
+	 *            The EObjects that are to be matched.
+	 * @param origin
+	 *            <code>true</code> if these are EObjects of the origin side, <code>false</code> if they are
+	 *            EObjects of the right side.
+	 * @param index
+	 *            The index from which to retrieve the candidates for these EObjects.
+	 * @param matches
+	 *            All matches created so far. New matches will be added to this list.
+	 * @param roots
+	 *            The root matches created so far. New root matches will be added to this list.
+	 */
+	private void matchSide(Iterator<? extends EObject> eObjects, boolean origin, CandidateIndex index,
+			List<Match> matches, List<Match> roots) {
+		final Map<EObject, Match> sideMatches = new IdentityHashMap<EObject, Match>(estimatedSize(eObjects));
+		while (eObjects.hasNext()) {
+			final EObject eObject = eObjects.next();
+			final Match containerMatch = sideMatches.get(eObject.eContainer());
+			Match match = findBestCandidate(eObject, containerMatch, origin, index);
+			if (match == null) {
+				match = CompareFactory.eINSTANCE.createMatch();
+				attach(match, containerMatch, roots);
+				matches.add(match);
+			}
+			if (origin) {
+				match.setOrigin(eObject);
+			} else {
+				match.setRight(eObject);
+			}
+			sideMatches.put(eObject, match);
+		}
+	}
+
+	/**
+	 * Looks up the buckets of the given index for the candidate that is the most similar to the given
+	 * EObject, stopping as soon as a bucket yields a candidate similar enough.
+	 * 
+	 * @param eObject
+	 *            The EObject for which we need a match.
+	 * @param containerMatch
+	 *            The Match of <code>eObject</code>'s container. May be <code>null</code>.
+	 * @param origin
+	 *            <code>true</code> if <code>eObject</code> is from the origin side, <code>false</code> if it
+	 *            is from the right side.
+	 * @param index
+	 *            The index from which to retrieve the candidates.
+	 * @return The most similar candidate, <code>null</code> if none is similar enough.
+	 */
+	private Match findBestCandidate(EObject eObject, Match containerMatch, boolean origin,
+			CandidateIndex index) {
+		if (containerMatch != null && !hasCandidateSide(containerMatch, origin)) {
+			// The container of this EObject has no match on the other sides, we can consider it has been
+			// added along with its whole content
+			return null;
+		}
+		final EClass eClass = eObject.eClass();
+		final String name = getName(eObject);
+		final BestCandidate best = new BestCandidate();
+
+		if (name != null) {
+			score(index.get(index.siblingsByName, containerMatch, eClass, name), eObject, name,
+					containerMatch, origin, best);
+		}
+		// An exact name elsewhere in the model is a better hint than a similar name under the same container
+		if (best.score < threshold && name != null) {
+			score(index.get(index.byName, null, eClass, name), eObject, name, containerMatch, origin, best);
+		}
+		if (best.score < threshold) {
+			score(index.get(index.siblings, containerMatch, eClass, null), eObject, name, containerMatch,
+					origin, best);
+		}
+		if (best.score < threshold && containerMatch == null) {
+			score(index.get(index.byClass, null, eClass, null), eObject, name, containerMatch, origin, best);
+		}
+
+		if (best.score < threshold) {
+			return null;
+		}
+		return best.match;
+	}
+
+	/**
+	 * Scores at most {@link #maxCandidates} of the given candidates against the given EObject, updating
+	 * <code>best</code> as we find better ones. Candidates which side has already been matched are removed
+	 * from the list as we go.
+	 * 
+	 * @param candidates
+	 *            The candidates to score.
+	 * @param eObject
+	 *            The EObject for which we need a match.
+	 * @param name
+	 *            Name of <code>eObject</code>. May be <code>null</code>.
+	 * @param containerMatch
+	 *            The Match of <code>eObject</code>'s container. May be <code>null</code>.
+	 * @param origin
+	 *            <code>true</code> if <code>eObject</code> is from the origin side, <code>false</code> if it
+	 *            is from the right side.
+	 * @param best
+	 *            The best candidate found so far.
+	 */
+	private void score(List<Match> candidates, EObject eObject, String name, Match containerMatch,
+			boolean origin, BestCandidate best) {
+		int scored = 0;
+		int i = 0;
+		while (i < candidates.size() && scored < maxCandidates && best.score < 1d) {
+			final Match candidate = candidates.get(i);
+			if (isMatched(candidate, origin)) {
+				// Already taken; order does not matter much here, we just need a constant time removal
+				final int last = candidates.size() - 1;
+				candidates.set(i, candidates.get(last));
+				candidates.remove(last);
+			} else {
+				final boolean sameContainer = candidate.eContainer() == containerMatch;
+				final double similarity = similarity(eObject, name, sameContainer, getReference(candidate),
+						best.score);
+				if (similarity > best.score) {
+					best.match = candidate;
+					best.score = similarity;
+				}
+				scored++;
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Computes the similarity of the given EObject with the given candidate Match. The attribute values will
+	 * not be compared if the name and container similarity are not enough for this candidate to reach
+	 * <code>bestScore</code>.
+	 * 
+	 * @param eObject
+	 *            The EObject for which we need a match.
+	 * @param name
+	 *            Name of <code>eObject</code>. May be <code>null</code>.
+	 * @param sameContainer
+	 *            Whether <code>eObject</code> and <code>reference</code> have matching containers.
+	 * @param reference
+	 *            The EObject of the candidate Match.
+	 * @param bestScore
+	 *            Score of the best candidate found so far.
+	 * @return The similarity of <code>eObject</code> with <code>reference</code>, between 0 and 1.
+	 *         <code>0</code> if this candidate cannot be better than <code>bestScore</code>.
+	 */
+	private double similarity(EObject eObject, String name, boolean sameContainer, EObject reference,
+			double bestScore) {
+		double similarity = 0d;
+		if (sameContainer) {
+			similarity += CONTAINER_WEIGHT;
+		}
+		double attributesWeight = 1d - CONTAINER_WEIGHT;
+		if (getSignature(eObject.eClass()).name != null) {
+			attributesWeight -= NAME_WEIGHT;
+			similarity += NAME_WEIGHT * nameSimilarity(name, getName(reference));
+		}
+
+		if (similarity + attributesWeight > bestScore) {
+			similarity += attributesWeight * attributeSimilarity(eObject, reference);
+		} else {
+			similarity = 0d;
+		}
+		return similarity;
+	}
+
+	/**
+	 * Returns the name of the given EObject, that is the value of its "name" attribute if it is a String.
+	 * 
+	 * @param eObject
+	 *            The EObject which name we need.
+	 * @return The name of <code>eObject</code>, <code>null</code> if it has none.
+	 */
+	private String getName(EObject eObject) {
+		final EAttribute nameAttribute = getSignature(eObject.eClass()).name;
+		String name = null;
+		if (nameAttribute != null) {
+			final Object value = eObject.eGet(nameAttribute);
+			if (value instanceof String) {
+				name = (String)value;
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Returns the signature of the given EClass, computing it if needed.
+	 * 
+	 * @param eClass
+	 *            The EClass which signature we need.
+	 * @return The signature of <code>eClass</code>.
+	 */
+	private ClassSignature getSignature(EClass eClass) {
+		ClassSignature signature = signatures.get(eClass);
+		if (signature == null) {
+			signature = new ClassSignature(eClass);
+			final ClassSignature existing = signatures.putIfAbsent(eClass, signature);
+			if (existing != null) {
+				signature = existing;
+			}
+		}
+		return signature;
+	}
+
+	/**
+	 * Creates an index of the given matches' reference EObjects.
+	 * 
+	 * @param matches
+	 *            The matches to index.
+	 * @return The index of these matches.
+	 */
+	private CandidateIndex createIndex(List<Match> matches) {
+		final CandidateIndex index = new CandidateIndex();
+		for (int i = 0; i < matches.size(); i++) {
+			final Match match = matches.get(i);
+			final EObject reference = getReference(match);
+			index.add(match, reference.eClass(), getName(reference));
+		}
+		return index;
+	}
+
+	/**
+	 * Computes the similarity of two names.
+	 * 
+	 * @param first
+	 *            First of the two names to compare. May be <code>null</code>.
+	 * @param second
+	 *            Second of the two names to compare. May be <code>null</code>.
+	 * @return The similarity of these two names, between 0 and 1.
+	 */
+	private static double nameSimilarity(String first, String second) {
+		final double similarity;
+		if (first == null || second == null) {
+			similarity = valueSimilarity(first, second);
+		} else if (first.equals(second)) {
+			similarity = 1d;
+		} else {
+			similarity = SimilarityUtil.diceCoefficient(first, second);
+		}
+		return similarity;
+	}
+
+	/**
+	 * Computes the similarity of two attribute values.
+	 * 
+	 * @param first
+	 *            First of the two values to compare. May be <code>null</code>.
+	 * @param second
+	 *            Second of the two values to compare. May be <code>null</code>.
+	 * @return <code>1</code> if these two values are equal, the similarity of their bigrams if they are two
+	 *         distinct Strings, <code>0</code> otherwise.
+	 */
+	private static double valueSimilarity(Object first, Object second) {
+		final double similarity;
+		if (first == second || first != null && first.equals(second)) {
+			similarity = 1d;
+		} else if (first instanceof String && second instanceof String) {
+			similarity = SimilarityUtil.diceCoefficient((String)first, (String)second);
+		} else {
+			similarity = 0d;
+		}
+		return similarity;
+	}
+
+	/**
+	 * Returns the number of EObjects the given iterator is expected to return.
+	 * 
+	 * @param eObjects
+	 *            The iterator which size we need.
+	 * @return The estimated size of <code>eObjects</code> if it is an {@link IEstimatedSizeIterator} that
+	 *         has one, <code>0</code> otherwise.
+	 */
+	private static int estimatedSize(Iterator<? extends EObject> eObjects) {
+		int size = 0;
+		if (eObjects instanceof IEstimatedSizeIterator<?>) {
+			size = Math.max(0, ((IEstimatedSizeIterator<?>)eObjects).getEstimatedSize());
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the EObject of the given Match against which candidates will be scored.
+	 * 
+	 * @param match
+	 *            The match.
+	 * @return The left EObject of this Match if any, its right EObject otherwise.
+	 */
+	private static EObject getReference(Match match) {
+		EObject reference = match.getLeft();
+		if (reference == null) {
+			reference = match.getRight();
+		}
+		return reference;
+	}
+
+	/**
+	 * Checks whether the given Match already has an EObject on the given side.
+	 * 
+	 * @param match
+	 *            The match to check.
+	 * @param origin
+	 *            <code>true</code> to check the origin side, <code>false</code> to check the right side.
+	 * @return <code>true</code> if that side of <code>match</code> is already set.
+	 */
+	private static boolean isMatched(Match match, boolean origin) {
+		final EObject side;
+		if (origin) {
+			side = match.getOrigin();
+		} else {
+			side = match.getRight();
+		}
+		return side != null;
+	}
+
+	/**
+	 * Checks whether the given Match has an EObject on one of the sides that provide candidates for the given
+	 * side, that is the left side for the right EObjects, and either the left or right side for the origin
+	 * EObjects.
+	 * 
+	 * @param match
+	 *            The match to check.
+	 * @param origin
+	 *            <code>true</code> if we are matching origin EObjects, <code>false</code> if we are matching
+	 *            right EObjects.
+	 * @return <code>true</code> if <code>match</code> has an EObject on one of the candidate sides.
+	 */
+	private static boolean hasCandidateSide(Match match, boolean origin) {
+		return match.getLeft() != null || origin && match.getRight() != null;
+	}
+
+	/**
+	 * Adds the given Match to the submatches of its container Match, or to the root matches if it has none.
+	 * 
+	 * @param match
+	 *            The match to attach.
+	 * @param containerMatch
+	 *            The Match of the container of <code>match</code>'s EObject. May be <code>null</code>.
+	 * @param roots
+	 *            The root matches.
+	 */
+	private static void attach(Match match, Match containerMatch, List<Match> roots) {
+		if (containerMatch != null) {
+			containerMatch.getSubmatches().add(match);
+		} else {
+			roots.add(match);
+		}
+	}
+
+	/**
+	 * Describes the attributes of an EClass that will be compared by this matcher.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class ClassSignature {
+		/** The name attribute of this EClass, <code>null</code> if none. */
+		final EAttribute name;
+
+		/** The other attributes of this EClass, that are neither derived nor transient. */
+		final EAttribute[] attributes;
+
+		/**
+		 * Computes the signature of the given EClass.
+		 * 
+		 * @param eClass
+		 *            The EClass which signature we need.
+		 */
+		ClassSignature(EClass eClass) {
+			final EStructuralFeature nameFeature = eClass.getEStructuralFeature(NAME_FEATURE);
+			if (nameFeature instanceof EAttribute && !nameFeature.isMany()) {
+				name = (EAttribute)nameFeature;
+			} else {
+				name = null;
+			}
+			final List<EAttribute> others = Lists.newArrayList();
+			for (EAttribute attribute : eClass.getEAllAttributes()) {
+				if (attribute != name && !attribute.isDerived() && !attribute.isTransient()) {
+					others.add(attribute);
+				}
+			}
+			attributes = others.toArray(new EAttribute[others.size()]);
+		}
+	}
+
+	/**
+	 * Holds the candidate matches of a side, bucketed by container Match, EClass and name.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class CandidateIndex {
+		/** Candidates bucketed by container Match, EClass and name. */
+		final Map<BucketKey, List<Match>> siblingsByName = Maps.newHashMap();
+
+		/** Candidates bucketed by container Match and EClass. */
+		final Map<BucketKey, List<Match>> siblings = Maps.newHashMap();
+
+		/** Candidates bucketed by EClass and name. */
+		final Map<BucketKey, List<Match>> byName = Maps.newHashMap();
+
+		/** Candidates bucketed by EClass. */
+		final Map<BucketKey, List<Match>> byClass = Maps.newHashMap();
+
+		/**
+		 * Adds the given candidate to all of its buckets.
+		 * 
+		 * @param match
+		 *            The candidate match.
+		 * @param eClass
+		 *            EClass of this candidate's reference EObject.
+		 * @param name
+		 *            Name of this candidate's reference EObject. May be <code>null</code>.
+		 */
+		void add(Match match, EClass eClass, String name) {
+			final EObject container = match.eContainer();
+			if (name != null) {
+				bucket(siblingsByName, container, eClass, name).add(match);
+				bucket(byName, null, eClass, name).add(match);
+			}
+			bucket(siblings, container, eClass, null).add(match);
+			bucket(byClass, null, eClass, null).add(match);
+		}
+
+		/**
+		 * Returns the given bucket of the given map.
+		 * 
+		 * @param buckets
+		 *            The map from which to retrieve a bucket.
+		 * @param container
+		 *            The container Match of this bucket's candidates, if relevant.
+		 * @param eClass
+		 *            The EClass of this bucket's candidates.
+		 * @param name
+		 *            The name of this bucket's candidates, if relevant.
+		 * @return The requested bucket, an empty list if it does not exist.
+		 */
+		List<Match> get(Map<BucketKey, List<Match>> buckets, EObject container, EClass eClass, String name) {
+			final List<Match> bucket = buckets.get(new BucketKey(container, eClass, name));
+			if (bucket == null) {
+				return Collections.emptyList();
+			}
+			return bucket;
+		}
+
+		/**
+		 * Returns the given bucket of the given map, creating it if needed.
+		 * 
+		 * @param buckets
+		 *            The map from which to retrieve a bucket.
+		 * @param container
+		 *            The container Match of this bucket's candidates, if relevant.
+		 * @param eClass
+		 *            The EClass of this bucket's candidates.
+		 * @param name
+		 *            The name of this bucket's candidates, if relevant.
+		 * @return The requested bucket.
+		 */
+		private static List<Match> bucket(Map<BucketKey, List<Match>> buckets, EObject container,
+				EClass eClass, String name) {
+			final BucketKey key = new BucketKey(container, eClass, name);
+			List<Match> bucket = buckets.get(key);
+			if (bucket == null) {
+				bucket = Lists.newArrayList();
+				buckets.put(key, bucket);
+			}
+			return bucket;
+		}
+	}
+
+	/**
+	 * Key of a candidate bucket. Containers and EClasses are compared by identity.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class BucketKey {
+		/** The container Match of this bucket's candidates, if relevant. */
+		private final EObject container;
+
+		/** The EClass of this bucket's candidates. */
+		private final EClass eClass;
+
+		/** The name of this bucket's candidates, if relevant. */
+		private final String name;
+
+		/**
+		 * Creates a bucket key.
+		 * 
+		 * @param container
+		 *            The container Match of this bucket's candidates, if relevant.
+		 * @param eClass
+		 *            The EClass of this bucket's candidates.
+		 * @param name
+		 *            The name of this bucket's candidates, if relevant.
+		 */
+		BucketKey(EObject container, EClass eClass, String name) {
+			this.container = container;
+			this.eClass = eClass;
+			this.name = name;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			int hash = System.identityHashCode(container) ^ System.identityHashCode(eClass);
+			if (name != null) {
+				hash ^= name.hashCode();
+			}
+			return hash;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof BucketKey)) {
+				return false;
+			}
+			final BucketKey other = (BucketKey)obj;
+			return container == other.container && eClass == other.eClass
+					&& (name == other.name || name != null && name.equals(other.name));
+		}
+	}
+
+	/**
+	 * Keeps track of the best candidate found so far for an EObject.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class BestCandidate {
+		/** The best candidate found so far. */
+		Match match;
+
+		/** Similarity of {@link #match}. */
+		double score = -1d;
+	}
+}
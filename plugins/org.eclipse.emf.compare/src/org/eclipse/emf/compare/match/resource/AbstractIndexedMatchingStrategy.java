@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.match.resource;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * This can be subclassed by matching strategies that consider resources to be "matches" when they share an
+ * equal key, such as their name or the identifiers of their roots.
+ * <p>
+ * The key of each resource is computed only once, and the right and origin resources are indexed by key
+ * before matching : each left resource can then find its matches in constant time instead of scanning all
+ * candidates. When several candidates share the key of a resource, the first of them (in the order in which
+ * they were given) is selected.
+ * </p>
+ * <p>
+ * Subclasses should override {@link #getKey(Resource)}. Subclasses that still override the deprecated
+ * {@link #findMatch(Resource, Iterable)} must also override {@link #useKeyIndex()} to return
+ * <code>false</code> : their resources are then matched by comparing each of them with all remaining
+ * candidates, as was done before this class was introduced.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public abstract class AbstractIndexedMatchingStrategy implements IResourceMatchingStrategy {
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.match.resource.IResourceMatchingStrategy#matchResources(java.lang.Iterable,
+	 *      java.lang.Iterable, java.lang.Iterable)
+	 */
+	public List<ResourceMapping> matchResources(Iterable<? extends Resource> left,
+			Iterable<? extends Resource> right, Iterable<? extends Resource> origin) {
+		if (!useKeyIndex()) {
+			return matchResourcesByScan(left, right, origin);
+		}
+		final List<ResourceMapping> mappings = Lists.newArrayList();
+
+		final Map<Object, LinkedList<Resource>> rightIndex = createIndex(right);
+		final Map<Object, LinkedList<Resource>> originIndex = createIndex(origin);
+		final Set<Resource> matchedRight = Sets.newHashSet();
+
+		// Can we find matches for the left resource in either left or origin?
+		for (Resource leftResource : left) {
+			final Object key = getKey(leftResource);
+			if (key != null) {
+				final Resource matchingRight = poll(rightIndex, key);
+				final Resource matchingOrigin = poll(originIndex, key);
+
+				if (matchingRight != null || matchingOrigin != null) {
+					if (matchingRight != null) {
+						matchedRight.add(matchingRight);
+					}
+					mappings.add(new ResourceMapping(leftResource, matchingRight, matchingOrigin));
+				}
+			}
+		}
+
+		// We no longer have to check in the left, but we may have matches of the right resources in the
+		// origin list
+		if (!originIndex.isEmpty()) {
+			for (Resource rightResource : right) {
+				final Object key = getKey(rightResource);
+				if (key != null && !matchedRight.contains(rightResource)) {
+					final Resource matchingOrigin = poll(originIndex, key);
+					if (matchingOrigin != null) {
+						mappings.add(new ResourceMapping(null, rightResource, matchingOrigin));
+					}
+				}
+			}
+		}
+
+		return mappings;
+	}
+
+	/**
+	 * Returns the key of the given resource. Two resources will be considered to be "matches" if their keys
+	 * are equal. This will be called at most twice for each resource.
+	 * 
+	 * @param resource
+	 *            The resource which key we need.
+	 * @return The key of the given resource. <code>null</code> if it cannot be matched by this strategy.
+	 */
+	protected abstract Object getKey(Resource resource);
+
+	/**
+	 * Tells whether {@link #matchResources(Iterable, Iterable, Iterable)} can index the resources by
+	 * {@link #getKey(Resource) key}. This default implementation returns <code>true</code>.
+	 * <p>
+	 * Subclasses that override the deprecated {@link #findMatch(Resource, Iterable)} must override this to
+	 * return <code>false</code>, otherwise that method will never be called. Each resource will then be
+	 * compared with all remaining candidates through {@link #findMatch(Resource, Iterable)}.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if resources can be matched through an index of their keys,
+	 *         <code>false</code> if they must be matched through {@link #findMatch(Resource, Iterable)}.
+	 */
+	protected boolean useKeyIndex() {
+		return true;
+	}
+
+	/**
+	 * Returns the first match of <code>reference</code> in <code>candidates</code>. This implementation will
+	 * consider two Resources to be "matches" if their {@link #getKey(Resource) keys} are equal.
+	 * 
+	 * @param reference
+	 *            The reference resource.
+	 * @param candidates
+	 *            The list of potential candidates that may match <code>reference</code>.
+	 * @return The first match of <code>reference</code> in <code>candidates</code>. <code>null</code> if
+	 *         none.
+	 * @deprecated Override {@link #getKey(Resource)} instead. This is only called when
+	 *             {@link #useKeyIndex()} returns <code>false</code>, in which case
+	 *             {@link #matchResources(Iterable, Iterable, Iterable)} compares each resource with all
+	 *             remaining candidates instead of indexing them by key.
+	 */
+	@Deprecated
+	protected Resource findMatch(Resource reference, Iterable<Resource> candidates) {
+		final Object key = getKey(reference);
+		if (key != null) {
+			for (Resource candidate : candidates) {
+				if (key.equals(getKey(candidate))) {
+					return candidate;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Matches the given resources through {@link #findMatch(Resource, Iterable)}, comparing each resource
+	 * with all of the remaining candidates. This is only used when {@link #useKeyIndex()} returns
+	 * <code>false</code>.
+	 * 
+	 * @param left
+	 *            Resources we are to match in the left.
+	 * @param right
+	 *            Resources we are to match in the right.
+	 * @param origin
+	 *            Resources we are to match in the origin.
+	 * @return The list of mappings this strategy managed to determine.
+	 */
+	@SuppressWarnings("deprecation")
+	private List<ResourceMapping> matchResourcesByScan(Iterable<? extends Resource> left,
+			Iterable<? extends Resource> right, Iterable<? extends Resource> origin) {
+		final List<ResourceMapping> mappings = Lists.newArrayList();
+
+		final List<Resource> rightCopy = Lists.newArrayList(right);
+		final List<Resource> originCopy = Lists.newArrayList(origin);
+
+		// Can we find matches for the left resource in either left or origin?
+		for (Resource leftResource : left) {
+			final Resource matchingRight = findMatch(leftResource, rightCopy);
+			final Resource matchingOrigin = findMatch(leftResource, originCopy);
+
+			if (matchingRight != null || matchingOrigin != null) {
+				rightCopy.remove(matchingRight);
+				originCopy.remove(matchingOrigin);
+				mappings.add(new ResourceMapping(leftResource, matchingRight, matchingOrigin));
+			}
+		}
+
+		// We no longer have to check in the left, but we may have matches of the right resources in the
+		// origin list
+		for (Resource rightResource : rightCopy) {
+			final Resource matchingOrigin = findMatch(rightResource, originCopy);
+			originCopy.remove(matchingOrigin);
+
+			if (matchingOrigin != null) {
+				mappings.add(new ResourceMapping(null, rightResource, matchingOrigin));
+			}
+		}
+
+		return mappings;
+	}
+
+	/**
+	 * Indexes the given resources by key. Resources which key is <code>null</code> are not indexed.
+	 * 
+	 * @param resources
+	 *            The resources to index.
+	 * @return The given resources, indexed by key. Resources sharing a key are kept in iteration order.
+	 */
+	private Map<Object, LinkedList<Resource>> createIndex(Iterable<? extends Resource> resources) {
+		final Map<Object, LinkedList<Resource>> index = Maps.newHashMap();
+		for (Resource resource : resources) {
+			final Object key = getKey(resource);
+			if (key != null) {
+				LinkedList<Resource> candidates = index.get(key);
+				if (candidates == null) {
+					candidates = new LinkedList<Resource>();
+					index.put(key, candidates);
+				}
+				candidates.add(resource);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Removes the first resource of the given key from the given index.
+	 * 
+	 * @param index
+	 *            The index from which to remove a resource.
+	 * @param key
+	 *            Key of the resource we seek.
+	 * @return The first resource that was indexed with <code>key</code>. <code>null</code> if none.
+	 */
+	private static Resource poll(Map<Object, LinkedList<Resource>> index, Object key) {
+		final LinkedList<Resource> candidates = index.get(key);
+		Resource candidate = null;
+		if (candidates != null) {
+			candidate = candidates.removeFirst();
+			if (candidates.isEmpty()) {
+				index.remove(key);
+			}
+		}
+		return candidate;
+	}
+}
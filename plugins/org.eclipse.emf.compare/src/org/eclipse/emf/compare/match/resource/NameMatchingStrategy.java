@@ -10,10 +10,6 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.match.resource;
 
-import com.google.common.collect.Lists;
-
-import java.util.List;
-
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
 
@@ -23,65 +19,28 @@ import org.eclipse.emf.ecore.resource.Resource;
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
-public class NameMatchingStrategy implements IResourceMatchingStrategy {
-	/**
-	 * {@inheritDoc}
-	 * 
-	 * @see org.eclipse.emf.compare.match.resource.IResourceMatchingStrategy#matchResources(java.lang.Iterable,
-	 *      java.lang.Iterable, java.lang.Iterable)
-	 */
-	public List<ResourceMapping> matchResources(Iterable<? extends Resource> left,
-			Iterable<? extends Resource> right, Iterable<? extends Resource> origin) {
-		final List<ResourceMapping> mappings = Lists.newArrayList();
-
-		final List<Resource> rightCopy = Lists.newArrayList(right);
-		final List<Resource> originCopy = Lists.newArrayList(origin);
-
-		// Can we find matches for the left resource in either left or origin?
-		for (Resource leftResource : left) {
-			final Resource matchingRight = findMatch(leftResource, rightCopy);
-			final Resource matchingOrigin = findMatch(leftResource, originCopy);
-
-			if (matchingRight != null || matchingOrigin != null) {
-				rightCopy.remove(matchingRight);
-				originCopy.remove(matchingOrigin);
-				mappings.add(new ResourceMapping(leftResource, matchingRight, matchingOrigin));
-			}
-		}
-
-		// We no longer have to check in the left, but we may have matches of the right resources in the
-		// origin list
-		for (Resource rightResource : rightCopy) {
-			final Resource matchingOrigin = findMatch(rightResource, originCopy);
-			originCopy.remove(matchingOrigin);
-
-			if (matchingOrigin != null) {
-				mappings.add(new ResourceMapping(null, rightResource, matchingOrigin));
-			}
-		}
-
-		return mappings;
-	}
+public class NameMatchingStrategy extends AbstractIndexedMatchingStrategy {
+	/** Key shared by all resources that have no URI, so that they are matched together. */
+	private static final Object NO_URI = new Object();
 
 	/**
-	 * Returns the first match of <code>reference</code> in <code>candidates</code>. This implementation will
-	 * consider two Resources to be "matches" if they have the same name.
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation will consider two Resources to be "matches" if they have the same name, that is
+	 * the same last segment of their URI. Resources that have no URI all share a same key.
+	 * </p>
 	 * 
-	 * @param reference
-	 *            The reference resource.
-	 * @param candidates
-	 *            The list of potential candidates that may match <code>reference</code>.
-	 * @return The first match of <code>reference</code> in <code>candidates</code>. <code>null</code> if
-	 *         none.
+	 * @see org.eclipse.emf.compare.match.resource.AbstractIndexedMatchingStrategy#getKey(org.eclipse.emf.ecore.resource.Resource)
 	 */
-	protected Resource findMatch(Resource reference, Iterable<Resource> candidates) {
-		final URI referenceURI = reference.getURI();
-		for (Resource candidate : candidates) {
-			if (referenceURI == candidate.getURI() || referenceURI != null && candidate.getURI() != null
-					&& referenceURI.lastSegment().equals(candidate.getURI().lastSegment())) {
-				return candidate;
-			}
+	@Override
+	protected Object getKey(Resource resource) {
+		final URI uri = resource.getURI();
+		final Object name;
+		if (uri != null) {
+			name = uri.lastSegment();
+		} else {
+			name = NO_URI;
 		}
-		return null;
+		return name;
 	}
 }
@@ -10,15 +10,16 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.match.resource;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import com.google.common.collect.Maps;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
+import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.compare.utils.SimilarityUtil;
 import org.eclipse.emf.ecore.resource.Resource;
 
@@ -26,14 +27,63 @@ import org.eclipse.emf.ecore.resource.Resource;
  * This implementation of a matching strategy will try and determine the resource mappings through the
  * similarity of their names.
  * <p>
- * Specifically, this will determine the cartesian product of the resource sets, compute a similarity for
- * every single couple of Resource, then consider that every similarity that is above 80% constitutes a
- * mapping.
+ * The similarity of two names is the dice coefficient of their bigrams. Instead of computing it for every
+ * single couple of Resource, the names of the candidates are indexed by bigram : only the couples that share
+ * at least one bigram are scored, and each of these couples is scored only once. Couples which similarity is
+ * above the threshold (80% by default) are then mapped greedily, the most similar couples first.
+ * </p>
+ * <p>
+ * The left resources are mapped with the right resources, then with the origin resources. The right
+ * resources that could not be mapped with a left resource are then mapped with the remaining origin
+ * resources.
  * </p>
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
 public class NameSimilarityMatchingStrategy implements IResourceMatchingStrategy {
+	/** Default similarity above which two resources will be considered to be matches. */
+	public static final double DEFAULT_THRESHOLD = 0.8d;
+
+	/** Orders scored couples by descending similarity, then by position of their resources. */
+	private static final Comparator<ScoredCouple> DESCENDING_SIMILARITY = new Comparator<ScoredCouple>() {
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+		 */
+		public int compare(ScoredCouple couple1, ScoredCouple couple2) {
+			int result = Double.compare(couple2.similarity, couple1.similarity);
+			if (result == 0) {
+				result = couple1.first - couple2.first;
+			}
+			if (result == 0) {
+				result = couple1.second - couple2.second;
+			}
+			return result;
+		}
+	};
+
+	/** Similarity above which two resources will be considered to be matches. */
+	private final double threshold;
+
+	/**
+	 * Creates a strategy that will map resources which names are at least 80% similar.
+	 */
+	public NameSimilarityMatchingStrategy() {
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Creates a strategy that will map resources which names are at least as similar as the given
+	 * threshold.
+	 * 
+	 * @param threshold
+	 *            Similarity, between 0 and 1, above which two resources will be considered to be matches.
+	 */
+	public NameSimilarityMatchingStrategy(double threshold) {
+		this.threshold = threshold;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -42,135 +92,224 @@ public class NameSimilarityMatchingStrategy implements IResourceMatchingStrategy
 	 */
 	public List<ResourceMapping> matchResources(Iterable<? extends Resource> left,
 			Iterable<? extends Resource> right, Iterable<? extends Resource> origin) {
-		final List<ResourceMapping> mappings = Lists.newArrayList();
+		final List<Resource> lefts = Lists.<Resource> newArrayList(left);
+		final List<Resource> rights = Lists.<Resource> newArrayList(right);
+		final List<Resource> origins = Lists.<Resource> newArrayList(origin);
+
+		final int[][] leftBigrams = getBigrams(lefts);
+		final int[][] rightBigrams = getBigrams(rights);
+		final int[][] originBigrams = getBigrams(origins);
 
-		final Set<List<Resource>> productLR = cartesianProductOf(left, right);
-		final Set<List<Resource>> productLO = cartesianProductOf(left, origin);
+		final int[] leftToRight = assign(score(leftBigrams, rightBigrams), lefts.size(), rights.size());
+		final int[] leftToOrigin = assign(score(leftBigrams, originBigrams), lefts.size(), origins.size());
 
-		final List<ResourceSimilarity> similaritiesLR = Lists.newArrayList();
-		final List<ResourceSimilarity> similaritiesLO = Lists.newArrayList();
-		for (List<Resource> couple : productLR) {
-			similaritiesLR.add(new ResourceSimilarity(couple.get(0), couple.get(1)));
+		// Right and origin resources that are already mapped with a left resource are no longer candidates
+		final int[][] remainingRightBigrams = rightBigrams.clone();
+		final int[][] remainingOriginBigrams = originBigrams.clone();
+		for (int i = 0; i < lefts.size(); i++) {
+			if (leftToRight[i] != -1) {
+				remainingRightBigrams[leftToRight[i]] = new int[0];
+			}
+			if (leftToOrigin[i] != -1) {
+				remainingOriginBigrams[leftToOrigin[i]] = new int[0];
+			}
 		}
-		for (List<Resource> couple : productLO) {
-			similaritiesLO.add(new ResourceSimilarity(couple.get(0), couple.get(1)));
+		final int[] rightToOrigin = assign(score(remainingRightBigrams, remainingOriginBigrams), rights
+				.size(), origins.size());
+
+		final List<ResourceMapping> mappings = Lists.newArrayList();
+		for (int i = 0; i < lefts.size(); i++) {
+			if (leftToRight[i] != -1 || leftToOrigin[i] != -1) {
+				mappings.add(new ResourceMapping(lefts.get(i), get(rights, leftToRight[i]), get(origins,
+						leftToOrigin[i])));
+			}
 		}
-		Collections.sort(similaritiesLR);
-		Collections.sort(similaritiesLO);
-
-		final double matchThreshold = 0.8d;
-		double currentSimilarity = 1d;
-		Iterator<ResourceSimilarity> similaritiesLRIterator = similaritiesLR.iterator();
-		while (similaritiesLRIterator.hasNext() && currentSimilarity >= matchThreshold) {
-			final ResourceSimilarity sortedCoupleLR = similaritiesLRIterator.next();
-
-			final Resource leftRes = sortedCoupleLR.getFirst();
-			final Resource rightRes = sortedCoupleLR.getSecond();
-			Resource originRes = null;
-			Iterator<ResourceSimilarity> loIterator = similaritiesLO.iterator();
-			while (loIterator.hasNext() && originRes == null) {
-				final ResourceSimilarity sortedCoupleLO = loIterator.next();
-				if (sortedCoupleLO.getFirst() == leftRes) {
-					originRes = sortedCoupleLO.getSecond();
-				}
+		for (int i = 0; i < rights.size(); i++) {
+			if (rightToOrigin[i] != -1) {
+				mappings.add(new ResourceMapping(null, rights.get(i), origins.get(rightToOrigin[i])));
 			}
-			mappings.add(new ResourceMapping(leftRes, rightRes, originRes));
 		}
-
-		/*
-		 * FIXME This was a work in progress that has been left alone for now as it is assumed to be too
-		 * costly. Either finish the implementation (in its current state, it would not check for matches
-		 * between the right and origin if they have no "left" counterpart) or remove the class altogether.
-		 */
-
 		return mappings;
 	}
 
 	/**
-	 * Computes the cartesian product of the two given iterables by converting them to {@link Set}s and
-	 * feeding them to {@link Sets#cartesianProduct(List)}.
+	 * Returns the name of the given resource, that will be compared with the names of the other resources.
 	 * 
-	 * @param iterable1
-	 *            First of the two iterables of which we need the cartesian product.
-	 * @param iterable2
-	 *            Second of the two iterables of which we need the cartesian product.
-	 * @param <T>
-	 *            Type of iterables' content.
-	 * @return The cartesian product of the two given iterables.
-	 * @see Sets#cartesianProduct(List)
+	 * @param resource
+	 *            The resource which name we need.
+	 * @return The name of the given resource, <code>null</code> if it has none.
 	 */
-	private static <T> Set<List<T>> cartesianProductOf(Iterable<? extends T> iterable1,
-			Iterable<? extends T> iterable2) {
-		Set<T> set1 = Sets.newLinkedHashSet(iterable1);
-		Set<T> set2 = Sets.newLinkedHashSet(iterable2);
-		List<Set<T>> input = ImmutableList.of(set1, set2);
-		return Sets.cartesianProduct(input);
+	protected String getName(Resource resource) {
+		final URI uri = resource.getURI();
+		String name = null;
+		if (uri != null) {
+			name = uri.lastSegment();
+		}
+		return name;
 	}
 
 	/**
-	 * This simple structure will only be used internally in order to compute the similarities between the
-	 * names of a resource couple.
+	 * Scores all couples of the given resources which names share at least one bigram.
 	 * 
-	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 * @param first
+	 *            The distinct bigrams of the first list of resources' names.
+	 * @param second
+	 *            The distinct bigrams of the second list of resources' names.
+	 * @return The couples which similarity is at least our threshold.
 	 */
-	protected class ResourceSimilarity implements Comparable<ResourceSimilarity> {
-		/** First resource of the couple for which we computed a similarity. */
-		private Resource first;
-
-		/** Second resource of the couple for which we computed a similarity. */
-		private Resource second;
+	private List<ScoredCouple> score(int[][] first, int[][] second) {
+		final List<ScoredCouple> couples = Lists.newArrayList();
+		if (first.length == 0 || second.length == 0) {
+			return couples;
+		}
 
-		/**
-		 * Instantiates a ResourceSimilarity structure given the two resources for which we need a similarity.
-		 * 
-		 * @param first
-		 *            First resource of the couple for which we need a similarity.
-		 * @param second
-		 *            Second resource of the couple for which we need a similarity.
-		 */
-		public ResourceSimilarity(Resource first, Resource second) {
-			this.first = first;
-			this.second = second;
+		final Map<Integer, List<Integer>> index = index(second);
+		final int[] shared = new int[second.length];
+		final int[] touched = new int[second.length];
+		for (int i = 0; i < first.length; i++) {
+			int touchedCount = 0;
+			for (int bigram : first[i]) {
+				final List<Integer> postings = index.get(Integer.valueOf(bigram));
+				if (postings != null) {
+					for (int j = 0; j < postings.size(); j++) {
+						final int candidate = postings.get(j).intValue();
+						if (shared[candidate] == 0) {
+							touched[touchedCount++] = candidate;
+						}
+						shared[candidate]++;
+					}
+				}
+			}
+			for (int k = 0; k < touchedCount; k++) {
+				final int candidate = touched[k];
+				final int total = first[i].length + second[candidate].length;
+				final double similarity = (2d * shared[candidate]) / total;
+				shared[candidate] = 0;
+				if (similarity >= threshold) {
+					couples.add(new ScoredCouple(i, candidate, similarity));
+				}
+			}
 		}
+		return couples;
+	}
 
-		/**
-		 * Returns the first resource of this couple.
-		 * 
-		 * @return The first resource of this couple.
-		 */
-		public Resource getFirst() {
-			return first;
+	/**
+	 * Greedily maps the given couples, the most similar first.
+	 * 
+	 * @param couples
+	 *            The scored couples.
+	 * @param firstSize
+	 *            Number of resources in the first list.
+	 * @param secondSize
+	 *            Number of resources in the second list.
+	 * @return For each resource of the first list, the position of the resource of the second list it has
+	 *         been mapped with. <code>-1</code> for unmapped resources.
+	 */
+	private static int[] assign(List<ScoredCouple> couples, int firstSize, int secondSize) {
+		final int[] mapping = new int[firstSize];
+		Arrays.fill(mapping, -1);
+		final boolean[] mapped = new boolean[secondSize];
+		Collections.sort(couples, DESCENDING_SIMILARITY);
+		for (ScoredCouple couple : couples) {
+			if (mapping[couple.first] == -1 && !mapped[couple.second]) {
+				mapping[couple.first] = couple.second;
+				mapped[couple.second] = true;
+			}
 		}
+		return mapping;
+	}
 
-		/**
-		 * Returns the second resource of this couple.
-		 * 
-		 * @return The second resource of this couple.
-		 */
-		public Resource getSecond() {
-			return second;
+	/**
+	 * Indexes the given bigrams.
+	 * 
+	 * @param bigrams
+	 *            The distinct bigrams of a list of resources' names.
+	 * @return The positions of the resources' names containing each bigram.
+	 */
+	private static Map<Integer, List<Integer>> index(int[][] bigrams) {
+		final Map<Integer, List<Integer>> index = Maps.newHashMap();
+		for (int i = 0; i < bigrams.length; i++) {
+			for (int bigram : bigrams[i]) {
+				final Integer key = Integer.valueOf(bigram);
+				List<Integer> postings = index.get(key);
+				if (postings == null) {
+					postings = Lists.newArrayList();
+					index.put(key, postings);
+				}
+				postings.add(Integer.valueOf(i));
+			}
 		}
+		return index;
+	}
 
-		/**
-		 * Compute and return the similarity between the two resources of this couple. The Similarity with
-		 * this default implementation will be the dice coefficient of the two resources' name.
-		 * 
-		 * @return The similarity between these two resources.
-		 */
-		public double getSimilarity() {
-			String firstName = first.getURI().lastSegment();
-			String secondName = second.getURI().lastSegment();
+	/**
+	 * Computes the distinct bigrams of the given resources' names.
+	 * 
+	 * @param resources
+	 *            The resources which names' bigrams we need.
+	 * @return The distinct bigrams of each resource's name, packed in ints and sorted.
+	 * @see SimilarityUtil#bigrams(String)
+	 */
+	private int[][] getBigrams(List<Resource> resources) {
+		final int[][] bigrams = new int[resources.size()][];
+		for (int i = 0; i < resources.size(); i++) {
+			final String name = getName(resources.get(i));
+			if (name == null) {
+				bigrams[i] = new int[0];
+			} else {
+				bigrams[i] = SimilarityUtil.bigrams(name);
+			}
+		}
+		return bigrams;
+	}
 
-			return SimilarityUtil.diceCoefficient(firstName, secondName);
+	/**
+	 * Returns the resource at the given position.
+	 * 
+	 * @param resources
+	 *            The list of resources.
+	 * @param index
+	 *            Position of the resource we need. <code>-1</code> if none.
+	 * @return The resource at the given position, <code>null</code> if <code>index</code> is
+	 *         <code>-1</code>.
+	 */
+	private static Resource get(List<Resource> resources, int index) {
+		Resource resource = null;
+		if (index != -1) {
+			resource = resources.get(index);
 		}
+		return resource;
+	}
+
+	/**
+	 * A couple of resources which similarity has been computed.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class ScoredCouple {
+		/** Position of the first resource of this couple. */
+		final int first;
+
+		/** Position of the second resource of this couple. */
+		final int second;
+
+		/** Similarity of these two resources' names. */
+		final double similarity;
 
 		/**
-		 * {@inheritDoc}
+		 * Creates a scored couple.
 		 * 
-		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 * @param first
+		 *            Position of the first resource of this couple.
+		 * @param second
+		 *            Position of the second resource of this couple.
+		 * @param similarity
+		 *            Similarity of these two resources' names.
 		 */
-		public int compareTo(ResourceSimilarity other) {
-			return Double.compare(getSimilarity(), other.getSimilarity());
+		ScoredCouple(int first, int second, double similarity) {
+			this.first = first;
+			this.second = second;
+			this.similarity = similarity;
 		}
 	}
 }
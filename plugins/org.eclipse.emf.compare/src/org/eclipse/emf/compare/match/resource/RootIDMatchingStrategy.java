@@ -10,11 +10,8 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.match.resource;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
-import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
 
 import org.eclipse.emf.ecore.EObject;
@@ -28,73 +25,23 @@ import org.eclipse.emf.ecore.xmi.XMIResource;
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
-public class RootIDMatchingStrategy implements IResourceMatchingStrategy {
+public class RootIDMatchingStrategy extends AbstractIndexedMatchingStrategy {
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * This implementation will consider two Resources to be "matches" if their roots have IDs, and these IDs
+	 * are the same.
+	 * </p>
 	 * 
-	 * @see org.eclipse.emf.compare.match.resource.IResourceMatchingStrategy#matchResources(java.lang.Iterable,
-	 *      java.lang.Iterable, java.lang.Iterable)
+	 * @see org.eclipse.emf.compare.match.resource.AbstractIndexedMatchingStrategy#getKey(org.eclipse.emf.ecore.resource.Resource)
 	 */
-	public List<ResourceMapping> matchResources(Iterable<? extends Resource> left,
-			Iterable<? extends Resource> right, Iterable<? extends Resource> origin) {
-		final List<ResourceMapping> mappings = Lists.newArrayList();
-
-		final List<Resource> rightCopy = Lists.newArrayList(right);
-		final List<Resource> originCopy = Lists.newArrayList(origin);
-
-		// Can we find matches for the left resource in either left or origin?
-		for (Resource leftResource : left) {
-			final Resource matchingRight = findMatch(leftResource, rightCopy);
-			final Resource matchingOrigin = findMatch(leftResource, originCopy);
-
-			if (matchingRight != null || matchingOrigin != null) {
-				rightCopy.remove(matchingRight);
-				originCopy.remove(matchingOrigin);
-				mappings.add(new ResourceMapping(leftResource, matchingRight, matchingOrigin));
-			}
-		}
-
-		// We no longer have to check in the left, but we may have matches of the right resources in the
-		// origin list
-		for (Resource rightResource : rightCopy) {
-			final Resource matchingOrigin = findMatch(rightResource, originCopy);
-			originCopy.remove(matchingOrigin);
-
-			if (matchingOrigin != null) {
-				mappings.add(new ResourceMapping(null, rightResource, matchingOrigin));
-			}
-		}
-
-		return mappings;
-	}
-
-	/**
-	 * Returns the first match of <code>reference</code> in <code>candidates</code>. This implementation will
-	 * consider two Resources to be "matches" if their roots have IDs, and these IDs are the same.
-	 * 
-	 * @param reference
-	 *            The reference resource.
-	 * @param candidates
-	 *            The list of potential candidates that may match <code>reference</code>.
-	 * @return The first match of <code>reference</code> in <code>candidates</code>. <code>null</code> if
-	 *         none.
-	 */
-	protected Resource findMatch(Resource reference, Iterable<Resource> candidates) {
-		final Set<String> referenceIDs = getResourceIdentifiers(reference);
-		if (referenceIDs.isEmpty()) {
+	@Override
+	protected Object getKey(Resource resource) {
+		final Set<String> identifiers = getResourceIdentifiers(resource);
+		if (identifiers.isEmpty()) {
 			return null;
 		}
-
-		Resource match = null;
-		final Iterator<Resource> candidateIterator = candidates.iterator();
-		while (candidateIterator.hasNext() && match == null) {
-			final Resource candidate = candidateIterator.next();
-			final Set<String> candidateIDs = getResourceIdentifiers(candidate);
-			if (!candidateIDs.isEmpty() && candidateIDs.equals(referenceIDs)) {
-				match = candidate;
-			}
-		}
-		return match;
+		return identifiers;
 	}
 
 	/**
@@ -110,11 +57,25 @@ public class RootIDMatchingStrategy implements IResourceMatchingStrategy {
 
 		for (EObject root : resource.getContents()) {
 			if (resource instanceof XMIResource) {
-				identifiers.add(((XMIResource)resource).getID(root));
+				addIdentifier(identifiers, ((XMIResource)resource).getID(root));
 			}
-			identifiers.add(EcoreUtil.getID(root));
+			addIdentifier(identifiers, EcoreUtil.getID(root));
 		}
 
 		return identifiers;
 	}
+
+	/**
+	 * Adds the given identifier to the given set if it is not <code>null</code>.
+	 * 
+	 * @param identifiers
+	 *            The set of identifiers.
+	 * @param identifier
+	 *            The identifier to add. May be <code>null</code>.
+	 */
+	private static void addIdentifier(Set<String> identifiers, String identifier) {
+		if (identifier != null) {
+			identifiers.add(identifier);
+		}
+	}
 }
@@ -11,9 +11,11 @@
 package org.eclipse.emf.compare.match.resource;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.emf.ecore.resource.Resource;
 
@@ -36,45 +38,36 @@ public class StrategyResourceMatcher implements IResourceMatcher {
 	 */
 	public Iterable<ResourceMapping> createMappings(Iterator<? extends Resource> leftResources,
 			Iterator<? extends Resource> rightResources, Iterator<? extends Resource> originResources) {
-		final List<ResourceMapping> mappings;
+		final List<ResourceMapping> mappings = Lists.newArrayList();
 
-		// Copy the input Resource lists : we'll exhaust them as we go
-		final List<? extends Resource> leftCopy = Lists.newArrayList(leftResources);
-		final List<? extends Resource> rightCopy = Lists.newArrayList(rightResources);
-		final List<? extends Resource> originCopy = Lists.newArrayList(originResources);
+		// Copy the input Resource lists : we'll filter out the matched resources as we go
+		List<Resource> leftCopy = Lists.<Resource> newArrayList(leftResources);
+		List<Resource> rightCopy = Lists.<Resource> newArrayList(rightResources);
+		List<Resource> originCopy = Lists.<Resource> newArrayList(originResources);
 
-		// Detect matching resources
+		// Detect matching resources. Break this loop if we exhausted all strategies or if two of the lists
+		// are empty (no potential match remaining)
 		final IResourceMatchingStrategy[] strategies = getResourceMatchingStrategies();
-		if (strategies.length == 1) {
-			mappings = strategies[0].matchResources(leftCopy, rightCopy, originCopy);
-
-			// Remove all matched from the copies to leave only unmatched
-			for (ResourceMapping newMapping : mappings) {
-				leftCopy.remove(newMapping.getLeft());
-				rightCopy.remove(newMapping.getRight());
-				originCopy.remove(newMapping.getOrigin());
-			}
-		} else {
-			mappings = Lists.newArrayList();
-
-			// Break this loop if we exhausted all strategies or if two of the lists are empty (no potential
-			// match remaining)
-			for (int i = 0; i < strategies.length
-					&& !atLeastTwo(leftCopy.isEmpty(), rightCopy.isEmpty(), originCopy.isEmpty()); i++) {
-				final List<ResourceMapping> newMappings = strategies[i].matchResources(leftCopy, rightCopy,
-						originCopy);
+		for (int i = 0; i < strategies.length
+				&& !atLeastTwo(leftCopy.isEmpty(), rightCopy.isEmpty(), originCopy.isEmpty()); i++) {
+			final List<ResourceMapping> newMappings = strategies[i].matchResources(leftCopy, rightCopy,
+					originCopy);
+			if (!newMappings.isEmpty()) {
+				final Set<Resource> matched = Sets.newHashSet();
 				for (ResourceMapping newMapping : newMappings) {
-					leftCopy.remove(newMapping.getLeft());
-					rightCopy.remove(newMapping.getRight());
-					originCopy.remove(newMapping.getOrigin());
+					matched.add(newMapping.getLeft());
+					matched.add(newMapping.getRight());
+					matched.add(newMapping.getOrigin());
 				}
+				leftCopy = removeAll(leftCopy, matched);
+				rightCopy = removeAll(rightCopy, matched);
+				originCopy = removeAll(originCopy, matched);
 				mappings.addAll(newMappings);
 			}
 		}
 
 		// Any resource that has not been matched by now is an unmatch. The "copies" list have been updated
-		// each time we found a
-		// match, they only contain the remaining unmatch resources now.
+		// each time we found a match, they only contain the remaining unmatch resources now.
 		for (Resource left : leftCopy) {
 			mappings.add(new ResourceMapping(left, null, null));
 		}
@@ -88,6 +81,27 @@ public class StrategyResourceMatcher implements IResourceMatcher {
 		return mappings;
 	}
 
+	/**
+	 * Returns a copy of the given list without the given resources. This is linear with the size of the
+	 * list, whereas removing matched resources one after the other would be quadratic.
+	 * 
+	 * @param resources
+	 *            The list of resources to filter.
+	 * @param matched
+	 *            The resources that are to be removed from <code>resources</code>.
+	 * @return A new list containing the resources of <code>resources</code> that are not in
+	 *         <code>matched</code>, in the same order.
+	 */
+	private static List<Resource> removeAll(List<Resource> resources, Set<Resource> matched) {
+		final List<Resource> remaining = Lists.newArrayList();
+		for (Resource resource : resources) {
+			if (!matched.contains(resource)) {
+				remaining.add(resource);
+			}
+		}
+		return remaining;
+	}
+
 	/**
 	 * This will check that at least two of the three given booleans are <code>true</code>.
 	 * 
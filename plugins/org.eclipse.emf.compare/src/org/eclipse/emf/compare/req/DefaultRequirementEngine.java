@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.req;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.DifferenceKind;
+import org.eclipse.emf.compare.DifferenceSource;
+import org.eclipse.emf.compare.Equivalence;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.ecore.EReference;
+
+/**
+ * The default implementation of an {@link IRequirementEngine}.
+ * <p>
+ * Rather than cross-referencing the whole comparison, the reference changes are first indexed, for each side,
+ * by the Match of the EObject they add, delete or reference. The requirements of each difference are then
+ * looked up in these indexes :
+ * <ul>
+ * <li>any difference but a deletion requires the addition of the EObject it has been detected on,</li>
+ * <li>the addition of a reference (or the change of a single-valued reference) requires the addition of the
+ * referenced EObject,</li>
+ * <li>the deletion of an EObject requires the deletion of its content and of the references towards it.</li>
+ * </ul>
+ * Only differences of the same side can require each other. The changes of the two ends of a bidirectional
+ * reference are also indexed by (Match, reference, referenced Match) : the changes of a side that describe
+ * the same link between two EObjects are grouped in an {@link Equivalence}.
+ * </p>
+ * <p>
+ * This engine keeps no state in between two calls, a single instance can be shared by any number of
+ * comparisons. {@link org.eclipse.emf.compare.utils.DiffUtil#getMergeOrder(java.util.Collection)} can then
+ * be used to sort differences so that each of them comes after those it requires.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class DefaultRequirementEngine implements IRequirementEngine {
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.compare.req.IRequirementEngine#computeRequirements(org.eclipse.emf.compare.Comparison)
+	 */
+	public void computeRequirements(Comparison comparison) {
+		final List<Diff> differences = comparison.getDifferences();
+		final SideIndex leftIndex = new SideIndex();
+		final SideIndex rightIndex = new SideIndex();
+		final Map<ReferenceKey, List<Diff>> bidirectionalChanges = Maps.newHashMap();
+		for (Diff diff : differences) {
+			if (diff instanceof ReferenceChange) {
+				final ReferenceChange change = (ReferenceChange)diff;
+				final Match target = comparison.getMatch(change.getValue());
+				if (target != null) {
+					getIndex(diff.getSource(), leftIndex, rightIndex).add(change, target);
+					if (change.getReference().getEOpposite() != null) {
+						put(bidirectionalChanges, new ReferenceKey(diff.getMatch(), change.getReference(),
+								target), diff);
+					}
+				}
+			}
+		}
+
+		for (Diff diff : differences) {
+			final SideIndex index = getIndex(diff.getSource(), leftIndex, rightIndex);
+			Match target = null;
+			if (diff instanceof ReferenceChange) {
+				target = comparison.getMatch(((ReferenceChange)diff).getValue());
+			}
+			if (diff.getKind() == DifferenceKind.DELETE) {
+				if (target != null && ((ReferenceChange)diff).getReference().isContainment()) {
+					addRequirements(diff, index.contentDeletions.get(target));
+					addRequirements(diff, index.referenceDeletions.get(target));
+				}
+			} else {
+				addRequirements(diff, index.additions.get(diff.getMatch()));
+				if (target != null && !((ReferenceChange)diff).getReference().isContainment()) {
+					addRequirements(diff, index.additions.get(target));
+				}
+			}
+			if (target != null) {
+				final EReference opposite = ((ReferenceChange)diff).getReference().getEOpposite();
+				if (opposite != null) {
+					addEquivalences(diff, bidirectionalChanges.get(new ReferenceKey(target, opposite, diff
+							.getMatch())));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the given difference should require the given candidate. Both differences are known to
+	 * have been detected on the same side.
+	 * <p>
+	 * This default implementation accepts all candidates : clients can override it to ignore some of the
+	 * requirements found by this engine.
+	 * </p>
+	 * 
+	 * @param diff
+	 *            The difference which requirements are being computed.
+	 * @param candidate
+	 *            The difference that <code>diff</code> would require.
+	 * @return <code>true</code> if <code>diff</code> should require <code>candidate</code>.
+	 */
+	protected boolean isRequirement(Diff diff, Diff candidate) {
+		return true;
+	}
+
+	/**
+	 * Adds the given candidates to the requirements of the given difference.
+	 * 
+	 * @param diff
+	 *            The difference which requirements are being computed.
+	 * @param candidates
+	 *            The differences <code>diff</code> could require. May be <code>null</code>.
+	 */
+	private void addRequirements(Diff diff, List<Diff> candidates) {
+		if (candidates == null) {
+			return;
+		}
+		for (Diff candidate : candidates) {
+			if (candidate != diff && isRequirement(diff, candidate)) {
+				diff.getRequires().add(candidate);
+			}
+		}
+	}
+
+	/**
+	 * Groups the given difference with those of the given candidates that have been detected on the same side
+	 * in a single {@link Equivalence}.
+	 * 
+	 * @param diff
+	 *            The change of one end of a bidirectional reference.
+	 * @param candidates
+	 *            The changes of the opposite end, describing the same link. May be <code>null</code>.
+	 */
+	private static void addEquivalences(Diff diff, List<Diff> candidates) {
+		if (candidates == null) {
+			return;
+		}
+		for (Diff candidate : candidates) {
+			if (candidate != diff && candidate.getSource() == diff.getSource()) {
+				final Equivalence equivalence = diff.getEquivalentDiffs();
+				final Equivalence other = candidate.getEquivalentDiffs();
+				if (equivalence == null && other == null) {
+					final Equivalence created = CompareFactory.eINSTANCE.createEquivalence();
+					created.getDifferences().add(diff);
+					created.getDifferences().add(candidate);
+				} else if (equivalence == null) {
+					other.getDifferences().add(diff);
+				} else if (other == null) {
+					equivalence.getDifferences().add(candidate);
+				} else if (equivalence != other) {
+					equivalence.getDifferences().addAll(Lists.newArrayList(other.getDifferences()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the given side.
+	 * 
+	 * @param source
+	 *            The side which index we need.
+	 * @param leftIndex
+	 *            The index of the left side.
+	 * @param rightIndex
+	 *            The index of the right side.
+	 * @return <code>leftIndex</code> for the left side, <code>rightIndex</code> otherwise.
+	 */
+	private static SideIndex getIndex(DifferenceSource source, SideIndex leftIndex, SideIndex rightIndex) {
+		SideIndex index = rightIndex;
+		if (source == DifferenceSource.LEFT) {
+			index = leftIndex;
+		}
+		return index;
+	}
+
+	/**
+	 * Adds the given difference to the list associated with the given key.
+	 * 
+	 * @param map
+	 *            The map to which the difference should be added.
+	 * @param key
+	 *            The key under which to add the difference.
+	 * @param diff
+	 *            The difference to add.
+	 * @param <K>
+	 *            Type of the map's keys.
+	 */
+	private static <K> void put(Map<K, List<Diff>> map, K key, Diff diff) {
+		List<Diff> bucket = map.get(key);
+		if (bucket == null) {
+			bucket = Lists.newArrayListWithCapacity(1);
+			map.put(key, bucket);
+		}
+		bucket.add(diff);
+	}
+
+	/**
+	 * Indexes the reference changes of one side of a comparison by the Match of the EObject they concern.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class SideIndex {
+		/** Containment additions by the Match of the added EObject. */
+		final Map<Match, List<Diff>> additions = new IdentityHashMap<Match, List<Diff>>();
+
+		/** Containment deletions by the Match of the EObject from which they delete a child. */
+		final Map<Match, List<Diff>> contentDeletions = new IdentityHashMap<Match, List<Diff>>();
+
+		/** Deletions of non-containment references by the Match of the EObject they referenced. */
+		final Map<Match, List<Diff>> referenceDeletions = new IdentityHashMap<Match, List<Diff>>();
+
+		/**
+		 * Indexes the given reference change.
+		 * 
+		 * @param change
+		 *            The reference change to index.
+		 * @param target
+		 *            The Match of the EObject referenced by <code>change</code>.
+		 */
+		void add(ReferenceChange change, Match target) {
+			final boolean containment = change.getReference().isContainment();
+			if (change.getKind() == DifferenceKind.ADD && containment) {
+				put(additions, target, change);
+			} else if (change.getKind() == DifferenceKind.DELETE) {
+				if (containment) {
+					put(contentDeletions, change.getMatch(), change);
+				} else {
+					put(referenceDeletions, target, change);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Key of a link between two EObjects through a reference : Matches and references are compared by
+	 * identity.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class ReferenceKey {
+		/** The Match of the referencing EObject. */
+		private final Match match;
+
+		/** The reference. */
+		private final EReference reference;
+
+		/** The Match of the referenced EObject. */
+		private final Match target;
+
+		/** Hash code of this key. */
+		private final int hash;
+
+		/**
+		 * Creates a key.
+		 * 
+		 * @param match
+		 *            The Match of the referencing EObject.
+		 * @param reference
+		 *            The reference.
+		 * @param target
+		 *            The Match of the referenced EObject.
+		 */
+		ReferenceKey(Match match, EReference reference, Match target) {
+			this.match = match;
+			this.reference = reference;
+			this.target = target;
+			this.hash = Objects.hashCode(match, reference, target);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ReferenceKey)) {
+				return false;
+			}
+			final ReferenceKey other = (ReferenceKey)obj;
+			return match == other.match && reference == other.reference && target == other.target;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.req;
+
+import org.eclipse.emf.compare.Comparison;
+
+/**
+ * This class defines the general contract of a requirement engine. Requirement engines are called once the
+ * {@link org.eclipse.emf.compare.diff.IDiffEngine diff engine} has completed the comparison with all of the
+ * differences it could detect, and are expected to link these differences with one another.
+ * <p>
+ * Clients can also subclass the {@link DefaultRequirementEngine default implementation}.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ * @see DefaultRequirementEngine
+ */
+public interface IRequirementEngine {
+	/**
+	 * This will be called once the differences of the given comparison have been computed. It is expected to
+	 * fill the {@link org.eclipse.emf.compare.Diff#getRequires() requirements} of these differences, along
+	 * with the {@link org.eclipse.emf.compare.Equivalence equivalences} between them.
+	 * 
+	 * @param comparison
+	 *            The comparison this engine is expected to complete.
+	 */
+	void computeRequirements(Comparison comparison);
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.scope;
+
+import java.util.Iterator;
+
+/**
+ * Iterators returned by a comparison scope may implement this in order to tell their clients how many
+ * elements they expect to return. Matchers can then pre-size their structures instead of draining the
+ * iterator beforehand.
+ * 
+ * @param <E>
+ *            Type of the elements returned by this iterator.
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ * @see PruningComparisonScope
+ */
+public interface IEstimatedSizeIterator<E> extends Iterator<E> {
+	/**
+	 * Returns the number of elements this iterator is expected to return overall, including those it has
+	 * already returned. This is only an estimate and may differ from the actual number of elements.
+	 * 
+	 * @return The expected number of elements of this iterator, <code>-1</code> if no estimate is available.
+	 */
+	int getEstimatedSize();
+}
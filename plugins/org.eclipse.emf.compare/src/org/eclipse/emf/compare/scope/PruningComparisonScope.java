@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.scope;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.InternalEList;
+
+/**
+ * This implementation of an {@link IComparisonScope} uses the filters of a {@link FilterComparisonScope} to
+ * prune whole subtrees : when an EObject does not match the filter, neither it nor any of its direct or
+ * indirect content will be covered by the comparison, and its content will not even be visited.
+ * <p>
+ * The content lists are iterated through their basic (non-resolving) iterators, with no intermediary tree
+ * iterator or filtering iterator. As with {@link FilterComparisonScope}, only the proper content is covered :
+ * EObjects contained in a different Resource than their container are pruned.
+ * </p>
+ * <p>
+ * The returned iterators are {@link IEstimatedSizeIterator}s : whenever one of them is walked through to its
+ * end, the number of EObjects it returned is recorded and used as the estimated size of the next iterators
+ * over the same Resource or EObject. Nothing is counted beforehand, the estimate is thus only available once
+ * the content of a given Notifier has been walked through this scope.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class PruningComparisonScope extends FilterComparisonScope {
+	/**
+	 * Number of EObjects covered under each Resource or EObject, as counted during the last complete walk of
+	 * its content. Keys are weakly referenced so that this does not keep the compared models in memory.
+	 */
+	private final ConcurrentMap<Notifier, Integer> coveredCounts = new MapMaker().weakKeys().makeMap();
+
+	/**
+	 * This will instantiate a scope with left, right and origin Notifiers defined.
+	 * 
+	 * @param left
+	 *            The left root of this comparison.
+	 * @param right
+	 *            The right root of this comparison.
+	 * @param origin
+	 *            The common ancestor of <code>left</code> and <code>right</code>. May be <code>null</code>.
+	 */
+	public PruningComparisonScope(Notifier left, Notifier right, Notifier origin) {
+		super(left, right, origin);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation will return all direct and indirect content of the given {@link Resource}, pruning
+	 * those {@link EObject}s that do not match {@link #resourceContentFilter} along with their content.
+	 * </p>
+	 * 
+	 * @see org.eclipse.emf.compare.scope.FilterComparisonScope#getCoveredEObjects(org.eclipse.emf.ecore.resource.Resource)
+	 */
+	@Override
+	public Iterator<? extends EObject> getCoveredEObjects(Resource resource) {
+		if (resource == null) {
+			return Iterators.emptyIterator();
+		}
+		return new PruningIterator(resource, basicIterator(resource.getContents()), resourceContentFilter);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation will return all direct and indirect content of the given {@link EObject}, pruning
+	 * those {@link EObject}s that do not match {@link #eObjectContentFilter} along with their content.
+	 * </p>
+	 * 
+	 * @see org.eclipse.emf.compare.scope.FilterComparisonScope#getChildren(org.eclipse.emf.ecore.EObject)
+	 */
+	@Override
+	public Iterator<? extends EObject> getChildren(EObject eObject) {
+		if (eObject == null) {
+			return Iterators.emptyIterator();
+		}
+		return new PruningIterator(eObject, properContents(eObject), eObjectContentFilter);
+	}
+
+	/**
+	 * Returns the number of EObjects covered under the given Resource or EObject, as counted the last time
+	 * an iterator returned by {@link #getCoveredEObjects(Resource)} or {@link #getChildren(EObject)} for
+	 * this Notifier was walked through to its end. This does not iterate over the content of
+	 * <code>root</code>.
+	 * 
+	 * @param root
+	 *            The Resource or EObject which covered content size we need.
+	 * @return The estimated number of EObjects covered under <code>root</code>, <code>-1</code> if its
+	 *         content has not been walked yet.
+	 */
+	public int getEstimatedSize(Notifier root) {
+		final Integer count = coveredCounts.get(root);
+		if (count == null) {
+			return -1;
+		}
+		return count.intValue();
+	}
+
+	/**
+	 * Returns an iterator over the direct content of the given EObject, skipping the children that are held
+	 * by a different Resource and not resolving proxies.
+	 * 
+	 * @param eObject
+	 *            The EObject which content we need.
+	 * @return An iterator over the direct proper content of <code>eObject</code>.
+	 */
+	private static Iterator<EObject> properContents(EObject eObject) {
+		final Iterator<EObject> contents = basicIterator(eObject.eContents());
+		return new AbstractIterator<EObject>() {
+			/**
+			 * {@inheritDoc}
+			 * 
+			 * @see com.google.common.collect.AbstractIterator#computeNext()
+			 */
+			@Override
+			protected EObject computeNext() {
+				while (contents.hasNext()) {
+					final EObject next = contents.next();
+					if (((InternalEObject)next).eDirectResource() == null) {
+						return next;
+					}
+				}
+				return endOfData();
+			}
+		};
+	}
+
+	/**
+	 * Returns an iterator over the given list that will not resolve proxies if possible.
+	 * 
+	 * @param list
+	 *            The list we need to iterate over.
+	 * @return An iterator over <code>list</code>.
+	 */
+	private static Iterator<EObject> basicIterator(List<EObject> list) {
+		if (list instanceof InternalEList<?>) {
+			return ((InternalEList<EObject>)list).basicIterator();
+		}
+		return list.iterator();
+	}
+
+	/**
+	 * Iterates depth first over the content trees of a list of EObjects, pruning the subtrees which roots do
+	 * not match a given filter. The number of returned EObjects is recorded in {@link #coveredCounts} once
+	 * the iteration is over.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private final class PruningIterator extends AbstractIterator<EObject> implements
+			IEstimatedSizeIterator<EObject> {
+		/** The Resource or EObject which content we are iterating over. */
+		private final Notifier root;
+
+		/** Iterators over the content lists we are currently iterating over, the innermost last. */
+		private final List<Iterator<EObject>> stack = Lists.newArrayList();
+
+		/** Filter the returned EObjects must match. */
+		private final Predicate<? super EObject> filter;
+
+		/** Number of covered EObjects counted during the last complete walk of {@link #root}'s content. */
+		private final int estimatedSize;
+
+		/** Number of EObjects returned so far. */
+		private int count;
+
+		/**
+		 * Creates an iterator over the given EObjects and their content.
+		 * 
+		 * @param root
+		 *            The Resource or EObject which content we are to iterate over.
+		 * @param roots
+		 *            Iterator over the roots of the subtrees to iterate over.
+		 * @param filter
+		 *            Filter the returned EObjects must match.
+		 */
+		PruningIterator(Notifier root, Iterator<EObject> roots, Predicate<? super EObject> filter) {
+			this.root = root;
+			this.filter = filter;
+			this.estimatedSize = PruningComparisonScope.this.getEstimatedSize(root);
+			stack.add(roots);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see org.eclipse.emf.compare.scope.IEstimatedSizeIterator#getEstimatedSize()
+		 */
+		public int getEstimatedSize() {
+			return estimatedSize;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see com.google.common.collect.AbstractIterator#computeNext()
+		 */
+		@Override
+		protected EObject computeNext() {
+			while (!stack.isEmpty()) {
+				final Iterator<EObject> current = stack.get(stack.size() - 1);
+				if (!current.hasNext()) {
+					stack.remove(stack.size() - 1);
+				} else {
+					final EObject next = current.next();
+					if (filter.apply(next)) {
+						stack.add(properContents(next));
+						count++;
+						return next;
+					}
+				}
+			}
+			coveredCounts.put(root, Integer.valueOf(count));
+			return endOfData();
+		}
+	}
+}
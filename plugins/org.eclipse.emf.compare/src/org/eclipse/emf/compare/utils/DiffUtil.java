@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.utils;
+
+import com.google.common.collect.Lists;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.compare.Diff;
+
+/**
+ * This utility class holds methods that can be used by the mergers of differences.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public final class DiffUtil {
+	/**
+	 * Utility classes don't need to (and shouldn't) be instantiated.
+	 */
+	private DiffUtil() {
+		// prevents instantiation
+	}
+
+	/**
+	 * Sorts the given differences in the order in which they should be merged : each difference comes after
+	 * all of the differences it {@link Diff#getRequires() requires} that are part of the given collection.
+	 * The differences that require none of the others come first, in the order of the given collection.
+	 * <p>
+	 * Should the requirements contain a cycle, it is broken at the difference of the cycle that comes first
+	 * in the given collection. Note that all of the differences of an
+	 * {@link org.eclipse.emf.compare.Equivalence} are part of the result : mergers should only merge the
+	 * first of them.
+	 * </p>
+	 * <p>
+	 * A difference that is present more than once in the given collection is only returned once, sorted as
+	 * if only its first occurrence had been given.
+	 * </p>
+	 * 
+	 * @param differences
+	 *            The differences to sort.
+	 * @return A new list containing the given differences in merge order.
+	 */
+	public static List<Diff> getMergeOrder(Collection<? extends Diff> differences) {
+		final List<Diff> diffs = Lists.newArrayListWithCapacity(differences.size());
+		final Map<Diff, Integer> positions = new IdentityHashMap<Diff, Integer>(differences.size());
+		for (Diff diff : differences) {
+			if (!positions.containsKey(diff)) {
+				positions.put(diff, Integer.valueOf(diffs.size()));
+				diffs.add(diff);
+			}
+		}
+		final int size = diffs.size();
+
+		// Number of requirements of each difference that have yet to be sorted
+		final int[] pending = new int[size];
+		final boolean[] sorted = new boolean[size];
+		final List<Diff> result = Lists.newArrayListWithCapacity(size);
+		for (int i = 0; i < size; i++) {
+			for (Diff required : diffs.get(i).getRequires()) {
+				if (positions.containsKey(required)) {
+					pending[i]++;
+				}
+			}
+			if (pending[i] == 0) {
+				sorted[i] = true;
+				result.add(diffs.get(i));
+			}
+		}
+
+		int next = 0;
+		int firstUnsorted = 0;
+		while (result.size() < size) {
+			if (next == result.size()) {
+				// All remaining differences are in or depend on a cycle
+				while (sorted[firstUnsorted]) {
+					firstUnsorted++;
+				}
+				final int breakPoint = findCycle(diffs, positions, sorted, firstUnsorted);
+				sorted[breakPoint] = true;
+				result.add(diffs.get(breakPoint));
+			}
+			final Diff diff = result.get(next++);
+			for (Diff dependent : diff.getRequiredBy()) {
+				final Integer position = positions.get(dependent);
+				if (position != null && !sorted[position.intValue()] && --pending[position.intValue()] == 0) {
+					sorted[position.intValue()] = true;
+					result.add(dependent);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Follows the unsorted requirements of the given difference until it reaches a cycle, and returns the
+	 * position of the difference of that cycle that comes first in the sorted list.
+	 * 
+	 * @param diffs
+	 *            The differences being sorted.
+	 * @param positions
+	 *            The position of each difference in <code>diffs</code>.
+	 * @param sorted
+	 *            Whether each difference has already been sorted.
+	 * @param start
+	 *            Position of an unsorted difference : all unsorted differences depend on a cycle.
+	 * @return The position of the difference at which to break the cycle.
+	 */
+	private static int findCycle(List<Diff> diffs, Map<Diff, Integer> positions, boolean[] sorted,
+			int start) {
+		final Map<Diff, Integer> visited = new IdentityHashMap<Diff, Integer>();
+		int current = start;
+		while (!visited.containsKey(diffs.get(current))) {
+			visited.put(diffs.get(current), Integer.valueOf(current));
+			current = getUnsortedRequirement(diffs.get(current), positions, sorted);
+		}
+		// current is part of the cycle, walk it once more to find its first difference
+		int first = current;
+		int cursor = getUnsortedRequirement(diffs.get(current), positions, sorted);
+		while (cursor != current) {
+			first = Math.min(first, cursor);
+			cursor = getUnsortedRequirement(diffs.get(cursor), positions, sorted);
+		}
+		return first;
+	}
+
+	/**
+	 * Returns the position of the first unsorted difference required by the given one.
+	 * 
+	 * @param diff
+	 *            The difference which requirements we are to check.
+	 * @param positions
+	 *            The position of each difference being sorted.
+	 * @param sorted
+	 *            Whether each difference has already been sorted.
+	 * @return The position of the first unsorted requirement of <code>diff</code>, <code>-1</code> if none.
+	 */
+	private static int getUnsortedRequirement(Diff diff, Map<Diff, Integer> positions, boolean[] sorted) {
+		for (Diff required : diff.getRequires()) {
+			final Integer position = positions.get(required);
+			if (position != null && !sorted[position.intValue()]) {
+				return position.intValue();
+			}
+		}
+		return -1;
+	}
+}
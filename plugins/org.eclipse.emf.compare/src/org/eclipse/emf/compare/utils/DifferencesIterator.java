@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.utils;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.Match;
+
+/**
+ * This iterator will lazily walk a Match tree and return all of the differences it contains, depth-first,
+ * with the differences of a Match being returned before those of its submatches.
+ * <p>
+ * No intermediate list will be created : this only keeps track of its position within the submatches lists
+ * of the Matches it is currently visiting. It does not support concurrent modifications of the Match tree.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class DifferencesIterator extends AbstractIterator<Diff> {
+	/** Initial capacity of our position stack. Most models won't be deeper than this. */
+	private static final int INITIAL_DEPTH = 16;
+
+	/** The match lists we are currently visiting, the innermost one last. */
+	private final List<List<Match>> matchListStack = Lists.newArrayList();
+
+	/** Position of the next match to visit in each of the lists of {@link #matchListStack}. */
+	private int[] indexStack = new int[INITIAL_DEPTH];
+
+	/** Differences of the Match we are currently visiting. */
+	private List<Diff> currentDifferences = Collections.emptyList();
+
+	/** Position of the next difference to return within {@link #currentDifferences}. */
+	private int differenceIndex;
+
+	/**
+	 * Creates an iterator over all differences of the given comparison.
+	 * 
+	 * @param comparison
+	 *            The comparison which differences are to be iterated over.
+	 */
+	public DifferencesIterator(Comparison comparison) {
+		push(comparison.getMatches());
+	}
+
+	/**
+	 * Creates an iterator over all differences of the given Match and its submatches.
+	 * 
+	 * @param match
+	 *            The match which differences are to be iterated over.
+	 */
+	public DifferencesIterator(Match match) {
+		push(Collections.singletonList(match));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see com.google.common.collect.AbstractIterator#computeNext()
+	 */
+	@Override
+	protected Diff computeNext() {
+		while (differenceIndex >= currentDifferences.size()) {
+			final Match next = nextMatch();
+			if (next == null) {
+				return endOfData();
+			}
+			currentDifferences = next.getDifferences();
+			differenceIndex = 0;
+		}
+		return currentDifferences.get(differenceIndex++);
+	}
+
+	/**
+	 * Returns the next Match of the tree, depth-first. Visiting a Match pushes its submatches on our stack.
+	 * 
+	 * @return The next Match of the tree, <code>null</code> if we visited them all.
+	 */
+	private Match nextMatch() {
+		Match next = null;
+		while (next == null && !matchListStack.isEmpty()) {
+			final int top = matchListStack.size() - 1;
+			final List<Match> current = matchListStack.get(top);
+			final int index = indexStack[top];
+			if (index < current.size()) {
+				next = current.get(index);
+				indexStack[top] = index + 1;
+				push(next.getSubmatches());
+			} else {
+				matchListStack.remove(top);
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Pushes the given list of matches on top of our stack, to be visited before any remaining Match of the
+	 * currently visited list.
+	 * 
+	 * @param matches
+	 *            The matches to visit next.
+	 */
+	private void push(List<Match> matches) {
+		if (matches.isEmpty()) {
+			return;
+		}
+		final int depth = matchListStack.size();
+		if (depth == indexStack.length) {
+			final int[] newStack = new int[depth * 2];
+			System.arraycopy(indexStack, 0, newStack, 0, depth);
+			indexStack = newStack;
+		}
+		matchListStack.add(matches);
+		indexStack[depth] = 0;
+	}
+}
@@ -0,0 +1,545 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.utils;
+
+/**
+ * This can be used to compute a longest common subsequence of two sequences of tokens, for example in order
+ * to determine which elements of a list have been moved as compared to another version of that same list.
+ * <p>
+ * Tokens are represented by non-negative integers : two elements of the sequences are considered equal if
+ * and only if they have the same token. The computation takes linear space :
+ * </p>
+ * <ul>
+ * <li>Common prefixes and suffixes are stripped first.</li>
+ * <li>If no token is repeated within either of the sequences, the longest common subsequence is the longest
+ * increasing subsequence of the common tokens' positions, which is computed in <code>O(n log n)</code>.</li>
+ * <li>Otherwise, we use Myers' linear space refinement of his <code>O(ND)</code> difference algorithm,
+ * recursively bisecting the sequences on their "middle snake".</li>
+ * <li>When the sequences are too different for this to be cheap (the edit distance exceeds
+ * {@value #MAX_EDIT_DISTANCE}), we fall back to the "patience" heuristic : tokens that are unique in both
+ * sequences are used as anchors and we only look for common subsequences in between these anchors. If there
+ * are no such tokens, we split the sequences at the furthest point reached by the bisection and carry on
+ * with both halves. The result is then a common subsequence, though not always a longest one.</li>
+ * </ul>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public final class LongestCommonSubsequence {
+	/** Edit distance after which we abandon the bisection of a region in favor of the patience heuristic. */
+	private static final int MAX_EDIT_DISTANCE = 256;
+
+	/** Result of a bisection that gave up because the sequences were too different. */
+	private static final int[] BUDGET_EXCEEDED = new int[0];
+
+	/** The sequence of reference. */
+	private final int[] from;
+
+	/** The sequence which elements are to be marked if part of the common subsequence. */
+	private final int[] to;
+
+	/** Tells, for each element of {@link #to}, whether it is part of the common subsequence. */
+	private final boolean[] inSubsequence;
+
+	/** Number of occurrences of each token within the region of {@link #from} we are currently looking at. */
+	private final int[] fromCounts;
+
+	/** Number of occurrences of each token within the region of {@link #to} we are currently looking at. */
+	private final int[] toCounts;
+
+	/** Position within {@link #from} of the last occurrence of each token of the current region. */
+	private final int[] fromPositions;
+
+	/**
+	 * Absolute indices of the furthest point reached by the forward search of the last bisection that
+	 * exceeded its budget. <code>null</code> if it made no progress.
+	 */
+	private int[] furthestReach;
+
+	/**
+	 * Prepares the computation of a common subsequence between the two given sequences.
+	 * 
+	 * @param from
+	 *            The sequence of reference.
+	 * @param to
+	 *            The sequence which elements are to be marked if part of the common subsequence.
+	 */
+	private LongestCommonSubsequence(int[] from, int[] to) {
+		this.from = from;
+		this.to = to;
+		this.inSubsequence = new boolean[to.length];
+
+		int tokenCount = 0;
+		for (int i = 0; i < from.length; i++) {
+			tokenCount = Math.max(tokenCount, from[i] + 1);
+		}
+		for (int i = 0; i < to.length; i++) {
+			tokenCount = Math.max(tokenCount, to[i] + 1);
+		}
+		this.fromCounts = new int[tokenCount];
+		this.toCounts = new int[tokenCount];
+		this.fromPositions = new int[tokenCount];
+	}
+
+	/**
+	 * Computes a longest common subsequence of the two given sequences.
+	 * 
+	 * @param from
+	 *            The sequence of reference. All tokens must be non-negative.
+	 * @param to
+	 *            The sequence which elements are to be marked if part of the common subsequence. All tokens
+	 *            must be non-negative.
+	 * @return An array of the same length as <code>to</code>, which elements are <code>true</code> if the
+	 *         corresponding element of <code>to</code> is part of the common subsequence.
+	 */
+	public static boolean[] compute(int[] from, int[] to) {
+		final LongestCommonSubsequence lcs = new LongestCommonSubsequence(from, to);
+		lcs.compute(0, from.length, 0, to.length);
+		return lcs.inSubsequence;
+	}
+
+	/**
+	 * Marks the elements of a longest common subsequence of the given regions of our two sequences.
+	 * 
+	 * @param fromStart
+	 *            Start of the region of {@link #from} (inclusive).
+	 * @param fromEnd
+	 *            End of the region of {@link #from} (exclusive).
+	 * @param toStart
+	 *            Start of the region of {@link #to} (inclusive).
+	 * @param toEnd
+	 *            End of the region of {@link #to} (exclusive).
+	 */
+	private void compute(int fromStart, int fromEnd, int toStart, int toEnd) {
+		int fromLow = fromStart;
+		int toLow = toStart;
+		while (fromLow < fromEnd && toLow < toEnd && from[fromLow] == to[toLow]) {
+			inSubsequence[toLow++] = true;
+			fromLow++;
+		}
+		int fromHigh = fromEnd;
+		int toHigh = toEnd;
+		while (fromHigh > fromLow && toHigh > toLow && from[fromHigh - 1] == to[toHigh - 1]) {
+			inSubsequence[--toHigh] = true;
+			fromHigh--;
+		}
+		if (fromLow == fromHigh || toLow == toHigh) {
+			return;
+		}
+
+		if (countTokens(fromLow, fromHigh, toLow, toHigh)) {
+			// No repeated token : the anchors are the whole subsequence
+			markAnchors(fromLow, fromHigh, toLow, toHigh, false);
+			return;
+		}
+		resetCounts(fromLow, fromHigh, toLow, toHigh);
+
+		final int[] split = bisect(fromLow, fromHigh, toLow, toHigh);
+		if (split == BUDGET_EXCEEDED) {
+			final int[] fallback = furthestReach;
+			countTokens(fromLow, fromHigh, toLow, toHigh);
+			final boolean anchored = markAnchors(fromLow, fromHigh, toLow, toHigh, true);
+			if (!anchored && fallback != null) {
+				compute(fromLow, fallback[0], toLow, fallback[1]);
+				compute(fallback[0], fromHigh, fallback[1], toHigh);
+			}
+		} else if (split != null) {
+			compute(fromLow, split[0], toLow, split[1]);
+			compute(split[0], fromHigh, split[1], toHigh);
+		}
+	}
+
+	/**
+	 * Counts the occurrences of each token within the given regions.
+	 * 
+	 * @param fromStart
+	 *            Start of the region of {@link #from} (inclusive).
+	 * @param fromEnd
+	 *            End of the region of {@link #from} (exclusive).
+	 * @param toStart
+	 *            Start of the region of {@link #to} (inclusive).
+	 * @param toEnd
+	 *            End of the region of {@link #to} (exclusive).
+	 * @return <code>true</code> if no token is repeated within either of the two regions.
+	 */
+	private boolean countTokens(int fromStart, int fromEnd, int toStart, int toEnd) {
+		boolean unique = true;
+		for (int i = fromStart; i < fromEnd; i++) {
+			unique = ++fromCounts[from[i]] == 1 && unique;
+			fromPositions[from[i]] = i;
+		}
+		for (int i = toStart; i < toEnd; i++) {
+			unique = ++toCounts[to[i]] == 1 && unique;
+		}
+		return unique;
+	}
+
+	/**
+	 * Resets the counts of the tokens within the given regions.
+	 * 
+	 * @param fromStart
+	 *            Start of the region of {@link #from} (inclusive).
+	 * @param fromEnd
+	 *            End of the region of {@link #from} (exclusive).
+	 * @param toStart
+	 *            Start of the region of {@link #to} (inclusive).
+	 * @param toEnd
+	 *            End of the region of {@link #to} (exclusive).
+	 */
+	private void resetCounts(int fromStart, int fromEnd, int toStart, int toEnd) {
+		for (int i = fromStart; i < fromEnd; i++) {
+			fromCounts[from[i]] = 0;
+		}
+		for (int i = toStart; i < toEnd; i++) {
+			toCounts[to[i]] = 0;
+		}
+	}
+
+	/**
+	 * Marks the longest increasing subsequence of the tokens that are unique in both of the given regions.
+	 * Tokens must have been {@link #countTokens(int, int, int, int) counted} beforehand, counts will be
+	 * reset by this method.
+	 * 
+	 * @param fromStart
+	 *            Start of the region of {@link #from} (inclusive).
+	 * @param fromEnd
+	 *            End of the region of {@link #from} (exclusive).
+	 * @param toStart
+	 *            Start of the region of {@link #to} (inclusive).
+	 * @param toEnd
+	 *            End of the region of {@link #to} (exclusive).
+	 * @param recurse
+	 *            <code>true</code> if we should look for common subsequences in between the anchors,
+	 *            <code>false</code> if we know there is none.
+	 * @return <code>true</code> if we found at least one anchor, <code>false</code> otherwise.
+	 */
+	private boolean markAnchors(int fromStart, int fromEnd, int toStart, int toEnd, boolean recurse) {
+		final int[] candidates = new int[toEnd - toStart];
+		int candidateCount = 0;
+		for (int i = toStart; i < toEnd; i++) {
+			final int token = to[i];
+			if (toCounts[token] == 1 && fromCounts[token] == 1) {
+				candidates[candidateCount++] = i;
+			}
+		}
+		final int[] positions = new int[candidateCount];
+		for (int i = 0; i < candidateCount; i++) {
+			positions[i] = fromPositions[to[candidates[i]]];
+		}
+		resetCounts(fromStart, fromEnd, toStart, toEnd);
+
+		final int[] anchors = longestIncreasingSubsequence(positions);
+		int previousFrom = fromStart;
+		int previousTo = toStart;
+		for (int i = 0; i < anchors.length; i++) {
+			final int anchorTo = candidates[anchors[i]];
+			final int anchorFrom = positions[anchors[i]];
+			if (recurse) {
+				compute(previousFrom, anchorFrom, previousTo, anchorTo);
+			}
+			inSubsequence[anchorTo] = true;
+			previousFrom = anchorFrom + 1;
+			previousTo = anchorTo + 1;
+		}
+		if (recurse && anchors.length > 0) {
+			compute(previousFrom, fromEnd, previousTo, toEnd);
+		}
+		return anchors.length > 0;
+	}
+
+	/**
+	 * Finds the "middle snake" of the given regions, as per Myers' linear space refinement. The given regions
+	 * are expected not to share a common prefix or suffix.
+	 * 
+	 * @param fromStart
+	 *            Start of the region of {@link #from} (inclusive).
+	 * @param fromEnd
+	 *            End of the region of {@link #from} (exclusive).
+	 * @param toStart
+	 *            Start of the region of {@link #to} (inclusive).
+	 * @param toEnd
+	 *            End of the region of {@link #to} (exclusive).
+	 * @return The absolute indices in {@link #from} and {@link #to} around which the regions should be split,
+	 *         <code>null</code> if the two regions have nothing in common, {@link #BUDGET_EXCEEDED} if we
+	 *         gave up on the search (in which case {@link #furthestReach} will have been updated).
+	 */
+	private int[] bisect(int fromStart, int fromEnd, int toStart, int toEnd) {
+		final int n = fromEnd - fromStart;
+		final int m = toEnd - toStart;
+		final int maxD = (n + m + 1) / 2;
+		final int dLimit = Math.min(maxD, MAX_EDIT_DISTANCE);
+		final int offset = dLimit + 1;
+		final int[] forward = new int[2 * offset + 1];
+		final int[] backward = new int[2 * offset + 1];
+		for (int i = 0; i < forward.length; i++) {
+			forward[i] = -1;
+			backward[i] = -1;
+		}
+		forward[offset + 1] = 0;
+		backward[offset + 1] = 0;
+		final int delta = n - m;
+		final boolean front = delta % 2 != 0;
+		final MiddleSnakeSearch search = new MiddleSnakeSearch(fromStart, n, toStart, m, offset, delta);
+
+		int[] split = null;
+		for (int d = 0; d < dLimit && split == null; d++) {
+			split = search.forwardStep(d, forward, backward, front);
+			if (split == null) {
+				split = search.backwardStep(d, forward, backward, !front);
+			}
+		}
+		if (split == null && dLimit < maxD) {
+			furthestReach = search.furthestReach(forward);
+			split = BUDGET_EXCEEDED;
+		} else if (split != null && split != BUDGET_EXCEEDED) {
+			final boolean trivial = split[0] == fromStart && split[1] == toStart || split[0] == fromEnd
+					&& split[1] == toEnd;
+			if (trivial) {
+				furthestReach = null;
+				split = BUDGET_EXCEEDED;
+			}
+		}
+		return split;
+	}
+
+	/**
+	 * Computes a longest strictly increasing subsequence of the given values through patience sorting.
+	 * 
+	 * @param values
+	 *            The values which increasing subsequence we need.
+	 * @return The indices, in <code>values</code>, of the elements of a longest increasing subsequence, in
+	 *         increasing order.
+	 */
+	private static int[] longestIncreasingSubsequence(int[] values) {
+		// tails[k] is the index of the smallest tail of all increasing subsequences of length k + 1
+		final int[] tails = new int[values.length];
+		final int[] predecessors = new int[values.length];
+		int length = 0;
+		for (int i = 0; i < values.length; i++) {
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (values[tails[mid]] < values[i]) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			if (low > 0) {
+				predecessors[i] = tails[low - 1];
+			} else {
+				predecessors[i] = -1;
+			}
+			tails[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+
+		final int[] result = new int[length];
+		if (length > 0) {
+			int current = tails[length - 1];
+			for (int i = length - 1; i >= 0; i--) {
+				result[i] = current;
+				current = predecessors[current];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Holds the state of the search for a middle snake in between two regions of our sequences, and
+	 * implements the forward and backward steps of said search.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private final class MiddleSnakeSearch {
+		/** Start of the region of {@link #from}. */
+		private final int fromStart;
+
+		/** Length of the region of {@link #from}. */
+		private final int n;
+
+		/** Start of the region of {@link #to}. */
+		private final int toStart;
+
+		/** Length of the region of {@link #to}. */
+		private final int m;
+
+		/** Offset of the diagonal 0 in the "V" arrays. */
+		private final int offset;
+
+		/** Difference between the lengths of our two regions. */
+		private final int delta;
+
+		/** Number of diagonals to skip at the start of the forward search, as they went out of bounds. */
+		private int forwardStart;
+
+		/** Number of diagonals to skip at the end of the forward search, as they went out of bounds. */
+		private int forwardEnd;
+
+		/** Number of diagonals to skip at the start of the backward search, as they went out of bounds. */
+		private int backwardStart;
+
+		/** Number of diagonals to skip at the end of the backward search, as they went out of bounds. */
+		private int backwardEnd;
+
+		/**
+		 * Prepares the search for a middle snake.
+		 * 
+		 * @param fromStart
+		 *            Start of the region of {@link #from}.
+		 * @param n
+		 *            Length of the region of {@link #from}.
+		 * @param toStart
+		 *            Start of the region of {@link #to}.
+		 * @param m
+		 *            Length of the region of {@link #to}.
+		 * @param offset
+		 *            Offset of the diagonal 0 in the "V" arrays.
+		 * @param delta
+		 *            Difference between the lengths of our two regions.
+		 */
+		MiddleSnakeSearch(int fromStart, int n, int toStart, int m, int offset, int delta) {
+			this.fromStart = fromStart;
+			this.n = n;
+			this.toStart = toStart;
+			this.m = m;
+			this.offset = offset;
+			this.delta = delta;
+		}
+
+		/**
+		 * Extends the furthest reaching forward paths of edit distance <code>d</code>.
+		 * 
+		 * @param d
+		 *            The edit distance we are exploring.
+		 * @param forward
+		 *            The "V" array of the forward search.
+		 * @param backward
+		 *            The "V" array of the backward search.
+		 * @param checkOverlap
+		 *            Whether we should check for overlaps with the backward paths.
+		 * @return The absolute split indices if we found the middle snake, <code>null</code> otherwise.
+		 */
+		int[] forwardStep(int d, int[] forward, int[] backward, boolean checkOverlap) {
+			for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+				final int kOffset = offset + k;
+				int x;
+				if (k == -d || k != d && forward[kOffset - 1] < forward[kOffset + 1]) {
+					x = forward[kOffset + 1];
+				} else {
+					x = forward[kOffset - 1] + 1;
+				}
+				int y = x - k;
+				while (x < n && y < m && from[fromStart + x] == to[toStart + y]) {
+					x++;
+					y++;
+				}
+				forward[kOffset] = x;
+				if (x > n) {
+					forwardEnd += 2;
+				} else if (y > m) {
+					forwardStart += 2;
+				} else if (checkOverlap) {
+					final int backwardOffset = offset + delta - k;
+					if (isReached(backward, backwardOffset) && x >= n - backward[backwardOffset]) {
+						return new int[] {fromStart + x, toStart + y, };
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Extends the furthest reaching backward paths of edit distance <code>d</code>.
+		 * 
+		 * @param d
+		 *            The edit distance we are exploring.
+		 * @param forward
+		 *            The "V" array of the forward search.
+		 * @param backward
+		 *            The "V" array of the backward search.
+		 * @param checkOverlap
+		 *            Whether we should check for overlaps with the forward paths.
+		 * @return The absolute split indices if we found the middle snake, <code>null</code> otherwise.
+		 */
+		int[] backwardStep(int d, int[] forward, int[] backward, boolean checkOverlap) {
+			for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+				final int kOffset = offset + k;
+				int x;
+				if (k == -d || k != d && backward[kOffset - 1] < backward[kOffset + 1]) {
+					x = backward[kOffset + 1];
+				} else {
+					x = backward[kOffset - 1] + 1;
+				}
+				int y = x - k;
+				while (x < n && y < m && from[fromStart + n - x - 1] == to[toStart + m - y - 1]) {
+					x++;
+					y++;
+				}
+				backward[kOffset] = x;
+				if (x > n) {
+					backwardEnd += 2;
+				} else if (y > m) {
+					backwardStart += 2;
+				} else if (checkOverlap) {
+					final int forwardOffset = offset + delta - k;
+					if (isReached(forward, forwardOffset) && forward[forwardOffset] >= n - x) {
+						final int forwardX = forward[forwardOffset];
+						final int forwardY = forwardX - (forwardOffset - offset);
+						return new int[] {fromStart + forwardX, toStart + forwardY, };
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Finds the furthest point reached by the forward search, i.e. the point closest to the end of both
+		 * regions.
+		 * 
+		 * @param forward
+		 *            The "V" array of the forward search.
+		 * @return The absolute indices of that point, <code>null</code> if the search made no progress.
+		 */
+		int[] furthestReach(int[] forward) {
+			int bestX = 0;
+			int bestY = 0;
+			for (int kOffset = 0; kOffset < forward.length; kOffset++) {
+				final int x = forward[kOffset];
+				final int y = x - (kOffset - offset);
+				if (x != -1 && x <= n && y >= 0 && y <= m && x + y > bestX + bestY) {
+					bestX = x;
+					bestY = y;
+				}
+			}
+			int[] reach = null;
+			if (bestX + bestY > 0) {
+				reach = new int[] {fromStart + bestX, toStart + bestY, };
+			}
+			return reach;
+		}
+
+		/**
+		 * Checks whether the given diagonal has been reached by the search which "V" array is given.
+		 * 
+		 * @param v
+		 *            The "V" array of a search.
+		 * @param diagonalOffset
+		 *            Index of the diagonal to check in <code>v</code>.
+		 * @return <code>true</code> if this diagonal has been reached.
+		 */
+		private boolean isReached(int[] v, int diagonalOffset) {
+			return diagonalOffset >= 0 && diagonalOffset < v.length && v[diagonalOffset] != -1;
+		}
+	}
+}
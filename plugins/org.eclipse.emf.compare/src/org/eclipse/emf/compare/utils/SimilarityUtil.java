@@ -10,16 +10,37 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.utils;
 
-import com.google.common.collect.Sets;
-
-import java.util.Set;
+import java.util.Arrays;
 
 /**
  * This utility class will be used to provide similarity implementations.
+ * <p>
+ * Bigrams are handled as ints packing their two (lower case) characters. The "signature" of a String is the
+ * sorted array of its distinct bigrams : clients that need to compare a String with many others can compute
+ * all signatures once through {@link #bigrams(String)}, then compare them through
+ * {@link #diceCoefficient(int[], int[])} or {@link #diceCoefficients(int[], int[][], double[])} without any
+ * further allocation.
+ * </p>
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
 public final class SimilarityUtil {
+	/** Shift applied to the first character of a bigram when packing it in an int. */
+	private static final int CHAR_SHIFT = 16;
+
+	/** Buffers in which {@link #diceCoefficient(String, String)} computes its bigrams. */
+	private static final ThreadLocal<int[][]> BUFFERS = new ThreadLocal<int[][]>() {
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.ThreadLocal#initialValue()
+		 */
+		@Override
+		protected int[][] initialValue() {
+			return new int[2][0];
+		}
+	};
+
 	/** This utility class does not need to be instantiated. */
 	private SimilarityUtil() {
 		// Hides default constructor
@@ -28,7 +49,8 @@ public final class SimilarityUtil {
 	/**
 	 * Computes the dice coefficient between the two given String's bigrams.
 	 * <p>
-	 * This implementation is case insensitive.
+	 * This implementation is case insensitive. Strings of one or two characters are compared character by
+	 * character instead.
 	 * </p>
 	 * 
 	 * @param first
@@ -38,46 +60,178 @@ public final class SimilarityUtil {
 	 * @return The dice coefficient of the two given String's bigrams, ranging from 0 to 1.
 	 */
 	public static double diceCoefficient(String first, String second) {
-		final char[] str1 = first.toLowerCase().toCharArray();
-		final char[] str2 = second.toLowerCase().toCharArray();
-
 		final double coefficient;
 
-		if (str1.equals(str2)) {
+		if (first.equalsIgnoreCase(second)) {
 			coefficient = 1d;
-		} else if (str1.length <= 2 || str2.length <= 2) {
-			int equalChars = 0;
-
-			for (int i = 0; i < Math.min(str1.length, str2.length); i++) {
-				if (str1[i] == str2[i]) {
-					equalChars++;
-				}
+		} else if (first.length() <= 2 || second.length() <= 2) {
+			coefficient = shortStringsCoefficient(first, second);
+		} else {
+			final int[][] buffers = BUFFERS.get();
+			if (buffers[0].length < first.length()) {
+				buffers[0] = new int[first.length()];
+			}
+			if (buffers[1].length < second.length()) {
+				buffers[1] = new int[second.length()];
 			}
+			final int firstCount = fillBigrams(first, buffers[0]);
+			final int secondCount = fillBigrams(second, buffers[1]);
+			coefficient = diceCoefficient(buffers[0], firstCount, buffers[1], secondCount);
+		}
+
+		return coefficient;
+	}
 
-			int union = str1.length + str2.length;
-			if (str1.length != str2.length) {
-				coefficient = (double)equalChars / union;
+	/**
+	 * Computes the signature of the given String, that is its distinct bigrams, case insensitive, packed in
+	 * ints and sorted.
+	 * 
+	 * @param value
+	 *            The String which signature we need.
+	 * @return The signature of <code>value</code>. Empty if it is shorter than two characters.
+	 */
+	public static int[] bigrams(String value) {
+		if (value.length() < 2) {
+			return new int[0];
+		}
+		final int[] buffer = new int[value.length() - 1];
+		final int count = fillBigrams(value, buffer);
+		if (count == buffer.length) {
+			return buffer;
+		}
+		final int[] bigrams = new int[count];
+		System.arraycopy(buffer, 0, bigrams, 0, count);
+		return bigrams;
+	}
+
+	/**
+	 * Computes the dice coefficient between the two given signatures, as computed by
+	 * {@link #bigrams(String)}.
+	 * <p>
+	 * Unlike {@link #diceCoefficient(String, String)}, this will not handle Strings of less than two
+	 * characters in any specific way : since they have no bigram, they will have a coefficient of 0 with
+	 * every other String.
+	 * </p>
+	 * 
+	 * @param first
+	 *            First of the two signatures to compare.
+	 * @param second
+	 *            Second of the two signatures to compare.
+	 * @return The dice coefficient of the two given signatures, ranging from 0 to 1.
+	 */
+	public static double diceCoefficient(int[] first, int[] second) {
+		return diceCoefficient(first, first.length, second, second.length);
+	}
+
+	/**
+	 * Computes the dice coefficients between the given reference signature and each of the given
+	 * signatures, as computed by {@link #bigrams(String)}.
+	 * 
+	 * @param reference
+	 *            The signature to compare with all others.
+	 * @param signatures
+	 *            The signatures to compare with <code>reference</code>.
+	 * @param coefficients
+	 *            Array in which the coefficients will be stored : <code>coefficients[i]</code> will be the
+	 *            dice coefficient of <code>reference</code> and <code>signatures[i]</code>. Must be at least
+	 *            as long as <code>signatures</code>.
+	 * @see #diceCoefficient(int[], int[])
+	 */
+	public static void diceCoefficients(int[] reference, int[][] signatures, double[] coefficients) {
+		for (int i = 0; i < signatures.length; i++) {
+			coefficients[i] = diceCoefficient(reference, reference.length, signatures[i],
+					signatures[i].length);
+		}
+	}
+
+	/**
+	 * Computes the dice coefficient of the two given sorted sets of bigrams.
+	 * 
+	 * @param first
+	 *            First of the two sets of bigrams to compare.
+	 * @param firstCount
+	 *            Number of bigrams in <code>first</code>.
+	 * @param second
+	 *            Second of the two sets of bigrams to compare.
+	 * @param secondCount
+	 *            Number of bigrams in <code>second</code>.
+	 * @return The dice coefficient of the two given sets of bigrams.
+	 */
+	private static double diceCoefficient(int[] first, int firstCount, int[] second, int secondCount) {
+		if (firstCount == 0 || secondCount == 0) {
+			return 0d;
+		}
+		int intersection = 0;
+		int i = 0;
+		int j = 0;
+		while (i < firstCount && j < secondCount) {
+			if (first[i] == second[j]) {
+				intersection++;
+				i++;
+				j++;
+			} else if (first[i] < second[j]) {
+				i++;
 			} else {
-				coefficient = ((double)equalChars * 2) / union;
+				j++;
 			}
-		} else {
-			Set<String> s1Bigrams = Sets.newHashSet();
-			Set<String> s2Bigrams = Sets.newHashSet();
+		}
+		return (2d * intersection) / (firstCount + secondCount);
+	}
 
-			for (int i = 0; i < str1.length - 1; i++) {
-				char[] chars = new char[] {str1[i], str1[i + 1], };
-				s1Bigrams.add(String.valueOf(chars));
-			}
-			for (int i = 0; i < str2.length - 1; i++) {
-				char[] chars = new char[] {str2[i], str2[i + 1], };
-				s2Bigrams.add(String.valueOf(chars));
+	/**
+	 * Fills the given buffer with the distinct bigrams of the given String, sorted.
+	 * 
+	 * @param value
+	 *            The String which bigrams we need. Must have at least two characters.
+	 * @param buffer
+	 *            The buffer to fill. Must have a length of at least <code>value.length() - 1</code>.
+	 * @return The number of distinct bigrams that have been put in <code>buffer</code>.
+	 */
+	private static int fillBigrams(String value, int[] buffer) {
+		final int length = value.length() - 1;
+		char previous = Character.toLowerCase(value.charAt(0));
+		for (int i = 0; i < length; i++) {
+			final char next = Character.toLowerCase(value.charAt(i + 1));
+			buffer[i] = previous << CHAR_SHIFT | next;
+			previous = next;
+		}
+		Arrays.sort(buffer, 0, length);
+		int distinct = 1;
+		for (int i = 1; i < length; i++) {
+			if (buffer[i] != buffer[distinct - 1]) {
+				buffer[distinct++] = buffer[i];
 			}
+		}
+		return distinct;
+	}
 
-			Set<String> intersection = Sets.newHashSet(s1Bigrams);
-			intersection.retainAll(s2Bigrams);
-			coefficient = (2 * intersection.size()) / (s1Bigrams.size() + s2Bigrams.size());
+	/**
+	 * Compares the characters of the given Strings one by one, at least one of them being shorter than three
+	 * characters.
+	 * 
+	 * @param first
+	 *            First of the two Strings to compare.
+	 * @param second
+	 *            Second of the two Strings to compare.
+	 * @return The similarity of these two Strings, ranging from 0 to 1.
+	 */
+	private static double shortStringsCoefficient(String first, String second) {
+		int equalChars = 0;
+		for (int i = 0; i < Math.min(first.length(), second.length()); i++) {
+			if (Character.toLowerCase(first.charAt(i)) == Character.toLowerCase(second.charAt(i))) {
+				equalChars++;
+			}
 		}
 
+		final int union = first.length() + second.length();
+		final double coefficient;
+		if (union == 0) {
+			coefficient = 0d;
+		} else if (first.length() != second.length()) {
+			coefficient = (double)equalChars / union;
+		} else {
+			coefficient = ((double)equalChars * 2) / union;
+		}
 		return coefficient;
 	}
 }
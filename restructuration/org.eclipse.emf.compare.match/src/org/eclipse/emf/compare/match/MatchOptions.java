@@ -55,6 +55,30 @@ package org.eclipse.emf.compare.match;
  * {@link org.eclipse.emf.compare.match.engine.IMatchEngine} to restrict the scope of objects/resources to be
  * compared.</td>
  * </tr>
+ * <tr>
+ * <td>{@link #OPTION_INDEXED_SEARCH}</td>
+ * <td>Specifies whether the match procedure should look for similar objects among siblings indexed by
+ * EClass and name instead of within the search window. The search window is then ignored.</td>
+ * <td>Boolean, defaults to <code>false</code></td>
+ * </tr>
+ * <tr>
+ * <td>{@link #OPTION_CANDIDATE_COUNT}</td>
+ * <td>Specifies the number of siblings, selected by name similarity, that the indexed search will compute
+ * the full similarity of. Only these full similarity computations are bounded : when no sibling of the same
+ * EClass has the exact name of an EObject, selecting its candidates compares its name with every distinct
+ * name of the unmatched siblings of that EClass.</td>
+ * <td>Positive integer, defaults to <code>10</code>.</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #OPTION_SCORING_THREADS}</td>
+ * <td>Specifies the number of threads among which the similarity of large candidate lists will be computed.
+ * The models must not be modified during the match, and their proxies should be resolved beforehand. The
+ * similarity checker is called from all of these threads : a checker returned by an overridden
+ * {@link org.eclipse.emf.compare.match.engine.GenericMatchEngine#prepareChecker()} must be thread-safe. EMF
+ * lazily initializes some of its lists and the <code>eAll*</code> features of EClasses, which is not
+ * thread-safe either : the metamodels and models should be fully initialized beforehand.</td>
+ * <td>Positive integer, defaults to <code>1</code> (sequential).</td>
+ * </tr>
  * </table>
  * </p>
  * 
@@ -73,6 +97,27 @@ public interface MatchOptions {
 	/** Default value for the search window. */
 	int DEFAULT_SEARCH_WINDOW = 100;
 
+	/**
+	 * Default value for the "indexed search" option.
+	 * 
+	 * @since 1.3
+	 */
+	boolean DEFAULT_INDEXED_SEARCH = false;
+
+	/**
+	 * Default value for the number of candidates considered by the indexed search.
+	 * 
+	 * @since 1.3
+	 */
+	int DEFAULT_CANDIDATE_COUNT = 10;
+
+	/**
+	 * Default value for the number of threads computing the similarity of candidates.
+	 * 
+	 * @since 1.3
+	 */
+	int DEFAULT_SCORING_THREADS = 1;
+
 	/** Key for the option specifying whether the compared models are of distinct meta-models. */
 	String OPTION_DISTINCT_METAMODELS = "match.distinct.metamodels"; //$NON-NLS-1$
 
@@ -95,4 +140,33 @@ public interface MatchOptions {
 	 * @since 1.1
 	 */
 	String OPTION_MATCH_SCOPE_PROVIDER = "match.scope.provider"; //$NON-NLS-1$
+
+	/**
+	 * Key for the option specifying whether similar siblings should be looked up through an index rather than
+	 * within the search window.
+	 * 
+	 * @since 1.3
+	 */
+	String OPTION_INDEXED_SEARCH = "match.indexed.search"; //$NON-NLS-1$
+
+	/**
+	 * Key for the option defining the number of candidates considered by the indexed search. This bounds the
+	 * number of full similarity computations for each EObject, not the number of name comparisons needed to
+	 * select these candidates, which is linear in the number of distinct names of its EClass when it has no
+	 * namesake.
+	 * 
+	 * @since 1.3
+	 */
+	String OPTION_CANDIDATE_COUNT = "match.candidate.count"; //$NON-NLS-1$
+
+	/**
+	 * Key for the option defining the number of threads computing the similarity of candidates. The
+	 * similarity checker is then shared by these threads : custom
+	 * {@link org.eclipse.emf.compare.match.engine.AbstractSimilarityChecker checkers} must be thread-safe,
+	 * and neither EMF's lazily initialized lists nor the <code>eAll*</code> caches of EClasses are. This
+	 * should only be used on fully loaded and initialized models.
+	 * 
+	 * @since 1.3
+	 */
+	String OPTION_SCORING_THREADS = "match.scoring.threads"; //$NON-NLS-1$
 }
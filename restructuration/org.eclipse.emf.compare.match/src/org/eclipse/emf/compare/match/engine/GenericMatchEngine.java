@@ -17,6 +17,13 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.emf.common.EMFPlugin;
 import org.eclipse.emf.common.notify.Notifier;
@@ -26,12 +33,14 @@ import org.eclipse.emf.common.util.Monitor;
 import org.eclipse.emf.compare.EMFComparePlugin;
 import org.eclipse.emf.compare.FactoryException;
 import org.eclipse.emf.compare.match.EMFCompareMatchMessages;
+import org.eclipse.emf.compare.match.engine.internal.CandidateIndex;
 import org.eclipse.emf.compare.match.engine.internal.DistinctEcoreSimilarityChecker;
 import org.eclipse.emf.compare.match.engine.internal.EcoreIDSimilarityChecker;
 import org.eclipse.emf.compare.match.engine.internal.GenericMatchEngineToCheckerBridge;
 import org.eclipse.emf.compare.match.engine.internal.StatisticBasedSimilarityChecker;
 import org.eclipse.emf.compare.match.engine.internal.XMIIDSimilarityChecker;
 import org.eclipse.emf.compare.match.internal.statistic.NameSimilarity;
+import org.eclipse.emf.compare.match.internal.statistic.SignatureCache;
 import org.eclipse.emf.compare.match.metamodel.Match2Elements;
 import org.eclipse.emf.compare.match.metamodel.Match3Elements;
 import org.eclipse.emf.compare.match.metamodel.MatchElement;
@@ -66,6 +75,18 @@ public class GenericMatchEngine implements IMatchEngine {
 	/** Containment reference for the {@link MatchModel}'s unmatched elements. */
 	private static final String UNMATCH_ELEMENT_NAME = "unmatchedElements"; //$NON-NLS-1$
 
+	/** Minimum number of candidates for their similarity to be computed concurrently. */
+	private static final int MIN_CONCURRENT_CANDIDATES = 64;
+
+	/** Minimum number of candidates scored by each concurrent task. */
+	private static final int MIN_TASK_CANDIDATES = 16;
+
+	/** Number of tasks among which the candidates are split for each scoring thread. */
+	private static final int TASKS_PER_THREAD = 4;
+
+	/** Number of seconds after which idle scoring threads terminate. */
+	private static final long SCORING_KEEP_ALIVE = 5L;
+
 	/**
 	 * {@link MetamodelFilter} used for filtering unused features of the objects we're computing the
 	 * similarity for.
@@ -112,6 +133,21 @@ public class GenericMatchEngine implements IMatchEngine {
 	 */
 	private AbstractSimilarityChecker checker;
 
+	/**
+	 * Names and content values of the EObjects compared by {@link #nameSimilarity(EObject, EObject)} and
+	 * {@link #contentSimilarity(EObject, EObject)}. This is renewed along with the checker for each
+	 * comparison and on {@link #reset()}. It is never <code>null</code> so that the concurrent scoring tasks
+	 * never need to create it.
+	 */
+	private SignatureCache signatures = new SignatureCache(null);
+
+	/**
+	 * Executes the scoring tasks when
+	 * {@link org.eclipse.emf.compare.match.MatchOptions#OPTION_SCORING_THREADS concurrent scoring} is
+	 * enabled. Its threads terminate when idle, and it is shut down on {@link #reset()}.
+	 */
+	private ThreadPoolExecutor scoringExecutor;
+
 	/**
 	 * This list is used while matching elements to keep track of matched reference targets, being outside the
 	 * provided match scope.
@@ -264,6 +300,7 @@ public class GenericMatchEngine implements IMatchEngine {
 	 * @since 1.1
 	 */
 	protected AbstractSimilarityChecker prepareChecker() {
+		signatures = new SignatureCache(null);
 		AbstractSimilarityChecker checker = null;
 		GenericMatchEngineToCheckerBridge bridge = new GenericMatchEngineToCheckerBridge() {
 
@@ -552,6 +589,11 @@ public class GenericMatchEngine implements IMatchEngine {
 		filter.clear();
 		filter = new MetamodelFilter();
 		checker = null;
+		signatures = new SignatureCache(null);
+		if (scoringExecutor != null) {
+			scoringExecutor.shutdown();
+			scoringExecutor = null;
+		}
 
 		remainingUnmatchedElements.clear();
 		stillToFindFromModel1.clear();
@@ -650,7 +692,9 @@ public class GenericMatchEngine implements IMatchEngine {
 
 	/**
 	 * This will iterate through the given {@link List} and return its element which is most similar (as given
-	 * by {@link #absoluteMetric(EObject, EObject)}) to the given {@link EObject}.
+	 * by {@link #absoluteMetric(EObject, EObject)}) to the given {@link EObject}. Large lists are scored
+	 * concurrently if {@link org.eclipse.emf.compare.match.MatchOptions#OPTION_SCORING_THREADS more than one
+	 * scoring thread} is set.
 	 * 
 	 * @param eObj
 	 *            {@link EObject} we're searching a similar item for in the list.
@@ -662,23 +706,115 @@ public class GenericMatchEngine implements IMatchEngine {
 	 *             between <code>eObj</code> and one of the list's objects.
 	 */
 	protected EObject findMostSimilar(EObject eObj, List<EObject> list) throws FactoryException {
+		final int threads = structuredOptions.getScoringThreads();
+		if (threads > 1 && list.size() >= MIN_CONCURRENT_CANDIDATES) {
+			return findMostSimilarConcurrently(eObj, list, threads);
+		}
+		return new CandidateScorer(eObj, list).score().resultObject;
+	}
+
+	/**
+	 * This will split the given {@link List} among concurrent scoring tasks, and return its element which is
+	 * most similar to the given {@link EObject}. The tasks' results are merged in the order of the list, so
+	 * that the returned element is the one {@link #findMostSimilar(EObject, List)} would find sequentially :
+	 * the first one with the highest similarity.
+	 * 
+	 * @param eObj
+	 *            {@link EObject} we're searching a similar item for in the list.
+	 * @param list
+	 *            {@link List} in which we are to find an object similar to <code>eObj</code>.
+	 * @param threads
+	 *            Number of threads computing the similarities.
+	 * @return The element from <code>list</code> which is the most similar to <code>eObj</code>.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute the absolute metric between <code>eObj</code> and one of the
+	 *             list's objects that would have been scored sequentially, or if we're interrupted.
+	 */
+	private EObject findMostSimilarConcurrently(EObject eObj, List<EObject> list, int threads)
+			throws FactoryException {
+		final ThreadPoolExecutor executor = getScoringExecutor(threads);
+		final int taskCount = threads * TASKS_PER_THREAD;
+		final int taskSize = Math.max(MIN_TASK_CANDIDATES, (list.size() + taskCount - 1) / taskCount);
+		final List<Future<CandidateScorer>> tasks = new ArrayList<Future<CandidateScorer>>();
+		for (int start = 0; start < list.size(); start += taskSize) {
+			final int end = Math.min(start + taskSize, list.size());
+			tasks.add(executor.submit(new CandidateScorer(eObj, list.subList(start, end))));
+		}
+
 		double max = 0d;
 		EObject resultObject = null;
-		final Iterator<EObject> it = list.iterator();
-		while (it.hasNext() && max < 1.0d) {
-			final EObject next = it.next();
-			if (structuredOptions.shouldMatchDistinctMetamodels()
-					|| eClassMatch(eObj.eClass(), next.eClass())) {
-				final double similarity = checker.absoluteMetric(eObj, next);
-				if (similarity > max) {
-					max = similarity;
-					resultObject = next;
+		try {
+			for (Future<CandidateScorer> task : tasks) {
+				if (max >= 1.0d) {
+					// The sequential scoring would have stopped here
+					task.cancel(false);
+				} else {
+					final CandidateScorer scorer = task.get();
+					if (scorer.max > max) {
+						max = scorer.max;
+						resultObject = scorer.resultObject;
+					}
 				}
 			}
+		} catch (InterruptedException e) {
+			cancel(tasks);
+			Thread.currentThread().interrupt();
+			throw new FactoryException(e);
+		} catch (ExecutionException e) {
+			cancel(tasks);
+			final Throwable cause = e.getCause();
+			if (cause instanceof FactoryException) {
+				throw (FactoryException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new FactoryException(cause);
 		}
 		return resultObject;
 	}
 
+	/**
+	 * Cancels the given scoring tasks, letting those that already run complete.
+	 * 
+	 * @param tasks
+	 *            The tasks to cancel.
+	 */
+	private static void cancel(List<Future<CandidateScorer>> tasks) {
+		for (Future<CandidateScorer> task : tasks) {
+			task.cancel(false);
+		}
+	}
+
+	/**
+	 * Returns the executor of the scoring tasks, creating it if needed. The calling thread will run the tasks
+	 * itself whenever all scoring threads are busy.
+	 * 
+	 * @param threads
+	 *            Number of threads computing the similarities.
+	 * @return The executor of the scoring tasks.
+	 */
+	private ThreadPoolExecutor getScoringExecutor(int threads) {
+		if (scoringExecutor != null && scoringExecutor.getMaximumPoolSize() != threads) {
+			scoringExecutor.shutdown();
+			scoringExecutor = null;
+		}
+		if (scoringExecutor == null) {
+			final ThreadFactory threadFactory = new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					final Thread thread = new Thread(runnable, "EMF Compare match scoring"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			};
+			scoringExecutor = new ThreadPoolExecutor(0, threads, SCORING_KEEP_ALIVE, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), threadFactory,
+					new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return scoringExecutor;
+	}
+
 	/**
 	 * This will check whether the two given EClasses are the same. This has been created in order to avoid
 	 * EcoreUtil.equals (perfs).
@@ -1251,8 +1387,7 @@ public class GenericMatchEngine implements IMatchEngine {
 		double similarity = 0d;
 		try {
 
-			similarity = NameSimilarity.nameSimilarityMetric(NameSimilarity.findName(obj1),
-					NameSimilarity.findName(obj2));
+			similarity = getSignatures().nameSimilarity(obj1, obj2);
 		} catch (final FactoryException e) {
 			// fails silently, will return a similarity of 0d
 		}
@@ -1275,11 +1410,19 @@ public class GenericMatchEngine implements IMatchEngine {
 	@Deprecated
 	protected double contentSimilarity(EObject obj1, EObject obj2) throws FactoryException {
 		double similarity = 0d;
-		similarity = NameSimilarity.nameSimilarityMetric(NameSimilarity.contentValue(obj1),
-				NameSimilarity.contentValue(obj2));
+		similarity = getSignatures().contentSimilarity(obj1, obj2);
 		return similarity;
 	}
 
+	/**
+	 * Returns the signatures of the EObjects compared by this engine.
+	 * 
+	 * @return The signatures of the EObjects compared by this engine.
+	 */
+	private SignatureCache getSignatures() {
+		return signatures;
+	}
+
 	/**
 	 * Returns a list containing mappings of the nodes of both given {@link List}s.
 	 * 
@@ -1300,6 +1443,9 @@ public class GenericMatchEngine implements IMatchEngine {
 	 */
 	private List<Match2Elements> mapLists(List<EObject> list1, List<EObject> list2, int window,
 			Monitor monitor) throws FactoryException, InterruptedException {
+		if (structuredOptions.isUsingIndexedSearch()) {
+			return mapIndexedLists(list1, list2, monitor);
+		}
 		final List<Match2Elements> result = new ArrayList<Match2Elements>();
 		int curIndex = 0 - window / 2;
 		final List<EObject> notFoundList1 = new ArrayList<EObject>(list1);
@@ -1353,6 +1499,72 @@ public class GenericMatchEngine implements IMatchEngine {
 		return result;
 	}
 
+	/**
+	 * Returns a list containing mappings of the nodes of both given {@link List}s. Instead of browsing a
+	 * window of siblings, this will look for the most similar element among the
+	 * {@link CandidateIndex#getCandidates(EObject) candidates} an index of the unmatched siblings provides,
+	 * thus only computing the absolute metric of a bounded number of pairs for each element.
+	 * 
+	 * @param list1
+	 *            First of the lists from which we need to map the elements
+	 * @param list2
+	 *            Second list to map the elements from.
+	 * @param monitor
+	 *            {@link CompareProgressMonitor Progress monitor} to display while the comparison lasts.
+	 * @return A {@link List} containing mappings of the nodes of both given {@link List}s.
+	 * @throws FactoryException
+	 *             Thrown if the metrics cannot be computed.
+	 * @throws InterruptedException
+	 *             Thrown if the matching process is interrupted somehow.
+	 */
+	private List<Match2Elements> mapIndexedLists(List<EObject> list1, List<EObject> list2, Monitor monitor)
+			throws FactoryException, InterruptedException {
+		final List<Match2Elements> result = new ArrayList<Match2Elements>();
+		final boolean distinctMetamodels = structuredOptions.shouldMatchDistinctMetamodels();
+		final int candidateCount = structuredOptions.getCandidateCount();
+		final CandidateIndex notFound1 = new CandidateIndex(list1, distinctMetamodels, candidateCount);
+		final CandidateIndex notFound2 = new CandidateIndex(list2, distinctMetamodels, candidateCount);
+
+		final Iterator<EObject> it1 = list1.iterator();
+		while (it1.hasNext() && !notFound2.isEmpty()) {
+			final EObject obj1 = it1.next();
+			EObject obj2 = checker.fastLookup(obj1);
+
+			if (obj2 == null) {
+				obj2 = findMostSimilar(obj1, notFound2.getCandidates(obj1));
+				if (obj2 != null) {
+					// checks if the most similar to obj2 is obj1
+					final EObject obj1Check = findMostSimilar(obj2, notFound1.getCandidates(obj2));
+					if (obj1Check != obj1 && obj1Check != null && isSimilar(obj1Check, obj2)) {
+						continue;
+					}
+				}
+			}
+
+			if (obj2 != null && notFound1.contains(obj1) && notFound2.contains(obj2)
+					&& isSimilar(obj1, obj2)) {
+				final Match2Elements mapping = MatchFactory.eINSTANCE.createMatch2Elements();
+				final double metric = checker.absoluteMetric(obj1, obj2);
+
+				mapping.setLeftElement(obj1);
+				mapping.setRightElement(obj2);
+				mapping.setSimilarity(metric);
+				result.add(mapping);
+				notFound1.remove(obj1);
+				notFound2.remove(obj2);
+			}
+			monitor.worked(1);
+			if (monitor.isCanceled()) {
+				throw new InterruptedException();
+			}
+		}
+
+		// now putting the not found elements aside for later
+		stillToFindFromModel1.addAll(notFound1.getRemaining());
+		stillToFindFromModel2.addAll(notFound2.getRemaining());
+		return result;
+	}
+
 	/**
 	 * Allows for a more accurate modifications detection for three way comparison with multiple roots models.
 	 * 
@@ -1872,4 +2084,70 @@ public class GenericMatchEngine implements IMatchEngine {
 		}
 		return result;
 	}
+
+	/**
+	 * This will look for the element of a list of candidates which is most similar to a given
+	 * {@link EObject}. Scorers of distinct parts of a list can be run concurrently.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private final class CandidateScorer implements Callable<CandidateScorer> {
+		/** {@link EObject} we're searching a similar item for. */
+		private final EObject eObj;
+
+		/** Candidates among which to search. */
+		private final List<EObject> candidates;
+
+		/** Highest similarity found so far. */
+		private double max;
+
+		/** First candidate with the highest similarity found so far. */
+		private EObject resultObject;
+
+		/**
+		 * Creates a scorer.
+		 * 
+		 * @param eObj
+		 *            {@link EObject} we're searching a similar item for.
+		 * @param candidates
+		 *            Candidates among which to search.
+		 */
+		CandidateScorer(EObject eObj, List<EObject> candidates) {
+			this.eObj = eObj;
+			this.candidates = candidates;
+		}
+
+		/**
+		 * Iterates through the candidates until one of them is found to be identical to {@link #eObj}.
+		 * 
+		 * @return This scorer, holding its result.
+		 * @throws FactoryException
+		 *             Thrown if we cannot compute the absolute metric between {@link #eObj} and one of the
+		 *             candidates.
+		 */
+		CandidateScorer score() throws FactoryException {
+			final Iterator<EObject> it = candidates.iterator();
+			while (it.hasNext() && max < 1.0d) {
+				final EObject next = it.next();
+				if (structuredOptions.shouldMatchDistinctMetamodels()
+						|| eClassMatch(eObj.eClass(), next.eClass())) {
+					final double similarity = checker.absoluteMetric(eObj, next);
+					if (similarity > max) {
+						max = similarity;
+						resultObject = next;
+					}
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public CandidateScorer call() throws FactoryException {
+			return score();
+		}
+	}
 }
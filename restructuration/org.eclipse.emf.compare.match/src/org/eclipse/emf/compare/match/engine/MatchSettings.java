@@ -45,6 +45,21 @@ public class MatchSettings {
 	 */
 	private boolean distingMetamodels = MatchOptions.DEFAULT_DISTINCT_METAMODEL;
 
+	/**
+	 * true if similar siblings should be looked up through an index.
+	 */
+	private boolean indexedSearch = MatchOptions.DEFAULT_INDEXED_SEARCH;
+
+	/**
+	 * The number of candidates considered by the indexed search.
+	 */
+	private int candidateCount = MatchOptions.DEFAULT_CANDIDATE_COUNT;
+
+	/**
+	 * The number of threads computing the similarity of candidates.
+	 */
+	private int scoringThreads = MatchOptions.DEFAULT_SCORING_THREADS;
+
 	/**
 	 * progress monitor to use during the match process.
 	 */
@@ -76,6 +91,12 @@ public class MatchSettings {
 			this.progressMonitor = this.<Object> getOption(options, MatchOptions.OPTION_PROGRESS_MONITOR);
 		if (isSet(options, MatchOptions.OPTION_SEARCH_WINDOW))
 			this.searchWindow = this.<Integer> getOption(options, MatchOptions.OPTION_SEARCH_WINDOW);
+		if (isSet(options, MatchOptions.OPTION_INDEXED_SEARCH))
+			this.indexedSearch = this.<Boolean> getOption(options, MatchOptions.OPTION_INDEXED_SEARCH);
+		if (isSet(options, MatchOptions.OPTION_CANDIDATE_COUNT))
+			this.candidateCount = this.<Integer> getOption(options, MatchOptions.OPTION_CANDIDATE_COUNT);
+		if (isSet(options, MatchOptions.OPTION_SCORING_THREADS))
+			this.scoringThreads = this.<Integer> getOption(options, MatchOptions.OPTION_SCORING_THREADS);
 	}
 
 	/**
@@ -88,6 +109,39 @@ public class MatchSettings {
 		this.searchWindow = windowSize;
 	}
 
+	/**
+	 * Activate or deactivate the lookup of similar siblings through an index instead of the search window.
+	 * 
+	 * @param indexed
+	 *            true to use the indexed search, false to use the search window.
+	 * @since 1.3
+	 */
+	public void useIndexedSearch(boolean indexed) {
+		this.indexedSearch = indexed;
+	}
+
+	/**
+	 * Set the number of candidates considered by the indexed search.
+	 * 
+	 * @param count
+	 *            the number of candidates which full similarity will be computed.
+	 * @since 1.3
+	 */
+	public void setCandidateCount(int count) {
+		this.candidateCount = count;
+	}
+
+	/**
+	 * Set the number of threads computing the similarity of candidates.
+	 * 
+	 * @param threads
+	 *            the number of threads, 1 to compute the similarities sequentially.
+	 * @since 1.3
+	 */
+	public void setScoringThreads(int threads) {
+		this.scoringThreads = threads;
+	}
+
 	/**
 	 * Activate or deactivate the fact that the match engine should ignore XMI ID's.
 	 * 
@@ -139,6 +193,36 @@ public class MatchSettings {
 		return this.searchWindow;
 	}
 
+	/**
+	 * return true if similar siblings should be looked up through an index.
+	 * 
+	 * @return true if similar siblings should be looked up through an index.
+	 * @since 1.3
+	 */
+	public final boolean isUsingIndexedSearch() {
+		return this.indexedSearch;
+	}
+
+	/**
+	 * return the number of candidates considered by the indexed search.
+	 * 
+	 * @return the number of candidates considered by the indexed search.
+	 * @since 1.3
+	 */
+	public final int getCandidateCount() {
+		return this.candidateCount;
+	}
+
+	/**
+	 * return the number of threads computing the similarity of candidates.
+	 * 
+	 * @return the number of threads computing the similarity of candidates.
+	 * @since 1.3
+	 */
+	public final int getScoringThreads() {
+		return this.scoringThreads;
+	}
+
 	/**
 	 * return true if the match should ignore XMI Id's.
 	 * 
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.match.engine.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.compare.FactoryException;
+import org.eclipse.emf.compare.match.internal.statistic.NameSimilarity;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+
+/**
+ * This will be used by the generic match engine to look up the siblings that could match a given EObject
+ * without browsing all of them. The indexed EObjects are bucketed by EClass, then by name, in pools that
+ * retain the iteration order of the indexed list and allow constant-time lookups and removals.
+ * <p>
+ * The candidates returned for a given EObject are its namesakes of the same EClass if any. Otherwise, they
+ * are the EObjects of its EClass which names are the most similar to its own, or the first remaining ones
+ * of its EClass if it has no name. There are never more candidates than the configured count, so that the
+ * engine only computes the costly absolute metric a bounded number of times for each EObject. Looking up
+ * namesakes takes constant time, but looking up similar names compares the name of the EObject with every
+ * distinct name of its pool : this is not bounded by the candidate count.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public final class CandidateIndex {
+	/** All EObjects that have yet to be matched, in their original order. */
+	private final Set<EObject> remaining = new LinkedHashSet<EObject>();
+
+	/** The EObjects that have yet to be matched by EClass key, then by name. */
+	private final Map<Object, EClassPool> pools = new HashMap<Object, EClassPool>();
+
+	/** Names of the EObjects we've seen so far. */
+	private final Map<EObject, String> names = new HashMap<EObject, String>();
+
+	/** <code>true</code> if EObjects of distinct EClasses can be matched together. */
+	private final boolean distinctMetamodels;
+
+	/** Maximum number of candidates returned for a single EObject. */
+	private final int candidateCount;
+
+	/**
+	 * Indexes the given EObjects.
+	 * 
+	 * @param eObjects
+	 *            The EObjects that are to be indexed.
+	 * @param distinctMetamodels
+	 *            <code>true</code> if EObjects of distinct EClasses can be matched together, in which case
+	 *            they'll all be put in the same pool.
+	 * @param candidateCount
+	 *            Maximum number of candidates returned for a single EObject.
+	 */
+	public CandidateIndex(Collection<EObject> eObjects, boolean distinctMetamodels, int candidateCount) {
+		this.distinctMetamodels = distinctMetamodels;
+		this.candidateCount = Math.max(candidateCount, 1);
+		for (EObject eObject : eObjects) {
+			if (remaining.add(eObject)) {
+				getPool(eObject, true).add(eObject, getName(eObject));
+			}
+		}
+	}
+
+	/**
+	 * Tells whether all indexed EObjects have been removed from this index.
+	 * 
+	 * @return <code>true</code> if there are no more candidates in this index.
+	 */
+	public boolean isEmpty() {
+		return remaining.isEmpty();
+	}
+
+	/**
+	 * Tells whether the given EObject is still in this index.
+	 * 
+	 * @param eObject
+	 *            The EObject to look up.
+	 * @return <code>true</code> if <code>eObject</code> has been indexed and not removed yet.
+	 */
+	public boolean contains(EObject eObject) {
+		return remaining.contains(eObject);
+	}
+
+	/**
+	 * Removes the given EObject from this index, it will no longer be returned as a candidate.
+	 * 
+	 * @param eObject
+	 *            The EObject that has been matched.
+	 */
+	public void remove(EObject eObject) {
+		if (remaining.remove(eObject)) {
+			getPool(eObject, false).remove(eObject, getName(eObject));
+		}
+	}
+
+	/**
+	 * Returns the EObjects that have yet to be matched, in their original order.
+	 * 
+	 * @return The EObjects that are still in this index.
+	 */
+	public List<EObject> getRemaining() {
+		return new ArrayList<EObject>(remaining);
+	}
+
+	/**
+	 * Returns the indexed EObjects that could match the given EObject.
+	 * 
+	 * @param eObject
+	 *            The EObject for which we seek candidates. It does not need to be part of this index.
+	 * @return The candidates for a match with <code>eObject</code>, best candidates first.
+	 */
+	public List<EObject> getCandidates(EObject eObject) {
+		final EClassPool pool = getPool(eObject, false);
+		if (pool == null) {
+			return new ArrayList<EObject>();
+		}
+		return pool.getCandidates(getName(eObject), candidateCount);
+	}
+
+	/**
+	 * Returns the pool holding the EObjects of the same EClass as the given one.
+	 * 
+	 * @param eObject
+	 *            The EObject which pool we need.
+	 * @param create
+	 *            <code>true</code> if the pool should be created if it does not exist yet.
+	 * @return The pool of <code>eObject</code>'s EClass, <code>null</code> if none and <code>create</code>
+	 *         is <code>false</code>.
+	 */
+	private EClassPool getPool(EObject eObject, boolean create) {
+		final Object key = getEClassKey(eObject.eClass());
+		EClassPool pool = pools.get(key);
+		if (pool == null && create) {
+			pool = new EClassPool();
+			pools.put(key, pool);
+		}
+		return pool;
+	}
+
+	/**
+	 * Returns the key under which the instances of the given EClass are pooled. EClasses of distinct
+	 * EPackages sharing the same namespace URI are considered to be the same.
+	 * 
+	 * @param eClass
+	 *            The EClass which key we need.
+	 * @return The key of <code>eClass</code>.
+	 */
+	private Object getEClassKey(EClass eClass) {
+		Object key = null;
+		if (!distinctMetamodels) {
+			final EPackage ePackage = eClass.getEPackage();
+			if (ePackage != null && ePackage.getNsURI() != null) {
+				key = ePackage.getNsURI() + '#' + eClass.getClassifierID();
+			} else {
+				key = eClass;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the name of the given EObject, caching it as we go.
+	 * 
+	 * @param eObject
+	 *            The EObject which name we need.
+	 * @return The name of <code>eObject</code>, <code>null</code> if it has none.
+	 */
+	private String getName(EObject eObject) {
+		String name = names.get(eObject);
+		if (name == null && !names.containsKey(eObject)) {
+			try {
+				name = NameSimilarity.findName(eObject);
+			} catch (FactoryException e) {
+				// No name, we'll look at the siblings in their original order
+			}
+			if (name != null && name.length() == 0) {
+				name = null;
+			}
+			names.put(eObject, name);
+		}
+		return name;
+	}
+
+	/**
+	 * The EObjects of a single EClass that have yet to be matched.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class EClassPool {
+		/** All EObjects of this pool in their original order. */
+		private final Set<EObject> all = new LinkedHashSet<EObject>();
+
+		/** The named EObjects of this pool by name. */
+		private final Map<String, Set<EObject>> byName = new LinkedHashMap<String, Set<EObject>>();
+
+		/**
+		 * Adds an EObject to this pool.
+		 * 
+		 * @param eObject
+		 *            The EObject to add.
+		 * @param name
+		 *            Its name, <code>null</code> if it has none.
+		 */
+		void add(EObject eObject, String name) {
+			all.add(eObject);
+			if (name != null) {
+				Set<EObject> namesakes = byName.get(name);
+				if (namesakes == null) {
+					namesakes = new LinkedHashSet<EObject>();
+					byName.put(name, namesakes);
+				}
+				namesakes.add(eObject);
+			}
+		}
+
+		/**
+		 * Removes an EObject from this pool.
+		 * 
+		 * @param eObject
+		 *            The EObject to remove.
+		 * @param name
+		 *            Its name, <code>null</code> if it has none.
+		 */
+		void remove(EObject eObject, String name) {
+			all.remove(eObject);
+			if (name != null) {
+				final Set<EObject> namesakes = byName.get(name);
+				namesakes.remove(eObject);
+				if (namesakes.isEmpty()) {
+					byName.remove(name);
+				}
+			}
+		}
+
+		/**
+		 * Returns the EObjects of this pool that could match an EObject of the given name.
+		 * 
+		 * @param name
+		 *            Name of the EObject for which we seek candidates, <code>null</code> if it has none.
+		 * @param count
+		 *            Maximum number of candidates to return.
+		 * @return The candidates, best candidates first.
+		 */
+		List<EObject> getCandidates(String name, int count) {
+			final List<EObject> candidates = new ArrayList<EObject>(count);
+			Set<EObject> namesakes = null;
+			if (name != null) {
+				namesakes = byName.get(name);
+			}
+			if (namesakes != null) {
+				final Iterator<EObject> iterator = namesakes.iterator();
+				while (iterator.hasNext() && candidates.size() < count) {
+					candidates.add(iterator.next());
+				}
+			} else if (name == null || byName.isEmpty()) {
+				final Iterator<EObject> iterator = all.iterator();
+				while (iterator.hasNext() && candidates.size() < count) {
+					candidates.add(iterator.next());
+				}
+			} else {
+				candidates.addAll(getMostSimilarNames(name, count));
+			}
+			return candidates;
+		}
+
+		/**
+		 * Returns the named EObjects of this pool which names are the most similar to the given one. This
+		 * computes the similarity of <code>name</code> with each distinct name of this pool.
+		 * 
+		 * @param name
+		 *            The name we seek similar names for.
+		 * @param count
+		 *            Maximum number of EObjects to return.
+		 * @return The named EObjects of this pool by decreasing name similarity.
+		 */
+		private List<EObject> getMostSimilarNames(String name, int count) {
+			final List<EObject> best = new ArrayList<EObject>(count);
+			final List<Double> bestSimilarities = new ArrayList<Double>(count);
+			for (Map.Entry<String, Set<EObject>> entry : byName.entrySet()) {
+				final double similarity = NameSimilarity.nameSimilarityMetric(name, entry.getKey());
+				for (EObject namesake : entry.getValue()) {
+					int index = best.size();
+					while (index > 0 && bestSimilarities.get(index - 1).doubleValue() < similarity) {
+						index--;
+					}
+					if (index < count) {
+						best.add(index, namesake);
+						bestSimilarities.add(index, Double.valueOf(similarity));
+						if (best.size() > count) {
+							best.remove(count);
+							bestSimilarities.remove(count);
+						}
+					}
+				}
+			}
+			return best;
+		}
+	}
+}
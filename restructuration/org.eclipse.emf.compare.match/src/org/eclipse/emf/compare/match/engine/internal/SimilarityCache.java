@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.match.engine.internal;
+
+/**
+ * This will be used by the similarity checkers to cache the metrics computed between pairs of EObjects. It
+ * maps primitive <code>long</code> keys to primitive <code>double</code> values in two parallel arrays with
+ * open addressing, so that neither lookups nor insertions allocate anything.
+ * <p>
+ * The table grows until it reaches its maximum capacity. Past that point, or whenever no free slot can be
+ * found within a bounded number of probes, the new entry evicts the one stored at its home slot : the memory
+ * used by this cache is bounded, and evicted metrics will simply be computed anew if they're needed again.
+ * Hits, misses and evictions are counted so that the capacity can be tuned.
+ * </p>
+ * <p>
+ * The key <code>0</code> is reserved to mark free slots and cannot be stored. This cache is thread-safe so
+ * that the similarities of candidates can be computed concurrently.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ * @since 1.3
+ */
+public final class SimilarityCache {
+	/** Default initial capacity of the caches. */
+	public static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+	/** Default maximum capacity of the caches : 12 bytes per entry, that is 6MB at most for each cache. */
+	public static final int DEFAULT_MAXIMUM_CAPACITY = 1 << 19;
+
+	/** Key used to mark free slots. */
+	private static final long FREE = 0L;
+
+	/** Maximum number of slots we'll probe when looking up a key. */
+	private static final int MAX_PROBES = 8;
+
+	/** Golden ratio multiplier used to spread the keys over the table. */
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/** Number of bits in a <code>long</code>. */
+	private static final int LONG_BITS = 64;
+
+	/** Keys of the cached entries, {@link #FREE} for free slots. */
+	private long[] keys;
+
+	/** Values of the cached entries, at the same index as their key. */
+	private double[] values;
+
+	/** Bit mask for the indices of {@link #keys}. */
+	private int mask;
+
+	/** Right shift giving a table index out of a mixed key. */
+	private int shift;
+
+	/** Number of entries after which the table will grow. */
+	private int threshold;
+
+	/** Maximum number of slots of the table. */
+	private final int maximumCapacity;
+
+	/** Number of entries currently in this cache. */
+	private int size;
+
+	/** Number of lookups that found their key. */
+	private long hitCount;
+
+	/** Number of lookups that did not find their key. */
+	private long missCount;
+
+	/** Number of entries that were evicted to make room for new ones. */
+	private long evictionCount;
+
+	/**
+	 * Creates a cache with the default capacities.
+	 */
+	public SimilarityCache() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAXIMUM_CAPACITY);
+	}
+
+	/**
+	 * Creates a cache with the given capacities. Both will be rounded up to the next power of two.
+	 * 
+	 * @param initialCapacity
+	 *            Number of slots initially allocated.
+	 * @param maximumCapacity
+	 *            Maximum number of slots this cache will ever allocate.
+	 */
+	public SimilarityCache(int initialCapacity, int maximumCapacity) {
+		this.maximumCapacity = powerOfTwo(Math.max(maximumCapacity, MAX_PROBES));
+		allocate(Math.min(powerOfTwo(Math.max(initialCapacity, MAX_PROBES)), this.maximumCapacity));
+	}
+
+	/**
+	 * Returns the value cached for the given key.
+	 * 
+	 * @param key
+	 *            The key which value we need. Cannot be <code>0</code>.
+	 * @return The value cached for <code>key</code>, {@link Double#NaN} if there is none.
+	 */
+	public synchronized double get(long key) {
+		int index = indexOf(key);
+		for (int i = 0; i < MAX_PROBES; i++) {
+			final long current = keys[index];
+			if (current == key) {
+				hitCount++;
+				return values[index];
+			} else if (current == FREE) {
+				break;
+			}
+			index = (index + 1) & mask;
+		}
+		missCount++;
+		return Double.NaN;
+	}
+
+	/**
+	 * Caches the given value under the given key, evicting another entry if need be.
+	 * 
+	 * @param key
+	 *            Key under which to cache <code>value</code>. Cannot be <code>0</code>.
+	 * @param value
+	 *            The value to cache.
+	 */
+	public synchronized void put(long key, double value) {
+		if (key == FREE) {
+			throw new IllegalArgumentException("0 cannot be used as a key"); //$NON-NLS-1$
+		}
+		if (!insert(key, value)) {
+			evictionCount++;
+		} else if (size > threshold && keys.length < maximumCapacity) {
+			grow();
+		}
+	}
+
+	/**
+	 * Removes all entries from this cache and releases its table. Statistics are kept.
+	 */
+	public synchronized void clear() {
+		allocate(Math.min(powerOfTwo(DEFAULT_INITIAL_CAPACITY), maximumCapacity));
+	}
+
+	/**
+	 * Returns the number of entries currently in this cache.
+	 * 
+	 * @return The number of entries currently in this cache.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of lookups that found their key.
+	 * 
+	 * @return The number of lookups that found their key.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find their key.
+	 * 
+	 * @return The number of lookups that did not find their key.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of entries that were evicted to make room for new ones.
+	 * 
+	 * @return The number of entries that were evicted to make room for new ones.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Stores the given entry in the table.
+	 * 
+	 * @param key
+	 *            Key of the entry.
+	 * @param value
+	 *            Value of the entry.
+	 * @return <code>false</code> if another entry had to be evicted, <code>true</code> otherwise.
+	 */
+	private boolean insert(long key, double value) {
+		final int home = indexOf(key);
+		int index = home;
+		for (int i = 0; i < MAX_PROBES; i++) {
+			final long current = keys[index];
+			if (current == key) {
+				values[index] = value;
+				return true;
+			} else if (current == FREE) {
+				keys[index] = key;
+				values[index] = value;
+				size++;
+				return true;
+			}
+			index = (index + 1) & mask;
+		}
+		// No room within reach of the home slot : the entry stored there is evicted
+		keys[home] = key;
+		values[home] = value;
+		return false;
+	}
+
+	/**
+	 * Doubles the size of the table and re-inserts all entries.
+	 */
+	private void grow() {
+		final long[] oldKeys = keys;
+		final double[] oldValues = values;
+		allocate(oldKeys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE && !insert(oldKeys[i], oldValues[i])) {
+				evictionCount++;
+			}
+		}
+	}
+
+	/**
+	 * Allocates a new empty table of the given capacity.
+	 * 
+	 * @param capacity
+	 *            Number of slots of the new table. Must be a power of two.
+	 */
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new double[capacity];
+		mask = capacity - 1;
+		shift = LONG_BITS - Integer.numberOfTrailingZeros(capacity);
+		// grow when half full
+		threshold = capacity >>> 1;
+		size = 0;
+	}
+
+	/**
+	 * Returns the home slot of the given key.
+	 * 
+	 * @param key
+	 *            The key which home slot we need.
+	 * @return The home slot of <code>key</code>.
+	 */
+	private int indexOf(long key) {
+		return (int)((key * HASH_MULTIPLIER) >>> shift);
+	}
+
+	/**
+	 * Rounds the given positive value up to the next power of two.
+	 * 
+	 * @param value
+	 *            The value to round up.
+	 * @return The smallest power of two greater than or equal to <code>value</code>.
+	 */
+	private static int powerOfTwo(int value) {
+		final int highest = Integer.highestOneBit(value);
+		if (highest == value) {
+			return value;
+		}
+		return highest << 1;
+	}
+}
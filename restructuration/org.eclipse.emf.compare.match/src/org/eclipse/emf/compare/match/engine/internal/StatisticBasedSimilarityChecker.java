@@ -12,7 +12,9 @@
 package org.eclipse.emf.compare.match.engine.internal;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.WeakHashMap;
@@ -20,6 +22,7 @@ import java.util.WeakHashMap;
 import org.eclipse.emf.compare.FactoryException;
 import org.eclipse.emf.compare.match.engine.AbstractSimilarityChecker;
 import org.eclipse.emf.compare.match.internal.statistic.NameSimilarity;
+import org.eclipse.emf.compare.match.internal.statistic.SignatureCache;
 import org.eclipse.emf.compare.match.internal.statistic.StructureSimilarity;
 import org.eclipse.emf.compare.match.statistic.MetamodelFilter;
 import org.eclipse.emf.ecore.EGenericType;
@@ -42,42 +45,55 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	private static final int MIN_ATTRIBUTES_COUNT = 5;
 
 	/**
-	 * This map is used to cache the name similarity. <code>Pair(Element1, Element2) => nameSimilarity</code>.
+	 * This cache is used to store the name similarity.
+	 * <code>Pair(Element1, Element2) => nameSimilarity</code>.
 	 * 
 	 * @since 1.3
 	 */
-	protected Map<String, Double> nameSimilarityCache;
+	protected SimilarityCache nameSimilarityCache;
 
 	/**
-	 * This map is used to cache the value similarity.
+	 * This cache is used to store the value similarity.
 	 * <code>Pair(Element1, Element2) => valueSimilarity</code>.
 	 * 
 	 * @since 1.3
 	 */
-	protected Map<String, Double> valueSimilarityCache;
+	protected SimilarityCache valueSimilarityCache;
 
 	/**
-	 * This map is used to cache the relation similarity.
+	 * This cache is used to store the relation similarity.
 	 * <code>Pair(Element1, Element2) => relationSimilarity</code>.
 	 * 
 	 * @since 1.3
 	 */
-	protected Map<String, Double> relationSimilarityCache;
+	protected SimilarityCache relationSimilarityCache;
 
 	/**
-	 * This map is used to cache the type similarity. <code>Pair(Element1, Element2) => typeSimilarity</code>.
+	 * This cache is used to store the type similarity.
+	 * <code>Pair(Element1, Element2) => typeSimilarity</code>.
 	 * 
 	 * @since 1.3
 	 */
-	protected Map<String, Double> typeSimilarityCache;
+	protected SimilarityCache typeSimilarityCache;
+
+	/**
+	 * Identifiers of the EObjects we've seen so far, used to compute the keys of the similarity caches. They
+	 * start at 1 so that no key is ever 0.
+	 */
+	private final Map<EObject, Integer> identifiers = new IdentityHashMap<EObject, Integer>();
+
+	/** Signatures of the EObjects we've compared so far, computed through our filter. */
+	private final SignatureCache signatures;
 
 	/**
 	 * This map will allow us to cache the number of non-null features a given instance of EObject has.
 	 */
-	private final Map<EObject, Integer> nonNullFeatureCounts = new HashMap<EObject, Integer>(20);
+	private final Map<EObject, Integer> nonNullFeatureCounts = Collections
+			.synchronizedMap(new HashMap<EObject, Integer>(20));
 
 	/** We'll use this map to cache the uri fragments computed for each objects. */
-	private final Map<EObject, String> uriFragmentCache = new WeakHashMap<EObject, String>(20);
+	private final Map<EObject, String> uriFragmentCache = Collections
+			.synchronizedMap(new WeakHashMap<EObject, String>(20));
 
 	/**
 	 * This field is needed to keep the same behavior for clients having subclassed the generic match engine.
@@ -97,6 +113,7 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	public StatisticBasedSimilarityChecker(MetamodelFilter mmFilter, GenericMatchEngineToCheckerBridge bridge) {
 		super(mmFilter);
 		this.matchToCheckerBridge = bridge;
+		signatures = new SignatureCache(filter);
 		initMetricsCaches();
 	}
 
@@ -106,11 +123,10 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	 * @since 1.3
 	 */
 	protected void initMetricsCaches() {
-		final int initialCapacity = 256;
-		nameSimilarityCache = new HashMap<String, Double>(initialCapacity);
-		valueSimilarityCache = new HashMap<String, Double>(initialCapacity);
-		relationSimilarityCache = new HashMap<String, Double>(initialCapacity);
-		typeSimilarityCache = new HashMap<String, Double>(initialCapacity);
+		nameSimilarityCache = new SimilarityCache();
+		valueSimilarityCache = new SimilarityCache();
+		relationSimilarityCache = new SimilarityCache();
+		typeSimilarityCache = new SimilarityCache();
 	}
 
 	/**
@@ -184,11 +200,8 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	 * @see NameSimilarity#nameSimilarityMetric(String, String)
 	 */
 	protected double nameSimilarity(EObject obj1, EObject obj2) {
-		double similarity = 0d;
-		final Double value = getSimilarityFromCache(obj1, obj2, SimilarityKind.NAME);
-		if (value != null) {
-			similarity = value;
-		} else {
+		double similarity = getSimilarityFromCache(obj1, obj2, SimilarityKind.NAME);
+		if (Double.isNaN(similarity)) {
 			similarity = matchToCheckerBridge.nameSimilarity(obj1, obj2);
 			setSimilarityInCache(obj1, obj2, SimilarityKind.NAME, similarity);
 		}
@@ -252,12 +265,9 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	 * @see StructureSimilarity#typeSimilarityMetric(EObject, EObject)
 	 */
 	private double typeSimilarity(EObject obj1, EObject obj2) throws FactoryException {
-		double similarity = 0d;
-		final Double value = getSimilarityFromCache(obj1, obj2, SimilarityKind.TYPE);
-		if (value != null) {
-			similarity = value;
-		} else {
-			similarity = StructureSimilarity.typeSimilarityMetric(obj1, obj2);
+		double similarity = getSimilarityFromCache(obj1, obj2, SimilarityKind.TYPE);
+		if (Double.isNaN(similarity)) {
+			similarity = signatures.typeSimilarity(obj1, obj2);
 			setSimilarityInCache(obj1, obj2, SimilarityKind.TYPE, similarity);
 		}
 		return similarity;
@@ -276,21 +286,15 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	 *             Thrown if we cannot compute the {@link EObject}s' contents similarity metrics.
 	 */
 	protected double contentSimilarity(EObject obj1, EObject obj2) throws FactoryException {
-		double similarity = 0d;
-		Double value = getSimilarityFromCache(obj1, obj2, SimilarityKind.VALUE);
-		// This might be the counter check, invert the two
-		if (value == null) {
-			value = getSimilarityFromCache(obj2, obj1, SimilarityKind.VALUE);
-		}
-		if (value != null) {
-			similarity = value;
-		} else if (filter.getFilteredFeatures(obj1).size() < MIN_ATTRIBUTES_COUNT
-				|| filter.getFilteredFeatures(obj2).size() < MIN_ATTRIBUTES_COUNT) {
-			similarity = matchToCheckerBridge.contentSimilarity(obj1, obj2);
-			setSimilarityInCache(obj1, obj2, SimilarityKind.VALUE, similarity);
-		} else {
-			similarity = NameSimilarity.nameSimilarityMetric(NameSimilarity.contentValue(obj1, filter),
-					NameSimilarity.contentValue(obj2, filter));
+		// Keys are symmetric, this will also find the counter check
+		double similarity = getSimilarityFromCache(obj1, obj2, SimilarityKind.VALUE);
+		if (Double.isNaN(similarity)) {
+			if (filter.getFilteredFeatures(obj1).size() < MIN_ATTRIBUTES_COUNT
+					|| filter.getFilteredFeatures(obj2).size() < MIN_ATTRIBUTES_COUNT) {
+				similarity = matchToCheckerBridge.contentSimilarity(obj1, obj2);
+			} else {
+				similarity = signatures.contentSimilarity(obj1, obj2);
+			}
 			setSimilarityInCache(obj1, obj2, SimilarityKind.VALUE, similarity);
 		}
 		return similarity;
@@ -343,38 +347,43 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	}
 
 	/**
-	 * Computes an unique key between to {@link EObject}s to store their similarity in cache.
-	 * <p>
-	 * <code>similarityKind</code> must be one of
-	 * <ul>
-	 * <li>{@link #NAME_SIMILARITY}</li>
-	 * <li>{@link #TYPE_SIMILARITY}</li>
-	 * <li>{@link #VALUE_SIMILARITY}</li>
-	 * <li>{@link #RELATION_SIMILARITY}</li>
-	 * </ul>
-	 * </p>
+	 * Computes an unique key between two {@link EObject}s to store their similarity in cache. The key is the
+	 * same whatever the order of the two given {@link EObject}s. It is built out of identifiers assigned to
+	 * each {@link EObject} the first time it is seen by this checker : unlike their hash codes, these cannot
+	 * collide.
 	 * 
 	 * @param obj1
 	 *            First of the two {@link EObject}s.
 	 * @param obj2
 	 *            Second of the two {@link EObject}s.
-	 * @param similarityKind
-	 *            Kind of similarity this key will represent in cache.
-	 * @return Unique key for the similarity cache.
+	 * @return Unique key for the similarity caches. Never <code>0</code>.
 	 * @since 1.3
 	 */
-	protected static String pairHashCode(EObject obj1, EObject obj2) {
-		final StringBuilder hash = new StringBuilder();
-
-		final int obj1Hash = obj1.hashCode();
-		final int obj2Hash = obj2.hashCode();
-		if (obj1Hash < obj2Hash) {
-			hash.append(String.valueOf(obj1Hash)).append(String.valueOf(obj2Hash));
-		} else {
-			hash.append(String.valueOf(obj2Hash)).append(String.valueOf(obj1Hash));
+	protected long pairKey(EObject obj1, EObject obj2) {
+		final long id1 = getIdentifier(obj1);
+		final long id2 = getIdentifier(obj2);
+		if (id1 < id2) {
+			return id1 << Integer.SIZE | id2;
 		}
+		return id2 << Integer.SIZE | id1;
+	}
 
-		return hash.toString();
+	/**
+	 * Returns the identifier of the given {@link EObject}, assigning it a new one if it has none yet.
+	 * 
+	 * @param eObject
+	 *            The {@link EObject} which identifier we need.
+	 * @return The identifier of <code>eObject</code>, strictly positive.
+	 */
+	private int getIdentifier(EObject eObject) {
+		synchronized (identifiers) {
+			Integer identifier = identifiers.get(eObject);
+			if (identifier == null) {
+				identifier = Integer.valueOf(identifiers.size() + 1);
+				identifiers.put(eObject, identifier);
+			}
+			return identifier.intValue();
+		}
 	}
 
 	/**
@@ -396,13 +405,11 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	 * @param similarityKind
 	 *            Kind of similarity to get.
 	 * @return The similarity as described by <code>similarityKind</code> as it is stored in cache for the two
-	 *         given {@link EObject}s.
+	 *         given {@link EObject}s, {@link Double#NaN} if it isn't in cache.
 	 * @since 1.3
 	 */
-	protected Double getSimilarityFromCache(EObject obj1, EObject obj2, SimilarityKind similarityKind) {
-		final Map<String, Double> cache = getCache(similarityKind);
-
-		return cache.get(pairHashCode(obj1, obj2));
+	protected double getSimilarityFromCache(EObject obj1, EObject obj2, SimilarityKind similarityKind) {
+		return getCache(similarityKind).get(pairKey(obj1, obj2));
 	}
 
 	/**
@@ -413,8 +420,8 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	 * @return The cache for the given similarity kind.
 	 * @since 1.3
 	 */
-	protected Map<String, Double> getCache(SimilarityKind kind) {
-		final Map<String, Double> cache;
+	protected SimilarityCache getCache(SimilarityKind kind) {
+		final SimilarityCache cache;
 		switch (kind) {
 			case NAME:
 				cache = nameSimilarityCache;
@@ -475,12 +482,9 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	 * @see StructureSimilarity#relationsSimilarityMetric(EObject, EObject, MetamodelFilter)
 	 */
 	private double relationsSimilarity(EObject obj1, EObject obj2) throws FactoryException {
-		double similarity = 0d;
-		final Double value = getSimilarityFromCache(obj1, obj2, SimilarityKind.RELATION);
-		if (value != null) {
-			similarity = value;
-		} else {
-			similarity = StructureSimilarity.relationsSimilarityMetric(obj1, obj2, filter);
+		double similarity = getSimilarityFromCache(obj1, obj2, SimilarityKind.RELATION);
+		if (Double.isNaN(similarity)) {
+			similarity = signatures.relationsSimilarity(obj1, obj2);
 			setSimilarityInCache(obj1, obj2, SimilarityKind.RELATION, similarity);
 		}
 		return similarity;
@@ -510,9 +514,7 @@ public class StatisticBasedSimilarityChecker extends AbstractSimilarityChecker {
 	 */
 	protected void setSimilarityInCache(EObject obj1, EObject obj2, SimilarityKind similarityKind,
 			double similarity) {
-		final Map<String, Double> cache = getCache(similarityKind);
-
-		cache.put(pairHashCode(obj1, obj2), Double.valueOf(similarity));
+		getCache(similarityKind).put(pairKey(obj1, obj2), similarity);
 	}
 
 	/**
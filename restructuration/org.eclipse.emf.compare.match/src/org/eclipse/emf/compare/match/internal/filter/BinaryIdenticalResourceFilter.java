@@ -12,23 +12,109 @@ package org.eclipse.emf.compare.match.internal.filter;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.compare.EMFComparePlugin;
 import org.eclipse.emf.compare.match.filter.IResourceFilter;
 import org.eclipse.emf.compare.match.internal.statistic.ResourceSimilarity;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.URIConverter;
 
 /**
  * This filter will allow us to remove binary identical resources from the lists of resources to be matched.
+ * <p>
+ * By default, resources are serialized in memory so that their content can be compared. When created to
+ * compare the stored content of the resources, this filter will instead read the files or streams the
+ * resources have been loaded from through their {@link URIConverter} : it will first compare the revision
+ * hashes supplied by the team provider, if any, then the sizes of the stored contents, and will only digest
+ * these contents if it still needs to. This mode is enabled through
+ * {@link #BinaryIdenticalResourceFilter(boolean)} or, for the filter registered through the extension point,
+ * by setting the {@link #PROPERTY_STORED_CONTENT} system property to <code>true</code>.
+ * </p>
+ * <p>
+ * Enabling this mode declares that the resources have not been edited in memory since they were loaded,
+ * unless they {@link Resource#isModified() know they were}. Resources that have no stored content, that are
+ * known to be modified or which {@link Resource#getTimeStamp() time stamp} differs from that of their stored
+ * content will still be serialized : the stored content of the latter has changed since they were loaded.
+ * </p>
  * 
  * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
  */
 public class BinaryIdenticalResourceFilter implements IResourceFilter {
+	/**
+	 * Name of the {@link URIConverter} attribute through which team providers can supply the revision hash of
+	 * a resource. Resources which revision hashes are equal will be considered binary identical, resources
+	 * which revision hashes differ will be considered distinct : this hash needs to identify the content of
+	 * the resource.
+	 * 
+	 * @since 1.3
+	 */
+	public static final String ATTRIBUTE_REVISION_HASH = "org.eclipse.emf.compare.revisionHash"; //$NON-NLS-1$
+
+	/**
+	 * Name of the system property that enables the comparison of the stored content of the resources for the
+	 * filters created through {@link #BinaryIdenticalResourceFilter()}.
+	 * 
+	 * @since 1.3
+	 */
+	public static final String PROPERTY_STORED_CONTENT =
+			"org.eclipse.emf.compare.match.storedContent"; //$NON-NLS-1$
+
+	/** Algorithm used to digest the stored content of the resources. */
+	private static final String DIGEST_ALGORITHM = "SHA-1"; //$NON-NLS-1$
+
+	/** Size of the buffer used to read the stored content of the resources. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Attributes we'll request from the URI converters. */
+	private static final Map<String, Set<String>> REQUESTED_ATTRIBUTES;
+
+	static {
+		final Set<String> attributes = new HashSet<String>();
+		attributes.add(URIConverter.ATTRIBUTE_LENGTH);
+		attributes.add(URIConverter.ATTRIBUTE_TIME_STAMP);
+		attributes.add(ATTRIBUTE_REVISION_HASH);
+		REQUESTED_ATTRIBUTES = Collections.singletonMap(URIConverter.OPTION_REQUESTED_ATTRIBUTES, Collections
+				.unmodifiableSet(attributes));
+	}
+
+	/** Tells whether we should compare the stored content of the resources instead of serializing them. */
+	private final boolean compareStoredContent;
+
+	/**
+	 * Creates a filter that will compare the stored content of the resources if the
+	 * {@link #PROPERTY_STORED_CONTENT} system property is set to <code>true</code>, serialize them
+	 * otherwise. This is the constructor used for the filters registered through the extension point.
+	 */
+	public BinaryIdenticalResourceFilter() {
+		this(Boolean.getBoolean(PROPERTY_STORED_CONTENT));
+	}
+
+	/**
+	 * Creates a filter that will compare the stored content of the resources if <code>storedContent</code>
+	 * is <code>true</code>, serialize them otherwise.
+	 * 
+	 * @param storedContent
+	 *            <code>true</code> if we should compare the files or streams the resources have been loaded
+	 *            from, <code>false</code> if we should serialize them.
+	 * @since 1.3
+	 */
+	public BinaryIdenticalResourceFilter(boolean storedContent) {
+		compareStoredContent = storedContent;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -58,10 +144,7 @@ public class BinaryIdenticalResourceFilter implements IResourceFilter {
 			// do not filter out resources that contain fragments even when identical as fragments themselves
 			// have been removed from the list
 			if (!hasFragments(doublet.getFirst()) && !hasFragments(doublet.getSecond())) {
-				final byte[] leftContent = getContent(doublet.getFirst());
-				final byte[] rightContent = getContent(doublet.getSecond());
-
-				if (Arrays.equals(leftContent, rightContent)) {
+				if (isBinaryIdentical(doublet.getFirst(), doublet.getSecond())) {
 					leftResources.remove(doublet.getFirst());
 					rightResources.remove(doublet.getSecond());
 				}
@@ -112,12 +195,7 @@ public class BinaryIdenticalResourceFilter implements IResourceFilter {
 			// have been removed from the list
 			if (!hasFragments(triplet.getFirst()) && !hasFragments(triplet.getSecond())
 					&& !hasFragments(triplet.getThird())) {
-				final byte[] leftContent = getContent(triplet.getFirst());
-				final byte[] rightContent = getContent(triplet.getSecond());
-				final byte[] ancestorContent = getContent(triplet.getThird());
-
-				if (Arrays.equals(leftContent, ancestorContent)
-						&& Arrays.equals(rightContent, ancestorContent)) {
+				if (isBinaryIdentical(triplet.getThird(), triplet.getFirst(), triplet.getSecond())) {
 					leftResources.remove(triplet.getFirst());
 					rightResources.remove(triplet.getSecond());
 					ancestorResources.remove(triplet.getThird());
@@ -133,6 +211,134 @@ public class BinaryIdenticalResourceFilter implements IResourceFilter {
 		matchedResources.clear();
 	}
 
+	/**
+	 * Checks whether the given resources are all binary identical.
+	 * 
+	 * @param resources
+	 *            The resources to compare with one another.
+	 * @return <code>true</code> if all of the given resources are binary identical, <code>false</code>
+	 *         otherwise.
+	 */
+	private boolean isBinaryIdentical(Resource... resources) {
+		if (compareStoredContent) {
+			final StoredContent[] contents = new StoredContent[resources.length];
+			boolean allStored = true;
+			for (int i = 0; i < resources.length && allStored; i++) {
+				contents[i] = getStoredContent(resources[i]);
+				allStored = contents[i] != null;
+			}
+			if (allStored) {
+				try {
+					return isIdentical(contents);
+				} catch (final IOException e) {
+					EMFComparePlugin.log(e, false);
+				}
+			}
+		}
+
+		// Resources that only exist in memory cannot be compared without being serialized
+		final byte[] reference = getContent(resources[0]);
+		for (int i = 1; i < resources.length; i++) {
+			if (!Arrays.equals(reference, getContent(resources[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the given stored contents are all identical. This will compare the revision hashes of
+	 * the contents if they're all known, then their lengths, and will only digest the contents if need be.
+	 * 
+	 * @param contents
+	 *            The stored contents to compare with one another.
+	 * @return <code>true</code> if all of the given contents are identical, <code>false</code> otherwise.
+	 * @throws IOException
+	 *             Thrown if we cannot read one of the contents.
+	 */
+	private static boolean isIdentical(StoredContent... contents) throws IOException {
+		boolean allHashed = true;
+		for (int i = 0; i < contents.length && allHashed; i++) {
+			allHashed = contents[i].getRevisionHash() != null;
+		}
+		if (allHashed) {
+			for (int i = 1; i < contents.length; i++) {
+				if (!contents[0].getRevisionHash().equals(contents[i].getRevisionHash())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		for (int i = 1; i < contents.length; i++) {
+			if (contents[0].getLength() >= 0 && contents[i].getLength() >= 0
+					&& contents[0].getLength() != contents[i].getLength()) {
+				return false;
+			}
+		}
+
+		final byte[] reference = contents[0].getDigest();
+		for (int i = 1; i < contents.length; i++) {
+			if (!MessageDigest.isEqual(reference, contents[i].getDigest())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the stored content of the given resource, if it has one.
+	 * 
+	 * @param resource
+	 *            The resource we seek the stored content of.
+	 * @return The stored content of <code>resource</code>, <code>null</code> if it only exists in memory,
+	 *         is known to be modified or has been loaded from a previous version of its stored content.
+	 */
+	private static StoredContent getStoredContent(Resource resource) {
+		final URI uri = resource.getURI();
+		if (uri == null || resource.isModified()) {
+			return null;
+		}
+		URIConverter converter = URIConverter.INSTANCE;
+		if (resource.getResourceSet() != null) {
+			converter = resource.getResourceSet().getURIConverter();
+		}
+		if (!converter.exists(uri, null)) {
+			return null;
+		}
+
+		final Map<String, ?> attributes = converter.getAttributes(uri, REQUESTED_ATTRIBUTES);
+		if (isKnownTimeStamp(resource.getTimeStamp())
+				&& attributes.get(URIConverter.ATTRIBUTE_TIME_STAMP) instanceof Long) {
+			final long storedTimeStamp = ((Long)attributes.get(URIConverter.ATTRIBUTE_TIME_STAMP))
+					.longValue();
+			if (isKnownTimeStamp(storedTimeStamp) && storedTimeStamp != resource.getTimeStamp()) {
+				return null;
+			}
+		}
+		long length = -1L;
+		if (attributes.get(URIConverter.ATTRIBUTE_LENGTH) instanceof Long) {
+			length = ((Long)attributes.get(URIConverter.ATTRIBUTE_LENGTH)).longValue();
+		}
+		String revisionHash = null;
+		if (attributes.get(ATTRIBUTE_REVISION_HASH) != null) {
+			revisionHash = attributes.get(ATTRIBUTE_REVISION_HASH).toString();
+		}
+		return new StoredContent(converter, uri, length, revisionHash);
+	}
+
+	/**
+	 * Tells whether the given time stamp is known. Resources that have never been loaded nor saved have no
+	 * time stamp.
+	 * 
+	 * @param timeStamp
+	 *            The time stamp to check.
+	 * @return <code>true</code> if <code>timeStamp</code> is known, <code>false</code> otherwise.
+	 */
+	private static boolean isKnownTimeStamp(long timeStamp) {
+		return timeStamp != URIConverter.NULL_TIME_STAMP && timeStamp != 0L;
+	}
+
 	/**
 	 * Returns the content of a given resource as a byte array.
 	 * 
@@ -167,6 +373,98 @@ public class BinaryIdenticalResourceFilter implements IResourceFilter {
 		return false;
 	}
 
+	/**
+	 * This will allow us to hold what we know of the stored content of a resource, and to digest it lazily.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static class StoredContent {
+		/** Converter through which the content can be read. */
+		private final URIConverter converter;
+
+		/** URI of the content. */
+		private final URI uri;
+
+		/** Length of the content, <code>-1</code> if unknown. */
+		private final long length;
+
+		/** Revision hash supplied by the team provider, <code>null</code> if none. */
+		private final String revisionHash;
+
+		/** Digest of the content, computed on first access. */
+		private byte[] digest;
+
+		/**
+		 * Instantiates the stored content of a resource.
+		 * 
+		 * @param converter
+		 *            Converter through which the content can be read.
+		 * @param uri
+		 *            URI of the content.
+		 * @param length
+		 *            Length of the content, <code>-1</code> if unknown.
+		 * @param revisionHash
+		 *            Revision hash supplied by the team provider, <code>null</code> if none.
+		 */
+		public StoredContent(URIConverter converter, URI uri, long length, String revisionHash) {
+			this.converter = converter;
+			this.uri = uri;
+			this.length = length;
+			this.revisionHash = revisionHash;
+		}
+
+		/**
+		 * Returns the length of the content.
+		 * 
+		 * @return The length of the content, <code>-1</code> if unknown.
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * Returns the revision hash supplied by the team provider.
+		 * 
+		 * @return The revision hash supplied by the team provider, <code>null</code> if none.
+		 */
+		public String getRevisionHash() {
+			return revisionHash;
+		}
+
+		/**
+		 * Returns the digest of the content, reading it through the converter on the first call.
+		 * 
+		 * @return The digest of the content.
+		 * @throws IOException
+		 *             Thrown if we cannot read the content.
+		 */
+		public byte[] getDigest() throws IOException {
+			if (digest == null) {
+				final MessageDigest messageDigest;
+				try {
+					messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+				} catch (final NoSuchAlgorithmException e) {
+					final IOException exception = new IOException(e.getMessage());
+					exception.initCause(e);
+					throw exception;
+				}
+				final InputStream stream = converter.createInputStream(uri);
+				try {
+					final byte[] buffer = new byte[BUFFER_SIZE];
+					int read = stream.read(buffer);
+					while (read != -1) {
+						messageDigest.update(buffer, 0, read);
+						read = stream.read(buffer);
+					}
+				} finally {
+					stream.close();
+				}
+				digest = messageDigest.digest();
+			}
+			return digest;
+		}
+	}
+
 	/**
 	 * This will allow us to hold a doublet of elements.
 	 * 
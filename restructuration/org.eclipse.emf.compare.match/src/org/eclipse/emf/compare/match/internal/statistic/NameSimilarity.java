@@ -77,7 +77,8 @@ public final class NameSimilarity {
 		final StringBuilder result = new StringBuilder();
 		List<EStructuralFeature> eclassAttributes = new ArrayList<EStructuralFeature>();
 		if (filter != null) {
-			eclassAttributes = filter.getFilteredFeatures(current);
+			// The filtered features are shared and should not be modified
+			eclassAttributes.addAll(filter.getFilteredFeatures(current));
 			eclassAttributes.remove(findNameFeature(current));
 		} else {
 			eclassAttributes.addAll(((EClass)eclass).getEAllAttributes());
@@ -131,7 +132,10 @@ public final class NameSimilarity {
 	 */
 	public static EAttribute findNameFeature(EObject current) {
 		final EClass eclass = current.eClass();
-		EAttribute bestFeature = NAME_FEATURE_CACHE.get(eclass.getName() + eclass.hashCode());
+		EAttribute bestFeature;
+		synchronized (NAME_FEATURE_CACHE) {
+			bestFeature = NAME_FEATURE_CACHE.get(eclass.getName() + eclass.hashCode());
+		}
 
 		if (bestFeature == null) {
 			final List<EAttribute> eClassAttributes = eclass.getEAllAttributes();
@@ -149,7 +153,9 @@ public final class NameSimilarity {
 						bestFeature = attribute;
 					}
 				}
-				NAME_FEATURE_CACHE.put(eclass.getName() + eclass.hashCode(), bestFeature);
+				synchronized (NAME_FEATURE_CACHE) {
+					NAME_FEATURE_CACHE.put(eclass.getName() + eclass.hashCode(), bestFeature);
+				}
 			}
 		}
 		// now we should return the feature value
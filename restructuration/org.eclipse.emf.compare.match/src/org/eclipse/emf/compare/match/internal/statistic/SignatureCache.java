@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.match.internal.statistic;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.emf.compare.FactoryException;
+import org.eclipse.emf.compare.match.statistic.MetamodelFilter;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * This will be used during a comparison to avoid rebuilding the {@link String}s describing an EObject each
+ * time it is compared with another one. The name, content value and relations value of each EObject, along
+ * with the attribute and reference type values of each EClass, are computed at most once and kept along with
+ * their sorted pairs of characters. The similarity metrics computed from them are equal to those of
+ * {@link NameSimilarity} and {@link StructureSimilarity}.
+ * <p>
+ * EObjects and EClasses are held by identity. This cache is expected to live as long as a single comparison.
+ * It can be shared by concurrent scoring tasks : a signature may then be computed more than once, with the
+ * same result.
+ * </p>
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ * @since 1.3
+ */
+public final class SignatureCache {
+	/** Maximum similarity between distinct strings which pairs are all equal. */
+	private static final double ALMOST_EQUALS = 0.999999d;
+
+	/** Number of bits in a <code>char</code>. */
+	private static final int CHAR_BITS = 16;
+
+	/** Filter used for the content and relations values, <code>null</code> to consider all features. */
+	private final MetamodelFilter filter;
+
+	/** Signatures of the EObjects we've seen so far. */
+	private final Map<EObject, Signature> signatures = new IdentityHashMap<EObject, Signature>();
+
+	/** Signatures of the EClasses we've seen so far. */
+	private final Map<EClass, TypeSignature> typeSignatures = new IdentityHashMap<EClass, TypeSignature>();
+
+	/**
+	 * Creates an empty cache.
+	 * 
+	 * @param filter
+	 *            Filter used for the content and relations values, <code>null</code> to consider all
+	 *            features.
+	 */
+	public SignatureCache(MetamodelFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Returns the name of the given EObject.
+	 * 
+	 * @param eObject
+	 *            The EObject which name we need.
+	 * @return The name of <code>eObject</code>.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute that name.
+	 * @see NameSimilarity#findName(EObject)
+	 */
+	public String getName(EObject eObject) throws FactoryException {
+		return getNameBigrams(eObject).value;
+	}
+
+	/**
+	 * Computes the similarity between the names of the two given EObjects.
+	 * 
+	 * @param obj1
+	 *            First of the two EObjects.
+	 * @param obj2
+	 *            Second of the two EObjects.
+	 * @return The similarity between the names of these EObjects. 0 &lt;= value &lt;= 1.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute one of the names.
+	 * @see NameSimilarity#nameSimilarityMetric(String, String)
+	 */
+	public double nameSimilarity(EObject obj1, EObject obj2) throws FactoryException {
+		return similarity(getNameBigrams(obj1), getNameBigrams(obj2));
+	}
+
+	/**
+	 * Computes the similarity between the contents of the two given EObjects.
+	 * 
+	 * @param obj1
+	 *            First of the two EObjects.
+	 * @param obj2
+	 *            Second of the two EObjects.
+	 * @return The similarity between the contents of these EObjects. 0 &lt;= value &lt;= 1.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute one of the content values.
+	 * @see NameSimilarity#contentValue(EObject, MetamodelFilter)
+	 */
+	public double contentSimilarity(EObject obj1, EObject obj2) throws FactoryException {
+		return similarity(getContentBigrams(obj1), getContentBigrams(obj2));
+	}
+
+	/**
+	 * Computes the similarity between the relations of the two given EObjects.
+	 * 
+	 * @param obj1
+	 *            First of the two EObjects.
+	 * @param obj2
+	 *            Second of the two EObjects.
+	 * @return The similarity between the relations of these EObjects. 0 &lt;= value &lt;= 1.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute one of the relations values.
+	 * @see StructureSimilarity#relationsSimilarityMetric(EObject, EObject, MetamodelFilter)
+	 */
+	public double relationsSimilarity(EObject obj1, EObject obj2) throws FactoryException {
+		return similarity(getRelationsBigrams(obj1), getRelationsBigrams(obj2));
+	}
+
+	/**
+	 * Computes the similarity between the types of the two given EObjects.
+	 * 
+	 * @param obj1
+	 *            First of the two EObjects.
+	 * @param obj2
+	 *            Second of the two EObjects.
+	 * @return The similarity between the types of these EObjects. 0 &lt;= value &lt;= 1.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute one of the type values.
+	 * @see StructureSimilarity#typeSimilarityMetric(EObject, EObject)
+	 */
+	public double typeSimilarity(EObject obj1, EObject obj2) throws FactoryException {
+		final TypeSignature type1 = getTypeSignature(obj1.eClass());
+		final TypeSignature type2 = getTypeSignature(obj2.eClass());
+		final int attributesCount = type1.attributesCount + type2.attributesCount;
+		final int referencesCount = type1.referencesCount + type2.referencesCount;
+		final double attributesSimilarity = similarity(type1.attributes, type2.attributes);
+		final double referencesSimilarity = similarity(type1.references, type2.references);
+
+		double similarity = attributesSimilarity * attributesCount + referencesSimilarity * referencesCount;
+		similarity /= attributesCount + referencesCount;
+
+		return similarity;
+	}
+
+	/**
+	 * Returns the signature of the given EObject, creating an empty one if needed.
+	 * 
+	 * @param eObject
+	 *            The EObject which signature we need.
+	 * @return The signature of <code>eObject</code>.
+	 */
+	private synchronized Signature getSignature(EObject eObject) {
+		Signature signature = signatures.get(eObject);
+		if (signature == null) {
+			signature = new Signature();
+			signatures.put(eObject, signature);
+		}
+		return signature;
+	}
+
+	/**
+	 * Returns the pairs of the given EObject's name, computing them if needed.
+	 * 
+	 * @param eObject
+	 *            The EObject which name we need.
+	 * @return The pairs of <code>eObject</code>'s name.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute that name.
+	 */
+	private Bigrams getNameBigrams(EObject eObject) throws FactoryException {
+		final Signature signature = getSignature(eObject);
+		if (signature.name == null) {
+			signature.name = new Bigrams(NameSimilarity.findName(eObject));
+		}
+		return signature.name;
+	}
+
+	/**
+	 * Returns the pairs of the given EObject's content value, computing them if needed.
+	 * 
+	 * @param eObject
+	 *            The EObject which content value we need.
+	 * @return The pairs of <code>eObject</code>'s content value.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute that value.
+	 */
+	private Bigrams getContentBigrams(EObject eObject) throws FactoryException {
+		final Signature signature = getSignature(eObject);
+		if (signature.content == null) {
+			signature.content = new Bigrams(NameSimilarity.contentValue(eObject, filter));
+		}
+		return signature.content;
+	}
+
+	/**
+	 * Returns the pairs of the given EObject's relations value, computing them if needed.
+	 * 
+	 * @param eObject
+	 *            The EObject which relations value we need.
+	 * @return The pairs of <code>eObject</code>'s relations value.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute that value.
+	 */
+	private Bigrams getRelationsBigrams(EObject eObject) throws FactoryException {
+		final Signature signature = getSignature(eObject);
+		if (signature.relations == null) {
+			signature.relations = new Bigrams(StructureSimilarity.relationsValue(eObject, filter));
+		}
+		return signature.relations;
+	}
+
+	/**
+	 * Returns the signature of the given EClass, computing it if needed.
+	 * 
+	 * @param eClass
+	 *            The EClass which signature we need.
+	 * @return The signature of <code>eClass</code>.
+	 * @throws FactoryException
+	 *             Thrown if we cannot compute the type values of that EClass.
+	 */
+	private synchronized TypeSignature getTypeSignature(EClass eClass) throws FactoryException {
+		TypeSignature signature = typeSignatures.get(eClass);
+		if (signature == null) {
+			signature = new TypeSignature(eClass);
+			typeSignatures.put(eClass, signature);
+		}
+		return signature;
+	}
+
+	/**
+	 * Computes the similarity between two strings from their pairs. This returns the same value as
+	 * {@link NameSimilarity#nameSimilarityMetric(String, String)} would for these two strings.
+	 * 
+	 * @param bigrams1
+	 *            Pairs of the first string.
+	 * @param bigrams2
+	 *            Pairs of the second string.
+	 * @return The similarity between the two strings. 0 &lt;= value &lt;= 1.
+	 */
+	private static double similarity(Bigrams bigrams1, Bigrams bigrams2) {
+		final String str1 = bigrams1.value;
+		final String str2 = bigrams2.value;
+		if (str1.equals(str2)) {
+			return 1d;
+		} else if (str1.length() <= 2 && str2.length() <= 2 || str1.length() == 1 || str2.length() == 1) {
+			// Short strings aren't compared through their pairs
+			return NameSimilarity.nameSimilarityMetric(str1, str2);
+		}
+		final int[] pairs1 = bigrams1.pairs;
+		final int[] distinct2 = bigrams2.distinctPairs;
+		int inter = 0;
+		int j = 0;
+		for (int i = 0; i < pairs1.length && j < distinct2.length; i++) {
+			while (j < distinct2.length && distinct2[j] < pairs1[i]) {
+				j++;
+			}
+			if (j < distinct2.length && distinct2[j] == pairs1[i]) {
+				inter++;
+			}
+		}
+		double result = inter * 2d / (pairs1.length + bigrams2.pairs.length);
+		if (result > 1) {
+			result = 1d;
+		} else if (result > ALMOST_EQUALS) {
+			result = ALMOST_EQUALS;
+		}
+		return result;
+	}
+
+	/**
+	 * Signature of an EObject. Its fields are computed lazily, and are volatile so that they can be set
+	 * from concurrent threads.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class Signature {
+		/** Pairs of the EObject's name. */
+		private volatile Bigrams name;
+
+		/** Pairs of the EObject's content value. */
+		private volatile Bigrams content;
+
+		/** Pairs of the EObject's relations value. */
+		private volatile Bigrams relations;
+	}
+
+	/**
+	 * Signature of an EClass.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class TypeSignature {
+		/** Number of attributes of the EClass. */
+		private final int attributesCount;
+
+		/** Number of references of the EClass. */
+		private final int referencesCount;
+
+		/** Pairs of the EClass' attribute type value. */
+		private final Bigrams attributes;
+
+		/** Pairs of the EClass' reference type value. */
+		private final Bigrams references;
+
+		/**
+		 * Computes the signature of the given EClass.
+		 * 
+		 * @param eClass
+		 *            The EClass which signature we need.
+		 * @throws FactoryException
+		 *             Thrown if we cannot compute the type values of that EClass.
+		 */
+		TypeSignature(EClass eClass) throws FactoryException {
+			attributesCount = eClass.getEAllAttributes().size();
+			referencesCount = eClass.getEAllReferences().size();
+			attributes = new Bigrams(StructureSimilarity.attributeTypeValue(eClass));
+			references = new Bigrams(StructureSimilarity.referenceTypeValue(eClass));
+		}
+	}
+
+	/**
+	 * A string along with its sorted pairs of lower case characters, each pair being encoded as an
+	 * <code>int</code>.
+	 * 
+	 * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+	 */
+	private static final class Bigrams {
+		/** The string itself. */
+		private final String value;
+
+		/** All pairs of characters of the lower cased string, including duplicates, in ascending order. */
+		private final int[] pairs;
+
+		/** The distinct pairs of characters of the lower cased string, in ascending order. */
+		private final int[] distinctPairs;
+
+		/**
+		 * Computes the pairs of the given string.
+		 * 
+		 * @param value
+		 *            The string.
+		 * @see NameSimilarity#pairs(String)
+		 */
+		Bigrams(String value) {
+			this.value = value;
+			final String lowerCase = value.toLowerCase();
+			final int count = Math.max(lowerCase.length() - 1, 0);
+			pairs = new int[count];
+			for (int i = 0; i < count; i++) {
+				pairs[i] = lowerCase.charAt(i) << CHAR_BITS | lowerCase.charAt(i + 1);
+			}
+			Arrays.sort(pairs);
+			int distinct = 0;
+			final int[] unique = new int[count];
+			for (int i = 0; i < count; i++) {
+				if (i == 0 || pairs[i] != pairs[i - 1]) {
+					unique[distinct++] = pairs[i];
+				}
+			}
+			if (distinct == count) {
+				distinctPairs = unique;
+			} else {
+				distinctPairs = new int[distinct];
+				System.arraycopy(unique, 0, distinctPairs, 0, distinct);
+			}
+		}
+	}
+}
@@ -74,10 +74,10 @@ public final class StructureSimilarity {
 				+ obj2.eClass().getEAllAttributes().size();
 		final int referencesCount = obj1.eClass().getEAllReferences().size()
 				+ obj2.eClass().getEAllReferences().size();
-		final double attributesSimilarity = NameSimilarity.nameSimilarityMetric(attributeTypeValue(obj1),
-				attributeTypeValue(obj2));
-		final double referencesSimilarity = NameSimilarity.nameSimilarityMetric(referenceTypeValue(obj1),
-				referenceTypeValue(obj2));
+		final double attributesSimilarity = NameSimilarity.nameSimilarityMetric(
+				attributeTypeValue(obj1.eClass()), attributeTypeValue(obj2.eClass()));
+		final double referencesSimilarity = NameSimilarity.nameSimilarityMetric(
+				referenceTypeValue(obj1.eClass()), referenceTypeValue(obj2.eClass()));
 
 		double similarity = attributesSimilarity * attributesCount + referencesSimilarity * referencesCount;
 		similarity /= attributesCount + referencesCount;
@@ -86,19 +86,19 @@ public final class StructureSimilarity {
 	}
 
 	/**
-	 * This method returns a {@link String} with content corresponding to the given {@link EObject}'s
+	 * This method returns a {@link String} with content corresponding to the given {@link EClass}'
 	 * attributes type.
 	 * 
 	 * @param current
-	 *            {@link EObject} we need the attributes' type value of.
-	 * @return A {@link String} with content corresponding to the {@link EObject}'s attributes type.
+	 *            {@link EClass} we need the attributes' type value of.
+	 * @return A {@link String} with content corresponding to the {@link EClass}' attributes type.
 	 * @throws FactoryException
 	 *             Thrown if we cannot retrieve one of <code>current</code>'s attributes name.
 	 */
-	private static String attributeTypeValue(EObject current) throws FactoryException {
+	static String attributeTypeValue(EClass current) throws FactoryException {
 		final StringBuilder result = new StringBuilder();
 
-		final List<EAttribute> attributes = current.eClass().getEAllAttributes();
+		final List<EAttribute> attributes = current.getEAllAttributes();
 		for (EAttribute attribute : attributes)
 			result.append(attribute.eClass().getName()).append(NameSimilarity.findName(attribute));
 
@@ -144,19 +144,19 @@ public final class StructureSimilarity {
 	}
 
 	/**
-	 * This method returns a {@link String} with content corresponding to the given {@link EObject}'s
+	 * This method returns a {@link String} with content corresponding to the given {@link EClass}'
 	 * references type.
 	 * 
 	 * @param current
-	 *            {@link EObject} we need the references' type value of.
-	 * @return A {@link String} with content corresponding to the {@link EObject}'s references type.
+	 *            {@link EClass} we need the references' type value of.
+	 * @return A {@link String} with content corresponding to the {@link EClass}' references type.
 	 * @throws FactoryException
 	 *             Thrown if we cannot retrieve one of <code>current</code>'s references name.
 	 */
-	private static String referenceTypeValue(EObject current) throws FactoryException {
+	static String referenceTypeValue(EClass current) throws FactoryException {
 		final StringBuilder result = new StringBuilder();
 
-		final List<EReference> references = current.eClass().getEAllReferences();
+		final List<EReference> references = current.getEAllReferences();
 		for (EReference reference : references)
 			result.append(reference.eClass().getName()).append(NameSimilarity.findName(reference));
 
@@ -174,7 +174,7 @@ public final class StructureSimilarity {
 	 * @throws FactoryException
 	 *             Thrown if we cannot retrieve the {@link EObject} features or their values.
 	 */
-	private static String relationsValue(EObject current, MetamodelFilter filter) throws FactoryException {
+	static String relationsValue(EObject current, MetamodelFilter filter) throws FactoryException {
 		final StringBuilder result = new StringBuilder();
 		result.append(childrenValue(current, filter));
 		final EObject container = current.eContainer();
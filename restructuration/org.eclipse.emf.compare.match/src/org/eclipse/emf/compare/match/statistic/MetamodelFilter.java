@@ -71,13 +71,14 @@ public class MetamodelFilter {
 	}
 
 	/**
-	 * Returns a list of the pertinent features for this {@link EObject}.
+	 * Returns a list of the pertinent features for this {@link EObject}. The returned list is shared by all
+	 * instances of the same {@link EClass} and should not be modified.
 	 * 
 	 * @param eObj
 	 *            {@link EObject} from which we seek the features.
 	 * @return A list of the pertinent features for this {@link EObject}.
 	 */
-	public List<EStructuralFeature> getFilteredFeatures(EObject eObj) {
+	public synchronized List<EStructuralFeature> getFilteredFeatures(EObject eObj) {
 		// cache the filtered features for a type
 		if (eClassToFilteredFeaturesList.containsKey(eObj.eClass()))
 			return eClassToFilteredFeaturesList.get(eObj.eClass());
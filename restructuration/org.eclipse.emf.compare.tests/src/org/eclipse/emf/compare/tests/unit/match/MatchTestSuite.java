@@ -16,8 +16,11 @@ import junit.framework.TestSuite;
 import junit.textui.TestRunner;
 
 import org.eclipse.emf.compare.tests.unit.match.engine.MatchEngineTestSuite;
+import org.eclipse.emf.compare.tests.unit.match.filter.BinaryIdenticalResourceFilterTest;
 import org.eclipse.emf.compare.tests.unit.match.statistic.similarity.NameSimilarityTest;
 import org.eclipse.emf.compare.tests.unit.match.statistic.similarity.ResourceSimilarityTest;
+import org.eclipse.emf.compare.tests.unit.match.statistic.similarity.SignatureCacheTest;
+import org.eclipse.emf.compare.tests.unit.match.statistic.similarity.SimilarityCacheTest;
 import org.eclipse.emf.compare.tests.unit.match.statistic.similarity.structuresimilarity.StructureSimilarityTestSuite;
 
 /**
@@ -48,6 +51,9 @@ public class MatchTestSuite extends TestCase {
 		final TestSuite suite = new TestSuite("Tests for the match plugin."); //$NON-NLS-1$
 		suite.addTestSuite(NameSimilarityTest.class);
 		suite.addTestSuite(ResourceSimilarityTest.class);
+		suite.addTestSuite(SignatureCacheTest.class);
+		suite.addTestSuite(SimilarityCacheTest.class);
+		suite.addTestSuite(BinaryIdenticalResourceFilterTest.class);
 		suite.addTest(StructureSimilarityTestSuite.suite());
 		// These tests are too long/costly to be run with too low memory
 		if (Runtime.getRuntime().maxMemory() > MIN_XMX_SETTING)
@@ -10,17 +10,24 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.tests.unit.match.engine;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
 
+import org.eclipse.emf.common.util.ECollections;
+import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.compare.FactoryException;
 import org.eclipse.emf.compare.match.MatchOptions;
+import org.eclipse.emf.compare.match.metamodel.Match2Elements;
 import org.eclipse.emf.compare.match.metamodel.MatchModel;
 import org.eclipse.emf.compare.match.service.MatchService;
 import org.eclipse.emf.compare.tests.util.EcoreModelUtils;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 
 /**
@@ -87,4 +94,99 @@ public class MatchOptionsTest extends TestCase {
 				"There shouldn't have been a single unmatched element with OPTION_DISTINCT_METAMODELS set to true.",
 				0, match.getUnmatchedElements().size());
 	}
+
+	/**
+	 * This will test the behavior of the match engine with the option
+	 * {@link MatchOptions#OPTION_INDEXED_SEARCH} set to <code>true</code>.
+	 * <p>
+	 * We'll create two identical models, then reverse the order of the siblings of one of them. With a search
+	 * window of a single sibling, we still expect every element to be matched as the indexed search does not
+	 * depend on the siblings' order.
+	 * </p>
+	 * 
+	 * @throws FactoryException
+	 *             Thrown if the comparison fails somehow.
+	 * @throws InterruptedException
+	 *             Won't be thrown as we're not using progess monitors.
+	 */
+	public void testIndexedSearchOption() throws FactoryException, InterruptedException {
+		final int writerCount = 50;
+		final int bookPerWriterCount = 4;
+		final long seed = System.nanoTime();
+
+		final Resource testResource = EcoreModelUtils.createModel(writerCount, bookPerWriterCount, seed,
+				false, false).eResource();
+		final Resource reversed = EcoreModelUtils.createModel(writerCount, bookPerWriterCount, seed, false,
+				false).eResource();
+		final EObject library = reversed.getContents().get(0);
+		ECollections.reverse((EList<?>)library.eGet(library.eClass().getEStructuralFeature("authors")));
+		ECollections.reverse((EList<?>)library.eGet(library.eClass().getEStructuralFeature("books")));
+
+		final Map<String, Object> options = new HashMap<String, Object>();
+		options.put(MatchOptions.OPTION_SEARCH_WINDOW, 1);
+		options.put(MatchOptions.OPTION_INDEXED_SEARCH, true);
+		options.put(MatchOptions.OPTION_CANDIDATE_COUNT, 5);
+		final MatchModel match = MatchService.doResourceMatch(testResource, reversed, options);
+		assertEquals(
+				"There shouldn't have been a single unmatched element with OPTION_INDEXED_SEARCH set to true.",
+				0, match.getUnmatchedElements().size());
+	}
+
+	/**
+	 * This will test the behavior of the match engine with the option
+	 * {@link MatchOptions#OPTION_SCORING_THREADS} set to more than one thread.
+	 * <p>
+	 * We'll create two identical models, then reverse the order of the siblings of one of them so that the
+	 * similarity of many candidates has to be computed. We then expect the very same matches to be found
+	 * whether these similarities are computed sequentially or concurrently.
+	 * </p>
+	 * 
+	 * @throws FactoryException
+	 *             Thrown if the comparison fails somehow.
+	 * @throws InterruptedException
+	 *             Won't be thrown as we're not using progess monitors.
+	 */
+	public void testScoringThreadsOption() throws FactoryException, InterruptedException {
+		final int writerCount = 50;
+		final int bookPerWriterCount = 4;
+		final int scoringThreads = 4;
+		final long seed = 20121015L;
+
+		final Resource testResource = EcoreModelUtils.createModel(writerCount, bookPerWriterCount, seed,
+				false, false).eResource();
+		final Resource reversed = EcoreModelUtils.createModel(writerCount, bookPerWriterCount, seed, false,
+				false).eResource();
+		final EObject library = reversed.getContents().get(0);
+		ECollections.reverse((EList<?>)library.eGet(library.eClass().getEStructuralFeature("authors")));
+		ECollections.reverse((EList<?>)library.eGet(library.eClass().getEStructuralFeature("books")));
+
+		final Map<String, Object> options = new HashMap<String, Object>();
+		final MatchModel sequential = MatchService.doResourceMatch(testResource, reversed, options);
+		options.put(MatchOptions.OPTION_SCORING_THREADS, scoringThreads);
+		final MatchModel concurrent = MatchService.doResourceMatch(testResource, reversed, options);
+
+		assertEquals("Concurrent scoring should find the same matches as sequential scoring.",
+				getMatchedPairs(sequential), getMatchedPairs(concurrent));
+		assertEquals(sequential.getUnmatchedElements().size(), concurrent.getUnmatchedElements().size());
+	}
+
+	/**
+	 * Returns the matched elements of the given match model, in the order they've been matched.
+	 * 
+	 * @param match
+	 *            The match model.
+	 * @return The left and right elements of each match of <code>match</code>.
+	 */
+	private static List<EObject> getMatchedPairs(MatchModel match) {
+		final List<EObject> pairs = new ArrayList<EObject>();
+		final Iterator<EObject> contents = match.eAllContents();
+		while (contents.hasNext()) {
+			final EObject next = contents.next();
+			if (next instanceof Match2Elements) {
+				pairs.add(((Match2Elements)next).getLeftElement());
+				pairs.add(((Match2Elements)next).getRightElement());
+			}
+		}
+		return pairs;
+	}
 }
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.unit.match.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.match.internal.filter.BinaryIdenticalResourceFilter;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ExtensibleURIConverterImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+/**
+ * Tests the behavior of the {@link BinaryIdenticalResourceFilter} when comparing the stored content of the
+ * resources.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+@SuppressWarnings("nls")
+public class BinaryIdenticalResourceFilterTest extends TestCase {
+	/** Directory in which we'll save the test models. */
+	private File directory;
+
+	/**
+	 * Checks that resources loaded from identical files are filtered out, whatever the mode.
+	 * 
+	 * @throws IOException
+	 *             Thrown if we cannot save or load the test models.
+	 */
+	public void testIdenticalFiles() throws IOException {
+		saveModel("left", "model");
+		saveModel("right", "model");
+		saveModel("ancestor", "model");
+
+		assertFiltered(true, new BinaryIdenticalResourceFilter(true), false);
+		assertFiltered(true, new BinaryIdenticalResourceFilter(true), true);
+		assertFiltered(true, new BinaryIdenticalResourceFilter(), false);
+		assertFiltered(true, new BinaryIdenticalResourceFilter(), true);
+	}
+
+	/**
+	 * Checks that resources loaded from distinct files of the same size are kept, whatever the mode.
+	 * 
+	 * @throws IOException
+	 *             Thrown if we cannot save or load the test models.
+	 */
+	public void testDistinctFiles() throws IOException {
+		saveModel("left", "model");
+		saveModel("right", "modem");
+		saveModel("ancestor", "model");
+
+		assertFiltered(false, new BinaryIdenticalResourceFilter(true), false);
+		assertFiltered(false, new BinaryIdenticalResourceFilter(true), true);
+		assertFiltered(false, new BinaryIdenticalResourceFilter(), false);
+		assertFiltered(false, new BinaryIdenticalResourceFilter(), true);
+	}
+
+	/**
+	 * Checks that resources modified since they were loaded are serialized instead of having their stored
+	 * content compared.
+	 * 
+	 * @throws IOException
+	 *             Thrown if we cannot save or load the test models.
+	 */
+	public void testModifiedResource() throws IOException {
+		saveModel("left", "model");
+		saveModel("right", "modem");
+
+		final Resource left = loadModel("left", new ResourceSetImpl());
+		final Resource right = loadModel("right", new ResourceSetImpl());
+		right.setTrackingModification(true);
+		((EPackage)right.getContents().get(0)).setName("model");
+
+		final List<Resource> leftResources = new ArrayList<Resource>();
+		leftResources.add(left);
+		final List<Resource> rightResources = new ArrayList<Resource>();
+		rightResources.add(right);
+		new BinaryIdenticalResourceFilter(true).filter(leftResources, rightResources);
+		assertTrue(leftResources.isEmpty());
+		assertTrue(rightResources.isEmpty());
+	}
+
+	/**
+	 * Checks that the stored content of resources which do not track their modifications is compared : the
+	 * caller declares that they have not been edited in memory when enabling this mode.
+	 * 
+	 * @throws IOException
+	 *             Thrown if we cannot save or load the test models.
+	 */
+	public void testUntrackedResource() throws IOException {
+		saveModel("left", "model");
+		saveModel("right", "a distinct model");
+
+		final Map<URI, String> hashes = new HashMap<URI, String>();
+		hashes.put(getURI("left"), "1a2b3c");
+		hashes.put(getURI("right"), "1a2b3c");
+		final Resource left = loadModel("left", createResourceSet(hashes));
+		final Resource right = loadModel("right", createResourceSet(hashes));
+		left.setTrackingModification(false);
+		right.setTrackingModification(false);
+
+		final List<Resource> leftResources = new ArrayList<Resource>();
+		leftResources.add(left);
+		final List<Resource> rightResources = new ArrayList<Resource>();
+		rightResources.add(right);
+		new BinaryIdenticalResourceFilter(true).filter(leftResources, rightResources);
+		assertTrue(leftResources.isEmpty());
+		assertTrue(rightResources.isEmpty());
+	}
+
+	/**
+	 * Checks that resources which stored content has changed since they were loaded are serialized instead
+	 * of having their stored content compared.
+	 * 
+	 * @throws IOException
+	 *             Thrown if we cannot save or load the test models.
+	 */
+	public void testStoredContentChanged() throws IOException {
+		saveModel("left", "model");
+		saveModel("right", "modem");
+
+		final Resource left = loadModel("left", new ResourceSetImpl());
+		final Resource right = loadModel("right", new ResourceSetImpl());
+		saveModel("left", "modem");
+		final File leftFile = new File(getURI("left").toFileString());
+		assertTrue(leftFile.setLastModified(left.getTimeStamp() + 2000L));
+
+		final List<Resource> leftResources = new ArrayList<Resource>();
+		leftResources.add(left);
+		final List<Resource> rightResources = new ArrayList<Resource>();
+		rightResources.add(right);
+		new BinaryIdenticalResourceFilter(true).filter(leftResources, rightResources);
+		assertEquals(1, leftResources.size());
+		assertEquals(1, rightResources.size());
+	}
+
+	/**
+	 * Checks that the filters created through the default constructor compare the stored content of the
+	 * resources when the {@link BinaryIdenticalResourceFilter#PROPERTY_STORED_CONTENT} system property is
+	 * set.
+	 * 
+	 * @throws IOException
+	 *             Thrown if we cannot save or load the test models.
+	 */
+	public void testStoredContentProperty() throws IOException {
+		saveModel("left", "model");
+		saveModel("right", "a distinct model");
+
+		final Map<URI, String> hashes = new HashMap<URI, String>();
+		hashes.put(getURI("left"), "1a2b3c");
+		hashes.put(getURI("right"), "1a2b3c");
+		assertFiltered(false, new BinaryIdenticalResourceFilter(), hashes, false);
+
+		System.setProperty(BinaryIdenticalResourceFilter.PROPERTY_STORED_CONTENT, Boolean.TRUE.toString());
+		try {
+			assertFiltered(true, new BinaryIdenticalResourceFilter(), hashes, false);
+		} finally {
+			System.clearProperty(BinaryIdenticalResourceFilter.PROPERTY_STORED_CONTENT);
+		}
+	}
+
+	/**
+	 * Checks that the revision hashes supplied by the URI converter take precedence over the stored content.
+	 * 
+	 * @throws IOException
+	 *             Thrown if we cannot save or load the test models.
+	 */
+	public void testRevisionHash() throws IOException {
+		saveModel("left", "model");
+		saveModel("right", "a distinct model");
+		saveModel("ancestor", "model");
+
+		final Map<URI, String> hashes = new HashMap<URI, String>();
+		hashes.put(getURI("left"), "1a2b3c");
+		hashes.put(getURI("right"), "1a2b3c");
+		hashes.put(getURI("ancestor"), "1a2b3c");
+		assertFiltered(true, new BinaryIdenticalResourceFilter(true), hashes, true);
+
+		saveModel("right", "model");
+		hashes.put(getURI("right"), "4d5e6f");
+		assertFiltered(false, new BinaryIdenticalResourceFilter(true), hashes, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		directory = File.createTempFile("binaryfilter", "");
+		assertTrue(directory.delete() && directory.mkdir());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		final File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+		super.tearDown();
+	}
+
+	/**
+	 * Loads the test models and checks whether the given filter removes them from the lists of resources.
+	 * 
+	 * @param expected
+	 *            <code>true</code> if the resources should be filtered out, <code>false</code> otherwise.
+	 * @param filter
+	 *            The filter to apply.
+	 * @param threeWay
+	 *            <code>true</code> if we should also load and filter the ancestor model.
+	 * @throws IOException
+	 *             Thrown if we cannot load the test models.
+	 */
+	private void assertFiltered(boolean expected, BinaryIdenticalResourceFilter filter, boolean threeWay)
+			throws IOException {
+		assertFiltered(expected, filter, new HashMap<URI, String>(), threeWay);
+	}
+
+	/**
+	 * Loads the test models and checks whether the given filter removes them from the lists of resources.
+	 * 
+	 * @param expected
+	 *            <code>true</code> if the resources should be filtered out, <code>false</code> otherwise.
+	 * @param filter
+	 *            The filter to apply.
+	 * @param hashes
+	 *            Revision hashes the URI converters should supply for the test models.
+	 * @param threeWay
+	 *            <code>true</code> if we should also load and filter the ancestor model.
+	 * @throws IOException
+	 *             Thrown if we cannot load the test models.
+	 */
+	private void assertFiltered(boolean expected, BinaryIdenticalResourceFilter filter,
+			Map<URI, String> hashes, boolean threeWay) throws IOException {
+		final List<Resource> leftResources = new ArrayList<Resource>();
+		leftResources.add(loadModel("left", createResourceSet(hashes)));
+		final List<Resource> rightResources = new ArrayList<Resource>();
+		rightResources.add(loadModel("right", createResourceSet(hashes)));
+		if (threeWay) {
+			final List<Resource> ancestorResources = new ArrayList<Resource>();
+			ancestorResources.add(loadModel("ancestor", createResourceSet(hashes)));
+			filter.filter(leftResources, rightResources, ancestorResources);
+			assertEquals(expected, ancestorResources.isEmpty());
+		} else {
+			filter.filter(leftResources, rightResources);
+		}
+		assertEquals(expected, leftResources.isEmpty());
+		assertEquals(expected, rightResources.isEmpty());
+	}
+
+	/**
+	 * Creates a resource set which URI converter supplies the given revision hashes.
+	 * 
+	 * @param hashes
+	 *            Revision hashes of the test models.
+	 * @return The created resource set.
+	 */
+	private static ResourceSet createResourceSet(final Map<URI, String> hashes) {
+		final ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet.setURIConverter(new ExtensibleURIConverterImpl() {
+			@Override
+			public Map<String, ?> getAttributes(URI uri, Map<?, ?> options) {
+				final Map<String, Object> attributes = new HashMap<String, Object>(super.getAttributes(uri,
+						options));
+				if (hashes.containsKey(uri)) {
+					attributes.put(BinaryIdenticalResourceFilter.ATTRIBUTE_REVISION_HASH, hashes.get(uri));
+				}
+				return attributes;
+			}
+		});
+		return resourceSet;
+	}
+
+	/**
+	 * Saves a model containing a single package of the given name.
+	 * 
+	 * @param fileName
+	 *            Name of the file, without extension, in which to save the model.
+	 * @param packageName
+	 *            Name of the package to save.
+	 * @throws IOException
+	 *             Thrown if we cannot save the model.
+	 */
+	private void saveModel(String fileName, String packageName) throws IOException {
+		final EPackage root = EcoreFactory.eINSTANCE.createEPackage();
+		root.setName(packageName);
+		final Resource resource = new XMIResourceImpl(getURI(fileName));
+		resource.getContents().add(root);
+		resource.save(null);
+	}
+
+	/**
+	 * Loads the model saved in the given file. The loaded resource tracks its modifications.
+	 * 
+	 * @param fileName
+	 *            Name of the file, without extension, from which to load the model.
+	 * @param resourceSet
+	 *            Resource set in which to load the model.
+	 * @return The loaded resource.
+	 * @throws IOException
+	 *             Thrown if we cannot load the model.
+	 */
+	private Resource loadModel(String fileName, ResourceSet resourceSet) throws IOException {
+		final Resource resource = new XMIResourceImpl(getURI(fileName));
+		resourceSet.getResources().add(resource);
+		resource.load(null);
+		resource.setTrackingModification(true);
+		return resource;
+	}
+
+	/**
+	 * Returns the URI of the given test file.
+	 * 
+	 * @param fileName
+	 *            Name of the file, without extension.
+	 * @return The URI of the given test file.
+	 */
+	private URI getURI(String fileName) {
+		return URI.createFileURI(new File(directory, fileName + ".ecore").getAbsolutePath());
+	}
+}
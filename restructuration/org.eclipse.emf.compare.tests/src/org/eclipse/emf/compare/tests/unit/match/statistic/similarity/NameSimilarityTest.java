@@ -30,6 +30,7 @@ import org.eclipse.emf.ecore.EDataType;
 import org.eclipse.emf.ecore.EEnum;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.EcoreFactory;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.ecore.util.EcoreUtil;
@@ -102,6 +103,30 @@ public class NameSimilarityTest extends TestCase {
 				class1Content.equals(class1AlteredContent));
 	}
 
+	/**
+	 * Tests that {@link NameSimilarity#contentValue(EObject, MetamodelFilter)} leaves the features cached by
+	 * the filter untouched. The name feature used to be removed from the cached list itself, so that the
+	 * name was lost for every later use of the filter on the same EClass.
+	 * 
+	 * @throws FactoryException
+	 *             Thrown if the similarity couldn't be computed. Considered a failed test.
+	 */
+	public void testFilteredContentValueKeepsFilteredFeatures() throws FactoryException {
+		testedMethod = "NameSimilarity#contentValue(EObject, MetaModelFilter)";
+
+		final EObject class1 = inputModel.eContents().get(0);
+		final List<EStructuralFeature> filteredFeatures = new ArrayList<EStructuralFeature>(filter
+				.getFilteredFeatures(class1));
+		assertTrue(filteredFeatures.contains(NameSimilarity.findNameFeature(class1)));
+
+		final String class1Content = NameSimilarity.contentValue(class1, filter);
+
+		assertEquals(testedMethod + ' ' + "modified the features cached by the filter.", filteredFeatures,
+				filter.getFilteredFeatures(class1));
+		assertEquals(testedMethod + ' ' + "returned a distinct result for the same object.", class1Content,
+				NameSimilarity.contentValue(class1, filter));
+	}
+
 	/**
 	 * Tests {@link NameSimilarity#findName(EObject)}.
 	 * <p>
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.unit.match.statistic.similarity;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.emf.compare.FactoryException;
+import org.eclipse.emf.compare.match.internal.statistic.NameSimilarity;
+import org.eclipse.emf.compare.match.internal.statistic.SignatureCache;
+import org.eclipse.emf.compare.match.internal.statistic.StructureSimilarity;
+import org.eclipse.emf.compare.match.statistic.MetamodelFilter;
+import org.eclipse.emf.compare.tests.EMFCompareTestPlugin;
+import org.eclipse.emf.compare.tests.util.EcoreModelUtils;
+import org.eclipse.emf.compare.util.ModelUtils;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+
+/**
+ * Checks that the metrics computed from the cached signatures are those of {@link NameSimilarity} and
+ * {@link StructureSimilarity}.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class SignatureCacheTest extends TestCase {
+	/** Full path to the model file this test will use. */
+	private static final String INPUT_MODEL_PATH = "/inputs/testInput.ecore"; //$NON-NLS-1$
+
+	/** EObjects that will be compared with one another. */
+	private List<EObject> eObjects;
+
+	/**
+	 * Checks the names and name similarities.
+	 * 
+	 * @throws FactoryException
+	 *             Not expected.
+	 */
+	public void testNameSimilarity() throws FactoryException {
+		final SignatureCache signatures = new SignatureCache(null);
+		for (EObject obj1 : eObjects) {
+			assertEquals(NameSimilarity.findName(obj1), signatures.getName(obj1));
+			for (EObject obj2 : eObjects) {
+				final double expected = NameSimilarity.nameSimilarityMetric(NameSimilarity.findName(obj1),
+						NameSimilarity.findName(obj2));
+				assertEquals(expected, signatures.nameSimilarity(obj1, obj2));
+			}
+		}
+	}
+
+	/**
+	 * Checks the content similarities with and without filter.
+	 * 
+	 * @throws FactoryException
+	 *             Not expected.
+	 */
+	public void testContentSimilarity() throws FactoryException {
+		final MetamodelFilter filter = new MetamodelFilter();
+		filter.analyseModel(EcorePackage.eINSTANCE);
+		final SignatureCache unfiltered = new SignatureCache(null);
+		final SignatureCache filtered = new SignatureCache(filter);
+		for (EObject obj1 : eObjects) {
+			for (EObject obj2 : eObjects) {
+				double expected = NameSimilarity.nameSimilarityMetric(NameSimilarity.contentValue(obj1),
+						NameSimilarity.contentValue(obj2));
+				assertEquals(expected, unfiltered.contentSimilarity(obj1, obj2));
+				expected = NameSimilarity.nameSimilarityMetric(NameSimilarity.contentValue(obj1, filter),
+						NameSimilarity.contentValue(obj2, filter));
+				assertEquals(expected, filtered.contentSimilarity(obj1, obj2));
+			}
+		}
+	}
+
+	/**
+	 * Checks the relations and type similarities.
+	 * 
+	 * @throws FactoryException
+	 *             Not expected.
+	 */
+	public void testStructureSimilarity() throws FactoryException {
+		final SignatureCache signatures = new SignatureCache(null);
+		for (EObject obj1 : eObjects) {
+			for (EObject obj2 : eObjects) {
+				assertEquals(StructureSimilarity.relationsSimilarityMetric(obj1, obj2, null), signatures
+						.relationsSimilarity(obj1, obj2));
+				assertEquals(StructureSimilarity.typeSimilarityMetric(obj1, obj2), signatures.typeSimilarity(
+						obj1, obj2));
+			}
+		}
+	}
+
+	/**
+	 * Checks the content, relations and type similarities between all elements of the test input model.
+	 * 
+	 * @throws Exception
+	 *             Not expected.
+	 */
+	public void testInputModel() throws Exception {
+		final File modelFile = new File(FileLocator.toFileURL(
+				EMFCompareTestPlugin.getDefault().getBundle().getEntry(INPUT_MODEL_PATH)).getFile());
+		final EObject inputModel = ModelUtils.load(modelFile, new ResourceSetImpl());
+		final MetamodelFilter filter = new MetamodelFilter();
+		filter.analyseModel(inputModel);
+
+		final List<EObject> contents = getAllContents(inputModel);
+		checkSimilarities(contents, contents, null);
+		checkSimilarities(contents, contents, filter);
+	}
+
+	/**
+	 * Checks the content, relations and type similarities between the elements of two distinct library
+	 * models.
+	 * 
+	 * @throws FactoryException
+	 *             Not expected.
+	 */
+	public void testLibraryModels() throws FactoryException {
+		final int writerCount = 10;
+		final int bookPerWriterCount = 3;
+		final EObject library1 = EcoreModelUtils.createModel(writerCount, bookPerWriterCount, 20121015L);
+		final EObject library2 = EcoreModelUtils.createModel(writerCount, bookPerWriterCount, 20121016L);
+		final MetamodelFilter filter = new MetamodelFilter();
+		filter.analyseModel(library1);
+		filter.analyseModel(library2);
+
+		final List<EObject> contents1 = getAllContents(library1);
+		final List<EObject> contents2 = getAllContents(library2);
+		checkSimilarities(contents1, contents2, null);
+		checkSimilarities(contents1, contents2, filter);
+	}
+
+	/**
+	 * Checks that the content, relations and type similarities computed by a {@link SignatureCache} are those
+	 * of {@link NameSimilarity} and {@link StructureSimilarity} for each pair of the given EObjects.
+	 * 
+	 * @param left
+	 *            EObjects that will be compared with each of the <code>right</code> EObjects.
+	 * @param right
+	 *            EObjects that will be compared with each of the <code>left</code> EObjects.
+	 * @param filter
+	 *            Filter used for the content and relations values, <code>null</code> to consider all
+	 *            features.
+	 * @throws FactoryException
+	 *             Not expected.
+	 */
+	private static void checkSimilarities(List<EObject> left, List<EObject> right, MetamodelFilter filter)
+			throws FactoryException {
+		final SignatureCache signatures = new SignatureCache(filter);
+		for (EObject obj1 : left) {
+			for (EObject obj2 : right) {
+				final double content = NameSimilarity.nameSimilarityMetric(NameSimilarity.contentValue(obj1,
+						filter), NameSimilarity.contentValue(obj2, filter));
+				assertEquals(content, signatures.contentSimilarity(obj1, obj2));
+				assertEquals(StructureSimilarity.relationsSimilarityMetric(obj1, obj2, filter), signatures
+						.relationsSimilarity(obj1, obj2));
+				assertEquals(StructureSimilarity.typeSimilarityMetric(obj1, obj2), signatures.typeSimilarity(
+						obj1, obj2));
+			}
+		}
+	}
+
+	/**
+	 * Returns the given root along with all of its direct and indirect contents.
+	 * 
+	 * @param root
+	 *            Root of the model.
+	 * @return <code>root</code> along with all of its direct and indirect contents.
+	 */
+	private static List<EObject> getAllContents(EObject root) {
+		final List<EObject> contents = new ArrayList<EObject>();
+		contents.add(root);
+		final Iterator<EObject> iterator = root.eAllContents();
+		while (iterator.hasNext()) {
+			contents.add(iterator.next());
+		}
+		return contents;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		eObjects = new ArrayList<EObject>();
+		eObjects.add(EcorePackage.eINSTANCE);
+		eObjects.addAll(EcorePackage.eINSTANCE.getEClassifiers());
+		eObjects.addAll(EcorePackage.Literals.ECLASS.getEStructuralFeatures());
+		eObjects.addAll(EcorePackage.Literals.EREFERENCE.getEStructuralFeatures());
+	}
+}
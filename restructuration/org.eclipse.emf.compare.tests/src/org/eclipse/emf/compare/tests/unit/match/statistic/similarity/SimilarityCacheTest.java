@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Obeo.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.tests.unit.match.statistic.similarity;
+
+import junit.framework.TestCase;
+
+import org.eclipse.emf.compare.match.engine.internal.SimilarityCache;
+
+/**
+ * Tests the primitive cache used to store the similarity metrics.
+ * 
+ * @author <a href="mailto:laurent.goubet@obeo.fr">Laurent Goubet</a>
+ */
+public class SimilarityCacheTest extends TestCase {
+	/** Number of entries we'll put in the caches. */
+	private static final int ENTRY_COUNT = 10000;
+
+	/** Maximum capacity of the bounded caches. */
+	private static final int MAXIMUM_CAPACITY = 64;
+
+	/**
+	 * Checks that cached values can be retrieved, and that hits and misses are counted.
+	 */
+	public void testGetAndPut() {
+		final SimilarityCache cache = new SimilarityCache();
+		assertTrue(Double.isNaN(cache.get(1L)));
+		cache.put(1L, 0.5d);
+		cache.put(1L << Integer.SIZE | 2L, 0.25d);
+		cache.put(1L, 0.75d);
+
+		assertEquals(0.75d, cache.get(1L));
+		assertEquals(0.25d, cache.get(1L << Integer.SIZE | 2L));
+		assertTrue(Double.isNaN(cache.get(2L << Integer.SIZE | 1L)));
+		assertEquals(2, cache.size());
+		assertEquals(2L, cache.getHitCount());
+		assertEquals(2L, cache.getMissCount());
+		assertEquals(0L, cache.getEvictionCount());
+	}
+
+	/**
+	 * Checks that no entry is lost while the cache grows.
+	 */
+	public void testGrowth() {
+		final SimilarityCache cache = new SimilarityCache(8, ENTRY_COUNT * 4);
+		for (int i = 1; i <= ENTRY_COUNT; i++) {
+			cache.put((long)i << Integer.SIZE | (i + 1), i);
+		}
+		for (int i = 1; i <= ENTRY_COUNT; i++) {
+			assertEquals((double)i, cache.get((long)i << Integer.SIZE | (i + 1)));
+		}
+		assertEquals(ENTRY_COUNT, cache.size());
+		assertEquals(0L, cache.getEvictionCount());
+	}
+
+	/**
+	 * Checks that a full cache evicts entries rather than grow past its maximum capacity, and that the
+	 * entries it still holds have the right values.
+	 */
+	public void testEviction() {
+		final SimilarityCache cache = new SimilarityCache(8, MAXIMUM_CAPACITY);
+		for (int i = 1; i <= ENTRY_COUNT; i++) {
+			cache.put(i, i);
+		}
+		assertTrue(cache.size() <= MAXIMUM_CAPACITY);
+		assertEquals(ENTRY_COUNT - cache.size(), cache.getEvictionCount());
+		int found = 0;
+		for (int i = 1; i <= ENTRY_COUNT; i++) {
+			final double value = cache.get(i);
+			if (!Double.isNaN(value)) {
+				assertEquals((double)i, value);
+				found++;
+			}
+		}
+		assertEquals(cache.size(), found);
+		// The latest entry is always there
+		assertEquals((double)ENTRY_COUNT, cache.get(ENTRY_COUNT));
+	}
+
+	/**
+	 * Checks that 0 cannot be used as a key.
+	 */
+	public void testZeroKey() {
+		try {
+			new SimilarityCache().put(0L, 1d);
+			fail("0 should not be accepted as a key"); //$NON-NLS-1$
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}